@@ -0,0 +1,238 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.spring.data.inmemory.repository.config.InMemorySnapshotLifecycle;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link Endpoint @Endpoint} exposing the tables of an {@link InMemoryEntityTableStore}: their domain class, primary
+ * key, store mode, storage, secondary indexes, row count and estimated memory, along with the time of the latest
+ * snapshot. The estimated memory is {@link InMemoryEntityStore#estimateMemory() sampled}, reading the endpoint hence
+ * neither locks nor traverses the tables.
+ *
+ * <p>The endpoint also performs maintenance operations: {@literal snapshot} takes a snapshot right away,
+ * {@literal compact} compacts the write-ahead log, and {@literal reindex} rebuilds the secondary indexes of either the
+ * given or all tables.
+ *
+ * @author Vincent Nadoll
+ */
+@Endpoint(id = "inmemory")
+public class InMemoryEndpoint {
+
+    private final InMemoryEntityTableStore store;
+
+    @Nullable
+    private final InMemorySnapshotLifecycle snapshotLifecycle;
+
+    /**
+     * Creates a new endpoint.
+     *
+     * @param store             must not be {@literal null}
+     * @param snapshotLifecycle the lifecycle persisting the tables, {@literal null} if they aren't persisted
+     */
+    public InMemoryEndpoint(InMemoryEntityTableStore store, @Nullable InMemorySnapshotLifecycle snapshotLifecycle) {
+        Assert.notNull(store, "Entity store must not be null");
+        this.store = store;
+        this.snapshotLifecycle = snapshotLifecycle;
+    }
+
+    /**
+     * Returns the descriptors of all tables.
+     */
+    @ReadOperation
+    public StoreDescriptor tables() {
+        Map<String, TableDescriptor> tables = new LinkedHashMap<>();
+        store.getTables().forEach((name, table) -> tables.put(name, new TableDescriptor(table)));
+        return new StoreDescriptor(tables, store.getLastSnapshot().orElse(null));
+    }
+
+    /**
+     * Returns the descriptor of the given table.
+     *
+     * @param table the fully qualified name of the table's domain class
+     * @return the table's descriptor or {@literal null} if there's no such table, rendered as {@literal 404}
+     */
+    @ReadOperation
+    @Nullable
+    public TableDescriptor table(@Selector String table) {
+        InMemoryEntityStore<?> entityStore = store.getTables().get(table);
+        return null == entityStore ? null : new TableDescriptor(entityStore);
+    }
+
+    /**
+     * Performs the given maintenance operation.
+     *
+     * @param operation either {@literal snapshot}, {@literal compact} or {@literal reindex}
+     * @param table     the fully qualified name of the domain class whose table to reindex, all tables if not given
+     * @throws InvalidEndpointRequestException in case the operation is unknown or can't be performed
+     */
+    @WriteOperation
+    public void perform(@Selector String operation, @Nullable String table) {
+        switch (operation) {
+            case "snapshot":
+                takeSnapshot();
+                break;
+            case "compact":
+                compact();
+                break;
+            case "reindex":
+                reindex(table);
+                break;
+            default:
+                throw new InvalidEndpointRequestException("Unknown operation [" + operation + "]",
+                    "Unknown operation, expected one of snapshot, compact or reindex");
+        }
+    }
+
+    private void takeSnapshot() {
+        try {
+            requireSnapshotLifecycle().takeSnapshot();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write a snapshot of the in-memory repositories", e);
+        }
+    }
+
+    private void compact() {
+        try {
+            requireSnapshotLifecycle().compact();
+        } catch (IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), "Write-ahead log isn't available");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact the write-ahead log", e);
+        }
+    }
+
+    private InMemorySnapshotLifecycle requireSnapshotLifecycle() {
+        if (null == snapshotLifecycle) {
+            throw new InvalidEndpointRequestException("In-memory repositories aren't persisted",
+                "No snapshot location has been configured");
+        }
+
+        return snapshotLifecycle;
+    }
+
+    private void reindex(@Nullable String table) {
+        Collection<InMemoryEntityStore<?>> tables;
+        if (null == table) {
+            tables = store.getTables().values();
+        } else {
+            InMemoryEntityStore<?> entityStore = store.getTables().get(table);
+            if (null == entityStore) {
+                throw new InvalidEndpointRequestException("Unknown table [" + table + "]", "Unknown table");
+            }
+            tables = Collections.singletonList(entityStore);
+        }
+
+        tables.forEach(InMemoryEntityStore::rebuildIndexes);
+    }
+
+    /**
+     * Description of all tables of the store.
+     */
+    public static final class StoreDescriptor {
+
+        private final Map<String, TableDescriptor> tables;
+
+        @Nullable
+        private final Instant lastSnapshot;
+
+        private StoreDescriptor(Map<String, TableDescriptor> tables, @Nullable Instant lastSnapshot) {
+            this.tables = tables;
+            this.lastSnapshot = lastSnapshot;
+        }
+
+        public Map<String, TableDescriptor> getTables() {
+            return tables;
+        }
+
+        @Nullable
+        public Instant getLastSnapshot() {
+            return lastSnapshot;
+        }
+    }
+
+    /**
+     * Description of a single table. Sizes are given in bytes.
+     */
+    public static final class TableDescriptor {
+
+        private final String domainClass;
+
+        @Nullable
+        private final String idType;
+
+        private final String primaryKeyGenerator;
+
+        private final String storeMode;
+
+        private final String storage;
+
+        private final Map<String, IndexType> indexes;
+
+        private final long rows;
+
+        private final long estimatedMemory;
+
+        private TableDescriptor(InMemoryEntityStore<?> table) {
+            this.domainClass = table.getDomainClass().getName();
+            this.idType = table.getIdType().map(Class::getName).orElse(null);
+            this.primaryKeyGenerator = table.getPrimaryKeyGeneratorClass().getName();
+            TableDefinition definition = table.getDefinition();
+            this.storeMode = definition.getStoreMode().name();
+            this.storage = definition.getStorage().name();
+            this.indexes = table.getIndexTypes();
+            this.rows = table.count(table.getDomainClass());
+            this.estimatedMemory = table.estimateMemory();
+        }
+
+        public String getDomainClass() {
+            return domainClass;
+        }
+
+        @Nullable
+        public String getIdType() {
+            return idType;
+        }
+
+        public String getPrimaryKeyGenerator() {
+            return primaryKeyGenerator;
+        }
+
+        public String getStoreMode() {
+            return storeMode;
+        }
+
+        public String getStorage() {
+            return storage;
+        }
+
+        public Map<String, IndexType> getIndexes() {
+            return indexes;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getEstimatedMemory() {
+            return estimatedMemory;
+        }
+    }
+}
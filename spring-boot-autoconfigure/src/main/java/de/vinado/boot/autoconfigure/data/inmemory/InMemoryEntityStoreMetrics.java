@@ -0,0 +1,133 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.spring.data.inmemory.repository.support.EntityStoreObserver;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.springframework.util.Assert;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the operations of an in-memory entity store as Micrometer meters, tagged by the fully qualified name of
+ * the table's domain class.
+ *
+ * <p>The following meters are published:
+ * <ul>
+ *     <li>{@literal inmemory.table.rows}, the number of rows of a table</li>
+ *     <li>{@literal inmemory.table.memory}, the {@link InMemoryEntityStore#estimateMemory() estimated memory} occupied
+ *     by a table</li>
+ *     <li>{@literal inmemory.operations}, a timer per table and operation, whose percentile histogram can be enabled
+ *     by {@literal management.metrics.distribution.percentiles-histogram.inmemory.operations}</li>
+ *     <li>{@literal inmemory.queries}, the number of queries on a property answered through an index or by scanning
+ *     the table</li>
+ * </ul>
+ *
+ * @author Vincent Nadoll
+ */
+public class InMemoryEntityStoreMetrics implements EntityStoreObserver {
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final MeterRegistry registry;
+
+    private final Map<Class<?>, TableMeters> tables = new ConcurrentHashMap<>();
+
+    public InMemoryEntityStoreMetrics(MeterRegistry registry) {
+        Assert.notNull(registry, "Meter registry must not be null");
+        this.registry = registry;
+    }
+
+    @Override
+    public void onTableAdded(Class<?> domainClass, InMemoryEntityStore<?> table) {
+        meters(domainClass).table = table;
+    }
+
+    @Override
+    public void onOperation(Class<?> domainClass, Operation operation, long duration) {
+        meters(domainClass).timers[operation.ordinal()].record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onQuery(Class<?> domainClass, String propertyName, boolean indexed) {
+        Counter[] counters = meters(domainClass).queries.computeIfAbsent(propertyName, property -> new Counter[]{
+            queryCounter(domainClass, property, "scan"),
+            queryCounter(domainClass, property, "index"),
+        });
+        counters[indexed ? 1 : 0].increment();
+    }
+
+    private Counter queryCounter(Class<?> domainClass, String propertyName, String access) {
+        return Counter.builder("inmemory.queries")
+            .description("Number of queries on a property")
+            .tags(tags(domainClass).and("property", propertyName, "access", access))
+            .register(registry);
+    }
+
+    private TableMeters meters(Class<?> domainClass) {
+        TableMeters meters = tables.get(domainClass);
+        return null == meters ? tables.computeIfAbsent(domainClass, this::createMeters) : meters;
+    }
+
+    private TableMeters createMeters(Class<?> domainClass) {
+        Timer[] timers = new Timer[OPERATIONS.length];
+        for (Operation operation : OPERATIONS) {
+            timers[operation.ordinal()] = Timer.builder("inmemory.operations")
+                .description("Operations performed on the table")
+                .tags(tags(domainClass).and("operation", operation.name().toLowerCase(Locale.ROOT)))
+                .register(registry);
+        }
+        TableMeters meters = new TableMeters(domainClass, timers);
+        Gauge.builder("inmemory.table.rows", meters, TableMeters::rows)
+            .description("Number of rows of the table")
+            .tags(tags(domainClass))
+            .register(registry);
+        Gauge.builder("inmemory.table.memory", meters, TableMeters::memory)
+            .description("Estimated memory occupied by the table's rows")
+            .baseUnit(BaseUnits.BYTES)
+            .tags(tags(domainClass))
+            .register(registry);
+        return meters;
+    }
+
+    private static Tags tags(Class<?> domainClass) {
+        return Tags.of("table", domainClass.getName());
+    }
+
+    /**
+     * Meters of a table, registered once per domain class. The gauges read the table most recently added, so they
+     * keep measuring the table in use if it's added again, e.g. to a new store.
+     */
+    private static final class TableMeters {
+
+        private final Class<?> domainClass;
+
+        private final Timer[] timers;
+
+        private final Map<String, Counter[]> queries = new ConcurrentHashMap<>();
+
+        private volatile InMemoryEntityStore<?> table;
+
+        private TableMeters(Class<?> domainClass, Timer[] timers) {
+            this.domainClass = domainClass;
+            this.timers = timers;
+        }
+
+        private double rows() {
+            InMemoryEntityStore<?> table = this.table;
+            return null == table ? Double.NaN : table.count(domainClass);
+        }
+
+        private double memory() {
+            InMemoryEntityStore<?> table = this.table;
+            return null == table ? Double.NaN : table.estimateMemory();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.spring.data.inmemory.repository.support.QueryStatistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * {@link Endpoint @Endpoint} exposing the {@link QueryStatistics} of the in-memory repositories, listing the queries
+ * scanning the most rows first.
+ *
+ * @author Vincent Nadoll
+ */
+@Endpoint(id = "inmemoryqueries")
+public class InMemoryQueriesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final QueryStatistics statistics;
+
+    public InMemoryQueriesEndpoint(QueryStatistics statistics) {
+        Assert.notNull(statistics, "Query statistics must not be null");
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the statistics of the queries scanning the most rows.
+     *
+     * @param limit the maximum number of queries to return, ten if not given
+     * @return the queries' statistics
+     */
+    @ReadOperation
+    public List<QueryStatistics.QuerySummary> queries(@Nullable Integer limit) {
+        return statistics.getTopQueries(null == limit ? DEFAULT_LIMIT : limit);
+    }
+
+    /**
+     * Discards the statistics gathered so far.
+     */
+    @DeleteOperation
+    public void reset() {
+        statistics.reset();
+    }
+}
@@ -0,0 +1,40 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for recording the executions of in-memory repository queries.
+ *
+ * @author Vincent Nadoll
+ */
+@ConfigurationProperties(prefix = "spring.data.inmemory.query-statistics")
+public class InMemoryQueryStatisticsProperties {
+
+    /**
+     * Whether to record the executions of queries.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Duration from which on a query execution is logged as slow. If not set, no execution is logged.
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(100);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+}
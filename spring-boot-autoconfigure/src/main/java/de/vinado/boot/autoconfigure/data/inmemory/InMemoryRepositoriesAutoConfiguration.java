@@ -2,25 +2,189 @@ package de.vinado.boot.autoconfigure.data.inmemory;
 
 import de.vinado.spring.data.inmemory.repository.config.DelegatingInMemoryRepositoryConfiguration;
 import de.vinado.spring.data.inmemory.repository.config.InMemoryRepositoryConfigExtension;
+import de.vinado.spring.data.inmemory.repository.config.InMemorySnapshotLifecycle;
+import de.vinado.spring.data.inmemory.repository.config.SnapshotFormat;
+import de.vinado.spring.data.inmemory.repository.support.EntityStoreObserver;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
 import de.vinado.spring.data.inmemory.repository.support.InMemoryRepositoryFactoryBean;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryTransactionManager;
+import de.vinado.spring.data.inmemory.repository.support.QueryStatistics;
+import de.vinado.spring.data.inmemory.repository.support.ReactiveInMemoryRepositoryFactoryBean;
+import de.vinado.spring.data.inmemory.repository.support.WriteAheadLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.transaction.TransactionManager;
+import reactor.core.publisher.Flux;
 
 /**
  * {@link de.vinado.spring.data.inmemory.repository.config.EnableInMemoryRepositories Auto-Configuration} for in-memory
  * repositories. Once in effect, the auto-configuration is the equivalent of enabling in-memory repositories using the
  * {@link de.vinado.spring.data.inmemory.repository.config.EnableInMemoryRepositories @EnableInMemoryRepositories}
- * annotation.
+ * annotation. If Reactor is on the classpath, reactive repositories are enabled as well, the equivalent of the
+ * {@literal @EnableReactiveInMemoryRepositories} annotation, sharing their tables with the blocking ones. Setting
+ * {@literal spring.data.inmemory.snapshot.location} additionally persists the repositories across restarts, enabling
+ * {@literal spring.data.inmemory.snapshot.wal} also between snapshots. Unless the application defines a transaction
+ * manager of its own, e.g. for a {@literal DataSource}, an {@link InMemoryTransactionManager} is registered, so that
+ * {@literal @Transactional} methods apply their changes atomically. If Micrometer is on the classpath and a
+ * {@link MeterRegistry} is defined, the store publishes {@link InMemoryEntityStoreMetrics metrics} unless
+ * {@literal spring.data.inmemory.metrics.enabled} is set to {@literal false}, in which case it isn't instrumented at
+ * all. The executions of queries are recorded in {@link QueryStatistics}, logging slow ones and exposing the ones
+ * scanning the most rows through the {@link InMemoryQueriesEndpoint actuator endpoint}, unless
+ * {@literal spring.data.inmemory.query-statistics.enabled} is set to {@literal false}. The tables themselves are
+ * listed, and snapshots, compaction and reindexing triggered, through the {@link InMemoryEndpoint inmemory endpoint}.
  *
  * @author Vincent Nadoll
  */
 @Configuration(proxyBeanMethods = false)
 @ConditionalOnMissingBean({InMemoryRepositoryFactoryBean.class, InMemoryRepositoryConfigExtension.class})
+@AutoConfigureAfter(name = {
+    "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration",
+    "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+    "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+    "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration"
+})
+@AutoConfigureBefore(TransactionAutoConfiguration.class)
 @Import(InMemoryRepositoriesRegistrar.class)
 public class InMemoryRepositoriesAutoConfiguration {
 
+    /**
+     * Sets up the entity store and the identifier and table mappings shared by all in-memory repositories.
+     */
     @Configuration(proxyBeanMethods = false)
     public static class InMemoryRepositoryConfiguration extends DelegatingInMemoryRepositoryConfiguration {
     }
+
+    /**
+     * Enables reactive in-memory repositories if Reactor is on the classpath.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Flux.class)
+    @ConditionalOnMissingBean(ReactiveInMemoryRepositoryFactoryBean.class)
+    @Import(ReactiveInMemoryRepositoriesRegistrar.class)
+    public static class ReactiveInMemoryRepositoryConfiguration {
+    }
+
+    /**
+     * Registers an {@link InMemoryTransactionManager} unless the application defines a transaction manager of its own.
+     */
+    @Configuration(proxyBeanMethods = false)
+    public static class InMemoryTransactionManagerConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(TransactionManager.class)
+        public InMemoryTransactionManager transactionManager(InMemoryEntityTableStore store) {
+            return new InMemoryTransactionManager(store);
+        }
+    }
+
+    /**
+     * Publishes the {@link InMemoryEntityStoreMetrics metrics} of the entity store to the application's
+     * {@link MeterRegistry}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = "spring.data.inmemory.metrics", name = "enabled", matchIfMissing = true)
+    public static class InMemoryMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(EntityStoreObserver.class)
+        public InMemoryEntityStoreMetrics inMemoryEntityStoreMetrics(MeterRegistry registry) {
+            return new InMemoryEntityStoreMetrics(registry);
+        }
+    }
+
+    /**
+     * Records the executions of queries in {@link QueryStatistics}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "spring.data.inmemory.query-statistics", name = "enabled", matchIfMissing = true)
+    @EnableConfigurationProperties(InMemoryQueryStatisticsProperties.class)
+    public static class InMemoryQueryStatisticsConfiguration {
+
+        /**
+         * Creates the query statistics, logging the executions taking at least the configured threshold.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public QueryStatistics inMemoryQueryStatistics(InMemoryQueryStatisticsProperties properties) {
+            QueryStatistics statistics = new QueryStatistics();
+            statistics.setSlowQueryThreshold(properties.getSlowQueryThreshold());
+            return statistics;
+        }
+
+        /**
+         * Exposes the recorded {@link QueryStatistics} through the {@link InMemoryQueriesEndpoint}.
+         */
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(Endpoint.class)
+        @ConditionalOnAvailableEndpoint(endpoint = InMemoryQueriesEndpoint.class)
+        public static class InMemoryQueriesEndpointConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public InMemoryQueriesEndpoint inMemoryQueriesEndpoint(QueryStatistics statistics) {
+                return new InMemoryQueriesEndpoint(statistics);
+            }
+        }
+    }
+
+    /**
+     * Exposes the tables of the entity store and their maintenance operations through the {@link InMemoryEndpoint}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    @ConditionalOnAvailableEndpoint(endpoint = InMemoryEndpoint.class)
+    public static class InMemoryEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public InMemoryEndpoint inMemoryEndpoint(InMemoryEntityTableStore store,
+                                                 ObjectProvider<InMemorySnapshotLifecycle> snapshotLifecycle) {
+            return new InMemoryEndpoint(store, snapshotLifecycle.getIfUnique());
+        }
+    }
+
+    /**
+     * Persists the in-memory repositories across restarts once a snapshot location is set.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "spring.data.inmemory.snapshot", name = "location")
+    @EnableConfigurationProperties(InMemorySnapshotProperties.class)
+    public static class InMemorySnapshotConfiguration {
+
+        /**
+         * Creates the lifecycle restoring the tables on startup and persisting them in the configured format, by
+         * snapshots only or along with a write-ahead log if it's enabled.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public InMemorySnapshotLifecycle inMemorySnapshotLifecycle(InMemoryEntityTableStore store,
+                                                                   InMemorySnapshotProperties properties) {
+            SnapshotFormat format = properties.isMapped() ? SnapshotFormat.MAPPED
+                : properties.isCompress() ? SnapshotFormat.COMPRESSED
+                : SnapshotFormat.PLAIN;
+            InMemorySnapshotProperties.WriteAheadLog wal = properties.getWal();
+            if (wal.isEnabled()) {
+                WriteAheadLog log = new WriteAheadLog(properties.getLocation(), wal.getFsync(), wal.getFsyncInterval(),
+                    wal.getCompactionThreshold().toBytes(), format);
+                return new InMemorySnapshotLifecycle(store, log, properties.getInterval());
+            }
+
+            return new InMemorySnapshotLifecycle(store, properties.getLocation(), properties.getInterval(), format);
+        }
+    }
 }
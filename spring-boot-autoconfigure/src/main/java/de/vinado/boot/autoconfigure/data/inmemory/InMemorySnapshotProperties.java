@@ -0,0 +1,134 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.spring.data.inmemory.repository.config.FsyncPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration properties for persisting in-memory repositories across restarts.
+ *
+ * @author Vincent Nadoll
+ */
+@ConfigurationProperties(prefix = "spring.data.inmemory.snapshot")
+public class InMemorySnapshotProperties {
+
+    /**
+     * Snapshot file the tables are restored from on startup and persisted to.
+     */
+    private Path location;
+
+    /**
+     * Time between two snapshots. If not set, a snapshot is only taken on shutdown.
+     */
+    private Duration interval;
+
+    /**
+     * Whether to compress the snapshot.
+     */
+    private boolean compress = true;
+
+    /**
+     * Whether to memory-map the snapshot on startup, serving each table from the mapping until it's first written to,
+     * rather than reading it. Mapped snapshots are never compressed.
+     */
+    private boolean mapped;
+
+    private final WriteAheadLog wal = new WriteAheadLog();
+
+    public Path getLocation() {
+        return location;
+    }
+
+    public void setLocation(Path location) {
+        this.location = location;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    public void setMapped(boolean mapped) {
+        this.mapped = mapped;
+    }
+
+    public WriteAheadLog getWal() {
+        return wal;
+    }
+
+    /**
+     * Write-ahead log making the repositories durable between snapshots.
+     */
+    public static class WriteAheadLog {
+
+        /**
+         * Whether to log every change next to the snapshot.
+         */
+        private boolean enabled;
+
+        /**
+         * When to force the log to the storage device.
+         */
+        private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+        /**
+         * Time between two fsyncs if the fsync policy is INTERVAL.
+         */
+        private Duration fsyncInterval = Duration.ofSeconds(1);
+
+        /**
+         * Size of the log after which a snapshot is taken and the log is truncated.
+         */
+        private DataSize compactionThreshold = DataSize.ofMegabytes(64);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public FsyncPolicy getFsync() {
+            return fsync;
+        }
+
+        public void setFsync(FsyncPolicy fsync) {
+            this.fsync = fsync;
+        }
+
+        public Duration getFsyncInterval() {
+            return fsyncInterval;
+        }
+
+        public void setFsyncInterval(Duration fsyncInterval) {
+            this.fsyncInterval = fsyncInterval;
+        }
+
+        public DataSize getCompactionThreshold() {
+            return compactionThreshold;
+        }
+
+        public void setCompactionThreshold(DataSize compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.spring.data.inmemory.repository.config.EnableReactiveInMemoryRepositories;
+import de.vinado.spring.data.inmemory.repository.config.ReactiveInMemoryRepositoryConfigExtension;
+import org.springframework.boot.autoconfigure.data.AbstractRepositoryConfigurationSourceSupport;
+import org.springframework.data.repository.config.RepositoryConfigurationExtension;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * {@link org.springframework.context.annotation.ImportBeanDefinitionRegistrar} used to auto-configure reactive
+ * in-memory repositories.
+ *
+ * @author Vincent Nadoll
+ */
+class ReactiveInMemoryRepositoriesRegistrar extends AbstractRepositoryConfigurationSourceSupport {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<? extends Annotation> getAnnotation() {
+        return EnableReactiveInMemoryRepositories.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<?> getConfiguration() {
+        return EnableReactiveInMemoryRepositoriesConfiguration.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RepositoryConfigurationExtension getRepositoryConfigurationExtension() {
+        return new ReactiveInMemoryRepositoryConfigExtension();
+    }
+
+    @EnableReactiveInMemoryRepositories
+    private static class EnableReactiveInMemoryRepositoriesConfiguration {
+    }
+}
@@ -0,0 +1,143 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.boot.autoconfigure.data.inmemory.InMemoryEndpoint.StoreDescriptor;
+import de.vinado.boot.autoconfigure.data.inmemory.InMemoryEndpoint.TableDescriptor;
+import de.vinado.boot.autoconfigure.data.inmemory.InMemoryRepositoriesAutoConfigurationTest.TestConfiguration;
+import de.vinado.boot.autoconfigure.data.inmemory.city.City;
+import de.vinado.boot.autoconfigure.data.inmemory.city.CityRepository;
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class InMemoryEndpointTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(InMemoryRepositoriesAutoConfiguration.class))
+        .withUserConfiguration(TestConfiguration.class)
+        .withPropertyValues("management.endpoints.web.exposure.include=inmemory");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tables_shouldDescribeAllTables() {
+        contextRunner.run(context -> {
+            context.getBean(CityRepository.class).saveAll(Arrays.asList(new City("Berlin"), new City("Hamburg")));
+
+            StoreDescriptor store = context.getBean(InMemoryEndpoint.class).tables();
+
+            assertEquals(Collections.singleton(City.class.getName()), store.getTables().keySet());
+            assertNull(store.getLastSnapshot());
+            TableDescriptor table = store.getTables().get(City.class.getName());
+            assertEquals(City.class.getName(), table.getDomainClass());
+            assertEquals(Integer.class.getName(), table.getIdType());
+            assertEquals(IntegerSequenceGenerator.class.getName(), table.getPrimaryKeyGenerator());
+            assertEquals("CONCURRENT", table.getStoreMode());
+            assertEquals("HEAP", table.getStorage());
+            assertEquals(Collections.singletonMap("name", IndexType.HASH), table.getIndexes());
+            assertEquals(2, table.getRows());
+            assertTrue(table.getEstimatedMemory() > 0);
+        });
+    }
+
+    @Test
+    void table_shouldDescribeGivenTable() {
+        contextRunner.run(context -> {
+            context.getBean(CityRepository.class).save(new City("Berlin"));
+            InMemoryEndpoint endpoint = context.getBean(InMemoryEndpoint.class);
+
+            assertEquals(1, endpoint.table(City.class.getName()).getRows());
+            assertNull(endpoint.table(String.class.getName()));
+        });
+    }
+
+    @Test
+    void snapshot_shouldWriteSnapshot() {
+        Path snapshot = directory.resolve("snapshot");
+        contextRunner
+            .withPropertyValues("spring.data.inmemory.snapshot.location=" + snapshot)
+            .run(context -> {
+                context.getBean(CityRepository.class).save(new City("Berlin"));
+                InMemoryEndpoint endpoint = context.getBean(InMemoryEndpoint.class);
+
+                endpoint.perform("snapshot", null);
+
+                assertTrue(Files.exists(snapshot));
+                assertNotNull(endpoint.tables().getLastSnapshot());
+            });
+    }
+
+    @Test
+    void snapshotWithoutLocation_shouldThrowException() {
+        contextRunner.run(context -> assertThrows(InvalidEndpointRequestException.class,
+            () -> context.getBean(InMemoryEndpoint.class).perform("snapshot", null)));
+    }
+
+    @Test
+    void compact_shouldCheckpointWriteAheadLog() {
+        Path snapshot = directory.resolve("snapshot");
+        contextRunner
+            .withPropertyValues("spring.data.inmemory.snapshot.location=" + snapshot,
+                "spring.data.inmemory.snapshot.wal.enabled=true")
+            .run(context -> {
+                context.getBean(CityRepository.class).save(new City("Berlin"));
+
+                context.getBean(InMemoryEndpoint.class).perform("compact", null);
+
+                assertTrue(Files.exists(snapshot));
+            });
+    }
+
+    @Test
+    void compactWithoutWriteAheadLog_shouldThrowException() {
+        contextRunner
+            .withPropertyValues("spring.data.inmemory.snapshot.location=" + directory.resolve("snapshot"))
+            .run(context -> assertThrows(InvalidEndpointRequestException.class,
+                () -> context.getBean(InMemoryEndpoint.class).perform("compact", null)));
+    }
+
+    @Test
+    void reindex_shouldKeepIndexesUsable() {
+        contextRunner.run(context -> {
+            CityRepository repository = context.getBean(CityRepository.class);
+            repository.saveAll(Arrays.asList(new City("Berlin"), new City("Hamburg")));
+            InMemoryEndpoint endpoint = context.getBean(InMemoryEndpoint.class);
+
+            endpoint.perform("reindex", City.class.getName());
+            endpoint.perform("reindex", null);
+
+            assertEquals(1, repository.findByName("Berlin").size());
+            assertEquals(1, repository.countByName("Hamburg"));
+        });
+    }
+
+    @Test
+    void reindexOfUnknownTable_shouldThrowException() {
+        contextRunner.run(context -> assertThrows(InvalidEndpointRequestException.class,
+            () -> context.getBean(InMemoryEndpoint.class).perform("reindex", String.class.getName())));
+    }
+
+    @Test
+    void unknownOperation_shouldThrowException() {
+        contextRunner.run(context -> assertThrows(InvalidEndpointRequestException.class,
+            () -> context.getBean(InMemoryEndpoint.class).perform("vacuum", null)));
+    }
+}
@@ -0,0 +1,95 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.boot.autoconfigure.data.inmemory.city.City;
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.support.EntityStoreObserver.Operation;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class InMemoryEntityStoreMetricsTest {
+
+    private MeterRegistry registry;
+    private InMemoryEntityStoreMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new InMemoryEntityStoreMetrics(registry);
+    }
+
+    @Test
+    void operation_shouldBeTimed() {
+        metrics.onOperation(City.class, Operation.STORE, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.onOperation(City.class, Operation.STORE, TimeUnit.MILLISECONDS.toNanos(5));
+
+        Timer timer = registry.get("inmemory.operations")
+            .tags("table", City.class.getName(), "operation", "store")
+            .timer();
+        assertEquals(2, timer.count());
+        assertEquals(8, timer.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, registry.get("inmemory.operations").tag("operation", "find").timer().count());
+    }
+
+    @Test
+    void query_shouldBeCountedByAccess() {
+        metrics.onQuery(City.class, "name", true);
+        metrics.onQuery(City.class, "name", true);
+        metrics.onQuery(City.class, "name", false);
+
+        assertEquals(2, registry.get("inmemory.queries").tags("property", "name", "access", "index").counter().count());
+        assertEquals(1, registry.get("inmemory.queries").tags("property", "name", "access", "scan").counter().count());
+    }
+
+    @Test
+    void addedTable_shouldBeMeasured() {
+        InMemoryEntityStore<Integer> table = table(2);
+
+        metrics.onTableAdded(City.class, table);
+
+        assertEquals(2, rows());
+        assertTrue(registry.get("inmemory.table.memory").gauge().value() > 0);
+    }
+
+    @Test
+    void tableNotAddedYet_shouldNotBeMeasured() {
+        metrics.onOperation(City.class, Operation.COUNT, 1);
+
+        assertTrue(Double.isNaN(rows()));
+    }
+
+    @Test
+    void tableAddedAgain_shouldMeasureLatestTable() {
+        metrics.onTableAdded(City.class, table(1));
+        assertEquals(1, rows());
+
+        metrics.onTableAdded(City.class, table(3));
+
+        assertEquals(3, rows());
+        assertEquals(1, registry.get("inmemory.table.rows").gauges().size());
+        assertEquals(1, registry.get("inmemory.operations").tag("operation", "store").timers().size());
+    }
+
+    private double rows() {
+        return registry.get("inmemory.table.rows").tag("table", City.class.getName()).gauge().value();
+    }
+
+    private static InMemoryEntityStore<Integer> table(int rows) {
+        InMemoryEntityStore<Integer> table = new InMemoryEntityStore<>(City.class, new IntegerSequenceGenerator());
+        for (int i = 0; i < rows; i++) {
+            table.store(new City("City " + i));
+        }
+        return table;
+    }
+}
@@ -0,0 +1,75 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.boot.autoconfigure.data.inmemory.InMemoryRepositoriesAutoConfigurationTest.TestConfiguration;
+import de.vinado.boot.autoconfigure.data.inmemory.city.City;
+import de.vinado.boot.autoconfigure.data.inmemory.city.CityRepository;
+import de.vinado.spring.data.inmemory.repository.support.QueryStatistics.QuerySummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class InMemoryQueriesEndpointTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(InMemoryRepositoriesAutoConfiguration.class))
+        .withUserConfiguration(TestConfiguration.class)
+        .withPropertyValues("management.endpoints.web.exposure.include=inmemoryqueries");
+
+    @Test
+    void queries_shouldListMostScanningFirst() {
+        contextRunner.run(context -> {
+            query(context.getBean(CityRepository.class));
+
+            assertEquals(Arrays.asList("City.findByName", "City.countByName"), context
+                .getBean(InMemoryQueriesEndpoint.class)
+                .queries(null).stream()
+                .map(QuerySummary::getQuery)
+                .collect(Collectors.toList()));
+        });
+    }
+
+    @Test
+    void queriesWithLimit_shouldListAtMostLimit() {
+        contextRunner.run(context -> {
+            query(context.getBean(CityRepository.class));
+
+            List<QuerySummary> queries = context.getBean(InMemoryQueriesEndpoint.class).queries(1);
+
+            assertEquals(1, queries.size());
+            assertEquals("City.findByName", queries.get(0).getQuery());
+            assertEquals("name", queries.get(0).getIndex());
+            assertEquals(2, queries.get(0).getRowsScanned());
+        });
+    }
+
+    @Test
+    void reset_shouldDiscardStatistics() {
+        contextRunner.run(context -> {
+            CityRepository repository = context.getBean(CityRepository.class);
+            query(repository);
+            InMemoryQueriesEndpoint endpoint = context.getBean(InMemoryQueriesEndpoint.class);
+
+            endpoint.reset();
+
+            assertTrue(endpoint.queries(null).isEmpty());
+            repository.findByName("Berlin");
+            assertEquals(1, endpoint.queries(null).get(0).getExecutions());
+        });
+    }
+
+    private static void query(CityRepository repository) {
+        repository.saveAll(Arrays.asList(new City("Berlin"), new City("Berlin"), new City("Hamburg")));
+        repository.findByName("Berlin");
+        repository.countByName("Hamburg");
+    }
+}
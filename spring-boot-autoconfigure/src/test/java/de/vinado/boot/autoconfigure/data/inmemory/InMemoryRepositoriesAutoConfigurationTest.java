@@ -0,0 +1,220 @@
+package de.vinado.boot.autoconfigure.data.inmemory;
+
+import de.vinado.boot.autoconfigure.data.inmemory.city.City;
+import de.vinado.boot.autoconfigure.data.inmemory.city.CityRepository;
+import de.vinado.boot.autoconfigure.data.inmemory.city.ReactiveCityRepository;
+import de.vinado.spring.data.inmemory.repository.config.InMemorySnapshotLifecycle;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryTransactionManager;
+import de.vinado.spring.data.inmemory.repository.support.InstrumentedEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.QueryStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class InMemoryRepositoriesAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(InMemoryRepositoriesAutoConfiguration.class))
+        .withUserConfiguration(TestConfiguration.class);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultConfiguration_shouldRegisterRepositories() {
+        contextRunner.run(context -> {
+            assertEquals(1, context.getBeanNamesForType(CityRepository.class).length);
+            assertEquals(1, context.getBeanNamesForType(ReactiveCityRepository.class).length);
+            assertEquals(0, context.getBeanNamesForType(InMemorySnapshotLifecycle.class).length);
+
+            context.getBean(CityRepository.class).save(new City("Berlin"));
+            assertEquals(1, context.getBean(ReactiveCityRepository.class).count().block());
+        });
+    }
+
+    @Test
+    void defaultConfiguration_shouldRegisterTransactionManager() {
+        contextRunner.run(context -> {
+            CityRepository repository = context.getBean(CityRepository.class);
+            TransactionTemplate transaction = new TransactionTemplate(
+                context.getBean(InMemoryTransactionManager.class));
+
+            transaction.executeWithoutResult(status -> {
+                repository.save(new City("Berlin"));
+                status.setRollbackOnly();
+            });
+
+            assertEquals(0, repository.count());
+        });
+    }
+
+    @Test
+    void userDefinedTransactionManager_shouldBackOff() {
+        contextRunner
+            .withBean("customTransactionManager", InMemoryTransactionManager.class,
+                () -> new InMemoryTransactionManager(new InMemoryEntityTableStore()))
+            .run(context -> assertArrayEquals(new String[]{"customTransactionManager"},
+                context.getBeanNamesForType(TransactionManager.class)));
+    }
+
+    @Test
+    void withoutReactor_shouldNotRegisterReactiveRepositories() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader(Flux.class))
+            .run(context -> {
+                assertEquals(1, context.getBeanNamesForType(CityRepository.class).length);
+                assertEquals(0, context.getBeanNamesForType(ReactiveCityRepository.class).length);
+            });
+    }
+
+    @Test
+    void meterRegistry_shouldPublishMetrics() {
+        contextRunner
+            .withBean(SimpleMeterRegistry.class)
+            .run(context -> {
+                assertEquals(1, context.getBeanNamesForType(InMemoryEntityStoreMetrics.class).length);
+                assertTrue(context.getBean(InMemoryEntityTableStore.class) instanceof InstrumentedEntityTableStore);
+
+                context.getBean(CityRepository.class).save(new City("Berlin"));
+
+                assertEquals(1, context.getBean(MeterRegistry.class).get("inmemory.table.rows")
+                    .tag("table", City.class.getName())
+                    .gauge()
+                    .value());
+            });
+    }
+
+    @Test
+    void disabledMetrics_shouldNotInstrumentStore() {
+        contextRunner
+            .withBean(SimpleMeterRegistry.class)
+            .withPropertyValues("spring.data.inmemory.metrics.enabled=false")
+            .run(context -> {
+                assertEquals(0, context.getBeanNamesForType(InMemoryEntityStoreMetrics.class).length);
+                assertFalse(context.getBean(InMemoryEntityTableStore.class) instanceof InstrumentedEntityTableStore);
+            });
+    }
+
+    @Test
+    void withoutMicrometer_shouldNotInstrumentStore() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader(MeterRegistry.class))
+            .run(context -> {
+                assertEquals(0, context.getBeanNamesForType(InMemoryEntityStoreMetrics.class).length);
+                assertFalse(context.getBean(InMemoryEntityTableStore.class) instanceof InstrumentedEntityTableStore);
+            });
+    }
+
+    @Test
+    void defaultConfiguration_shouldRecordQueries() {
+        contextRunner.run(context -> {
+            CityRepository repository = context.getBean(CityRepository.class);
+            repository.save(new City("Berlin"));
+
+            assertEquals(1, repository.findByName("Berlin").size());
+
+            QueryStatistics.QuerySummary summary = context.getBean(QueryStatistics.class).getTopQueries(10).get(0);
+            assertEquals("City.findByName", summary.getQuery());
+            assertEquals("name", summary.getIndex());
+        });
+    }
+
+    @Test
+    void disabledQueryStatistics_shouldNotRecordQueries() {
+        contextRunner
+            .withPropertyValues("spring.data.inmemory.query-statistics.enabled=false",
+                "management.endpoints.web.exposure.include=inmemoryqueries")
+            .run(context -> {
+                assertEquals(0, context.getBeanNamesForType(QueryStatistics.class).length);
+                assertEquals(0, context.getBeanNamesForType(InMemoryQueriesEndpoint.class).length);
+                assertEquals(Collections.emptyList(), context.getBean(CityRepository.class).findByName("Berlin"));
+            });
+    }
+
+    @Test
+    void exposedEndpoints_shouldBeRegistered() {
+        contextRunner
+            .withPropertyValues("management.endpoints.web.exposure.include=inmemory,inmemoryqueries")
+            .run(context -> {
+                assertEquals(1, context.getBeanNamesForType(InMemoryEndpoint.class).length);
+                assertEquals(1, context.getBeanNamesForType(InMemoryQueriesEndpoint.class).length);
+            });
+    }
+
+    @Test
+    void unexposedEndpoints_shouldNotBeRegistered() {
+        contextRunner.run(context -> {
+            assertEquals(0, context.getBeanNamesForType(InMemoryEndpoint.class).length);
+            assertEquals(0, context.getBeanNamesForType(InMemoryQueriesEndpoint.class).length);
+        });
+    }
+
+    @Test
+    void withoutActuator_shouldNotRegisterEndpoints() {
+        contextRunner
+            .withClassLoader(new FilteredClassLoader(Endpoint.class))
+            .withPropertyValues("management.endpoints.web.exposure.include=inmemory,inmemoryqueries")
+            .run(context -> {
+                assertEquals(0, context.getBeanNamesForType(InMemoryEndpoint.class).length);
+                assertEquals(0, context.getBeanNamesForType(InMemoryQueriesEndpoint.class).length);
+                assertEquals(1, context.getBeanNamesForType(CityRepository.class).length);
+            });
+    }
+
+    @Test
+    void snapshotLocation_shouldPersistRepositoriesAcrossRestarts() {
+        Path snapshot = directory.resolve("snapshot");
+        ApplicationContextRunner runner = contextRunner
+            .withPropertyValues("spring.data.inmemory.snapshot.location=" + snapshot);
+
+        runner.run(context -> {
+            assertEquals(1, context.getBeanNamesForType(InMemorySnapshotLifecycle.class).length);
+            context.getBean(CityRepository.class).save(new City("Berlin"));
+        });
+
+        assertTrue(Files.exists(snapshot));
+        runner.run(context -> assertEquals("Berlin", context.getBean(CityRepository.class).findById(1)
+            .map(City::getName)
+            .orElse(null)));
+    }
+
+    @Test
+    void writeAheadLog_shouldRecoverRepositoriesAcrossRestarts() {
+        ApplicationContextRunner runner = contextRunner.withPropertyValues(
+            "spring.data.inmemory.snapshot.location=" + directory.resolve("snapshot"),
+            "spring.data.inmemory.snapshot.wal.enabled=true",
+            "spring.data.inmemory.snapshot.wal.fsync=always");
+
+        runner.run(context -> context.getBean(CityRepository.class).save(new City("Berlin")));
+
+        runner.run(context -> assertEquals(1, context.getBean(CityRepository.class).findByName("Berlin").size()));
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @AutoConfigurationPackage
+    static class TestConfiguration {
+    }
+}
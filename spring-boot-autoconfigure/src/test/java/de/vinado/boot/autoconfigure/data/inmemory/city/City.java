@@ -0,0 +1,41 @@
+package de.vinado.boot.autoconfigure.data.inmemory.city;
+
+import de.vinado.spring.data.inmemory.Indexed;
+import org.springframework.data.annotation.Id;
+
+import java.io.Serializable;
+
+/**
+ * @author Vincent Nadoll
+ */
+public class City implements Serializable {
+
+    @Id
+    private Integer id;
+
+    @Indexed
+    private String name;
+
+    public City() {
+    }
+
+    public City(String name) {
+        this.name = name;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
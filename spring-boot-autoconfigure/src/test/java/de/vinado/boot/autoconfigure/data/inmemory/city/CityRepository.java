@@ -0,0 +1,15 @@
+package de.vinado.boot.autoconfigure.data.inmemory.city;
+
+import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
+
+import java.util.List;
+
+/**
+ * @author Vincent Nadoll
+ */
+public interface CityRepository extends InMemoryRepository<City, Integer> {
+
+    List<City> findByName(String name);
+
+    long countByName(String name);
+}
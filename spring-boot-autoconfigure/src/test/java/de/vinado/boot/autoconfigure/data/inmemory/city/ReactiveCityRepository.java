@@ -0,0 +1,9 @@
+package de.vinado.boot.autoconfigure.data.inmemory.city;
+
+import de.vinado.spring.data.inmemory.repository.ReactiveInMemoryRepository;
+
+/**
+ * @author Vincent Nadoll
+ */
+public interface ReactiveCityRepository extends ReactiveInMemoryRepository<City, Integer> {
+}
@@ -0,0 +1,34 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given pattern, by default the ones of the repository hot paths, id accessors and
+ * primary key sequences, with the GC profiler attached, so that the allocation rate per operation
+ * ({@literal gc.alloc.rate.norm}) is reported along with the throughput.
+ *
+ * <p>Run with {@code java -cp target/benchmarks.jar de.vinado.spring.data.inmemory.benchmark.AllocationReport
+ * [pattern]}.
+ *
+ * @author Vincent Nadoll
+ */
+public final class AllocationReport {
+
+    private static final String DEFAULT_PATTERN =
+        "RepositoryBenchmark|IdAccessBenchmark|SequenceGenerationBenchmark|IdentifierGenerationBenchmark";
+
+    private AllocationReport() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(args.length > 0 ? args[0] : DEFAULT_PATTERN)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
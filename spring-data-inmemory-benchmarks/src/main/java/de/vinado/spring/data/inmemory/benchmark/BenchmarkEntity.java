@@ -0,0 +1,61 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import org.springframework.data.annotation.Id;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Minimal domain class shared by all benchmarks.
+ *
+ * @author Vincent Nadoll
+ */
+public class BenchmarkEntity implements Serializable {
+
+    @Id
+    private Long id;
+    private String name;
+
+    public BenchmarkEntity() {
+    }
+
+    public BenchmarkEntity(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        BenchmarkEntity that = (BenchmarkEntity) o;
+        return Objects.equals(id, that.id) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name);
+    }
+}
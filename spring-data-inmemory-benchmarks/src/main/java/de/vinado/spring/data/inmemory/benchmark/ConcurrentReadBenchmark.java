@@ -0,0 +1,95 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of full table scans and primary key lookups while another thread keeps merging batches of
+ * {@link BenchmarkEntity BenchmarkEntities}. A {@link StoreMode#MULTI_VERSION multi-version} table scans a consistent
+ * version, while a {@link StoreMode#CONCURRENT concurrent} one scans the live rows.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentReadBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"CONCURRENT", "MULTI_VERSION"})
+    private StoreMode storeMode;
+
+    @Param({"10000", "100000"})
+    private int tableSize;
+
+    private InMemoryEntityStore<Long> store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new InMemoryEntityStore<>(BenchmarkEntity.class, new LongSequenceGenerator(), storeMode);
+        List<BenchmarkEntity> entities = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            entities.add(new BenchmarkEntity(null, "entity-" + i));
+        }
+        store.storeAll(entities);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public long scan() {
+        return store.findAll(BenchmarkEntity.class)
+            .mapToLong(BenchmarkEntity::getId)
+            .sum();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void mergeBatch() {
+        List<BenchmarkEntity> entities = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long id = ThreadLocalRandom.current().nextLong(1, tableSize + 1);
+            entities.add(new BenchmarkEntity(id, "entity-" + id));
+        }
+        store.mergeAll(entities);
+    }
+
+    @Benchmark
+    @Group("lookupWrite")
+    @GroupThreads(3)
+    public BenchmarkEntity find() {
+        return store.find(BenchmarkEntity.class, ThreadLocalRandom.current().nextLong(1, tableSize + 1));
+    }
+
+    @Benchmark
+    @Group("lookupWrite")
+    @GroupThreads(1)
+    public void mergeBatchWhileLookingUp() {
+        mergeBatch();
+    }
+}
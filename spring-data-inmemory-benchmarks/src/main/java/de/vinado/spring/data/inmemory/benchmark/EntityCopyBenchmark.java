@@ -0,0 +1,127 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.config.CopyMode;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.annotation.Id;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures primary key lookups of a table isolating its entities by copying them, either {@link CopyMode#SHALLOW
+ * shallowly} or {@link CopyMode#DEEP deeply}, compared to a table handing out its stored instances and to an
+ * {@link StorageType#OFF_HEAP off-heap} table deserializing a copy of each entity. Both a flat entity and one
+ * referring to a list of nested objects are looked up.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityCopyBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"NONE", "SHALLOW", "DEEP", "SERIALIZED"})
+    private String strategy;
+
+    private InMemoryEntityStore<Long> flatStore;
+    private InMemoryEntityStore<Long> nestedStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        flatStore = new InMemoryEntityStore<>(BenchmarkEntity.class, new LongSequenceGenerator(), definition());
+        nestedStore = new InMemoryEntityStore<>(OrderEntity.class, new LongSequenceGenerator(), definition());
+        for (int i = 0; i < ROWS; i++) {
+            flatStore.store(new BenchmarkEntity(null, "entity-" + i));
+            nestedStore.store(new OrderEntity(i));
+        }
+    }
+
+    private TableDefinition definition() {
+        if ("SERIALIZED".equals(strategy)) {
+            return new TableDefinition(StoreMode.CONCURRENT, Collections.emptyList(), StorageType.OFF_HEAP,
+                SerializingEntityCodec.INSTANCE);
+        }
+
+        return new TableDefinition(StoreMode.CONCURRENT, Collections.emptyList(), StorageType.HEAP,
+            SerializingEntityCodec.INSTANCE, CopyMode.valueOf(strategy));
+    }
+
+    @Benchmark
+    public BenchmarkEntity findFlat() {
+        return flatStore.find(BenchmarkEntity.class, randomId());
+    }
+
+    @Benchmark
+    public OrderEntity findNested() {
+        return nestedStore.find(OrderEntity.class, randomId());
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, ROWS + 1);
+    }
+
+    /**
+     * Entity referring to a list of nested objects.
+     */
+    public static class OrderEntity implements Serializable {
+
+        @Id
+        private Long id;
+        private String customer;
+        private List<LineItem> items;
+
+        public OrderEntity() {
+        }
+
+        OrderEntity(int index) {
+            this.customer = "customer-" + index;
+            this.items = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                items.add(new LineItem("product-" + i, i + 1));
+            }
+        }
+    }
+
+    /**
+     * Object nested into an {@link OrderEntity}.
+     */
+    public static class LineItem implements Serializable {
+
+        private String product;
+        private int quantity;
+
+        public LineItem() {
+        }
+
+        LineItem(String product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+    }
+}
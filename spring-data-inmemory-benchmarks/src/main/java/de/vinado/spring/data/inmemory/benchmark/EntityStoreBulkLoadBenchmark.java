@@ -0,0 +1,76 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes to load an empty table with a batch of entities, either entity by entity or as a whole,
+ * and to clear it again.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class EntityStoreBulkLoadBenchmark {
+
+    @Param({"1000000"})
+    private int batchSize;
+
+    @Param({"SIMPLE", "CONCURRENT"})
+    private StoreMode storeMode;
+
+    private InMemoryEntityStore<Long> store;
+    private List<BenchmarkEntity> batch;
+
+    /**
+     * Creates an empty table and a batch of new entities before each load.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = new InMemoryEntityStore<>(BenchmarkEntity.class, new LongSequenceGenerator(), storeMode);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new BenchmarkEntity(null, "entity-" + i));
+        }
+    }
+
+    @Benchmark
+    public InMemoryEntityStore<Long> storeEach() {
+        batch.forEach(store::store);
+        return store;
+    }
+
+    @Benchmark
+    public InMemoryEntityStore<Long> storeAll() {
+        store.storeAll(batch);
+        return store;
+    }
+
+    @Benchmark
+    public InMemoryEntityStore<Long> storeAllAndClear() {
+        store.storeAll(batch);
+        store.clear(BenchmarkEntity.class);
+        return store;
+    }
+}
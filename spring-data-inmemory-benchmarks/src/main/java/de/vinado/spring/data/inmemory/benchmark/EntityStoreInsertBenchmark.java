@@ -0,0 +1,71 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures insert and lookup throughput of a single table at different table sizes. The throughput is expected to
+ * stay flat as the table grows.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityStoreInsertBenchmark {
+
+    @Param({"1000", "10000", "100000", "200000"})
+    private int tableSize;
+
+    @Param({"SIMPLE", "CONCURRENT"})
+    private StoreMode storeMode;
+
+    private InMemoryEntityStore<Long> store;
+    private BenchmarkEntity stored;
+
+    /**
+     * Fills the table up to the benchmarked size.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new InMemoryEntityStore<>(BenchmarkEntity.class, new LongSequenceGenerator(), storeMode);
+        for (int i = 0; i < tableSize; i++) {
+            stored = new BenchmarkEntity(null, "entity-" + i);
+            store.store(stored);
+        }
+    }
+
+    /**
+     * Inserts and removes an entity so the table size stays constant throughout the measurement.
+     */
+    @Benchmark
+    public BenchmarkEntity storeAndRemove() {
+        BenchmarkEntity entity = new BenchmarkEntity();
+        store.store(entity);
+        store.remove(entity);
+        return entity;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return store.contains(stored);
+    }
+}
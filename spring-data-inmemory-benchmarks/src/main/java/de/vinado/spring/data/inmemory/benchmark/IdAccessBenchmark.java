@@ -0,0 +1,116 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.inmemory.repository.support.IdUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.annotation.Id;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares the cached id accessors of {@link IdUtils} with the reflective lookup they replaced and a plain getter
+ * call. Setting ids is reserved to the store and measured as part of {@link EntityStoreInsertBenchmark}.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdAccessBenchmark {
+
+    private final BenchmarkEntity fieldEntity = new BenchmarkEntity(42L, "field");
+    private final MethodEntity methodEntity = new MethodEntity(42L);
+
+    @Benchmark
+    public Object directGetId() {
+        return fieldEntity.getId();
+    }
+
+    @Benchmark
+    public Object cachedGetIdField() {
+        return IdUtils.getId(fieldEntity);
+    }
+
+    @Benchmark
+    public Object cachedGetIdMethod() {
+        return IdUtils.getId(methodEntity);
+    }
+
+    @Benchmark
+    public Object reflectiveGetIdField() throws Exception {
+        return ReflectiveIdUtils.getId(fieldEntity);
+    }
+
+    @Benchmark
+    public Object reflectiveGetIdMethod() throws Exception {
+        return ReflectiveIdUtils.getId(methodEntity);
+    }
+
+    /**
+     * Entity exposing its identifier through an annotated getter.
+     */
+    public static class MethodEntity {
+
+        private Long id;
+
+        public MethodEntity(Long id) {
+            this.id = id;
+        }
+
+        @Id
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The per-call reflective lookup {@link IdUtils} used before accessors were cached.
+     */
+    static final class ReflectiveIdUtils {
+
+        static Object getId(Object entity) throws Exception {
+            Field field = find(entity.getClass(), Class::getDeclaredFields);
+            if (null != field) {
+                return field.get(entity);
+            }
+
+            Method method = find(entity.getClass(), Class::getDeclaredMethods);
+            if (null != method) {
+                return method.invoke(entity);
+            }
+
+            throw new IllegalArgumentException();
+        }
+
+        private static <M extends AccessibleObject> M find(Class<?> type, Function<Class<?>, M[]> accessor) {
+            for (Class<?> current = type; null != current; current = current.getSuperclass()) {
+                for (M member : accessor.apply(current)) {
+                    if (null != member.getAnnotation(Id.class)) {
+                        member.setAccessible(true);
+                        return member;
+                    }
+                }
+            }
+
+            return null;
+        }
+    }
+}
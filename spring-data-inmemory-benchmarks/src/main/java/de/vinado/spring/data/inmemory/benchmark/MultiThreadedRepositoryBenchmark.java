@@ -0,0 +1,23 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs the {@link RepositoryBenchmark repository hot paths} on four threads sharing the repository, in the store modes
+ * safe for concurrent access.
+ *
+ * @author Vincent Nadoll
+ */
+@Threads(4)
+public class MultiThreadedRepositoryBenchmark extends RepositoryBenchmark {
+
+    @Param({"CONCURRENT", "MULTI_VERSION"})
+    private StoreMode storeMode;
+
+    @Override
+    protected StoreMode getStoreMode() {
+        return storeMode;
+    }
+}
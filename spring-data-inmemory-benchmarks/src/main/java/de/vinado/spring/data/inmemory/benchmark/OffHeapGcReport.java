@@ -0,0 +1,126 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.config.EntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the heap and direct memory retained by a table of {@link BenchmarkEntity BenchmarkEntities} and the time
+ * a full collection takes while the table is alive, comparing a heap table with off-heap tables encoded by Java
+ * serialization and by a hand-written codec.
+ *
+ * <p>Run with {@code java -Xmx4g -cp target/benchmarks.jar
+ * de.vinado.spring.data.inmemory.benchmark.OffHeapGcReport [rows]}.
+ *
+ * @author Vincent Nadoll
+ */
+public final class OffHeapGcReport {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private static volatile Object retained;
+
+    private OffHeapGcReport() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%-24s %10s %12s %14s%n", "storage", "heap MiB", "direct MiB", "full GC ms");
+        report("HEAP", rows, new TableDefinition(StoreMode.CONCURRENT, Collections.emptyList()));
+        report("OFF_HEAP serializing", rows, new TableDefinition(StoreMode.CONCURRENT, Collections.emptyList(),
+            StorageType.OFF_HEAP, SerializingEntityCodec.INSTANCE));
+        report("OFF_HEAP compact", rows, new TableDefinition(StoreMode.CONCURRENT, Collections.emptyList(),
+            StorageType.OFF_HEAP, new CompactCodec()));
+    }
+
+    private static void report(String storage, int rows, TableDefinition definition) {
+        long heapBefore = usedHeap();
+        long directBefore = usedDirect();
+        InMemoryEntityStore<Long> store = new InMemoryEntityStore<>(BenchmarkEntity.class,
+            new LongSequenceGenerator(), definition);
+        List<BenchmarkEntity> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new BenchmarkEntity(null, "entity-" + i));
+            if (batch.size() == 10_000 || i == rows - 1) {
+                store.storeAll(batch);
+                batch.clear();
+            }
+        }
+
+        retained = store;
+        long heapAfter = usedHeap();
+        long directAfter = usedDirect();
+        long pause = fullGcMillis();
+        retained = null;
+        System.out.printf("%-24s %10.1f %12.1f %14d%n", storage, (heapAfter - heapBefore) / 1048576.0,
+            (directAfter - directBefore) / 1048576.0, pause);
+    }
+
+    private static long fullGcMillis() {
+        long before = collectionMillis();
+        System.gc();
+        return collectionMillis() - before;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the id as a long followed by the UTF-8 name, without any class metadata.
+     */
+    private static final class CompactCodec implements EntityCodec {
+
+        @Override
+        public byte[] encode(Object entity) {
+            BenchmarkEntity benchmarkEntity = (BenchmarkEntity) entity;
+            byte[] name = benchmarkEntity.getName().getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(Long.BYTES + name.length)
+                .putLong(benchmarkEntity.getId())
+                .put(name)
+                .array();
+        }
+
+        @Override
+        public Object decode(ByteBuffer buffer) {
+            long id = buffer.getLong();
+            byte[] name = new byte[buffer.remaining()];
+            buffer.get(name);
+            return new BenchmarkEntity(id, new String(name, StandardCharsets.UTF_8));
+        }
+    }
+}
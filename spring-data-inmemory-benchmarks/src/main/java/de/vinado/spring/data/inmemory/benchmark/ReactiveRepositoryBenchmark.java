@@ -0,0 +1,134 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.ReactiveInMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableRegistry;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryRepositoryFactory;
+import de.vinado.spring.data.inmemory.repository.support.ReactiveInMemoryRepositoryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reactive repository to adapting the blocking one the usual way, i.e. by subscribing to it on the
+ * bounded elastic scheduler. Both operate on the same concurrent table, so the difference is the cost of the thread
+ * hop the reactive repository saves for reads.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReactiveRepositoryBenchmark {
+
+    private static final int TABLE_SIZE = 10_000;
+
+    private static final int PAGE_SIZE = 10;
+
+    private BenchmarkEntityRepository repository;
+
+    private ReactiveBenchmarkEntityRepository reactiveRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TableRegistry tables = new TableRegistry();
+        tables.setDefaultStoreMode(StoreMode.CONCURRENT);
+        tables.addTable(BenchmarkEntity.class);
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        repository = new InMemoryRepositoryFactory(store,
+            () -> Collections.singletonMap(Long.class, new LongSequenceGenerator()), tables.get())
+            .getRepository(BenchmarkEntityRepository.class);
+        reactiveRepository = new ReactiveInMemoryRepositoryFactory(store,
+            () -> Collections.singletonMap(Long.class, new LongSequenceGenerator()), tables.get())
+            .getRepository(ReactiveBenchmarkEntityRepository.class);
+
+        List<BenchmarkEntity> entities = new ArrayList<>(TABLE_SIZE);
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            entities.add(new BenchmarkEntity(null, "entity-" + i));
+        }
+        repository.saveAll(entities);
+    }
+
+    @Benchmark
+    public BenchmarkEntity findByIdAdapted() {
+        long id = randomId();
+        return Mono.fromCallable(() -> repository.findById(id).orElse(null))
+            .subscribeOn(Schedulers.boundedElastic())
+            .block();
+    }
+
+    @Benchmark
+    public BenchmarkEntity findByIdReactive() {
+        return reactiveRepository.findById(randomId()).block();
+    }
+
+    @Benchmark
+    public List<BenchmarkEntity> findAllFirstPageAdapted() {
+        return Mono.fromCallable(repository::findAll)
+            .flatMapIterable(entities -> entities)
+            .subscribeOn(Schedulers.boundedElastic())
+            .take(PAGE_SIZE)
+            .collectList()
+            .block();
+    }
+
+    @Benchmark
+    public List<BenchmarkEntity> findAllFirstPageReactive() {
+        return reactiveRepository.findAll()
+            .take(PAGE_SIZE)
+            .collectList()
+            .block();
+    }
+
+    @Benchmark
+    public BenchmarkEntity saveExistingAdapted() {
+        long id = randomId();
+        return Mono.fromCallable(() -> repository.save(new BenchmarkEntity(id, "entity-" + (id - 1))))
+            .subscribeOn(Schedulers.boundedElastic())
+            .block();
+    }
+
+    @Benchmark
+    public BenchmarkEntity saveExistingReactive() {
+        long id = randomId();
+        return reactiveRepository.save(new BenchmarkEntity(id, "entity-" + (id - 1))).block();
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, TABLE_SIZE + 1);
+    }
+
+    /**
+     * Blocking repository of the benchmarked table.
+     */
+    public interface BenchmarkEntityRepository extends InMemoryRepository<BenchmarkEntity, Long> {
+    }
+
+    /**
+     * Reactive repository of the benchmarked table.
+     */
+    public interface ReactiveBenchmarkEntityRepository extends ReactiveInMemoryRepository<BenchmarkEntity, Long> {
+    }
+}
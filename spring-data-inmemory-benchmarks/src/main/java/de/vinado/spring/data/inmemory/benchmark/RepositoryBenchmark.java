@@ -0,0 +1,127 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableRegistry;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryRepositoryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hot paths of a repository backed by a table of the benchmarked size. The table's size stays constant
+ * throughout the measurement: entities saved as new are deleted right away. Subclasses choose the store modes and the
+ * number of threads.
+ *
+ * <p>Run through {@link AllocationReport} to report allocation rates along with the throughput.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public abstract class RepositoryBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1000", "100000"})
+    private int tableSize;
+
+    private BenchmarkEntityRepository repository;
+
+    protected abstract StoreMode getStoreMode();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TableRegistry tables = new TableRegistry();
+        tables.setDefaultStoreMode(getStoreMode());
+        tables.addTable(BenchmarkEntity.class).addIndex("name");
+        InMemoryRepositoryFactory factory = new InMemoryRepositoryFactory(new InMemoryEntityTableStore(),
+            () -> Collections.singletonMap(Long.class, new LongSequenceGenerator()), tables.get());
+        repository = factory.getRepository(BenchmarkEntityRepository.class);
+
+        List<BenchmarkEntity> entities = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            entities.add(new BenchmarkEntity(null, "entity-" + i));
+        }
+        repository.saveAll(entities);
+    }
+
+    @Benchmark
+    public BenchmarkEntity saveAndDelete() {
+        BenchmarkEntity entity = repository.save(new BenchmarkEntity(null, "new"));
+        repository.delete(entity);
+        return entity;
+    }
+
+    @Benchmark
+    public BenchmarkEntity saveExisting() {
+        long id = randomId();
+        return repository.save(new BenchmarkEntity(id, "entity-" + (id - 1)));
+    }
+
+    @Benchmark
+    public Iterable<BenchmarkEntity> saveAllAndDeleteAll() {
+        List<BenchmarkEntity> entities = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            entities.add(new BenchmarkEntity(null, "new"));
+        }
+        Iterable<BenchmarkEntity> saved = repository.saveAll(entities);
+        repository.deleteAll(saved);
+        return saved;
+    }
+
+    @Benchmark
+    public BenchmarkEntity findById() {
+        return repository.findById(randomId()).orElse(null);
+    }
+
+    @Benchmark
+    public long findAll() {
+        return repository.findAll().stream()
+            .mapToLong(BenchmarkEntity::getId)
+            .sum();
+    }
+
+    @Benchmark
+    public List<BenchmarkEntity> findAllByIndexedProperty() {
+        return repository.findByName("entity-" + (randomId() - 1));
+    }
+
+    @Benchmark
+    public long count() {
+        return repository.count();
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, tableSize + 1);
+    }
+
+    /**
+     * Repository of the benchmarked table.
+     */
+    public interface BenchmarkEntityRepository extends InMemoryRepository<BenchmarkEntity, Long> {
+
+        List<BenchmarkEntity> findByName(String name);
+    }
+}
@@ -0,0 +1,75 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.IntegerPrimaryKeyGenerator;
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.domain.LongPrimaryKeyGenerator;
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.domain.PrimaryKeySequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the primary key sequences of the {@link IntegerSequenceGenerator block-allocating} and
+ * the {@link IntegerPrimaryKeyGenerator plain} generators, drawing single keys and batches, when called by as many
+ * threads as there are processors. Run with {@literal -t 1} for a single thread.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class SequenceGenerationBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final PrimaryKeySequence<Integer> integerSequence = PrimaryKeySequence.of(new IntegerSequenceGenerator());
+    private final PrimaryKeySequence<Long> longSequence = PrimaryKeySequence.of(new LongSequenceGenerator());
+    private final PrimaryKeySequence<Integer> integerGenerator =
+        PrimaryKeySequence.of(new IntegerPrimaryKeyGenerator());
+    private final PrimaryKeySequence<Long> longGenerator = PrimaryKeySequence.of(new LongPrimaryKeyGenerator());
+
+    @Benchmark
+    public Integer integerSequence() {
+        return integerSequence.next();
+    }
+
+    @Benchmark
+    public Long longSequence() {
+        return longSequence.next();
+    }
+
+    @Benchmark
+    public Integer integerGenerator() {
+        return integerGenerator.next();
+    }
+
+    @Benchmark
+    public Long longGenerator() {
+        return longGenerator.next();
+    }
+
+    @Benchmark
+    public List<Long> longSequenceBatch() {
+        return longSequence.next(BATCH_SIZE);
+    }
+
+    @Benchmark
+    public List<Long> longGeneratorBatch() {
+        return longGenerator.next(BATCH_SIZE);
+    }
+}
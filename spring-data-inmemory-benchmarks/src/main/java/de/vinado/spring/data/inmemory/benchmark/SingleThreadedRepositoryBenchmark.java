@@ -0,0 +1,20 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Runs the {@link RepositoryBenchmark repository hot paths} on a single thread.
+ *
+ * @author Vincent Nadoll
+ */
+public class SingleThreadedRepositoryBenchmark extends RepositoryBenchmark {
+
+    @Param({"SIMPLE", "CONCURRENT"})
+    private StoreMode storeMode;
+
+    @Override
+    protected StoreMode getStoreMode() {
+        return storeMode;
+    }
+}
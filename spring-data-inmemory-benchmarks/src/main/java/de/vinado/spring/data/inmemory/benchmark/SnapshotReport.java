@@ -0,0 +1,79 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.SnapshotFormat;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the time it takes to write and to read a snapshot of a table of {@link BenchmarkEntity BenchmarkEntities}
+ * in each {@link SnapshotFormat}, followed by the first lookup and the first write of the restored table. A mapped
+ * table defers reading the rows to the latter two.
+ *
+ * <p>Run with {@code java -Xmx4g -cp target/benchmarks.jar
+ * de.vinado.spring.data.inmemory.benchmark.SnapshotReport [rows]}.
+ *
+ * @author Vincent Nadoll
+ */
+public final class SnapshotReport {
+
+    private SnapshotReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        InMemoryEntityTableStore store = newStore();
+        List<BenchmarkEntity> entities = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            entities.add(new BenchmarkEntity(null, "entity-" + i));
+        }
+        store.storeAll(entities);
+
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            System.out.printf("%-12s %10s %10s %10s %10s %10s%n", "format", "MiB", "write ms", "read ms", "find ms",
+                "merge ms");
+            for (int run = 0; run < 3; run++) {
+                for (SnapshotFormat format : SnapshotFormat.values()) {
+                    report(store, file, format);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(InMemoryEntityTableStore store, Path file, SnapshotFormat format) throws IOException {
+        long start = System.nanoTime();
+        store.writeSnapshot(file, format);
+        long written = System.nanoTime();
+        InMemoryEntityTableStore restored = newStore();
+        restored.readSnapshot(file);
+        long read = System.nanoTime();
+        BenchmarkEntity entity = restored.find(BenchmarkEntity.class, 42L);
+        long found = System.nanoTime();
+        restored.merge(entity);
+        long merged = System.nanoTime();
+        System.out.printf("%-12s %10.1f %10d %10d %10.2f %10d%n", format, Files.size(file) / 1048576.0,
+            (written - start) / 1_000_000, (read - written) / 1_000_000, (found - read) / 1_000_000.0,
+            (merged - found) / 1_000_000);
+    }
+
+    private static InMemoryEntityTableStore newStore() {
+        InMemoryEntityStore<Long> table = new InMemoryEntityStore<>(BenchmarkEntity.class,
+            new LongSequenceGenerator(), StoreMode.CONCURRENT);
+        Map<Class<?>, EntityStore> tables = new HashMap<>();
+        tables.put(BenchmarkEntity.class, table);
+        return new InMemoryEntityTableStore(tables);
+    }
+}
@@ -0,0 +1,88 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.config.CopyMode;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Reports the heap retained by a table of {@link BenchmarkEntity BenchmarkEntities} on top of the entities
+ * themselves, comparing the boxed-key hash maps tables used to be backed by with the primitive-keyed tables of
+ * {@link InMemoryEntityStore}, which concurrent tables opt into. All figures include the boxed ids the entities
+ * reference.
+ *
+ * <p>Run with {@code java -Xmx4g -cp target/benchmarks.jar
+ * de.vinado.spring.data.inmemory.benchmark.TableFootprintReport [rows]}.
+ *
+ * @author Vincent Nadoll
+ */
+public final class TableFootprintReport {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private static volatile Object retained;
+
+    private TableFootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        System.out.printf("%-32s %12s %14s%n", "layout", "MiB", "bytes per row");
+        report("HashMap<Long, Object>", rows, entities -> fill(new HashMap<>(), entities));
+        report("ConcurrentHashMap", rows, entities -> fill(new ConcurrentHashMap<>(), entities));
+        report("InMemoryEntityStore SIMPLE", rows, entities -> store(StoreMode.SIMPLE, false, entities));
+        report("InMemoryEntityStore CONCURRENT", rows, entities -> store(StoreMode.CONCURRENT, false, entities));
+        report("CONCURRENT unboxed keys", rows, entities -> store(StoreMode.CONCURRENT, true, entities));
+    }
+
+    private static Object fill(Map<Long, Object> map, List<BenchmarkEntity> entities) {
+        long id = 0;
+        for (BenchmarkEntity entity : entities) {
+            entity.setId(++id);
+            map.put(entity.getId(), entity);
+        }
+        return map;
+    }
+
+    private static Object store(StoreMode storeMode, boolean unboxedKeys, List<BenchmarkEntity> entities) {
+        InMemoryEntityStore<Long> store = new InMemoryEntityStore<>(BenchmarkEntity.class,
+            new LongSequenceGenerator(), new TableDefinition(storeMode, Collections.emptyList(), StorageType.HEAP,
+            SerializingEntityCodec.INSTANCE, CopyMode.NONE, unboxedKeys));
+        store.storeAll(entities);
+        return store;
+    }
+
+    private static void report(String layout, int rows, Function<List<BenchmarkEntity>, Object> table) {
+        List<BenchmarkEntity> entities = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            entities.add(new BenchmarkEntity());
+        }
+
+        long before = usedHeap();
+        retained = table.apply(entities);
+        long after = usedHeap();
+        retained = null;
+        System.out.printf("%-32s %12.1f %14.1f%n", layout, (after - before) / 1048576.0,
+            (after - before) / (double) rows);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
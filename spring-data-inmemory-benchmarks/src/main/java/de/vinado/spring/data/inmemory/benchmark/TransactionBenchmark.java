@@ -0,0 +1,94 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryTransactionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link InMemoryTransactionManager transactions} over plain operations: merging a batch of
+ * entities with and without a transaction and looking up an entity within a read-only transaction. The cost of a
+ * commit is expected to grow with the batch, not with the table.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int tableSize;
+
+    @Param({"1", "100"})
+    private int batchSize;
+
+    private InMemoryEntityTableStore store;
+    private TransactionTemplate transaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Class<?>, EntityStore> tables = new HashMap<>();
+        tables.put(BenchmarkEntity.class, new InMemoryEntityStore<>(BenchmarkEntity.class,
+            new LongSequenceGenerator(), StoreMode.CONCURRENT));
+        store = new InMemoryEntityTableStore(tables);
+        for (long id = 1; id <= tableSize; id++) {
+            store.merge(new BenchmarkEntity(id, "entity-" + id));
+        }
+
+        InMemoryTransactionManager transactionManager = new InMemoryTransactionManager(store);
+        transaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Benchmark
+    public void mergeWithoutTransaction() {
+        mergeBatch();
+    }
+
+    @Benchmark
+    public void mergeInTransaction() {
+        transaction.executeWithoutResult(status -> mergeBatch());
+    }
+
+    @Benchmark
+    public BenchmarkEntity findInReadOnlyTransaction() {
+        return readOnlyTransaction.execute(status -> store.find(BenchmarkEntity.class, randomId()));
+    }
+
+    private void mergeBatch() {
+        for (int i = 0; i < batchSize; i++) {
+            long id = randomId();
+            store.merge(new BenchmarkEntity(id, "entity-" + id));
+        }
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, tableSize + 1);
+    }
+}
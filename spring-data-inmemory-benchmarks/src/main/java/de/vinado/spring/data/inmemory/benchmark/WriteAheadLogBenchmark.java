@@ -0,0 +1,96 @@
+package de.vinado.spring.data.inmemory.benchmark;
+
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.FsyncPolicy;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityStore;
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of merges into a table made durable by a {@link WriteAheadLog}, per fsync policy and
+ * compared to a table without log. Merging from several threads lets the log commit their records in groups.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class WriteAheadLogBenchmark {
+
+    private static final int TABLE_SIZE = 10_000;
+
+    @Param({"NONE", "OS", "INTERVAL", "ALWAYS"})
+    private String fsyncPolicy;
+
+    private Path directory;
+    private WriteAheadLog log;
+    private InMemoryEntityTableStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Map<Class<?>, EntityStore> tables = new HashMap<>();
+        tables.put(BenchmarkEntity.class, new InMemoryEntityStore<>(BenchmarkEntity.class,
+            new LongSequenceGenerator(), StoreMode.CONCURRENT));
+        store = new InMemoryEntityTableStore(tables);
+
+        directory = Files.createTempDirectory("wal");
+        if (!"NONE".equals(fsyncPolicy)) {
+            log = new WriteAheadLog(directory.resolve("snapshot.bin"), FsyncPolicy.valueOf(fsyncPolicy),
+                Duration.ofMillis(100), 64L << 20);
+            log.recover(store);
+        }
+
+        for (long id = 1; id <= TABLE_SIZE; id++) {
+            store.merge(new BenchmarkEntity(id, "entity-" + id));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (null != log) {
+            log.close();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public BenchmarkEntity merge() {
+        long id = ThreadLocalRandom.current().nextLong(1, TABLE_SIZE + 1);
+        return store.merge(new BenchmarkEntity(id, "entity-" + id));
+    }
+}
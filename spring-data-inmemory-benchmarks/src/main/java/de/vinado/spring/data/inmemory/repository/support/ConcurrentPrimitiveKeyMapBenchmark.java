@@ -0,0 +1,73 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the row map of concurrent tables with {@literal long} primary keys to a {@literal ConcurrentHashMap}, while
+ * three threads look up random keys and another one keeps replacing random rows the way a merge does. Resides in the
+ * store's package, since the map isn't public.
+ *
+ * @author Vincent Nadoll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentPrimitiveKeyMapBenchmark {
+
+    @Param({"PRIMITIVE", "CONCURRENT_HASH"})
+    private String map;
+
+    @Param({"10000", "1000000"})
+    private int tableSize;
+
+    private Map<Long, Object> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rows = "PRIMITIVE".equals(map)
+            ? new ConcurrentPrimitiveKeyMap<>(Long.class, Long::valueOf)
+            : new ConcurrentHashMap<>();
+        for (long key = 1; key <= tableSize; key++) {
+            rows.put(key, "row-" + key);
+        }
+    }
+
+    @Benchmark
+    @Group("lookupWrite")
+    @GroupThreads(3)
+    public Object get() {
+        return rows.get(randomKey());
+    }
+
+    @Benchmark
+    @Group("lookupWrite")
+    @GroupThreads(1)
+    public Object compute() {
+        return rows.compute(randomKey(), (key, row) -> "row-" + key);
+    }
+
+    private long randomKey() {
+        return ThreadLocalRandom.current().nextLong(1, tableSize + 1);
+    }
+}
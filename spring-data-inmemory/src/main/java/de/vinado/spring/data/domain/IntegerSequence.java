@@ -0,0 +1,76 @@
+package de.vinado.spring.data.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link LongSequence} narrowed to positive integer values.
+ *
+ * @author Vincent Nadoll
+ */
+public class IntegerSequence implements PrimaryKeySequence<Integer> {
+
+    private final LongSequence sequence;
+
+    /**
+     * Creates a new sequence which takes every key from the shared counter.
+     */
+    public IntegerSequence() {
+        this(1);
+    }
+
+    /**
+     * Creates a new sequence which claims the given number of keys per thread at once.
+     *
+     * @param blockSize must be positive
+     * @throws IllegalArgumentException in case the block size is not positive
+     */
+    public IntegerSequence(int blockSize) {
+        this.sequence = new LongSequence(blockSize);
+    }
+
+    /**
+     * Gives the next key without boxing it.
+     *
+     * @return the next key
+     * @throws IllegalStateException in case the sequence exceeded {@link Integer#MAX_VALUE}
+     */
+    public int nextInt() {
+        return narrow(sequence.nextLong());
+    }
+
+    @Override
+    public Integer next() {
+        return nextInt();
+    }
+
+    @Override
+    public List<Integer> next(int count) {
+        int first = narrow(sequence.nextLongs(count));
+        narrow((long) first + count - 1);
+        List<Integer> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(first + i);
+        }
+        return keys;
+    }
+
+    @Override
+    public void advancePast(Integer key) {
+        sequence.advancePast(key.longValue());
+    }
+
+    @Override
+    public Integer last() {
+        Long last = sequence.last();
+        return null == last ? null : (int) Math.min(last, Integer.MAX_VALUE);
+    }
+
+    private static int narrow(long key) {
+        if (key > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Integer sequence is exhausted");
+        }
+
+        return (int) key;
+    }
+}
@@ -0,0 +1,38 @@
+package de.vinado.spring.data.domain;
+
+/**
+ * A primary key generator which gives each table its own {@link IntegerSequence}, starting at 1. Applied to a previous
+ * value, it increments that value like {@link IntegerPrimaryKeyGenerator} does.
+ *
+ * @author Vincent Nadoll
+ */
+public class IntegerSequenceGenerator extends IntegerPrimaryKeyGenerator implements SequenceGenerator<Integer> {
+
+    private final int blockSize;
+
+    /**
+     * Creates a new generator whose sequences take every key from their shared counter.
+     */
+    public IntegerSequenceGenerator() {
+        this(1);
+    }
+
+    /**
+     * Creates a new generator whose sequences claim the given number of keys per thread at once.
+     *
+     * @param blockSize must be positive
+     * @throws IllegalArgumentException in case the block size is not positive
+     */
+    public IntegerSequenceGenerator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public IntegerSequence newSequence() {
+        return new IntegerSequence(blockSize);
+    }
+}
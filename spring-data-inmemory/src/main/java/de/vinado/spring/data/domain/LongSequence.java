@@ -0,0 +1,116 @@
+package de.vinado.spring.data.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sequence of positive long values backed by an atomic counter. Keys are never handed out twice, neither after the
+ * entity they were assigned to has been removed, nor after the sequence has been advanced past a greater key.
+ *
+ * <p>With a block size greater than one, each thread claims a block of consecutive keys from the counter and hands
+ * them out without further synchronization (hi/lo allocation). The keys are then increasing per thread but not
+ * across threads, and blocks claimed before the sequence was advanced are used up nevertheless.
+ *
+ * @author Vincent Nadoll
+ */
+public class LongSequence implements PrimaryKeySequence<Long> {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private final int blockSize;
+
+    private final ThreadLocal<long[]> blocks;
+
+    /**
+     * Creates a new sequence which takes every key from the shared counter.
+     */
+    public LongSequence() {
+        this(1);
+    }
+
+    /**
+     * Creates a new sequence which claims the given number of keys per thread at once.
+     *
+     * @param blockSize must be positive
+     * @throws IllegalArgumentException in case the block size is not positive
+     */
+    public LongSequence(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+
+        this.blockSize = blockSize;
+        this.blocks = blockSize > 1 ? ThreadLocal.withInitial(() -> new long[2]) : null;
+    }
+
+    /**
+     * Gives the next key without boxing it.
+     *
+     * @return the next key
+     */
+    public long nextLong() {
+        if (null == blocks) {
+            return counter.incrementAndGet();
+        }
+
+        long[] block = blocks.get();
+        if (block[0] == block[1]) {
+            block[0] = counter.getAndAdd(blockSize);
+            block[1] = block[0] + blockSize;
+        }
+        return ++block[0];
+    }
+
+    /**
+     * Claims the given number of consecutive keys at once, regardless of the block size.
+     *
+     * @param count the number of keys
+     * @return the first of the claimed keys
+     */
+    public long nextLongs(int count) {
+        return counter.getAndAdd(count) + 1;
+    }
+
+    @Override
+    public Long next() {
+        return nextLong();
+    }
+
+    @Override
+    public List<Long> next(int count) {
+        long first = nextLongs(count);
+        List<Long> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(first + i);
+        }
+        return keys;
+    }
+
+    @Override
+    public void advancePast(Long key) {
+        advancePast(key.longValue());
+    }
+
+    /**
+     * Advances the counter to the given key, unless it already passed it.
+     *
+     * @param key any key
+     */
+    public void advancePast(long key) {
+        if (counter.get() < key) {
+            counter.accumulateAndGet(key, Math::max);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Includes the keys of blocks claimed by any thread, whether handed out yet or not.
+     */
+    @Override
+    public Long last() {
+        long last = counter.get();
+        return 0 == last ? null : last;
+    }
+}
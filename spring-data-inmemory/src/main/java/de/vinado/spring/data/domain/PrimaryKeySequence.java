@@ -0,0 +1,106 @@
+package de.vinado.spring.data.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A stateful source of primary keys of a single table. Unlike a {@link PrimaryKeyGenerator}, a sequence keeps track of
+ * the keys it handed out itself, so that it can be called concurrently.
+ *
+ * @param <ID> the type of the identifier
+ * @author Vincent Nadoll
+ */
+public interface PrimaryKeySequence<ID> {
+
+    /**
+     * Gives the next primary key.
+     *
+     * @return the next identifier
+     */
+    ID next();
+
+    /**
+     * Gives the given number of next primary keys at once.
+     *
+     * @param count the number of keys
+     * @return the next identifiers in the order they were generated
+     */
+    default List<ID> next(int count) {
+        List<ID> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(next());
+        }
+        return keys;
+    }
+
+    /**
+     * Informs the sequence about a key assigned to an entity by other means, e.g. when merging an entity with a given
+     * primary key.
+     *
+     * @param key must not be {@literal null}
+     */
+    void advancePast(ID key);
+
+    /**
+     * Returns the greatest key handed out or advanced past, so that a new sequence can be {@link #advancePast(Object)
+     * advanced past} it, e.g. after a restart.
+     *
+     * @return the last key or {@literal null} if the sequence hasn't been used yet
+     */
+    @Nullable
+    ID last();
+
+    /**
+     * Returns a sequence of the given generator. {@link SequenceGenerator}s create their own sequence, any other
+     * generator is applied to the previously generated or advanced key. Such a sequence is only advanced past
+     * {@link Comparable} keys greater than the last one, while keys without a natural order always replace it.
+     *
+     * @param generator must not be {@literal null}
+     * @param <ID>      the type of the identifier
+     * @return a new sequence
+     */
+    @SuppressWarnings("unchecked")
+    static <ID> PrimaryKeySequence<ID> of(PrimaryKeyGenerator<ID> generator) {
+        if (generator instanceof SequenceGenerator) {
+            return ((SequenceGenerator<ID>) generator).newSequence();
+        }
+
+        AtomicReference<ID> previous = new AtomicReference<>();
+        return new PrimaryKeySequence<ID>() {
+
+            @Override
+            public ID next() {
+                return previous.updateAndGet(generator::next);
+            }
+
+            @Override
+            public List<ID> next(int count) {
+                List<ID> keys = new ArrayList<>(count);
+                previous.updateAndGet(key -> {
+                    keys.clear();
+                    for (int i = 0; i < count; i++) {
+                        key = generator.next(key);
+                        keys.add(key);
+                    }
+                    return key;
+                });
+                return keys;
+            }
+
+            @Override
+            public void advancePast(ID key) {
+                previous.accumulateAndGet(key, (last, candidate) -> null == last
+                    || !(candidate instanceof Comparable)
+                    || ((Comparable<Object>) candidate).compareTo(last) > 0 ? candidate : last);
+            }
+
+            @Override
+            public ID last() {
+                return previous.get();
+            }
+        };
+    }
+}
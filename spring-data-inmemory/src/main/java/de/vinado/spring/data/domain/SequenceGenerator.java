@@ -0,0 +1,18 @@
+package de.vinado.spring.data.domain;
+
+/**
+ * A primary key generator that creates a {@link PrimaryKeySequence} per table. Tables of a sequence generator ignore
+ * {@link #next(Object)} and draw their keys from their own sequence instead.
+ *
+ * @param <ID> the type of the identifier
+ * @author Vincent Nadoll
+ */
+public interface SequenceGenerator<ID> extends PrimaryKeyGenerator<ID> {
+
+    /**
+     * Creates a new sequence starting at the first key.
+     *
+     * @return a new sequence
+     */
+    PrimaryKeySequence<ID> newSequence();
+}
@@ -0,0 +1,62 @@
+package de.vinado.spring.data.domain;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * An identifier generator which creates time-ordered, version 7 {@literal UUID}s. The most significant 48 bits hold
+ * the Unix epoch in milliseconds, followed by a 12 bit counter and 62 random bits. Unlike
+ * {@link UUID#randomUUID()}, random bits are taken from {@link ThreadLocalRandom}, so that generating identifiers
+ * neither blocks on entropy nor contends across threads.
+ *
+ * <p>Identifiers generated by the same thread are strictly increasing with respect to {@link Identifier#compareTo},
+ * even if more than 4096 of them are generated within a millisecond or the clock is set back. Identifiers generated
+ * by different threads are ordered by their millisecond.
+ *
+ * @param <ID> the type of the identifier
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+public class TimeOrderedIdentifierGenerator<ID extends Identifier> implements IdentifierGenerator<ID> {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private static final ThreadLocal<long[]> CLOCKS = ThreadLocal.withInitial(() -> new long[2]);
+
+    @NonNull
+    private final Function<UUID, ID> factory;
+
+    @Override
+    public ID createIdentifier() {
+        return factory.apply(nextUuid());
+    }
+
+    /**
+     * Creates a new time-ordered {@literal UUID}.
+     *
+     * @return a version 7 {@literal UUID}
+     */
+    public static UUID nextUuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] clock = CLOCKS.get();
+        long millis = System.currentTimeMillis();
+        if (millis > clock[0]) {
+            clock[0] = millis;
+            clock[1] = random.nextInt(1 << (COUNTER_BITS - 1));
+        } else if ((++clock[1] >> COUNTER_BITS) != 0) {
+            clock[0]++;
+            clock[1] = random.nextInt(1 << (COUNTER_BITS - 1));
+        }
+
+        long mostSigBits = (clock[0] << 16) | VERSION | clock[1];
+        long leastSigBits = (random.nextLong() & RANDOM_MASK) | VARIANT;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,33 @@
+package de.vinado.spring.data.inmemory;
+
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a property of an entity to be indexed by the in-memory store, so that queries by this property don't have to
+ * scan the whole table.
+ *
+ * @author Vincent Nadoll
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Indexed {
+
+    /**
+     * Whether the property's values are unique among all entities of the table. Storing or merging an entity which
+     * violates this constraint is rejected. Like in SQL, {@literal null} is exempt, so any number of entities may lack
+     * a value.
+     */
+    boolean unique() default false;
+
+    /**
+     * The data structure backing the index. Use {@link IndexType#SORTED} to serve range, prefix and ordered queries.
+     */
+    IndexType type() default IndexType.HASH;
+}
@@ -1,5 +1,12 @@
 package de.vinado.spring.data.inmemory.repository;
 
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 /**
@@ -13,21 +20,56 @@ public interface EntityStore {
      * Creates a new entity.
      *
      * @param entity must not be {@literal null}
-     * @throws de.vinado.spring.data.repository.EntityExistsException in case the entity already exists
+     * @throws de.vinado.spring.data.repository.EntityExistsException in case the entity already exists or violates a
+     *                                                        unique index
      * @throws IllegalArgumentException                       in case the object is not an entity
      */
     void store(Object entity);
 
+    /**
+     * Creates all given entities of the same type. The whole batch is validated before the first entity is created and
+     * its primary keys are allocated in a single block. Each entity must be given at most once.
+     *
+     * <p>The batch isn't atomic. Should an entity fail to be created, the entities preceding it remain created and
+     * visible, while the failed entity keeps its previous primary key and version. Apply the batch within a
+     * transaction to have it rolled back as a whole.
+     *
+     * @param entities must not be {@literal null}
+     * @throws de.vinado.spring.data.repository.EntityExistsException in case an entity already exists, is given more
+     *                                                        than once or violates a unique index, in the latter case
+     *                                                        the entities preceding it have been created
+     * @throws IllegalArgumentException                       in case an object is not an entity, in which case none
+     *                                                        has been created
+     */
+    void storeAll(Collection<?> entities);
+
     /**
      * Merges the entity with an existing entity.
      *
      * @param entity must not be {@literal null}
      * @param <T>    the type of the entity
      * @return the update entity
-     * @throws IllegalArgumentException in case the object is not an entity or has been removed
+     * @throws de.vinado.spring.data.repository.EntityExistsException in case the entity violates a unique index
+     * @throws IllegalArgumentException                       in case the object is not an entity or has been removed
      */
     <T> T merge(T entity);
 
+    /**
+     * Merges all given entities of the same type with the existing ones. The whole batch is validated before the first
+     * entity is merged.
+     *
+     * <p>The batch isn't atomic. Should an entity fail to be merged, the entities preceding it remain merged and
+     * visible, while the failed entity keeps its previous version. Apply the batch within a transaction to have it
+     * rolled back as a whole.
+     *
+     * @param entities must not be {@literal null}
+     * @throws de.vinado.spring.data.repository.EntityExistsException in case an entity violates a unique index, in
+     *                                                        which case the entities preceding it have been merged
+     * @throws IllegalArgumentException                       in case an object is not an entity or has no primary
+     *                                                        key, in which case none has been merged
+     */
+    void mergeAll(Collection<?> entities);
+
     /**
      * Finds an entity by its type and primary key.
      *
@@ -49,6 +91,83 @@ public interface EntityStore {
      */
     <T> Stream<T> findAll(Class<T> entityClass);
 
+    /**
+     * Counts all entities by its type in constant time.
+     *
+     * @param entityClass must not be {@literal null}
+     * @return the number of entities
+     * @throws IllegalArgumentException in case the given class is not an entity class
+     */
+    long count(Class<?> entityClass);
+
+    /**
+     * Counts all entities by its type having the given property value. Counting takes constant time if the property
+     * is indexed, in which case entities modified in place are counted by the value they had when they were stored or
+     * merged.
+     *
+     * @param entityClass  must not be {@literal null}
+     * @param propertyName must not be {@literal null}
+     * @param value        might be {@literal null}
+     * @return the number of applicable entities
+     * @throws IllegalArgumentException in case the given class is not an entity class or the entity has no such
+     *                                  property
+     */
+    long countBy(Class<?> entityClass, String propertyName, @Nullable Object value);
+
+    /**
+     * Finds all entities by its type having the given property value.
+     *
+     * @param entityClass  must not be {@literal null}
+     * @param propertyName must not be {@literal null}
+     * @param value        might be {@literal null}
+     * @param <T>          the type of the entity
+     * @return stream of all applicable entities or {@literal Stream.empty()} if none found
+     * @throws IllegalArgumentException in case the given class is not an entity class or, once the stream is
+     *                                  consumed, in case the entity has no such property
+     */
+    <T> Stream<T> findAllBy(Class<T> entityClass, String propertyName, @Nullable Object value);
+
+    /**
+     * Finds all entities by its type whose property value lies within the given range, ordered by that value.
+     * Entities with a {@literal null} value are never part of a range.
+     *
+     * @param entityClass  must not be {@literal null}
+     * @param propertyName must not be {@literal null}
+     * @param range        must not be {@literal null}
+     * @param direction    must not be {@literal null}
+     * @param <T>          the type of the entity
+     * @return ordered stream of all applicable entities or {@literal Stream.empty()} if none found
+     * @throws IllegalArgumentException in case the given class is not an entity class or, once the stream is
+     *                                  consumed, in case the entity has no such property or its values are not
+     *                                  comparable to the range's bounds
+     */
+    <T> Stream<T> findAllInRange(Class<T> entityClass, String propertyName, Range<?> range, Sort.Direction direction);
+
+    /**
+     * Finds all entities by its type, ordered by the given property. Entities with a {@literal null} value are ordered
+     * first in ascending and last in descending direction.
+     *
+     * @param entityClass  must not be {@literal null}
+     * @param propertyName must not be {@literal null}
+     * @param direction    must not be {@literal null}
+     * @param <T>          the type of the entity
+     * @return ordered stream of all entities or {@literal Stream.empty()} if none found
+     * @throws IllegalArgumentException in case the given class is not an entity class or, once the stream is
+     *                                  consumed, in case the entity has no such property or its values are not
+     *                                  comparable
+     */
+    <T> Stream<T> findAllOrderedBy(Class<T> entityClass, String propertyName, Sort.Direction direction);
+
+    /**
+     * Returns the type of the secondary index on the given property.
+     *
+     * @param entityClass  must not be {@literal null}
+     * @param propertyName must not be {@literal null}
+     * @return the index type or {@literal Optional.empty()} if the property isn't indexed
+     * @throws IllegalArgumentException in case the given class is not an entity class
+     */
+    Optional<IndexType> getIndexType(Class<?> entityClass, String propertyName);
+
     /**
      * Removes the entity.
      *
@@ -58,7 +177,29 @@ public interface EntityStore {
     void remove(Object entity);
 
     /**
-     * Returns whether an entity exist.
+     * Removes all given entities of the same type. Unlike {@link #remove(Object)}, entities are identified by their
+     * primary key and version only, and entities without a primary key or not contained in the store are ignored.
+     *
+     * @param entities must not be {@literal null}
+     * @throws IllegalArgumentException                                  in case an object is not an entity, in which
+     *                                                                   case none has been removed
+     * @throws org.springframework.dao.OptimisticLockingFailureException in case a versioned entity has been updated
+     *                                                                   concurrently, in which case it has been kept
+     *                                                                   while the others have been removed
+     */
+    void removeAll(Collection<?> entities);
+
+    /**
+     * Removes all entities by its type at once, without visiting them one by one.
+     *
+     * @param entityClass must not be {@literal null}
+     * @throws IllegalArgumentException in case the given class is not an entity class
+     */
+    void clear(Class<?> entityClass);
+
+    /**
+     * Returns whether an entity exist. The lookup is performed by the entity's primary key, hence entities without a
+     * primary key are never contained.
      *
      * @param entity must not be {@literal null}
      * @return {@literal true} if the entity exist; {@literal false otherwise}
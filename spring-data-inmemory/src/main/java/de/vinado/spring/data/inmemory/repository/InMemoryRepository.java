@@ -1,13 +1,28 @@
 package de.vinado.spring.data.inmemory.repository;
 
 import de.vinado.spring.data.repository.StreamableRepository;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.util.Streamable;
 
 /**
- * Simple flag repository interface.
+ * Simple flag repository interface which adds paging and sorting to the {@link StreamableRepository}.
  *
  * @author Vincent Nadoll
  */
 @NoRepositoryBean
-public interface InMemoryRepository<T, ID> extends StreamableRepository<T, ID> {
+public interface InMemoryRepository<T, ID> extends StreamableRepository<T, ID>, PagingAndSortingRepository<T, ID> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Streamable<T> findAll();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Streamable<T> findAll(Sort sort);
 }
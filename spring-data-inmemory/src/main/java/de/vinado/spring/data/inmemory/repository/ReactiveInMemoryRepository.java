@@ -0,0 +1,14 @@
+package de.vinado.spring.data.inmemory.repository;
+
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.reactive.ReactiveSortingRepository;
+
+/**
+ * Simple flag repository interface for reactive in-memory repositories, the reactive counterpart of the
+ * {@link InMemoryRepository}.
+ *
+ * @author Vincent Nadoll
+ */
+@NoRepositoryBean
+public interface ReactiveInMemoryRepository<T, ID> extends ReactiveSortingRepository<T, ID> {
+}
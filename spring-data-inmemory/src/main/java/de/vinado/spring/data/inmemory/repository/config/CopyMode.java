@@ -0,0 +1,30 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+/**
+ * Strategies defining whether an entity store (aka. table) kept on the {@link StorageType#HEAP heap} isolates its
+ * entities from the application by copying them. A copying table stores a copy of every entity written and returns a
+ * copy of every entity read, so that mutating an entity never changes the table without saving it.
+ *
+ * @author Vincent Nadoll
+ */
+public enum CopyMode {
+
+    /**
+     * Entities are neither copied on write nor on read. Entities returned by the table are the very instances stored,
+     * hence they can't be saved within a transaction.
+     */
+    NONE,
+
+    /**
+     * Copies the fields of an entity, sharing the objects they refer to with the original.
+     */
+    SHALLOW,
+
+    /**
+     * Copies the fields of an entity and, recursively, the objects they refer to. Immutable values such as strings,
+     * numbers, enums and dates of {@literal java.time} are shared, arrays, collections and maps are copied along with
+     * their elements into instances of their very class. Entities with a field of a mutable JDK type that can't be
+     * copied, e.g. neither a collection nor cloneable, are rejected.
+     */
+    DEEP,
+}
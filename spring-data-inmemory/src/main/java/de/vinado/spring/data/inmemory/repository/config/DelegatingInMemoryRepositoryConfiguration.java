@@ -1,8 +1,11 @@
 package de.vinado.spring.data.inmemory.repository.config;
 
-import de.vinado.spring.data.domain.IntegerPrimaryKeyGenerator;
-import de.vinado.spring.data.domain.LongPrimaryKeyGenerator;
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.repository.support.EntityStoreObserver;
 import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.InstrumentedEntityTableStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,14 +38,32 @@ public class DelegatingInMemoryRepositoryConfiguration {
     }
 
     @Bean
-    public InMemoryEntityTableStore inMemoryEntityManager() {
-        return new InMemoryEntityTableStore();
+    public TableMapping tableMapping() {
+        TableRegistry registry = new TableRegistry();
+        addTables(registry);
+        return registry.get();
+    }
+
+    /**
+     * Creates the entity store, which reports its operations to the {@link EntityStoreObserver} if the context defines
+     * one.
+     */
+    @Bean
+    public InMemoryEntityTableStore inMemoryEntityManager(ObjectProvider<EntityStoreObserver> observer) {
+        EntityStoreObserver entityStoreObserver = observer.getIfUnique();
+        return null == entityStoreObserver
+            ? new InMemoryEntityTableStore()
+            : new InstrumentedEntityTableStore(entityStoreObserver);
     }
 
     protected void addIdentifiers(IdentifierRegistry registry) {
-        registry.addIdentifier(Integer.class, new IntegerPrimaryKeyGenerator());
-        registry.addIdentifier(Long.class, new LongPrimaryKeyGenerator());
+        registry.addIdentifier(Integer.class, new IntegerSequenceGenerator());
+        registry.addIdentifier(Long.class, new LongSequenceGenerator());
 
         this.configurers.addIdentifiers(registry);
     }
+
+    protected void addTables(TableRegistry registry) {
+        this.configurers.addTables(registry);
+    }
 }
@@ -0,0 +1,29 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Strategy for serializing the entities of an {@link StorageType#OFF_HEAP off-heap} table.
+ *
+ * @author Vincent Nadoll
+ */
+public interface EntityCodec {
+
+    /**
+     * Serializes the given entity.
+     *
+     * @param entity must not be {@literal null}
+     * @return the serialized entity
+     * @throws IllegalArgumentException in case the entity can't be serialized
+     */
+    byte[] encode(Object entity);
+
+    /**
+     * Deserializes an entity from the remaining bytes of the given buffer. The buffer is only valid during the call.
+     *
+     * @param buffer must not be {@literal null}
+     * @return a new instance of the entity
+     * @throws IllegalStateException in case the entity can't be deserialized
+     */
+    Object decode(ByteBuffer buffer);
+}
@@ -0,0 +1,28 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+/**
+ * Strategies defining when a write-ahead log forces its records to the storage device.
+ *
+ * @author Vincent Nadoll
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Every batch of records is forced before the operations that appended them return. Concurrent operations are
+     * committed together by a single fsync (group commit). No acknowledged operation is lost, even if the machine
+     * crashes.
+     */
+    ALWAYS,
+
+    /**
+     * Records are forced at a fixed interval. Operations return as soon as their records are appended, hence a crash
+     * of the machine loses at most the operations of the last interval.
+     */
+    INTERVAL,
+
+    /**
+     * Records are written but never forced, leaving it to the operating system when to flush them. Operations return
+     * as soon as their records are appended.
+     */
+    OS,
+}
@@ -4,6 +4,7 @@ import de.vinado.spring.data.inmemory.Entity;
 import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
 import de.vinado.spring.data.inmemory.repository.support.InMemoryRepositoryFactoryBean;
 import org.springframework.data.repository.config.RepositoryConfigurationExtensionSupport;
+import org.springframework.data.repository.core.RepositoryMetadata;
 
 import java.lang.annotation.Annotation;
 import java.util.Collection;
@@ -55,4 +56,14 @@ public class InMemoryRepositoryConfigExtension extends RepositoryConfigurationEx
     protected Collection<Class<?>> getIdentifyingTypes() {
         return Collections.singleton(InMemoryRepository.class);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Reactive repositories are left to the {@link ReactiveInMemoryRepositoryConfigExtension}.
+     */
+    @Override
+    protected boolean useRepositoryConfiguration(RepositoryMetadata metadata) {
+        return !metadata.isReactiveRepository();
+    }
 }
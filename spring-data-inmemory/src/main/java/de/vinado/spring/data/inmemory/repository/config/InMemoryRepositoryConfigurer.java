@@ -12,4 +12,10 @@ public interface InMemoryRepositoryConfigurer {
      */
     default void addIdentifiers(IdentifierRegistry registry) {
     }
+
+    /**
+     * Add table definitions to the given registry.
+     */
+    default void addTables(TableRegistry registry) {
+    }
 }
@@ -25,4 +25,9 @@ class InMemoryRepositoryConfigurerComposite implements InMemoryRepositoryConfigu
     public void addIdentifiers(IdentifierRegistry registry) {
         delegates.forEach(delegate -> delegate.addIdentifiers(registry));
     }
+
+    @Override
+    public void addTables(TableRegistry registry) {
+        delegates.forEach(delegate -> delegate.addTables(registry));
+    }
 }
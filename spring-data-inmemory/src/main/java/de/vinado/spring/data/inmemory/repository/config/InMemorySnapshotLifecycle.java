@@ -0,0 +1,208 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import de.vinado.spring.data.inmemory.repository.support.InMemoryEntityTableStore;
+import de.vinado.spring.data.inmemory.repository.support.WriteAheadLog;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the tables of an {@link InMemoryEntityTableStore} across restarts. On startup, i.e. once all repositories
+ * and hence all tables have been created, the tables are restored from the snapshot file, if it exists. While
+ * running, a snapshot is taken on a background thread at the given interval, and a last one when the context is
+ * closed.
+ *
+ * <p>If a {@link WriteAheadLog} is given, the log is replayed on top of the snapshot on startup and every change made
+ * while running is logged. Snapshots are then taken as checkpoints of the log, which also compact it.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class InMemorySnapshotLifecycle implements SmartLifecycle {
+
+    private final InMemoryEntityTableStore store;
+
+    private final Path file;
+
+    private final WriteAheadLog writeAheadLog;
+
+    private final Duration interval;
+
+    private final SnapshotFormat format;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+
+    /**
+     * Creates a new lifecycle which compresses the snapshots.
+     *
+     * @param store    must not be {@literal null}
+     * @param file     must not be {@literal null}
+     * @param interval the time between two snapshots, {@literal null} to only take one on shutdown
+     */
+    public InMemorySnapshotLifecycle(InMemoryEntityTableStore store, Path file, @Nullable Duration interval) {
+        this(store, file, interval, true);
+    }
+
+    /**
+     * Creates a new lifecycle.
+     *
+     * @param store    must not be {@literal null}
+     * @param file     must not be {@literal null}
+     * @param interval the time between two snapshots, {@literal null} to only take one on shutdown
+     * @param compress whether to compress the snapshots
+     */
+    public InMemorySnapshotLifecycle(InMemoryEntityTableStore store, Path file, @Nullable Duration interval,
+                                     boolean compress) {
+        this(store, file, interval, compress ? SnapshotFormat.COMPRESSED : SnapshotFormat.PLAIN);
+    }
+
+    /**
+     * Creates a new lifecycle writing snapshots of the given format.
+     *
+     * @param store    must not be {@literal null}
+     * @param file     must not be {@literal null}
+     * @param interval the time between two snapshots, {@literal null} to only take one on shutdown
+     * @param format   must not be {@literal null}
+     */
+    public InMemorySnapshotLifecycle(@NonNull InMemoryEntityTableStore store, @NonNull Path file,
+                                     @Nullable Duration interval, @NonNull SnapshotFormat format) {
+        this.store = store;
+        this.file = file;
+        this.writeAheadLog = null;
+        this.interval = interval;
+        this.format = format;
+    }
+
+    /**
+     * Creates a new lifecycle which makes the tables durable by the given write-ahead log.
+     *
+     * @param store         must not be {@literal null}
+     * @param writeAheadLog must not be {@literal null}
+     * @param interval      the time between two checkpoints, {@literal null} to only take one on shutdown and whenever
+     *                      the log exceeds its compaction threshold
+     */
+    public InMemorySnapshotLifecycle(@NonNull InMemoryEntityTableStore store, @NonNull WriteAheadLog writeAheadLog,
+                                     @Nullable Duration interval) {
+        this.store = store;
+        this.file = null;
+        this.writeAheadLog = writeAheadLog;
+        this.interval = interval;
+        this.format = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException in case the existing snapshot can't be read
+     */
+    @Override
+    public void start() {
+        try {
+            if (null != writeAheadLog) {
+                writeAheadLog.recover(store);
+            } else if (Files.exists(file)) {
+                store.readSnapshot(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore the in-memory repositories", e);
+        }
+
+        if (null != interval && !interval.isZero() && !interval.isNegative()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "inmemory-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = interval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::snapshot, millis, millis, TimeUnit.MILLISECONDS);
+        }
+
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (null != scheduler) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+
+        snapshot();
+        if (null != writeAheadLog) {
+            try {
+                writeAheadLog.close();
+            } catch (IOException e) {
+                log.error("Failed to close the write-ahead log", e);
+            }
+        }
+    }
+
+    private void snapshot() {
+        try {
+            takeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write a snapshot of the in-memory repositories", e);
+        }
+    }
+
+    /**
+     * Takes a snapshot right away, aside from the scheduled ones. Given a write-ahead log, the snapshot is taken as a
+     * checkpoint of the log, which compacts it as well.
+     *
+     * @throws IOException in case the snapshot can't be written
+     */
+    public void takeSnapshot() throws IOException {
+        if (null != writeAheadLog) {
+            writeAheadLog.checkpoint();
+        } else {
+            store.writeSnapshot(file, format);
+        }
+    }
+
+    /**
+     * Compacts the write-ahead log right away by taking a checkpoint, dropping the segments the new snapshot
+     * supersedes.
+     *
+     * @throws IOException           in case the snapshot can't be written
+     * @throws IllegalStateException in case the tables aren't made durable by a write-ahead log
+     */
+    public void compact() throws IOException {
+        if (null == writeAheadLog) {
+            throw new IllegalStateException("In-memory repositories aren't logged to a write-ahead log");
+        }
+
+        writeAheadLog.checkpoint();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the default phase, so that the tables are restored before and persisted after
+     * other components using them.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE + 1000;
+    }
+}
@@ -0,0 +1,44 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Immutable description of a secondary index on a single entity property.
+ *
+ * @author Vincent Nadoll
+ */
+@Value
+public class IndexDefinition {
+
+    @NonNull
+    String property;
+
+    @NonNull
+    IndexType type;
+
+    boolean unique;
+
+    /**
+     * Creates a new {@link IndexType#HASH hash} index definition.
+     *
+     * @param property must not be {@literal null}
+     * @param unique   whether the property's values are unique
+     */
+    public IndexDefinition(String property, boolean unique) {
+        this(property, IndexType.HASH, unique);
+    }
+
+    /**
+     * Creates a new index definition.
+     *
+     * @param property must not be {@literal null}
+     * @param type     must not be {@literal null}
+     * @param unique   whether the property's values are unique
+     */
+    public IndexDefinition(@NonNull String property, @NonNull IndexType type, boolean unique) {
+        this.property = property;
+        this.type = type;
+        this.unique = unique;
+    }
+}
@@ -0,0 +1,21 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+/**
+ * Data structures backing a secondary index.
+ *
+ * @author Vincent Nadoll
+ */
+public enum IndexType {
+
+    /**
+     * Index backed by a hash map, serving equality lookups in constant time.
+     */
+    HASH,
+
+    /**
+     * Index backed by a skip list which keeps its values in their natural order. Serves equality lookups in
+     * logarithmic time, as well as range, prefix and ordered queries. Indexed values have to be
+     * {@link Comparable comparable}.
+     */
+    SORTED,
+}
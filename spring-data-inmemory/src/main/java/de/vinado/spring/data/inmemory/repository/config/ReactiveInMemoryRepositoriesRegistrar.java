@@ -0,0 +1,31 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import org.springframework.data.repository.config.RepositoryBeanDefinitionRegistrarSupport;
+import org.springframework.data.repository.config.RepositoryConfigurationExtension;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * {@link org.springframework.context.annotation.ImportBeanDefinitionRegistrar} to enable the
+ * {@link EnableReactiveInMemoryRepositories} annotation.
+ *
+ * @author Vincent Nadoll
+ */
+public class ReactiveInMemoryRepositoriesRegistrar extends RepositoryBeanDefinitionRegistrarSupport {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<? extends Annotation> getAnnotation() {
+        return EnableReactiveInMemoryRepositories.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RepositoryConfigurationExtension getExtension() {
+        return new ReactiveInMemoryRepositoryConfigExtension();
+    }
+}
@@ -0,0 +1,51 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import de.vinado.spring.data.inmemory.repository.ReactiveInMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.support.ReactiveInMemoryRepositoryFactoryBean;
+import org.springframework.data.repository.core.RepositoryMetadata;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Reactive in-memory configuration extension parsing custom attributes from
+ * {@link EnableReactiveInMemoryRepositories}.
+ *
+ * @author Vincent Nadoll
+ */
+public class ReactiveInMemoryRepositoryConfigExtension extends InMemoryRepositoryConfigExtension {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getModuleName() {
+        return "reactive in-memory";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getRepositoryFactoryBeanClassName() {
+        return ReactiveInMemoryRepositoryFactoryBean.class.getName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Class<?>> getIdentifyingTypes() {
+        return Collections.singleton(ReactiveInMemoryRepository.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Only reactive repositories are considered.
+     */
+    @Override
+    protected boolean useRepositoryConfiguration(RepositoryMetadata metadata) {
+        return metadata.isReactiveRepository();
+    }
+}
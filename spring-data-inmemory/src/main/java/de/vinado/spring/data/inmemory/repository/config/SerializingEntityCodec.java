@@ -0,0 +1,73 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link EntityCodec} based on Java serialization, hence the entities have to implement
+ * {@link java.io.Serializable}. Being generic, it's neither the fastest nor the most compact codec, so that very large
+ * tables might rather register a codec tailored to their entities.
+ *
+ * @author Vincent Nadoll
+ */
+public class SerializingEntityCodec implements EntityCodec {
+
+    public static final SerializingEntityCodec INSTANCE = new SerializingEntityCodec();
+
+    @Override
+    public byte[] encode(Object entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(entity);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                String.format("Entity of type [%s] can't be serialized", entity.getClass().getCanonicalName()), e
+            );
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object decode(ByteBuffer buffer) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Entity can't be deserialized", e);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
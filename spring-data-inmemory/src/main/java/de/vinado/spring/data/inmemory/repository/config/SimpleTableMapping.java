@@ -0,0 +1,26 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Simple implementation of the mapping supplier which functions as a wrapper to the containing map.
+ *
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+public class SimpleTableMapping implements TableMapping {
+
+    private final Map<Class<?>, TableDefinition> mapping;
+
+    @Getter
+    private final TableDefinition defaultDefinition;
+
+    @Override
+    public Map<Class<?>, TableDefinition> get() {
+        return Collections.unmodifiableMap(mapping);
+    }
+}
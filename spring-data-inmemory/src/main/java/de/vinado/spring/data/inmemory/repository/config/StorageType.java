@@ -0,0 +1,21 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+/**
+ * Strategies defining where an entity store (aka. table) keeps its entities.
+ *
+ * @author Vincent Nadoll
+ */
+public enum StorageType {
+
+    /**
+     * Entities are kept as they are, on the heap. Entities returned by the table are the very instances stored.
+     */
+    HEAP,
+
+    /**
+     * Entities are kept serialized by an {@link EntityCodec} in direct memory, outside of the heap, and decoded
+     * whenever they are read. Only the primary keys and secondary indexes stay on the heap, which relieves the garbage
+     * collector of very large tables. Entities returned by the table are copies.
+     */
+    OFF_HEAP,
+}
@@ -0,0 +1,29 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+/**
+ * Strategies defining how an entity store (aka. table) is accessed by application threads.
+ *
+ * @author Vincent Nadoll
+ */
+public enum StoreMode {
+
+    /**
+     * The table is backed by a plain hash map. Suitable for single-threaded access or if the application takes care of
+     * the synchronization itself.
+     */
+    SIMPLE,
+
+    /**
+     * The table is backed by a concurrent hash map and allocates primary keys atomically. Reads and writes on distinct
+     * entities don't block each other.
+     */
+    CONCURRENT,
+
+    /**
+     * The table keeps immutable versions of its rows, each sharing the unchanged rows with its predecessor. Every read
+     * runs against the latest version at the time it started, so that it never blocks and never sees a write, even of a
+     * whole batch, partially applied. Writers are serialized. Reads other than by primary key scan the version rather
+     * than using secondary indexes, which are kept for enforcing unique constraints.
+     */
+    MULTI_VERSION,
+}
@@ -0,0 +1,89 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Immutable description of how a table of a certain domain class is set up.
+ *
+ * @author Vincent Nadoll
+ */
+@Value
+@AllArgsConstructor
+public class TableDefinition {
+
+    public static final TableDefinition DEFAULT = new TableDefinition(StoreMode.SIMPLE, Collections.emptyList());
+
+    @NonNull
+    StoreMode storeMode;
+
+    /**
+     * Indexes declared in addition to the ones annotated with {@link de.vinado.spring.data.inmemory.Indexed}.
+     */
+    @NonNull
+    Collection<IndexDefinition> indexes;
+
+    @NonNull
+    StorageType storage;
+
+    /**
+     * The codec serializing the entities if the table is stored {@link StorageType#OFF_HEAP off-heap}.
+     */
+    @NonNull
+    EntityCodec codec;
+
+    /**
+     * Whether the table copies its entities if stored on the {@link StorageType#HEAP heap}.
+     */
+    @NonNull
+    CopyMode copyMode;
+
+    /**
+     * Whether a table operated in {@link StoreMode#CONCURRENT concurrent mode} stores integer and long primary keys
+     * unboxed, in a map striped over segments with optimistic reads, instead of a {@literal ConcurrentHashMap}. The
+     * unboxed map takes less memory per row, whereas the {@literal ConcurrentHashMap} scales better with the number of
+     * writers. Tables operated in {@link StoreMode#SIMPLE simple mode} always store such keys unboxed.
+     */
+    boolean unboxedKeys;
+
+    /**
+     * Creates a new definition of a table stored on the heap.
+     *
+     * @param storeMode must not be {@literal null}
+     * @param indexes   must not be {@literal null}
+     */
+    public TableDefinition(StoreMode storeMode, Collection<IndexDefinition> indexes) {
+        this(storeMode, indexes, StorageType.HEAP, SerializingEntityCodec.INSTANCE);
+    }
+
+    /**
+     * Creates a new definition of a table which doesn't copy its entities.
+     *
+     * @param storeMode must not be {@literal null}
+     * @param indexes   must not be {@literal null}
+     * @param storage   must not be {@literal null}
+     * @param codec     must not be {@literal null}
+     */
+    public TableDefinition(StoreMode storeMode, Collection<IndexDefinition> indexes, StorageType storage,
+                           EntityCodec codec) {
+        this(storeMode, indexes, storage, codec, CopyMode.NONE);
+    }
+
+    /**
+     * Creates a new definition of a table which stores concurrently accessed primary keys boxed.
+     *
+     * @param storeMode must not be {@literal null}
+     * @param indexes   must not be {@literal null}
+     * @param storage   must not be {@literal null}
+     * @param codec     must not be {@literal null}
+     * @param copyMode  must not be {@literal null}
+     */
+    public TableDefinition(StoreMode storeMode, Collection<IndexDefinition> indexes, StorageType storage,
+                           EntityCodec codec, CopyMode copyMode) {
+        this(storeMode, indexes, storage, codec, copyMode, false);
+    }
+}
@@ -0,0 +1,27 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A mapping supplier which holds references between domain classes and their table definition.
+ *
+ * @author Vincent Nadoll
+ */
+public interface TableMapping extends Supplier<Map<Class<?>, TableDefinition>> {
+
+    /**
+     * Returns the definition applied to tables which haven't been registered explicitly.
+     */
+    TableDefinition getDefaultDefinition();
+
+    /**
+     * Returns the table definition of the given domain class, falling back to the default definition.
+     *
+     * @param domainClass must not be {@literal null}
+     * @return the applicable table definition
+     */
+    default TableDefinition getDefinition(Class<?> domainClass) {
+        return get().getOrDefault(domainClass, getDefaultDefinition());
+    }
+}
@@ -0,0 +1,136 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Assists with the creation of a {@link TableDefinition} for a single domain class. Attributes which aren't set fall
+ * back to the registry's defaults.
+ *
+ * @author Vincent Nadoll
+ */
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+public class TableRegistration {
+
+    private final List<IndexDefinition> indexes = new ArrayList<>();
+
+    private StoreMode storeMode;
+
+    private StorageType storage;
+
+    private EntityCodec codec;
+
+    private CopyMode copyMode;
+
+    private Boolean unboxedKeys;
+
+    /**
+     * Sets the store mode of the table.
+     *
+     * @param storeMode must not be {@literal null}
+     * @return this registration for further customization
+     */
+    public TableRegistration storeMode(@NonNull StoreMode storeMode) {
+        this.storeMode = storeMode;
+        return this;
+    }
+
+    /**
+     * Sets where the table keeps its entities.
+     *
+     * @param storage must not be {@literal null}
+     * @return this registration for further customization
+     */
+    public TableRegistration storage(@NonNull StorageType storage) {
+        this.storage = storage;
+        return this;
+    }
+
+    /**
+     * Keeps the table's entities {@link StorageType#OFF_HEAP off-heap}, serialized by the given codec.
+     *
+     * @param codec must not be {@literal null}
+     * @return this registration for further customization
+     */
+    public TableRegistration offHeap(@NonNull EntityCodec codec) {
+        this.storage = StorageType.OFF_HEAP;
+        this.codec = codec;
+        return this;
+    }
+
+    /**
+     * Sets whether the table copies its entities on write and on read.
+     *
+     * @param copyMode must not be {@literal null}
+     * @return this registration for further customization
+     */
+    public TableRegistration copyMode(@NonNull CopyMode copyMode) {
+        this.copyMode = copyMode;
+        return this;
+    }
+
+    /**
+     * Sets whether the table stores integer and long primary keys unboxed if operated in
+     * {@link StoreMode#CONCURRENT concurrent mode}.
+     *
+     * @param unboxedKeys whether to store primary keys unboxed
+     * @return this registration for further customization
+     * @see TableDefinition#isUnboxedKeys()
+     */
+    public TableRegistration unboxedKeys(boolean unboxedKeys) {
+        this.unboxedKeys = unboxedKeys;
+        return this;
+    }
+
+    /**
+     * Adds an index on the given property.
+     *
+     * @param property must not be {@literal null}
+     * @return this registration for further customization
+     */
+    public TableRegistration addIndex(@NonNull String property) {
+        indexes.add(new IndexDefinition(property, false));
+        return this;
+    }
+
+    /**
+     * Adds an index on the given property which rejects entities having a value another entity already has. Entities
+     * without a value, i.e. {@literal null}, are exempt from the constraint.
+     *
+     * @param property must not be {@literal null}
+     * @return this registration for further customization
+     */
+    public TableRegistration addUniqueIndex(@NonNull String property) {
+        indexes.add(new IndexDefinition(property, true));
+        return this;
+    }
+
+    /**
+     * Adds a sorted index on the given property, serving range, prefix and ordered queries. The property's values have
+     * to be {@link Comparable comparable}.
+     *
+     * @param property must not be {@literal null}
+     * @return this registration for further customization
+     */
+    public TableRegistration addSortedIndex(@NonNull String property) {
+        indexes.add(new IndexDefinition(property, IndexType.SORTED, false));
+        return this;
+    }
+
+    TableDefinition getTableDefinition(TableDefinition defaults) {
+        return new TableDefinition(
+            Optional.ofNullable(storeMode).orElse(defaults.getStoreMode()),
+            Collections.unmodifiableList(new ArrayList<>(indexes)),
+            Optional.ofNullable(storage).orElse(defaults.getStorage()),
+            Optional.ofNullable(codec).orElse(defaults.getCodec()),
+            Optional.ofNullable(copyMode).orElse(defaults.getCopyMode()),
+            Optional.ofNullable(unboxedKeys).orElse(defaults.isUnboxedKeys())
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Stores registrations of domain classes to their table definition.
+ *
+ * @author Vincent Nadoll
+ */
+public class TableRegistry implements Supplier<TableMapping> {
+
+    private final Map<Class<?>, TableRegistration> registrations = new LinkedHashMap<>();
+
+    private StoreMode defaultStoreMode = StoreMode.SIMPLE;
+
+    /**
+     * Sets the store mode of all tables which don't specify one on their own.
+     *
+     * @param storeMode must not be {@literal null}
+     */
+    public void setDefaultStoreMode(@NonNull StoreMode storeMode) {
+        this.defaultStoreMode = storeMode;
+    }
+
+    /**
+     * Registers the table of the given domain class or returns the existing registration.
+     *
+     * @param domainClass must not be {@literal null}
+     * @return the table registration for further customization
+     */
+    public TableRegistration addTable(@NonNull Class<?> domainClass) {
+        return registrations.computeIfAbsent(domainClass, key -> new TableRegistration());
+    }
+
+    /**
+     * Returns a mapping of all registrations.
+     */
+    @Override
+    public TableMapping get() {
+        TableDefinition defaults = new TableDefinition(defaultStoreMode, Collections.emptyList());
+        Map<Class<?>, TableDefinition> mapping = new HashMap<>();
+        registrations.forEach((domainClass, registration) ->
+            mapping.put(domainClass, registration.getTableDefinition(defaults)));
+        return new SimpleTableMapping(mapping, defaults);
+    }
+}
@@ -0,0 +1,223 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getAccessorDeep;
+
+/**
+ * Collection of functions creating fast accessors of entity members. Getter and setter methods are bound via
+ * {@link LambdaMetafactory} if they are publicly accessible, fields and non-public methods are accessed through
+ * {@link MethodHandle}s. Property getters are resolved once per domain class and cached afterwards.
+ *
+ * @author Vincent Nadoll
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class Accessors {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<Map<String, Function<Object, Object>>> PROPERTY_GETTERS =
+        new ClassValue<Map<String, Function<Object, Object>>>() {
+            @Override
+            protected Map<String, Function<Object, Object>> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    /**
+     * Returns the cached getter of the field with the given name declared by the domain class or one of its super
+     * classes.
+     *
+     * @param domainClass must not be {@literal null}
+     * @param property    must not be {@literal null}
+     * @return the property's getter
+     * @throws IllegalArgumentException in case the domain class has no such property
+     */
+    static Function<Object, Object> propertyGetter(Class<?> domainClass, String property) {
+        return PROPERTY_GETTERS.get(domainClass).computeIfAbsent(property, name -> {
+            Optional<Field> field = getAccessorDeep(domainClass, Class::getDeclaredFields,
+                candidate -> Objects.equals(candidate.getName(), name));
+            if (!field.isPresent()) {
+                throw new IllegalArgumentException(
+                    String.format("Entity [%s] has no property [%s]", domainClass.getCanonicalName(), name)
+                );
+            }
+
+            try {
+                return fieldGetter(field.get());
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(
+                    String.format("Couldn't get property [%s] from [%s]", name, domainClass.getCanonicalName()), e
+                );
+            }
+        });
+    }
+
+    /**
+     * Returns a getter traversing the given, possibly nested property path. The getter returns {@literal null} as soon
+     * as an intermediate property is {@literal null}.
+     *
+     * @param path must not be {@literal null}
+     * @return the path's getter
+     * @throws IllegalArgumentException in case the path traverses a collection or refers to an unknown property
+     */
+    static Function<Object, Object> pathGetter(PropertyPath path) {
+        Function<Object, Object> getter = propertyGetter(path.getOwningType().getType(), path.getSegment());
+        if (!path.hasNext()) {
+            return getter;
+        }
+
+        if (path.isCollection()) {
+            throw new IllegalArgumentException(
+                String.format("Traversing collection property [%s] is not supported", path.toDotPath())
+            );
+        }
+
+        Function<Object, Object> next = pathGetter(path.next());
+        return entity -> {
+            Object value = getter.apply(entity);
+            return null == value ? null : next.apply(value);
+        };
+    }
+
+    /**
+     * Returns the value of the given property.
+     *
+     * @param entity   must not be {@literal null}
+     * @param property must not be {@literal null}
+     * @return the property's value
+     * @throws IllegalArgumentException in case the entity has no such property
+     */
+    static Object getProperty(Object entity, String property) {
+        return propertyGetter(entity.getClass(), property).apply(entity);
+    }
+
+    static Function<Object, Object> fieldGetter(Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflectGetter(field)
+            .asType(MethodType.methodType(Object.class, Object.class));
+        return entity -> {
+            try {
+                return (Object) handle.invokeExact(entity);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    static BiConsumer<Object, Object> fieldSetter(Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflectSetter(field)
+            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (entity, value) -> {
+            try {
+                handle.invokeExact(entity, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> methodGetter(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflect(method);
+        if (isLinkable(method)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(
+                    LOOKUP,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(method.getReturnType()),
+                        method.getDeclaringClass())
+                );
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                // fall through to the method handle
+            }
+        }
+
+        MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+        return entity -> {
+            try {
+                return (Object) generic.invokeExact(entity);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static BiConsumer<Object, Object> methodSetter(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflect(method);
+        if (isLinkable(method)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(
+                    LOOKUP,
+                    "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(void.class, method.getDeclaringClass(),
+                        ClassUtils.resolvePrimitiveIfNecessary(method.getParameterTypes()[0]))
+                );
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                // fall through to the method handle
+            }
+        }
+
+        MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (entity, value) -> {
+            try {
+                generic.invokeExact(entity, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    /**
+     * Generated lambdas invoke their target with the access rights of this class, so only public members of public
+     * classes which are visible to this class loader qualify.
+     */
+    private static boolean isLinkable(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        return Modifier.isPublic(method.getModifiers())
+            && Modifier.isPublic(declaringClass.getModifiers())
+            && ClassUtils.isVisible(declaringClass, Accessors.class.getClassLoader());
+    }
+
+    private static RuntimeException rethrow(Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+
+        return new IllegalStateException(throwable);
+    }
+}
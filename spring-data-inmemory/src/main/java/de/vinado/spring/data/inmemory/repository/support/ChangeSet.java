@@ -0,0 +1,405 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getId;
+
+/**
+ * The changes a transaction made to the tables of an {@link InMemoryEntityTableStore}, buffered until the transaction
+ * commits. Each changed row is kept by its primary key, either with its new entity or as removed, so that reads within
+ * the transaction see its own changes on top of the tables. The operations themselves are recorded in order and
+ * replayed against the tables on commit, hence committing takes time proportional to the number of operations rather
+ * than to the size of the tables.
+ *
+ * <p>Tables {@link InMemoryEntityStore#isSharingEntities() sharing their entities} with the application hand out the
+ * very instances they store, which the application may change in place, bypassing the change set. A change set hence
+ * retains a copy of every such entity the transaction reads, so that a rollback can restore it, unless the
+ * transaction is read-only.
+ *
+ * <p>A change set is confined to the thread of its transaction.
+ *
+ * @author Vincent Nadoll
+ */
+final class ChangeSet {
+
+    private static final Object REMOVED = new Object();
+
+    private final Map<InMemoryEntityStore<?>, TableChanges> tables = new IdentityHashMap<>();
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    private final Map<InMemoryEntityStore<?>, Map<Object, Image>> images = new IdentityHashMap<>();
+
+    private final boolean readOnly;
+
+    @Getter
+    private boolean rollbackOnly;
+
+    /**
+     * Creates a new empty change set.
+     *
+     * @param readOnly whether the transaction is read-only, in which case entities read aren't retained for rollback
+     */
+    ChangeSet(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Returns the changes made to the given table or {@literal null} if it hasn't been changed.
+     */
+    @Nullable
+    TableChanges get(InMemoryEntityStore<?> table) {
+        return tables.get(table);
+    }
+
+    /**
+     * Returns the tables changed.
+     */
+    Collection<InMemoryEntityStore<?>> getTables() {
+        return tables.keySet();
+    }
+
+    private TableChanges changes(InMemoryEntityStore<?> table) {
+        return tables.computeIfAbsent(table, TableChanges::new);
+    }
+
+    /**
+     * Retains a copy of the given entity read from a table which {@link InMemoryEntityStore#isSharingEntities() shares
+     * its entities} with the application, unless the transaction is read-only or has read or changed the entity's row
+     * before. Changes made to the entity in place, which bypass the change set, can then be undone on rollback.
+     *
+     * @return the given entity
+     */
+    @Nullable
+    <T> T read(InMemoryEntityStore<?> table, @Nullable T entity) {
+        if (null == entity || readOnly || !table.isSharingEntities()) {
+            return entity;
+        }
+
+        Object entityId = getId(entity);
+        TableChanges changes = tables.get(table);
+        if (null != changes && changes.isChanged(entityId)) {
+            return entity;
+        }
+
+        images.computeIfAbsent(table, key -> new HashMap<>()).computeIfAbsent(entityId, key -> {
+            Object copy = EntityCopier.of(entity.getClass(), false).copy(entity);
+            return new Image(entity, copy);
+        });
+        return entity;
+    }
+
+    /**
+     * Returns the copy retained when the given entity has been read first, if it's still the very instance read then,
+     * or the entity itself otherwise.
+     */
+    private Object original(InMemoryEntityStore<?> table, Object entity) {
+        Image image = images.getOrDefault(table, Collections.emptyMap()).get(getId(entity));
+        return null != image && image.entity == entity ? image.copy : entity;
+    }
+
+    /**
+     * Records a stored or merged entity, which must have a primary key.
+     */
+    void put(InMemoryEntityStore<?> table, Object entity) {
+        Object entityId = getId(entity);
+        changes(table).rows.put(entityId, entity);
+        operations.add(() -> {
+            Object previous = table.find(table.getDomainClass(), entityId);
+            Object original = null == previous ? null : original(table, previous);
+            table.merge(entity);
+            return null == original
+                ? () -> table.removeAll(Collections.singletonList(entity))
+                : () -> table.replace(original);
+        });
+    }
+
+    /**
+     * Records the removal of the given entity, which must have a primary key. A versioned entity is only removed if
+     * the stored one still has its version once the change set is applied.
+     */
+    void remove(InMemoryEntityStore<?> table, Object entity) {
+        Object entityId = getId(entity);
+        changes(table).rows.put(entityId, REMOVED);
+        operations.add(() -> {
+            Object previous = table.find(table.getDomainClass(), entityId);
+            if (null == previous) {
+                return () -> {
+                };
+            }
+
+            Object original = original(table, previous);
+            table.removeAll(Collections.singletonList(entity));
+            return () -> table.replace(original);
+        });
+    }
+
+    /**
+     * Records the removal of all entities of the given table.
+     */
+    void clear(InMemoryEntityStore<?> table) {
+        TableChanges changes = changes(table);
+        changes.rows.clear();
+        changes.cleared = true;
+        operations.add(() -> {
+            List<?> previous = table.findAll(table.getDomainClass())
+                .map(entity -> original(table, entity))
+                .collect(Collectors.toList());
+            table.clear(table.getDomainClass());
+            return () -> previous.forEach(table::replace);
+        });
+    }
+
+    /**
+     * Replays the recorded operations against the tables and completes them by the given action, e.g. logging them. If
+     * an operation or the completion fails, the operations already applied are undone in reverse order before the
+     * exception is rethrown.
+     */
+    void apply(Runnable completion) {
+        List<Runnable> undo = new ArrayList<>(operations.size());
+        try {
+            for (Operation operation : operations) {
+                undo.add(operation.apply());
+            }
+            completion.run();
+        } catch (RuntimeException e) {
+            for (int index = undo.size() - 1; index >= 0; index--) {
+                try {
+                    undo.get(index).run();
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Restores the entities read from tables sharing their entities with the application to the copies retained when
+     * they've been read first, as they might have been changed in place. Entities replaced since, e.g. by another
+     * transaction, are left as they are.
+     */
+    void restore() {
+        images.forEach((table, rows) -> rows.forEach((entityId, image) -> {
+            if (image.entity == table.find(table.getDomainClass(), entityId)) {
+                table.replace(image.copy);
+            }
+        }));
+    }
+
+    /**
+     * An operation to be replayed on commit.
+     */
+    @FunctionalInterface
+    private interface Operation {
+
+        /**
+         * Applies the operation.
+         *
+         * @return the action undoing the operation
+         */
+        Runnable apply();
+    }
+
+    /**
+     * An entity as read from a table sharing its entities along with a copy of its state at that time.
+     */
+    @RequiredArgsConstructor
+    private static final class Image {
+
+        private final Object entity;
+
+        private final Object copy;
+    }
+
+    /**
+     * The changes made to a single table, overlaying the table's committed rows.
+     */
+    static final class TableChanges {
+
+        private final InMemoryEntityStore<?> table;
+
+        private final Map<Object, Object> rows = new LinkedHashMap<>();
+
+        private boolean cleared;
+
+        private TableChanges(InMemoryEntityStore<?> table) {
+            this.table = table;
+        }
+
+        /**
+         * Returns whether the row with the given primary key has been changed, in which case
+         * {@link #find(Class, Object)} tells its state.
+         */
+        boolean isChanged(Object entityId) {
+            return cleared || rows.containsKey(entityId);
+        }
+
+        /**
+         * Returns the changed entity with the given primary key or {@literal null} if it has been removed.
+         */
+        @Nullable
+        <T> T find(Class<T> entityClass, Object entityId) {
+            Object entity = rows.get(entityId);
+            return null == entity || REMOVED == entity ? null : entityClass.cast(entity);
+        }
+
+        <T> Stream<T> findAll(Class<T> entityClass) {
+            return overlay(entityClass, table.findAll(entityClass), entity -> true);
+        }
+
+        long count(Class<?> entityClass) {
+            long count = cleared ? 0 : table.count(entityClass);
+            for (Map.Entry<Object, Object> row : rows.entrySet()) {
+                boolean committed = !cleared && null != table.find(entityClass, row.getKey());
+                if (REMOVED == row.getValue() && committed) {
+                    count--;
+                } else if (REMOVED != row.getValue() && !committed) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        long countBy(Class<?> entityClass, String propertyName, @Nullable Object value) {
+            return findAllBy(entityClass, propertyName, value).count();
+        }
+
+        <T> Stream<T> findAllBy(Class<T> entityClass, String propertyName, @Nullable Object value) {
+            return overlay(entityClass, table.findAllBy(entityClass, propertyName, value),
+                entity -> Objects.equals(value, Accessors.getProperty(entity, propertyName)));
+        }
+
+        <T> Stream<T> findAllInRange(Class<T> entityClass, String propertyName, Range<?> range,
+                                     Sort.Direction direction) {
+            return merge(entityClass, table.findAllInRange(entityClass, propertyName, range, direction),
+                InMemoryEntityStore.inRange(propertyName, range),
+                InMemoryEntityStore.ordering(propertyName, direction));
+        }
+
+        <T> Stream<T> findAllOrderedBy(Class<T> entityClass, String propertyName, Sort.Direction direction) {
+            return merge(entityClass, table.findAllOrderedBy(entityClass, propertyName, direction), entity -> true,
+                InMemoryEntityStore.ordering(propertyName, direction));
+        }
+
+        boolean contains(Object entity) {
+            Object entityId = getId(entity);
+            return null != entityId && isChanged(entityId)
+                ? InMemoryEntityStore.isRowOf(find(Object.class, entityId), entity)
+                : table.contains(entity);
+        }
+
+        /**
+         * Returns the unchanged committed entities followed by the changed ones matching the given predicate.
+         */
+        private <T> Stream<T> overlay(Class<T> entityClass, Stream<T> committed, Predicate<Object> predicate) {
+            return Stream.concat(unchanged(committed), changed(entityClass, predicate));
+        }
+
+        /**
+         * Merges the unchanged committed entities with the changed ones matching the given predicate, both ordered by
+         * the given comparator.
+         */
+        private <T> Stream<T> merge(Class<T> entityClass, Stream<T> committed, Predicate<Object> predicate,
+                                    Comparator<Object> ordering) {
+            List<T> changed = changed(entityClass, predicate)
+                .sorted(ordering)
+                .collect(Collectors.toList());
+            if (changed.isEmpty()) {
+                return unchanged(committed);
+            }
+
+            Iterator<T> merged = new MergingIterator<>(unchanged(committed).iterator(), changed.iterator(), ordering);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false);
+        }
+
+        private <T> Stream<T> unchanged(Stream<T> committed) {
+            return cleared ? Stream.empty() : committed.filter(entity -> !rows.containsKey(getId(entity)));
+        }
+
+        private <T> Stream<T> changed(Class<T> entityClass, Predicate<Object> predicate) {
+            return rows.values().stream()
+                .filter(entity -> REMOVED != entity)
+                .filter(predicate)
+                .map(entityClass::cast);
+        }
+    }
+
+    /**
+     * Merges two iterators ordered by the same comparator, preferring the first on ties.
+     */
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> first;
+
+        private final Iterator<T> second;
+
+        private final Comparator<Object> ordering;
+
+        private T nextFirst;
+
+        private T nextSecond;
+
+        private MergingIterator(Iterator<T> first, Iterator<T> second, Comparator<Object> ordering) {
+            this.first = first;
+            this.second = second;
+            this.ordering = ordering;
+            this.nextFirst = first.hasNext() ? first.next() : null;
+            this.nextSecond = second.hasNext() ? second.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != nextFirst || null != nextSecond;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            T next;
+            if (null == nextSecond || null != nextFirst && ordering.compare(nextFirst, nextSecond) <= 0) {
+                next = nextFirst;
+                nextFirst = first.hasNext() ? first.next() : null;
+            } else {
+                next = nextSecond;
+                nextSecond = second.hasNext() ? second.next() : null;
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe map of integral keys, striped over a fixed number of {@link PrimitiveKeyMap} segments each guarded by
+ * its own {@link StampedLock}. Lookups and {@link #size()} read a segment optimistically without taking its lock and
+ * only fall back to the read lock if a writer modified the segment meanwhile, so readers don't wait for writers of
+ * other keys of the same segment unless they actually raced. Like {@literal ConcurrentHashMap}, the {@literal compute}
+ * methods hold the key's lock while the function is applied, hence the function must not access the map itself. Views
+ * iterate a copy of one segment at a time and are therefore weakly consistent.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author Vincent Nadoll
+ */
+final class ConcurrentPrimitiveKeyMap<K extends Number, V> extends AbstractMap<K, V> {
+
+    private final Class<K> keyType;
+
+    private final Segment<K, V>[] segments;
+
+    /**
+     * Creates a new empty map with four segments per processor.
+     *
+     * @param keyType the type of the keys
+     * @param boxer   the function turning a primitive key back into a key object
+     */
+    @SuppressWarnings("unchecked")
+    ConcurrentPrimitiveKeyMap(Class<K> keyType, LongFunction<K> boxer) {
+        int concurrency = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+        this.keyType = keyType;
+        this.segments = new Segment[Integer.highestOneBit(concurrency - 1) << 1];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>(new PrimitiveKeyMap<>(keyType, boxer));
+        }
+    }
+
+    /**
+     * Selects the segment by the low bits of the scrambled key, whereas the segment itself probes by the high bits.
+     */
+    private Segment<K, V> segmentFor(long key) {
+        return segments[(int) PrimitiveKeyMap.mix(key) & (segments.length - 1)];
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return null != get(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!keyType.isInstance(key)) {
+            return null;
+        }
+
+        long primitive = ((Number) key).longValue();
+        return segmentFor(primitive).get(primitive);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return segmentFor(key.longValue()).write(map -> map.put(key, value));
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!keyType.isInstance(key)) {
+            return null;
+        }
+
+        return segmentFor(((Number) key).longValue()).write(map -> map.remove(key));
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return segmentFor(key.longValue()).write(map -> map.computeIfAbsent(key, mappingFunction));
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return segmentFor(key.longValue()).write(map -> map.computeIfPresent(key, remappingFunction));
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return segmentFor(key.longValue()).write(map -> map.compute(key, remappingFunction));
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.write(map -> {
+                map.clear();
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public int size() {
+                return ConcurrentPrimitiveKeyMap.this.size();
+            }
+
+            @Override
+            public Iterator<V> iterator() {
+                return stream().iterator();
+            }
+
+            @Override
+            public Stream<V> stream() {
+                return snapshots(PrimitiveKeyMap::values);
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+
+            @Override
+            public int size() {
+                return ConcurrentPrimitiveKeyMap.this.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return snapshots(PrimitiveKeyMap::entrySet).iterator();
+            }
+        };
+    }
+
+    private <T> Stream<T> snapshots(Function<PrimitiveKeyMap<K, V>, Collection<T>> view) {
+        return Arrays.stream(segments).flatMap(segment -> segment.copy(view).stream());
+    }
+
+    /**
+     * A segment of the map along with the lock guarding it.
+     */
+    private static final class Segment<K extends Number, V> {
+
+        private final PrimitiveKeyMap<K, V> map;
+
+        private final StampedLock lock = new StampedLock();
+
+        private Segment(PrimitiveKeyMap<K, V> map) {
+            this.map = map;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            if (0 != stamp) {
+                Object value = map.lookup(key);
+                if (lock.validate(stamp)) {
+                    return (V) value;
+                }
+            }
+
+            stamp = lock.readLock();
+            try {
+                return (V) map.lookup(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.tryOptimisticRead();
+            int size = map.size();
+            if (lock.validate(stamp)) {
+                return size;
+            }
+
+            stamp = lock.readLock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        <T> T write(Function<PrimitiveKeyMap<K, V>, T> operation) {
+            long stamp = lock.writeLock();
+            try {
+                return operation.apply(map);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        <T> List<T> copy(Function<PrimitiveKeyMap<K, V>, Collection<T>> view) {
+            long stamp = lock.readLock();
+            try {
+                return new ArrayList<>(view.apply(map));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
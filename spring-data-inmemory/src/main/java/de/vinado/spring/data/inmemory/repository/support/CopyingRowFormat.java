@@ -0,0 +1,43 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Keeps copies of the entities as rows and hands out copies of the rows, so that the application never gets hold of a
+ * stored instance. As rows are never modified once stored, they are copied without being locked.
+ *
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+final class CopyingRowFormat implements RowFormat {
+
+    private final boolean deep;
+
+    @Override
+    public Object encode(Object entity) {
+        return EntityCopier.of(entity.getClass(), deep).copy(entity);
+    }
+
+    @Override
+    public Object decode(Object row) {
+        return EntityCopier.of(row.getClass(), deep).copy(row);
+    }
+
+    @Override
+    public void release(Object row) {
+    }
+
+    @Override
+    public <ID> Object read(Map<ID, Object> rows, ID id) {
+        Object row = rows.get(id);
+        return null == row ? null : decode(row);
+    }
+
+    @Override
+    public <ID> Stream<Object> readAll(Map<ID, Object> rows) {
+        return rows.values().stream().map(this::decode);
+    }
+}
@@ -0,0 +1,513 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.springframework.lang.Nullable;
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.objenesis.instantiator.ObjectInstantiator;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Copies entities of a certain class field by field. A copier is assembled once per class and
+ * {@link de.vinado.spring.data.inmemory.repository.config.CopyMode mode} and cached afterwards: each field is copied
+ * by a method handle composed of the field's getter and setter, which passes primitive values unboxed, and new
+ * instances are created through the class's default constructor or, lacking one, without calling any constructor at
+ * all.
+ *
+ * <p>A deep copier copies every object referred to by a field, unless it's an immutable value, with the copier of the
+ * object's class. Arrays, collections and maps are copied along with their elements, the latter into an instance of
+ * their very class, which is created by cloning the original, by a constructor taking its comparator or capacity, or by
+ * the default constructor. Unmodifiable views of the JDK lacking all of them are copied into a mutable collection of
+ * the same kind. Other mutable values of the JDK, such as dates, calendars and atomic numbers, are copied by cloning
+ * them, JDK types that can't be copied are rejected once the copier is built. Objects referred to more than once,
+ * including cycles, are copied once.
+ *
+ * @author Vincent Nadoll
+ */
+final class EntityCopier {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodHandles.Lookup PUBLIC_LOOKUP = MethodHandles.publicLookup();
+
+    private static final MethodType COPY_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+        Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+        BigInteger.class, BigDecimal.class, UUID.class, Class.class, Locale.class, Currency.class, URI.class, URL.class,
+        File.class, Pattern.class));
+
+    private static final Duplicator UNSUPPORTED = original -> {
+        throw new IllegalArgumentException(
+            String.format("[%s] can't be copied deeply", original.getClass().getCanonicalName())
+        );
+    };
+
+    /**
+     * Creates empty instances of the very class of a collection or map, or copies of other values of the JDK.
+     */
+    private static final ClassValue<Duplicator> DUPLICATORS = new ClassValue<Duplicator>() {
+        @Override
+        protected Duplicator computeValue(Class<?> type) {
+            return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)
+                ? containerDuplicator(type)
+                : valueDuplicator(type);
+        }
+    };
+
+    private static final ClassValue<EntityCopier> SHALLOW = new ClassValue<EntityCopier>() {
+        @Override
+        protected EntityCopier computeValue(Class<?> type) {
+            return new EntityCopier(type, false);
+        }
+    };
+
+    private static final ClassValue<EntityCopier> DEEP = new ClassValue<EntityCopier>() {
+        @Override
+        protected EntityCopier computeValue(Class<?> type) {
+            return new EntityCopier(type, true);
+        }
+    };
+
+    private final Class<?> type;
+
+    private final Instantiator instantiator;
+
+    /**
+     * Copies a field's value as it is.
+     */
+    private final MethodHandle[] sharedFields;
+
+    private final MethodHandle[] copiedFieldGetters;
+
+    private final MethodHandle[] copiedFieldSetters;
+
+    private EntityCopier(Class<?> type, boolean deep) {
+        this.type = type;
+        List<MethodHandle> shared = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        try {
+            this.instantiator = instantiator(type);
+            for (Class<?> declaring = type; null != declaring; declaring = declaring.getSuperclass()) {
+                for (Field field : declaring.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+
+                    field.setAccessible(true);
+                    MethodHandle getter = LOOKUP.unreflectGetter(field);
+                    MethodHandle setter = LOOKUP.unreflectSetter(field);
+                    if (!deep || isImmutable(field.getType())) {
+                        shared.add(MethodHandles.filterArguments(setter, 1, getter).asType(COPY_TYPE));
+                    } else {
+                        validateCopyable(field);
+                        getters.add(getter.asType(MethodType.methodType(Object.class, Object.class)));
+                        setters.add(setter.asType(COPY_TYPE));
+                    }
+                }
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException(
+                String.format("Couldn't create copier of [%s]", type.getCanonicalName()), e
+            );
+        }
+
+        this.sharedFields = shared.toArray(new MethodHandle[0]);
+        this.copiedFieldGetters = getters.toArray(new MethodHandle[0]);
+        this.copiedFieldSetters = setters.toArray(new MethodHandle[0]);
+    }
+
+    /**
+     * Returns the cached copier of the given class.
+     *
+     * @param type must not be {@literal null}
+     * @param deep whether to copy the objects referred to by the fields as well
+     * @return the copier
+     * @throws IllegalArgumentException in case the class's fields aren't accessible or, if copying deeply, a field is
+     *                                  of a JDK type that can't be copied
+     */
+    static EntityCopier of(Class<?> type, boolean deep) {
+        return (deep ? DEEP : SHALLOW).get(type);
+    }
+
+    /**
+     * Returns a copy of the given entity, which must be an instance of the copier's very class.
+     */
+    Object copy(Object entity) {
+        return copiedFieldGetters.length == 0 ? copy(entity, null) : copy(entity, new IdentityHashMap<>());
+    }
+
+    private Object copy(Object entity, @Nullable Map<Object, Object> copies) {
+        try {
+            Object copy = instantiator.newInstance();
+            if (null != copies) {
+                copies.put(entity, copy);
+            }
+            for (MethodHandle field : sharedFields) {
+                field.invokeExact(copy, entity);
+            }
+            for (int index = 0; index < copiedFieldGetters.length; index++) {
+                Object value = (Object) copiedFieldGetters[index].invokeExact(entity);
+                copiedFieldSetters[index].invokeExact(copy, copyValue(value, copies));
+            }
+            return copy;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(String.format("Couldn't copy [%s]", type.getCanonicalName()), e);
+        }
+    }
+
+    private static Object copyValue(Object value, Map<Object, Object> copies) throws Throwable {
+        if (null == value || isImmutable(value.getClass())) {
+            return value;
+        }
+
+        Object copy = copies.get(value);
+        if (null != copy) {
+            return copy;
+        }
+
+        if (value.getClass().isArray()) {
+            return copyArray(value, copies);
+        }
+
+        if (value instanceof Collection) {
+            return copyCollection((Collection<?>) value, copies);
+        }
+
+        if (value instanceof Map) {
+            return copyMap((Map<?, ?>) value, copies);
+        }
+
+        if (isJdkType(value.getClass())) {
+            copy = DUPLICATORS.get(value.getClass()).duplicate(value);
+            copies.put(value, copy);
+            return copy;
+        }
+
+        return of(value.getClass(), true).copy(value, copies);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyCollection(Collection<?> collection, Map<Object, Object> copies) throws Throwable {
+        Collection<Object> copy = (Collection<Object>) newContainer(collection);
+        if (null == copy) {
+            return of(collection.getClass(), true).copy(collection, copies);
+        }
+
+        copies.put(collection, copy);
+        List<Object> elements = new ArrayList<>(collection.size());
+        for (Object element : collection) {
+            elements.add(copyValue(element, copies));
+        }
+        copy.addAll(elements);
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyMap(Map<?, ?> map, Map<Object, Object> copies) throws Throwable {
+        Map<Object, Object> copy = (Map<Object, Object>) newContainer(map);
+        if (null == copy) {
+            return of(map.getClass(), true).copy(map, copies);
+        }
+
+        copies.put(map, copy);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            copy.put(copyValue(entry.getKey(), copies), copyValue(entry.getValue(), copies));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns an empty instance of the given collection's or map's class or, if the class can't be instantiated, a
+     * mutable one of the same kind for views of the JDK and {@literal null} for other classes.
+     */
+    @Nullable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object newContainer(Object container) throws Throwable {
+        Duplicator duplicator = DUPLICATORS.get(container.getClass());
+        if (UNSUPPORTED != duplicator) {
+            return duplicator.duplicate(container);
+        }
+
+        if (!isJdkType(container.getClass())) {
+            return null;
+        }
+
+        if (container instanceof SortedSet) {
+            return new TreeSet<>(((SortedSet) container).comparator());
+        }
+
+        if (container instanceof Set) {
+            return new LinkedHashSet<>();
+        }
+
+        if (container instanceof SortedMap) {
+            return new TreeMap<>(((SortedMap) container).comparator());
+        }
+
+        if (container instanceof Map) {
+            return new LinkedHashMap<>();
+        }
+
+        return container instanceof Queue ? new LinkedList<>() : new ArrayList<>();
+    }
+
+    private static Object copyArray(Object array, Map<Object, Object> copies) throws Throwable {
+        Object copy;
+        if (array instanceof Object[]) {
+            Object[] elements = ((Object[]) array).clone();
+            copies.put(array, elements);
+            for (int index = 0; index < elements.length; index++) {
+                elements[index] = copyValue(elements[index], copies);
+            }
+            return elements;
+        } else if (array instanceof byte[]) {
+            copy = ((byte[]) array).clone();
+        } else if (array instanceof int[]) {
+            copy = ((int[]) array).clone();
+        } else if (array instanceof long[]) {
+            copy = ((long[]) array).clone();
+        } else if (array instanceof double[]) {
+            copy = ((double[]) array).clone();
+        } else if (array instanceof char[]) {
+            copy = ((char[]) array).clone();
+        } else if (array instanceof boolean[]) {
+            copy = ((boolean[]) array).clone();
+        } else if (array instanceof float[]) {
+            copy = ((float[]) array).clone();
+        } else {
+            copy = ((short[]) array).clone();
+        }
+        copies.put(array, copy);
+        return copy;
+    }
+
+    /**
+     * Returns the duplicator creating empty instances of the given collection or map class. Cloning an instance
+     * preserves its configuration, such as its comparator, the key type of an {@literal EnumMap} or the access order
+     * of a {@literal LinkedHashMap}, hence it's preferred over the constructors.
+     */
+    private static Duplicator containerDuplicator(Class<?> type) {
+        MethodHandle clone = findClone(type);
+        if (null != clone) {
+            return original -> clear((Object) clone.invokeExact(original));
+        }
+
+        if (isOrdered(type)) {
+            MethodHandle constructor = findConstructor(type, Comparator.class);
+            if (null != constructor) {
+                return original -> (Object) constructor.invokeExact(comparator(original));
+            }
+
+            MethodHandle sizedConstructor = findConstructor(type, int.class, Comparator.class);
+            if (null != sizedConstructor) {
+                return original -> (Object) sizedConstructor.invokeExact(
+                    Math.max(1, ((Collection<?>) original).size()), comparator(original));
+            }
+        }
+
+        if (BlockingQueue.class.isAssignableFrom(type)) {
+            MethodHandle constructor = findConstructor(type, int.class);
+            if (null != constructor) {
+                return original -> (Object) constructor.invokeExact(capacity((BlockingQueue<?>) original));
+            }
+        }
+
+        MethodHandle constructor = findConstructor(type);
+        return null == constructor ? UNSUPPORTED : original -> (Object) constructor.invokeExact();
+    }
+
+    /**
+     * Returns the duplicator copying values of the given JDK class, which isn't a collection or map.
+     */
+    private static Duplicator valueDuplicator(Class<?> type) {
+        if (AtomicBoolean.class == type) {
+            return original -> new AtomicBoolean(((AtomicBoolean) original).get());
+        }
+
+        if (AtomicInteger.class == type) {
+            return original -> new AtomicInteger(((AtomicInteger) original).get());
+        }
+
+        if (AtomicLong.class == type) {
+            return original -> new AtomicLong(((AtomicLong) original).get());
+        }
+
+        MethodHandle clone = findClone(type);
+        return null == clone ? UNSUPPORTED : original -> (Object) clone.invokeExact(original);
+    }
+
+    /**
+     * Finds the public {@literal clone} method of the given class, which may be declared by a public superclass of a
+     * class that isn't public itself.
+     */
+    @Nullable
+    private static MethodHandle findClone(Class<?> type) {
+        if (!Cloneable.class.isAssignableFrom(type)) {
+            return null;
+        }
+
+        for (Class<?> declaring = type; null != declaring; declaring = declaring.getSuperclass()) {
+            if (Modifier.isPublic(declaring.getModifiers())) {
+                try {
+                    return PUBLIC_LOOKUP.findVirtual(declaring, "clone", MethodType.methodType(Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    // clone isn't public in this class
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static MethodHandle findConstructor(Class<?> type, Class<?>... parameterTypes) {
+        try {
+            return PUBLIC_LOOKUP.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                .asType(MethodType.methodType(Object.class, parameterTypes));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Object clear(Object container) {
+        if (container instanceof Collection) {
+            ((Collection<?>) container).clear();
+        } else {
+            ((Map<?, ?>) container).clear();
+        }
+        return container;
+    }
+
+    private static boolean isOrdered(Class<?> type) {
+        return SortedSet.class.isAssignableFrom(type)
+            || SortedMap.class.isAssignableFrom(type)
+            || PriorityQueue.class.isAssignableFrom(type)
+            || PriorityBlockingQueue.class.isAssignableFrom(type);
+    }
+
+    @Nullable
+    @SuppressWarnings("rawtypes")
+    private static Comparator comparator(Object container) {
+        if (container instanceof SortedSet) {
+            return ((SortedSet<?>) container).comparator();
+        }
+
+        if (container instanceof SortedMap) {
+            return ((SortedMap<?, ?>) container).comparator();
+        }
+
+        return container instanceof PriorityQueue
+            ? ((PriorityQueue<?>) container).comparator()
+            : ((PriorityBlockingQueue<?>) container).comparator();
+    }
+
+    private static int capacity(BlockingQueue<?> queue) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1L, (long) queue.size() + queue.remainingCapacity()));
+    }
+
+    /**
+     * Rejects a field of a JDK class that can't be copied into an instance of the very class.
+     */
+    private static void validateCopyable(Field field) {
+        Class<?> type = field.getType();
+        if (!isJdkType(type) || Object.class == type || type.isInterface() || type.isArray()
+            || Modifier.isAbstract(type.getModifiers())) {
+            return;
+        }
+
+        if (UNSUPPORTED == DUPLICATORS.get(type)) {
+            throw new IllegalArgumentException(
+                String.format("Field [%s] of type [%s] can't be copied deeply", field.getName(), type.getName())
+            );
+        }
+    }
+
+    private static boolean isJdkType(Class<?> type) {
+        return null == type.getClassLoader() || type.getName().startsWith("java.");
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive()
+            || type.isEnum()
+            || null != type.getSuperclass() && type.getSuperclass().isEnum()
+            || IMMUTABLE_TYPES.contains(type)
+            || Path.class.isAssignableFrom(type)
+            || InetAddress.class.isAssignableFrom(type)
+            || type.getName().startsWith("java.time.");
+    }
+
+    private static Instantiator instantiator(Class<?> type) throws IllegalAccessException {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            MethodHandle handle = LOOKUP.unreflectConstructor(constructor)
+                .asType(MethodType.methodType(Object.class));
+            return () -> (Object) handle.invokeExact();
+        } catch (NoSuchMethodException e) {
+            ObjectInstantiator<?> instantiator = OBJENESIS.getInstantiatorOf(type);
+            return instantiator::newInstance;
+        }
+    }
+
+    /**
+     * Creates an empty instance of the class of a given collection or map, or a copy of another value.
+     */
+    @FunctionalInterface
+    private interface Duplicator {
+
+        Object duplicate(Object original) throws Throwable;
+    }
+
+    /**
+     * Creates new, uninitialized instances of a class.
+     */
+    @FunctionalInterface
+    private interface Instantiator {
+
+        Object newInstance() throws Throwable;
+    }
+}
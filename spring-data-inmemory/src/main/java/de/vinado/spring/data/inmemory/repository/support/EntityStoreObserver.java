@@ -0,0 +1,46 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+/**
+ * Callback notified of the operations performed on the tables of an {@link InstrumentedEntityTableStore}, e.g. to
+ * publish metrics. Callbacks are invoked on the thread performing the operation and should return quickly.
+ *
+ * @author Vincent Nadoll
+ */
+public interface EntityStoreObserver {
+
+    /**
+     * Called once a table has been added to the store, before any operation is performed on it.
+     *
+     * @param domainClass the table's domain class
+     * @param table       the table, e.g. to track its size
+     */
+    default void onTableAdded(Class<?> domainClass, InMemoryEntityStore<?> table) {
+    }
+
+    /**
+     * Called once an operation on a table completed successfully. Operations returning a stream are done once the
+     * stream is set up, hence the duration doesn't include consuming the stream.
+     *
+     * @param domainClass the table's domain class
+     * @param operation   the operation performed
+     * @param duration    the operation's duration in nanoseconds
+     */
+    void onOperation(Class<?> domainClass, Operation operation, long duration);
+
+    /**
+     * Called whenever a query on a property is answered, either through a secondary index or by scanning the table.
+     *
+     * @param domainClass  the table's domain class
+     * @param propertyName the queried property
+     * @param indexed      whether the query is answered through an index
+     */
+    default void onQuery(Class<?> domainClass, String propertyName, boolean indexed) {
+    }
+
+    /**
+     * Operations of an {@link de.vinado.spring.data.inmemory.repository.EntityStore}.
+     */
+    enum Operation {
+        STORE, STORE_ALL, MERGE, MERGE_ALL, FIND, FIND_ALL, COUNT, QUERY, REMOVE, REMOVE_ALL, CLEAR, CONTAINS
+    }
+}
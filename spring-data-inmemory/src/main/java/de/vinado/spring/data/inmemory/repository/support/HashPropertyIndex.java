@@ -0,0 +1,65 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A non-unique property index which keeps a set of primary keys per property value.
+ *
+ * @param <ID> the type of the primary key
+ * @author Vincent Nadoll
+ */
+class HashPropertyIndex<ID> extends PropertyIndex<ID> {
+
+    private final Map<Object, Set<ID>> buckets = new ConcurrentHashMap<>();
+
+    HashPropertyIndex(String property) {
+        super(property);
+    }
+
+    @Override
+    IndexType getType() {
+        return IndexType.HASH;
+    }
+
+    @Override
+    boolean isUnique() {
+        return false;
+    }
+
+    @Override
+    boolean reserve(ID id, Object key) {
+        return false;
+    }
+
+    @Override
+    void release(ID id, Object key) {
+    }
+
+    @Override
+    protected void link(ID id, Object key) {
+        buckets.compute(key, (k, bucket) -> {
+            Set<ID> ids = null == bucket ? ConcurrentHashMap.newKeySet() : bucket;
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    @Override
+    protected void unlink(ID id, Object key) {
+        buckets.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(id);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    @Override
+    protected Collection<ID> lookup(Object key) {
+        return buckets.getOrDefault(key, Collections.emptySet());
+    }
+}
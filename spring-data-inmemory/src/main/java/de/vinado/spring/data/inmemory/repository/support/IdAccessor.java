@@ -0,0 +1,121 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Accessor of an entity's identifier which is resolved once per domain class and cached afterwards.
+ *
+ * @author Vincent Nadoll
+ * @see Accessors
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+final class IdAccessor {
+
+    private static final ClassValue<IdAccessor> ACCESSORS = new ClassValue<IdAccessor>() {
+        @Override
+        protected IdAccessor computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private final Class<?> domainClass;
+
+    @Nullable
+    private final Class<?> idType;
+
+    @Nullable
+    private final Function<Object, Object> getter;
+
+    @Nullable
+    private final BiConsumer<Object, Object> setter;
+
+    /**
+     * Returns the cached accessor of the given domain class.
+     *
+     * @param domainClass must not be {@literal null}
+     * @return the id accessor
+     */
+    static IdAccessor of(Class<?> domainClass) {
+        return ACCESSORS.get(domainClass);
+    }
+
+    /**
+     * Returns the type of the identifier or {@literal null} if the domain class has no accessor annotated with
+     * {@link org.springframework.data.annotation.Id}.
+     */
+    @Nullable
+    Class<?> getIdType() {
+        return idType;
+    }
+
+    @Nullable
+    Object getId(Object entity) {
+        if (null == getter) {
+            throw new IllegalArgumentException(String.format(
+                "Entity [%s] has neither field nor method annotated with @Id", domainClass.getCanonicalName()
+            ));
+        }
+
+        return getter.apply(entity);
+    }
+
+    void setId(Object entity, @Nullable Object id) {
+        if (null == setter) {
+            return;
+        }
+
+        try {
+            setter.accept(entity, id);
+        } catch (ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException(
+                String.format("Couldn't set id in entity [%s]", domainClass.getCanonicalName()), e
+            );
+        }
+    }
+
+    private static IdAccessor create(Class<?> domainClass) {
+        try {
+            Optional<Field> field = IdUtils.getIdField(domainClass);
+            if (field.isPresent()) {
+                Field idField = field.get();
+                return new IdAccessor(domainClass, idField.getType(), Accessors.fieldGetter(idField),
+                    Accessors.fieldSetter(idField));
+            }
+
+            Optional<Method> method = IdUtils.getIdGetter(domainClass);
+            if (method.isPresent()) {
+                Method idGetter = method.get();
+                return new IdAccessor(domainClass, idGetter.getReturnType(), Accessors.methodGetter(idGetter),
+                    idSetter(domainClass, idGetter));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(
+                String.format("Couldn't create id accessor of entity [%s]", domainClass.getCanonicalName()), e
+            );
+        }
+
+        return new IdAccessor(domainClass, null, null, null);
+    }
+
+    private static BiConsumer<Object, Object> idSetter(Class<?> domainClass, Method getter)
+        throws IllegalAccessException {
+        try {
+            String setterName = getter.getName().replaceFirst("^get", "set");
+            return Accessors.methodSetter(domainClass.getMethod(setterName, getter.getReturnType()));
+        } catch (NoSuchMethodException e) {
+            return (entity, id) -> {
+                throw new IllegalArgumentException(
+                    String.format("Couldn't set id in entity [%s]", domainClass.getCanonicalName()), e
+                );
+            };
+        }
+    }
+}
@@ -8,7 +8,6 @@ import org.springframework.lang.Nullable;
 
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Objects;
 import java.util.Optional;
@@ -24,7 +23,8 @@ import java.util.function.Predicate;
 public final class IdUtils {
 
     /**
-     * Returns the ID of the given entity which must contain an accessor annotated with {@link Id}.
+     * Returns the ID of the given entity which must contain an accessor annotated with {@link Id}. The accessor is
+     * resolved once per entity class and cached afterwards.
      *
      * @param entity must not be {@literal null}
      * @return the entity's ID
@@ -32,52 +32,30 @@ public final class IdUtils {
      */
     @Nullable
     public static Object getId(@NonNull Object entity) {
-        try {
-            Class<?> entityClass = entity.getClass();
-
-            Optional<Field> field = getIdField(entityClass);
-            if (field.isPresent()) {
-                Field idField = field.get();
-                return idField.get(entity);
-            }
-
-            Optional<Method> method = getIdGetter(entityClass);
-            if (method.isPresent()) {
-                Method idGetter = method.get();
-                return idGetter.invoke(entity);
-            }
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(
-                String.format("Couldn't get id accessor from entity [%s]", entity.getClass().getCanonicalName()), e
-            );
-        }
-
-        throw new IllegalArgumentException(String.format(
-            "Entity [%s] has neither field nor method annotated with @Id", entity.getClass().getCanonicalName()
-        ));
+        return IdAccessor.of(entity.getClass()).getId(entity);
     }
 
+    /**
+     * Sets the ID of the given entity. Does nothing if the entity doesn't contain an accessor annotated with
+     * {@link Id}.
+     *
+     * @param entity must not be {@literal null}
+     * @param id     must not be {@literal null}
+     * @throws IllegalArgumentException in case the ID is not applicable or the entity doesn't provide a setter
+     */
     static void setId(@NonNull Object entity, @NonNull Object id) {
-        try {
-            Class<?> entityClass = entity.getClass();
-
-            Optional<Field> field = getIdField(entityClass);
-            if (field.isPresent()) {
-                Field idField = field.get();
-                idField.set(entity, id);
-                return;
-            }
+        IdAccessor.of(entity.getClass()).setId(entity, id);
+    }
 
-            Optional<Method> idGetter = getIdGetter(entityClass);
-            if (idGetter.isPresent()) {
-                Method idSetter = getIdSetter(entityClass);
-                idSetter.invoke(entity, id);
-            }
-        } catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            throw new IllegalArgumentException(
-                String.format("Couldn't set id in entity [%s]", entity.getClass().getCanonicalName()), e
-            );
-        }
+    /**
+     * Returns the type of the identifier of the given domain class.
+     *
+     * @param domainClass must not be {@literal null}
+     * @return the identifier's type or {@literal Optional#empty()} if the domain class doesn't contain an accessor
+     *     annotated with {@link Id}
+     */
+    static Optional<Class<?>> getIdType(@NonNull Class<?> domainClass) {
+        return Optional.ofNullable(IdAccessor.of(domainClass).getIdType());
     }
 
     static Optional<Field> getIdField(Class<?> domainClass) {
@@ -124,12 +102,4 @@ public final class IdUtils {
 
         return Optional.empty();
     }
-
-    private static Method getIdSetter(Class<?> domainClass) throws NoSuchMethodException {
-        Method idGetter = getIdGetter(domainClass).orElseThrow(NoSuchMethodException::new);
-        String setterName = idGetter.getName().replaceFirst("^get", "set");
-        Method setter = domainClass.getMethod(setterName, idGetter.getReturnType());
-        setter.setAccessible(true);
-        return setter;
-    }
 }
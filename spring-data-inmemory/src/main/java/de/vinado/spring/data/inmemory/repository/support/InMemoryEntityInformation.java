@@ -4,11 +4,6 @@ import org.springframework.data.domain.Persistable;
 import org.springframework.data.repository.core.support.AbstractEntityInformation;
 import org.springframework.util.Assert;
 
-import java.util.Optional;
-
-import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getIdField;
-import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getIdGetter;
-
 /**
  * Entity information base class which obtains its information via refection.
  *
@@ -57,19 +52,8 @@ public class InMemoryEntityInformation<T, ID> extends AbstractEntityInformation<
      * {@inheritDoc}
      */
     @Override
-    public Class<ID> getIdType() {
-        return getIdFieldType().orElseGet(() -> getIdGetterReturnType().orElseThrow(IllegalArgumentException::new));
-    }
-
     @SuppressWarnings("unchecked")
-    private Optional<Class<ID>> getIdFieldType() {
-        return getIdField(getJavaType())
-            .map(field -> (Class<ID>) field.getType());
-    }
-
-    @SuppressWarnings("unchecked")
-    private Optional<Class<ID>> getIdGetterReturnType() {
-        return getIdGetter(getJavaType())
-            .map(method -> (Class<ID>) method.getReturnType());
+    public Class<ID> getIdType() {
+        return (Class<ID>) IdUtils.getIdType(getJavaType()).orElseThrow(IllegalArgumentException::new);
     }
 }
@@ -1,67 +1,514 @@
 package de.vinado.spring.data.inmemory.repository.support;
 
 import de.vinado.spring.data.domain.PrimaryKeyGenerator;
+import de.vinado.spring.data.domain.PrimaryKeySequence;
 import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.CopyMode;
+import de.vinado.spring.data.inmemory.repository.config.EntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
 import de.vinado.spring.data.repository.EntityExistsException;
-import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.springframework.lang.NonNull;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getId;
-import static de.vinado.spring.data.inmemory.repository.support.IdUtils.setId;
 
 /**
- * An in-memory implementation of {@literal EntityManager}. It stores its values in a {@literal HashMap}.
+ * An in-memory implementation of {@literal EntityManager}. It stores its values in a {@literal HashMap} or, if
+ * operated in {@link StoreMode#CONCURRENT concurrent mode}, in a {@literal ConcurrentHashMap}. Tables whose primary
+ * keys are integers or longs use a {@link PrimitiveKeyMap} instead, which stores its keys unboxed, or, if concurrent
+ * and opted in by {@link TableDefinition#isUnboxedKeys()}, a {@link ConcurrentPrimitiveKeyMap}. Primary keys are drawn
+ * from the table's {@link PrimaryKeySequence}, atomically in every mode.
+ *
+ * <p>Secondary indexes, either annotated with {@link de.vinado.spring.data.inmemory.Indexed} or declared by the
+ * {@link TableDefinition}, are maintained while the row itself is locked, so that a row and its index entries are
+ * changed atomically. Rows and indexes are held together by a {@link Table}, which is replaced as a whole when the
+ * store is cleared.
+ *
+ * <p>Entities with a field annotated with {@link org.springframework.data.annotation.Version} are locked
+ * optimistically. Merging or removing such an entity compares its version with the stored one while the row is locked,
+ * so that concurrent updates of distinct rows don't block each other, and fails with an
+ * {@link OptimisticLockingFailureException} if the entity has been updated or removed in the meantime. The version is
+ * incremented on every store and merge.
+ *
+ * <p>Tables operated in {@link StoreMode#MULTI_VERSION multi-version mode} keep their rows in {@link VersionedRows}.
+ * Each write, including a whole batch, publishes a new version, and every read other than by primary key runs against
+ * the version published before it started. Such reads scan the version instead of using secondary indexes.
+ *
+ * <p>Once attached to a {@link WriteAheadLog}, every change is appended to the log while the row is locked and,
+ * depending on the log's fsync policy, the operation waits for the log to be forced before it returns. A change which
+ * can't be logged is rejected, leaving the row as it was.
+ *
+ * <p>Writers pass a gate, which they share with each other, while the commit of a transaction holds the gates of all
+ * tables it changes exclusively, just like clearing a table holds its gate. A commit hence doesn't interleave with
+ * other writes, and a multi-version table publishes all changes of a commit as a single version.
+ *
+ * <p>A table restored from a {@link de.vinado.spring.data.inmemory.repository.config.SnapshotFormat#MAPPED mapped}
+ * snapshot is served read-only from the mapping, decoding each entity when it's read. Once it's first written to, its
+ * rows are promoted into memory one by one as they are written, while the others are still served from the mapping.
+ *
+ * <p>Tables kept on the heap may isolate their entities from the application according to their {@link CopyMode}, in
+ * which case they store a copy of every entity written and return a copy of every entity read.
+ *
+ * <p>Tables stored {@link StorageType#OFF_HEAP off-heap} keep handles to serialized entities as rows instead of the
+ * entities themselves. Reading such a table decodes each entity lazily, once it's been reached.
  *
  * @author Vincent Nadoll
  */
-@RequiredArgsConstructor
 public class InMemoryEntityStore<ID> implements EntityStore {
 
-    private final Map<ID, Object> store = new HashMap<>();
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<InMemoryEntityStore, Table> TABLE =
+        AtomicReferenceFieldUpdater.newUpdater(InMemoryEntityStore.class, Table.class, "table");
+
+    /**
+     * Estimated size of a slot of the row map along with the boxed primary key the entity refers to.
+     */
+    private static final int ROW_OVERHEAD = 32;
+
+    /**
+     * Number of rows linked to the indexes of a promoted table at a time.
+     */
+    private static final int INDEX_CHUNK_SIZE = 1024;
 
-    @NonNull
-    @Getter(AccessLevel.PACKAGE)
+    @Getter
     private final Class<?> domainClass;
 
-    @NonNull
-    private final PrimaryKeyGenerator<ID> primaryKeyGenerator;
+    /**
+     * The class of the generator the table's primary keys are drawn from.
+     */
+    @Getter
+    private final Class<?> primaryKeyGeneratorClass;
+
+    private final PrimaryKeySequence<ID> sequence;
+
+    @Getter
+    private final TableDefinition definition;
+
+    private final RowSizeSampler rowSizeSampler = new RowSizeSampler();
+
+    private volatile Table<ID> table;
+
+    private final Object loadLock = new Object();
+
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+
+    @Nullable
+    private Table<ID> committing;
+
+    @Nullable
+    private volatile WriteAheadLog log;
+
+    @Nullable
+    private volatile EntityStoreObserver observer;
+
+    public InMemoryEntityStore(@NonNull Class<?> domainClass, @NonNull PrimaryKeyGenerator<ID> primaryKeyGenerator) {
+        this(domainClass, primaryKeyGenerator, StoreMode.SIMPLE);
+    }
+
+    /**
+     * Creates a new {@link InMemoryEntityStore} operating in the given mode.
+     *
+     * @param domainClass         must not be {@literal null}
+     * @param primaryKeyGenerator must not be {@literal null}
+     * @param storeMode           must not be {@literal null}
+     */
+    public InMemoryEntityStore(@NonNull Class<?> domainClass, @NonNull PrimaryKeyGenerator<ID> primaryKeyGenerator,
+                               @NonNull StoreMode storeMode) {
+        this(domainClass, primaryKeyGenerator, new TableDefinition(storeMode, Collections.emptyList()));
+    }
+
+    /**
+     * Creates a new {@link InMemoryEntityStore} set up according to the given definition.
+     *
+     * @param domainClass         must not be {@literal null}
+     * @param primaryKeyGenerator must not be {@literal null}
+     * @param definition          must not be {@literal null}
+     * @throws IllegalArgumentException in case an index refers to a property the domain class doesn't have, a
+     *                                  multi-version table is to be stored off-heap or the domain class can't be
+     *                                  copied as demanded by the table's copy mode
+     */
+    public InMemoryEntityStore(@NonNull Class<?> domainClass, @NonNull PrimaryKeyGenerator<ID> primaryKeyGenerator,
+                               @NonNull TableDefinition definition) {
+        if (StoreMode.MULTI_VERSION == definition.getStoreMode() && StorageType.OFF_HEAP == definition.getStorage()) {
+            throw new IllegalArgumentException(
+                String.format("Multi-version table of [%s] can't be stored off-heap", domainClass.getSimpleName())
+            );
+        }
+
+        if (StorageType.OFF_HEAP != definition.getStorage() && CopyMode.NONE != definition.getCopyMode()) {
+            EntityCopier.of(domainClass, CopyMode.DEEP == definition.getCopyMode());
+        }
+
+        this.domainClass = domainClass;
+        this.primaryKeyGeneratorClass = primaryKeyGenerator.getClass();
+        this.sequence = PrimaryKeySequence.of(primaryKeyGenerator);
+        this.definition = definition;
+        this.table = newTable();
+    }
+
+    private Table<ID> newTable() {
+        RowFormat format;
+        if (StorageType.OFF_HEAP == definition.getStorage()) {
+            format = new OffHeapRowFormat(definition.getCodec());
+        } else if (CopyMode.NONE != definition.getCopyMode()) {
+            format = new CopyingRowFormat(CopyMode.DEEP == definition.getCopyMode());
+        } else {
+            format = RowFormat.HEAP;
+        }
+        return new Table<>(newRows(), PropertyIndexes.of(domainClass, definition.getIndexes()), format, true);
+    }
+
+    /**
+     * Creates the row map. Tables whose primary keys are {@literal int}s or {@literal long}s store their keys
+     * unboxed, unless they're concurrent and haven't opted in, while multi-version tables keep them boxed within their
+     * versions.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Map<ID, Object> newRows() {
+        if (StoreMode.MULTI_VERSION == definition.getStoreMode()) {
+            return new VersionedRows<>();
+        }
+
+        boolean concurrent = StoreMode.CONCURRENT == definition.getStoreMode();
+        if (concurrent && !definition.isUnboxedKeys()) {
+            return new ConcurrentHashMap<>();
+        }
+
+        Class<?> idType = IdUtils.getIdType(domainClass)
+            .map(ClassUtils::resolvePrimitiveIfNecessary)
+            .orElse(null);
+        if (Long.class == idType) {
+            return (Map) newPrimitiveKeyMap(Long.class, Long::valueOf, concurrent);
+        }
+
+        if (Integer.class == idType) {
+            return (Map) newPrimitiveKeyMap(Integer.class, key -> (int) key, concurrent);
+        }
 
-    private ID previousId;
+        return concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    private static <K extends Number> Map<K, Object> newPrimitiveKeyMap(Class<K> keyType, LongFunction<K> boxer,
+                                                                       boolean concurrent) {
+        return concurrent
+            ? new ConcurrentPrimitiveKeyMap<>(keyType, boxer)
+            : new PrimitiveKeyMap<>(keyType, boxer);
+    }
 
     @Override
     public void store(Object entity) {
+        validateIsNew(entity);
+
+        Table<ID> table = beginWrite();
+        try {
+            insert(table, nextId(), entity);
+        } finally {
+            endWrite(table);
+        }
+        sync();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>All primary keys of the batch are drawn from the sequence at once. A multi-version table publishes the batch
+     * as a single version, which holds the entities preceding a failed one.
+     */
+    @Override
+    public void storeAll(Collection<?> entities) {
+        Set<Object> distinct = Collections.newSetFromMap(new IdentityHashMap<>(entities.size()));
+        for (Object entity : entities) {
+            validateIsNew(entity);
+            if (!distinct.add(entity)) {
+                throw entityExists(entity);
+            }
+        }
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        Iterator<ID> entityIds = sequence.next(entities.size()).iterator();
+        Table<ID> table = beginWrite();
+        try {
+            for (Object entity : entities) {
+                insert(table, validateId(entityIds.next()), entity);
+            }
+        } finally {
+            endWrite(table);
+        }
+        sync();
+    }
+
+    private void validateIsNew(Object entity) {
         validateIsEntity(entity);
 
-        if (contains(entity)) {
-            throw new EntityExistsException(
-                String.format(
-                    "Store already contains entity of type [%s] with the same ID",
-                    entity.getClass().getCanonicalName()
-                )
+        if (isStored(entity)) {
+            throw entityExists(entity);
+        }
+    }
+
+    private static EntityExistsException entityExists(Object entity) {
+        return new EntityExistsException(
+            String.format(
+                "Store already contains entity of type [%s] with the same ID",
+                entity.getClass().getCanonicalName()
+            )
+        );
+    }
+
+    /**
+     * Inserts the entity with the given primary key or, if the key is taken, with the next one available. Should the
+     * entity fail to be inserted, e.g. by violating a unique index, its previous ID and version are restored.
+     */
+    private void insert(Table<ID> table, ID entityId, Object entity) {
+        IdAccessor ids = IdAccessor.of(entity.getClass());
+        VersionAccessor versions = VersionAccessor.of(entity.getClass());
+        Object previousId = ids.getId(entity);
+        ids.setId(entity, entityId);
+        Object previousVersion = versions.advance(entity);
+        boolean inserted = false;
+        try {
+            while (!insertIfAbsent(table, entityId, entity)) {
+                ID candidate = nextId();
+                if (Objects.equals(entityId, candidate)) {
+                    throw new EntityExistsException(
+                        String.format(
+                            "Primary key generator of [%s] keeps generating the existing ID [%s]",
+                            domainClass.getSimpleName(),
+                            entityId
+                        )
+                    );
+                }
+
+                entityId = candidate;
+                ids.setId(entity, entityId);
+            }
+            inserted = true;
+        } finally {
+            if (!inserted) {
+                ids.setId(entity, previousId);
+                versions.setVersion(entity, previousVersion);
+            }
+        }
+    }
+
+    private boolean insertIfAbsent(Table<ID> table, ID entityId, Object entity) {
+        WriteAheadLog log = this.log;
+        byte[] image = null == log ? null : getCodec().encode(entity);
+        Object row = table.format.encode(entity);
+        long stamp = null == log ? 0 : log.beginWrite();
+        boolean inserted = false;
+        try {
+            inserted = row == table.rows.computeIfAbsent(entityId, id -> {
+                table.indexes.put(id, entity);
+                if (null != log) {
+                    appendPut(log, table, id, null, image);
+                }
+                return row;
+            });
+            return inserted;
+        } finally {
+            if (null != log) {
+                log.endWrite(stamp);
+            }
+            if (!inserted) {
+                table.format.release(row);
+            }
+        }
+    }
+
+    /**
+     * Logs an entity put into the table, whose indexes already link it. If the log fails, the indexes are reverted to
+     * the row replaced, so that the row and its indexes are left as they were.
+     *
+     * @param existing the row the entity replaces or {@literal null} if none
+     */
+    private void appendPut(WriteAheadLog log, Table<ID> table, ID id, @Nullable Object existing, byte[] image) {
+        try {
+            log.append(WriteAheadLog.PUT, domainClass.getName(), image);
+        } catch (RuntimeException e) {
+            if (null == existing) {
+                table.indexes.remove(id);
+            } else {
+                table.indexes.put(id, table.format.decode(existing));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Draws the next primary key from the table's sequence.
+     *
+     * @throws IllegalStateException in case the sequence yields no key
+     */
+    ID nextId() {
+        return validateId(sequence.next());
+    }
+
+    private ID validateId(@Nullable ID entityId) {
+        if (null == entityId) {
+            throw new IllegalStateException(
+                String.format("Primary key generator of [%s] generated no ID", domainClass.getSimpleName())
             );
         }
 
-        ID entityId = primaryKeyGenerator.next(previousId);
-        setId(entity, entityId);
-        store.put(entityId, entity);
-        previousId = entityId;
+        return entityId;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> T merge(T entity) {
+        ID entityId = validateIsMergeable(entity);
+
+        Table<ID> table = beginWrite();
+        try {
+            update(table, entityId, entity, true);
+        } finally {
+            endWrite(table);
+        }
+        sequence.advancePast(entityId);
+        sync();
+        return entity;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void mergeAll(Collection<?> entities) {
+        Object[] entityIds = new Object[entities.size()];
+        int index = 0;
+        for (Object entity : entities) {
+            entityIds[index++] = validateIsMergeable(entity);
+        }
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        Table<ID> table = beginWrite();
+        try {
+            index = 0;
+            for (Object entity : entities) {
+                ID entityId = (ID) entityIds[index++];
+                update(table, entityId, entity, true);
+                sequence.advancePast(entityId);
+            }
+        } finally {
+            endWrite(table);
+        }
+        sync();
+    }
+
+    /**
+     * Puts the given entity into the table, overwriting the stored one without checking or advancing its version, e.g.
+     * to undo a change.
+     *
+     * @param entity must not be {@literal null}
+     */
+    void replace(Object entity) {
+        ID entityId = validateIsMergeable(entity);
+
+        Table<ID> table = beginWrite();
+        try {
+            update(table, entityId, entity, false);
+        } finally {
+            endWrite(table);
+        }
+        sequence.advancePast(entityId);
+        sync();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ID validateIsMergeable(Object entity) {
         validateIsEntity(entity);
 
         ID entityId = (ID) getId(entity);
-        store.put(entityId, entity);
-        previousId = entityId;
-        return entity;
+        if (null == entityId) {
+            throw new IllegalArgumentException(
+                String.format("Entity of type [%s] has no ID", entity.getClass().getCanonicalName())
+            );
+        }
+
+        return entityId;
+    }
+
+    /**
+     * Puts the entity into the table. If the entity is versioned and its version is to be checked, its version is
+     * advanced up front and the update is rejected unless the stored entity still has the previous version.
+     */
+    private void update(Table<ID> table, ID entityId, Object entity, boolean checkVersion) {
+        VersionAccessor versions = VersionAccessor.of(entity.getClass());
+        boolean checked = checkVersion && versions.isVersioned();
+        Object expected = checked ? versions.advance(entity) : null;
+        WriteAheadLog log = this.log;
+        byte[] image = null == log ? null : getCodec().encode(entity);
+        Object row = table.format.encode(entity);
+        long stamp = null == log ? 0 : log.beginWrite();
+        boolean[] conflict = new boolean[1];
+        Object[] replaced = new Object[1];
+        boolean updated = false;
+        try {
+            table.rows.compute(entityId, (id, existing) -> {
+                // a row identical to the entity has been advanced along with it
+                if (checked && row != existing
+                    && !versions.matches(null == existing ? null : table.format.decode(existing), expected)) {
+                    conflict[0] = true;
+                    return existing;
+                }
+
+                table.indexes.put(id, entity);
+                if (null != log) {
+                    appendPut(log, table, id, existing, image);
+                }
+                replaced[0] = existing;
+                return row;
+            });
+            updated = !conflict[0];
+            release(table, replaced[0]);
+        } finally {
+            if (null != log) {
+                log.endWrite(stamp);
+            }
+            if (!updated) {
+                table.format.release(row);
+                versions.setVersion(entity, expected);
+            }
+        }
+
+        if (conflict[0]) {
+            throw new OptimisticLockingFailureException(
+                String.format(
+                    "Entity of type [%s] with ID [%s] has been updated or removed concurrently",
+                    entity.getClass().getCanonicalName(),
+                    entityId
+                )
+            );
+        }
     }
 
     @Override
@@ -69,13 +516,452 @@ public class InMemoryEntityStore<ID> implements EntityStore {
     public void remove(Object entity) {
         validateIsEntity(entity);
 
-        if (!contains(entity)) {
+        ID entityId = (ID) getId(entity);
+        VersionAccessor versions = VersionAccessor.of(entity.getClass());
+        Object expected = versions.getVersion(entity);
+        Object[] removed = new Object[1];
+        boolean[] conflict = new boolean[1];
+        if (null != entityId) {
+            WriteAheadLog log = this.log;
+            byte[] key = null == log ? null : WriteAheadLog.encodeKey(entityId);
+            Table<ID> table = beginWrite();
+            try {
+                long stamp = null == log ? 0 : log.beginWrite();
+                try {
+                    table.rows.computeIfPresent(entityId, (id, existing) -> {
+                        if (versions.isVersioned() && !versions.matches(table.format.decode(existing), expected)) {
+                            conflict[0] = true;
+                            return existing;
+                        }
+
+                        if (null != log) {
+                            log.append(WriteAheadLog.DELETE, domainClass.getName(), key);
+                        }
+                        table.indexes.remove(id);
+                        removed[0] = existing;
+                        return null;
+                    });
+                    release(table, removed[0]);
+                } finally {
+                    if (null != log) {
+                        log.endWrite(stamp);
+                    }
+                }
+            } finally {
+                endWrite(table);
+            }
+            sync();
+        }
+
+        if (conflict[0]) {
+            throw new OptimisticLockingFailureException(
+                String.format(
+                    "Entity of type [%s] with ID [%s] has been updated concurrently",
+                    entity.getClass().getCanonicalName(),
+                    entityId
+                )
+            );
+        }
+
+        if (null == removed[0]) {
             throw new IllegalArgumentException(
                 String.format("Store doesn't contain such entity of type [%s]", entity.getClass().getCanonicalName())
             );
         }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Versioned entities are removed as by {@link #remove(Object)}, i.e. only if the stored entity still has the
+     * given entity's version.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeAll(Collection<?> entities) {
+        entities.forEach(this::validateIsEntity);
+
+        Object conflicting = null;
+        Table<ID> table = beginWrite();
+        try {
+            for (Object entity : entities) {
+                ID entityId = (ID) getId(entity);
+                if (null != entityId && !delete(table, entityId, entity) && null == conflicting) {
+                    conflicting = entity;
+                }
+            }
+        } finally {
+            endWrite(table);
+        }
+        sync();
+
+        if (null != conflicting) {
+            throw new OptimisticLockingFailureException(
+                String.format(
+                    "Entity of type [%s] with ID [%s] has been updated concurrently",
+                    conflicting.getClass().getCanonicalName(),
+                    getId(conflicting)
+                )
+            );
+        }
+    }
+
+    /**
+     * Deletes the row with the given primary key. If an entity is given and versioned, the row is kept unless it
+     * still has the entity's version.
+     *
+     * @return {@literal false} if the row has been kept due to a version conflict
+     */
+    private boolean delete(Table<ID> table, ID entityId, @Nullable Object entity) {
+        VersionAccessor versions = null == entity ? null : VersionAccessor.of(entity.getClass());
+        boolean checked = null != versions && versions.isVersioned();
+        Object expected = checked ? versions.getVersion(entity) : null;
+        WriteAheadLog log = this.log;
+        byte[] key = null == log ? null : WriteAheadLog.encodeKey(entityId);
+        long stamp = null == log ? 0 : log.beginWrite();
+        boolean[] conflict = new boolean[1];
+        Object[] removed = new Object[1];
+        try {
+            table.rows.computeIfPresent(entityId, (id, existing) -> {
+                if (checked && !versions.matches(table.format.decode(existing), expected)) {
+                    conflict[0] = true;
+                    return existing;
+                }
+
+                if (null != log) {
+                    log.append(WriteAheadLog.DELETE, domainClass.getName(), key);
+                }
+                table.indexes.remove(id);
+                removed[0] = existing;
+                return null;
+            });
+            release(table, removed[0]);
+        } finally {
+            if (null != log) {
+                log.endWrite(stamp);
+            }
+        }
+        return !conflict[0];
+    }
 
-        store.remove((ID) getId(entity));
+    /**
+     * Releases a row replaced or removed from the table. A row is released only once the row map no longer holds it,
+     * so that a reader looking rows up without locking them can detect the release by validating its read afterwards.
+     */
+    private static void release(Table<?> table, @Nullable Object row) {
+        if (null != row) {
+            table.format.release(row);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Replaces rows and indexes by empty ones. Clearing waits for concurrent writes to complete and blocks new ones
+     * until the table has been replaced, so that no write goes to the previous table, or is logged after the table has
+     * been cleared. Primary keys keep being allocated from where they were.
+     */
+    @Override
+    public void clear(Class<?> entityClass) {
+        validateIsEntity(entityClass);
+
+        WriteAheadLog log = this.log;
+        gate.writeLock().lock();
+        try {
+            long stamp = null == log ? 0 : log.beginWrite();
+            try {
+                if (null != log) {
+                    log.append(WriteAheadLog.CLEAR, domainClass.getName(), null);
+                }
+                table = newTable();
+            } finally {
+                if (null != log) {
+                    log.endWrite(stamp);
+                }
+            }
+        } finally {
+            gate.writeLock().unlock();
+        }
+        sync();
+    }
+
+    /**
+     * Replaces the content of the table by the given entities, e.g. read from a snapshot, and advances the primary key
+     * sequence past the given key. The entities are loaded into a new table, which only becomes visible once complete.
+     * Operations performed concurrently against the previous table are discarded along with it.
+     *
+     * @param entities must not be {@literal null}
+     * @param lastKey  the last primary key generated before the snapshot was taken
+     */
+    void restore(Iterator<?> entities, @Nullable ID lastKey) {
+        Table<ID> table = newTable();
+        while (entities.hasNext()) {
+            Object entity = entities.next();
+            ID entityId = validateIsMergeable(entity);
+            load(table, entityId, entity);
+            sequence.advancePast(entityId);
+        }
+        if (null != lastKey) {
+            sequence.advancePast(lastKey);
+        }
+
+        this.table = table;
+    }
+
+    /**
+     * Replaces the content of the table by the rows of a memory-mapped snapshot, served read-only until the table is
+     * first written to. The primary key sequence is advanced past every key of the snapshot and the given key.
+     *
+     * @param rows    the positions of the rows within the mapping by their primary key, must not be {@literal null}
+     * @param format  the format decoding the rows, must not be {@literal null}
+     * @param lastKey the last primary key generated before the snapshot was taken
+     */
+    void map(Map<ID, Object> rows, MappedRowFormat format, @Nullable ID lastKey) {
+        rows.keySet().forEach(sequence::advancePast);
+        if (null != lastKey) {
+            sequence.advancePast(lastKey);
+        }
+
+        this.table = new Table<>(rows, PropertyIndexes.none(), format, true);
+    }
+
+    /**
+     * Enters a write, passing the gate shared by the table's writers and beginning a write of the table to be written
+     * to, which is returned. The table is resolved once the gate has been passed, so that the write doesn't go to a
+     * table replaced meanwhile.
+     */
+    private Table<ID> beginWrite() {
+        gate.readLock().lock();
+        try {
+            Table<ID> table = writableTable();
+            table.beginWrite();
+            return table;
+        } catch (RuntimeException e) {
+            gate.readLock().unlock();
+            throw e;
+        }
+    }
+
+    private void endWrite(Table<ID> table) {
+        try {
+            table.endWrite();
+        } finally {
+            gate.readLock().unlock();
+        }
+    }
+
+    /**
+     * Enters the commit of a transaction, waiting for the table's writers to complete and blocking new ones until the
+     * commit {@link #endCommit() ends}. The changes a commit makes to a multi-version table are published together
+     * once it ends.
+     */
+    void beginCommit() {
+        gate.writeLock().lock();
+        try {
+            Table<ID> table = writableTable();
+            table.beginWrite();
+            committing = table;
+        } catch (RuntimeException e) {
+            gate.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    void endCommit() {
+        try {
+            committing.endWrite();
+        } finally {
+            committing = null;
+            gate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Enters the traversal of the table by a snapshot. A table operated in {@link StoreMode#SIMPLE simple mode} isn't
+     * thread-safe, hence its writers are blocked until the snapshot {@link #endSnapshot() ends}, whereas other tables
+     * are traversed while being written to.
+     */
+    void beginSnapshot() {
+        if (StoreMode.SIMPLE == definition.getStoreMode()) {
+            gate.writeLock().lock();
+        }
+    }
+
+    void endSnapshot() {
+        if (StoreMode.SIMPLE == definition.getStoreMode()) {
+            gate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the table to be written to. A table served from a memory-mapped snapshot is {@link #promote(Table)
+     * promoted} first, which concurrent writers wait for.
+     */
+    private Table<ID> writableTable() {
+        Table<ID> table = this.table;
+        if (!table.isMapped()) {
+            return table;
+        }
+
+        synchronized (loadLock) {
+            Table<ID> mapped = this.table;
+            if (!mapped.isMapped()) {
+                return mapped;
+            }
+
+            Table<ID> promoted = promote(mapped);
+            if (TABLE.compareAndSet(this, mapped, promoted) && !promoted.indexed) {
+                daemon(() -> index(promoted, mapped.rows), "inmemory-indexer-" + domainClass.getSimpleName()).start();
+            }
+            return writableTable();
+        }
+    }
+
+    /**
+     * Turns a table served from a memory-mapped snapshot into a writable one whose rows still refer to the mapping, see
+     * {@link PromotedRowFormat}. Only the primary keys are copied, without decoding any entity, unless the table has a
+     * unique index: uniqueness can only be checked against the rows the index links, hence such a table links all rows
+     * before it's written to. Other indexes are linked in the background by {@link #index(Table, Map)}, while queries
+     * keep scanning the table.
+     */
+    private Table<ID> promote(Table<ID> mapped) {
+        Table<ID> table = newTable();
+        table.beginWrite();
+        try {
+            mapped.rows.forEach((entityId, row) -> table.rows.put(entityId, PromotedRowFormat.mapped(row)));
+        } finally {
+            table.endWrite();
+        }
+
+        boolean indexed = table.indexes.isEmpty() || table.indexes.isUnique();
+        if (!table.indexes.isEmpty() && indexed) {
+            mapped.rows.forEach((entityId, row) -> table.indexes.put(entityId, mapped.format.decode(row)));
+        }
+        RowFormat format = new PromotedRowFormat((MappedRowFormat) mapped.format, table.format);
+        return new Table<>(table.rows, table.indexes, format, indexed);
+    }
+
+    /**
+     * Links the rows of a promoted table which still refer to the mapping to the table's secondary indexes, a chunk of
+     * rows at a time. Each chunk holds the gate exclusively, so that writers, which link the rows they promote
+     * themselves, interleave with the chunks. Once all rows are linked, queries start using the indexes. Linking stops
+     * as soon as the table has been replaced, e.g. cleared.
+     *
+     * @param mappedRows the rows of the table's snapshot, which are iterated as they never change
+     */
+    private void index(Table<ID> promoted, Map<ID, Object> mappedRows) {
+        Iterator<ID> entityIds = mappedRows.keySet().iterator();
+        while (entityIds.hasNext()) {
+            gate.writeLock().lock();
+            try {
+                if (promoted != this.table) {
+                    return;
+                }
+
+                for (int count = 0; count < INDEX_CHUNK_SIZE && entityIds.hasNext(); count++) {
+                    ID entityId = entityIds.next();
+                    Object row = promoted.rows.get(entityId);
+                    if (null != row && PromotedRowFormat.isMapped(row)) {
+                        promoted.indexes.put(entityId, promoted.format.decode(row));
+                    }
+                }
+            } finally {
+                gate.writeLock().unlock();
+            }
+        }
+        TABLE.compareAndSet(this, promoted, new Table<>(promoted.rows, promoted.indexes, promoted.format, true));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Puts an entity into a table no other thread has access to yet, without logging it.
+     */
+    private static <ID> void load(Table<ID> table, ID entityId, Object entity) {
+        table.indexes.put(entityId, entity);
+        Object row = table.format.encode(entity);
+        Object previous = table.rows.put(entityId, row);
+        if (null != previous) {
+            table.format.release(previous);
+        }
+    }
+
+    /**
+     * Logs every subsequent change of the table to the given log.
+     */
+    void attach(WriteAheadLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Notifies the given observer whether each subsequent query on a property is answered through an index.
+     */
+    void observe(EntityStoreObserver observer) {
+        this.observer = observer;
+    }
+
+    private void observeQuery(String propertyName, boolean indexed) {
+        EntityStoreObserver observer = this.observer;
+        if (null != observer) {
+            observer.onQuery(domainClass, propertyName, indexed);
+        }
+    }
+
+    /**
+     * Waits for the changes logged so far to become durable, as far as the log's fsync policy demands.
+     */
+    private void sync() {
+        WriteAheadLog log = this.log;
+        if (null != log) {
+            log.sync();
+        }
+    }
+
+    /**
+     * Applies a stored or merged entity read from the write-ahead log.
+     */
+    void replayPut(Object entity) {
+        ID entityId = validateIsMergeable(entity);
+        Table<ID> table = beginWrite();
+        try {
+            update(table, entityId, entity, false);
+        } finally {
+            endWrite(table);
+        }
+        sequence.advancePast(entityId);
+    }
+
+    /**
+     * Applies a removal read from the write-ahead log.
+     */
+    @SuppressWarnings("unchecked")
+    void replayDelete(Object entityId) {
+        Table<ID> table = beginWrite();
+        try {
+            delete(table, (ID) entityId, null);
+        } finally {
+            endWrite(table);
+        }
+    }
+
+    /**
+     * Applies a clearance read from the write-ahead log.
+     */
+    void replayClear() {
+        table = newTable();
+    }
+
+    @Nullable
+    ID getLastKey() {
+        return sequence.last();
+    }
+
+    EntityCodec getCodec() {
+        return definition.getCodec();
     }
 
     @Override
@@ -83,22 +969,243 @@ public class InMemoryEntityStore<ID> implements EntityStore {
     public <T> T find(Class<T> entityClass, Object primaryKey) {
         validateIsEntity(entityClass);
 
-        return entityClass.cast(store.get((ID) primaryKey));
+        return null == primaryKey ? null : entityClass.cast(table.get((ID) primaryKey));
     }
 
     @Override
     public <T> Stream<T> findAll(Class<T> entityClass) {
         validateIsEntity(entityClass);
 
-        return store.values().stream()
+        return table.snapshot().values()
+            .map(entityClass::cast);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The size is maintained by the underlying map as part of every insertion and removal.
+     */
+    @Override
+    public long count(Class<?> entityClass) {
+        validateIsEntity(entityClass);
+
+        return table.rows.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Returns the size of the index entry if the property is indexed and scans the whole table otherwise.
+     */
+    @Override
+    public long countBy(Class<?> entityClass, String propertyName, @Nullable Object value) {
+        validateIsEntity(entityClass);
+
+        Table<ID> table = this.table.snapshot();
+        PropertyIndex<ID> index = table.index(propertyName);
+        observeQuery(propertyName, null != index);
+        if (null != index) {
+            return index.find(value).size();
+        }
+
+        return table.values()
+            .filter(entity -> Objects.equals(value, Accessors.getProperty(entity, propertyName)))
+            .count();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Looks up the entities through the property's index if it is indexed and scans the whole table otherwise.
+     */
+    @Override
+    public <T> Stream<T> findAllBy(Class<T> entityClass, String propertyName, @Nullable Object value) {
+        validateIsEntity(entityClass);
+
+        Table<ID> table = this.table.snapshot();
+        PropertyIndex<ID> index = table.index(propertyName);
+        observeQuery(propertyName, null != index);
+        Stream<Object> candidates = null == index
+            ? table.values()
+            : table.resolve(index.find(value).stream());
+        return candidates
+            .filter(entity -> Objects.equals(value, Accessors.getProperty(entity, propertyName)))
             .map(entityClass::cast);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Walks the relevant part of the property's index if it has a {@link IndexType#SORTED sorted} index, so that
+     * limiting the stream yields the top entities in {@literal O(log n + k)}. Scans and sorts the whole table
+     * otherwise.
+     */
     @Override
+    public <T> Stream<T> findAllInRange(Class<T> entityClass, String propertyName, Range<?> range,
+                                        Sort.Direction direction) {
+        validateIsEntity(entityClass);
+
+        Table<ID> table = this.table.snapshot();
+        PropertyIndex<ID> index = table.index(propertyName);
+        observeQuery(propertyName, index instanceof SortedPropertyIndex);
+        if (index instanceof SortedPropertyIndex) {
+            return table.resolve(((SortedPropertyIndex<ID>) index).range(range, direction))
+                .filter(inRange(propertyName, range))
+                .map(entityClass::cast);
+        }
+
+        return table.values()
+            .filter(inRange(propertyName, range))
+            .sorted(ordering(propertyName, direction))
+            .map(entityClass::cast);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Iterates the property's index if it has a {@link IndexType#SORTED sorted} index and sorts the whole table
+     * otherwise.
+     */
+    @Override
+    public <T> Stream<T> findAllOrderedBy(Class<T> entityClass, String propertyName, Sort.Direction direction) {
+        validateIsEntity(entityClass);
+
+        Table<ID> table = this.table.snapshot();
+        PropertyIndex<ID> index = table.index(propertyName);
+        observeQuery(propertyName, index instanceof SortedPropertyIndex);
+        Stream<Object> candidates = index instanceof SortedPropertyIndex
+            ? table.resolve(((SortedPropertyIndex<ID>) index).ordered(direction))
+            : table.values().sorted(ordering(propertyName, direction));
+        return candidates.map(entityClass::cast);
+    }
+
+    /**
+     * Returns a rough estimate of the memory occupied by the table's rows in bytes: the heap retained by the stored
+     * entities, or the direct memory reserved by an {@link StorageType#OFF_HEAP off-heap} table, plus an estimated
+     * overhead of {@value #ROW_OVERHEAD} bytes per row. Secondary indexes aren't accounted for, nor are the entities of
+     * a table served from a memory-mapped snapshot.
+     *
+     * <p>The size of an entity is averaged over samples of a few entities each, one sample being measured per call,
+     * so that estimating neither locks nor traverses the whole table. The estimate hence converges over repeated calls,
+     * e.g. by a metrics registry polling it.
+     *
+     * @return the estimated number of bytes
+     */
+    public long estimateMemory() {
+        Table<ID> table = this.table;
+        long rows = table.rows.size();
+        long entities;
+        if (table.format instanceof OffHeapRowFormat) {
+            entities = ((OffHeapRowFormat) table.format).getReservedBytes();
+        } else if (table.isMapped()) {
+            entities = 0;
+        } else {
+            Map<ID, Object> sampled = table.snapshot().rows;
+            entities = rows * rowSizeSampler.sample(() -> sampled.values().stream(), rows);
+        }
+        return entities + rows * ROW_OVERHEAD;
+    }
+
+    /**
+     * Rebuilds the secondary indexes from the stored entities, re-linking entities whose indexed properties have been
+     * changed in place, i.e. without merging them. Each row is locked while its index entries are replaced, so that
+     * the table remains available for reading and writing meanwhile.
+     *
+     * @throws EntityExistsException in case an entity violates a unique index
+     */
+    public void rebuildIndexes() {
+        Table<ID> table = writableTable();
+        if (table.indexes.isEmpty()) {
+            return;
+        }
+
+        for (ID id : new ArrayList<>(table.rows.keySet())) {
+            table.beginWrite();
+            try {
+                table.rows.computeIfPresent(id, (key, row) -> {
+                    table.indexes.put(key, table.format.decode(row));
+                    return row;
+                });
+            } finally {
+                table.endWrite();
+            }
+        }
+    }
+
+    /**
+     * Returns the type of each of the table's secondary indexes by the property it's defined on.
+     *
+     * @return a new map of the index types
+     */
+    public Map<String, IndexType> getIndexTypes() {
+        return table.indexes.types();
+    }
+
+    /**
+     * Returns the type of the table's primary key.
+     *
+     * @return the primary key's type or {@literal Optional#empty()} if the domain class has no identifier
+     */
+    public Optional<Class<?>> getIdType() {
+        return IdUtils.getIdType(domainClass);
+    }
+
+    @Override
+    public Optional<IndexType> getIndexType(Class<?> entityClass, String propertyName) {
+        validateIsEntity(entityClass);
+
+        return Optional.ofNullable(table.indexes.get(propertyName))
+            .map(PropertyIndex::getType);
+    }
+
+    static Predicate<Object> inRange(String propertyName, Range<?> range) {
+        return entity -> SortedPropertyIndex.inRange(range, Accessors.getProperty(entity, propertyName));
+    }
+
+    static Comparator<Object> ordering(String propertyName, Sort.Direction direction) {
+        Comparator<Object> ordering = Comparator.comparing(entity -> Accessors.getProperty(entity, propertyName),
+            SortedPropertyIndex::compare);
+        return direction.isDescending() ? ordering.reversed() : ordering;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The entity is identified by its primary key and, if versioned, its version rather than by equality, since
+     * tables copying or serializing their entities return a new instance on every read.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
     public boolean contains(Object entity) {
         validateIsEntity(entity);
 
-        return store.containsValue(entity);
+        ID entityId = (ID) getId(entity);
+        return null != entityId && isRowOf(table.get(entityId), entity);
+    }
+
+    /**
+     * Returns whether the given stored entity is the row the given entity refers to by its primary key, i.e. whether
+     * it exists and, if the entity is versioned, still has the entity's version.
+     *
+     * @param stored the entity stored under the given entity's primary key or {@literal null} if none is
+     */
+    static boolean isRowOf(@Nullable Object stored, Object entity) {
+        VersionAccessor versions = VersionAccessor.of(entity.getClass());
+        return null != stored && versions.matches(stored, versions.getVersion(entity));
+    }
+
+    /**
+     * Returns whether the table hands out the very instances it stores, i.e. keeps them on the heap without copying
+     * them, so that changing an entity read from the table changes the table in place.
+     */
+    boolean isSharingEntities() {
+        return RowFormat.HEAP == table.format;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isStored(Object entity) {
+        ID entityId = (ID) getId(entity);
+        return null != entityId && table.rows.containsKey(entityId);
     }
 
     private <T> void validateIsEntity(T entity) {
@@ -122,4 +1229,68 @@ public class InMemoryEntityStore<ID> implements EntityStore {
             throw new IllegalArgumentException(message);
         }
     }
+
+    /**
+     * The rows of a table along with their secondary indexes and the format the rows are kept in. Writes to a table
+     * are enclosed by {@link #beginWrite()} and {@link #endWrite()}, which serialize the writers of a multi-version
+     * table and publish their changes as a new version.
+     */
+    @RequiredArgsConstructor
+    private static final class Table<ID> {
+
+        private final Map<ID, Object> rows;
+
+        private final PropertyIndexes<ID> indexes;
+
+        private final RowFormat format;
+
+        /**
+         * Whether the secondary indexes link all rows and hence answer queries.
+         */
+        private final boolean indexed;
+
+        @Nullable
+        private PropertyIndex<ID> index(String propertyName) {
+            return indexed ? indexes.get(propertyName) : null;
+        }
+
+        @Nullable
+        private Object get(ID id) {
+            return format.read(rows, id);
+        }
+
+        private Stream<Object> values() {
+            return format.readAll(rows);
+        }
+
+        private Stream<Object> resolve(Stream<ID> ids) {
+            return ids.map(this::get).filter(Objects::nonNull);
+        }
+
+        private boolean isMapped() {
+            return format instanceof MappedRowFormat;
+        }
+
+        private void beginWrite() {
+            if (rows instanceof VersionedRows) {
+                ((VersionedRows<ID>) rows).beginWrite();
+            }
+        }
+
+        private void endWrite() {
+            if (rows instanceof VersionedRows) {
+                ((VersionedRows<ID>) rows).endWrite();
+            }
+        }
+
+        /**
+         * Returns a consistent view of the table for a reader to hold. A multi-version table yields its latest version
+         * without secondary indexes, any other table yields itself.
+         */
+        private Table<ID> snapshot() {
+            return rows instanceof VersionedRows
+                ? new Table<>(((VersionedRows<ID>) rows).snapshot(), PropertyIndexes.none(), format, true)
+                : this;
+        }
+    }
 }
@@ -1,66 +1,499 @@
 package de.vinado.spring.data.inmemory.repository.support;
 
 import de.vinado.spring.data.inmemory.repository.EntityStore;
-import lombok.AllArgsConstructor;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.inmemory.repository.config.SnapshotFormat;
+import de.vinado.spring.data.repository.EntityExistsException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.ClassUtils;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 
 /**
  * A composite of typed entity stores aka. tables which makes this class acting as a (stateful) in memory-database.
  *
+ * <p>The tables can be written to and restored from a snapshot file, e.g. to survive a restart, and be made durable
+ * between snapshots by a {@link WriteAheadLog}.
+ *
+ * <p>Within a transaction of an {@link InMemoryTransactionManager}, changes to the tables are buffered in the
+ * transaction's {@link ChangeSet} and applied on commit. Reads within the transaction see its own changes, and
+ * entities read from tables sharing them with the application are retained, so that changes made to them in place can
+ * be undone on rollback.
+ *
  * @author Vincent Nadoll
  */
-@AllArgsConstructor
 public class InMemoryEntityTableStore implements EntityStore {
 
     private final Map<Class<?>, EntityStore> stores;
 
+    private volatile WriteAheadLog log;
+
+    @Nullable
+    private volatile Instant lastSnapshot;
+
+    private final ReentrantLock commitLock = new ReentrantLock();
+
     public InMemoryEntityTableStore() {
-        this.stores = new HashMap<>();
+        this(new ConcurrentHashMap<>());
+    }
+
+    public InMemoryEntityTableStore(Map<Class<?>, EntityStore> stores) {
+        this.stores = stores;
     }
 
-    <ID> void add(@NonNull InMemoryEntityStore<ID> store) {
-        stores.put(store.getDomainClass(), store);
+    /**
+     * Adds the given table unless the store already has a table of the same domain class, which is kept along with its
+     * rows, e.g. if a blocking and a reactive repository manage the same entity.
+     *
+     * @param store must not be {@literal null}
+     * @return whether the table has been added
+     */
+    <ID> boolean add(@NonNull InMemoryEntityStore<ID> store) {
+        WriteAheadLog log = this.log;
+        if (null != log) {
+            store.attach(log);
+        }
+        return null == stores.putIfAbsent(store.getDomainClass(), store);
+    }
+
+    /**
+     * Logs every subsequent change of the tables, including tables added later on, to the given log.
+     */
+    void attach(WriteAheadLog log) {
+        this.log = log;
+        getTables().values().forEach(table -> table.attach(log));
     }
 
     @Override
     public void store(Object entity) {
         EntityStore store = getTable(entity);
-        store.store(entity);
+        ChangeSet changes = currentChanges(store);
+        if (null == changes) {
+            store.store(entity);
+            return;
+        }
+
+        InMemoryEntityStore<?> table = (InMemoryEntityStore<?>) store;
+        validateIsNew(changes, table, entity);
+        stage(changes, table, entity);
+    }
+
+    @Override
+    public void storeAll(Collection<?> entities) {
+        if (!entities.isEmpty()) {
+            EntityStore store = getTable(entities.iterator().next());
+            ChangeSet changes = currentChanges(store);
+            if (null == changes) {
+                store.storeAll(entities);
+                return;
+            }
+
+            InMemoryEntityStore<?> table = (InMemoryEntityStore<?>) store;
+            validateIsEntity(table, entities);
+            entities.forEach(entity -> validateIsNew(changes, table, entity));
+            entities.forEach(entity -> stage(changes, table, entity));
+        }
+    }
+
+    private void validateIsEntity(InMemoryEntityStore<?> table, Collection<?> entities) {
+        for (Object entity : entities) {
+            if (getTable(entity) != table) {
+                throw new IllegalArgumentException(
+                    String.format(
+                        "[%s] is not an entity of type [%s]",
+                        entity.getClass().getCanonicalName(),
+                        table.getDomainClass().getSimpleName()
+                    )
+                );
+            }
+        }
+    }
+
+    private static void validateIsNew(ChangeSet changes, InMemoryEntityStore<?> table, Object entity) {
+        if (contains(changes, table, entity)) {
+            throw new EntityExistsException(
+                String.format(
+                    "Store already contains entity of type [%s] with the same ID",
+                    entity.getClass().getCanonicalName()
+                )
+            );
+        }
+    }
+
+    private static void stage(ChangeSet changes, InMemoryEntityStore<?> table, Object entity) {
+        IdUtils.setId(entity, table.nextId());
+        changes.put(table, entity);
     }
 
     @Override
     public <T> T merge(T entity) {
         EntityStore store = getTable(entity);
-        return store.merge(entity);
+        ChangeSet changes = currentChanges(store);
+        if (null == changes) {
+            return store.merge(entity);
+        }
+
+        changes.put((InMemoryEntityStore<?>) store, validateIsMergeable(entity));
+        return entity;
+    }
+
+    @Override
+    public void mergeAll(Collection<?> entities) {
+        if (!entities.isEmpty()) {
+            EntityStore store = getTable(entities.iterator().next());
+            ChangeSet changes = currentChanges(store);
+            if (null == changes) {
+                store.mergeAll(entities);
+                return;
+            }
+
+            InMemoryEntityStore<?> table = (InMemoryEntityStore<?>) store;
+            validateIsEntity(table, entities);
+            entities.forEach(InMemoryEntityTableStore::validateIsMergeable);
+            entities.forEach(entity -> changes.put(table, entity));
+        }
+    }
+
+    private static Object validateIsMergeable(Object entity) {
+        if (null == IdUtils.getId(entity)) {
+            throw new IllegalArgumentException(
+                String.format("Entity of type [%s] has no ID", entity.getClass().getCanonicalName())
+            );
+        }
+
+        return entity;
     }
 
     @Override
     public <T> T find(Class<T> entityClass, Object primaryKey) {
         EntityStore store = getTable(entityClass);
-        return store.find(entityClass, primaryKey);
+        ChangeSet.TableChanges changes = changesOf(store);
+        return null != changes && null != primaryKey && changes.isChanged(primaryKey)
+            ? changes.find(entityClass, primaryKey)
+            : read(store, store.find(entityClass, primaryKey));
     }
 
     @Override
     public <T> Stream<T> findAll(Class<T> entityClass) {
         EntityStore store = getTable(entityClass);
-        return store.findAll(entityClass);
+        ChangeSet.TableChanges changes = changesOf(store);
+        return read(store, null == changes ? store.findAll(entityClass) : changes.findAll(entityClass));
+    }
+
+    @Override
+    public long count(Class<?> entityClass) {
+        EntityStore store = getTable(entityClass);
+        ChangeSet.TableChanges changes = changesOf(store);
+        return null == changes ? store.count(entityClass) : changes.count(entityClass);
+    }
+
+    @Override
+    public long countBy(Class<?> entityClass, String propertyName, Object value) {
+        EntityStore store = getTable(entityClass);
+        ChangeSet.TableChanges changes = changesOf(store);
+        return null == changes
+            ? store.countBy(entityClass, propertyName, value)
+            : changes.countBy(entityClass, propertyName, value);
+    }
+
+    @Override
+    public <T> Stream<T> findAllBy(Class<T> entityClass, String propertyName, Object value) {
+        EntityStore store = getTable(entityClass);
+        ChangeSet.TableChanges changes = changesOf(store);
+        return read(store, null == changes
+            ? store.findAllBy(entityClass, propertyName, value)
+            : changes.findAllBy(entityClass, propertyName, value));
+    }
+
+    @Override
+    public <T> Stream<T> findAllInRange(Class<T> entityClass, String propertyName, Range<?> range,
+                                        Sort.Direction direction) {
+        EntityStore store = getTable(entityClass);
+        ChangeSet.TableChanges changes = changesOf(store);
+        return read(store, null == changes
+            ? store.findAllInRange(entityClass, propertyName, range, direction)
+            : changes.findAllInRange(entityClass, propertyName, range, direction));
+    }
+
+    @Override
+    public <T> Stream<T> findAllOrderedBy(Class<T> entityClass, String propertyName, Sort.Direction direction) {
+        EntityStore store = getTable(entityClass);
+        ChangeSet.TableChanges changes = changesOf(store);
+        return read(store, null == changes
+            ? store.findAllOrderedBy(entityClass, propertyName, direction)
+            : changes.findAllOrderedBy(entityClass, propertyName, direction));
+    }
+
+    @Override
+    public Optional<IndexType> getIndexType(Class<?> entityClass, String propertyName) {
+        EntityStore store = getTable(entityClass);
+        return store.getIndexType(entityClass, propertyName);
     }
 
     @Override
     public void remove(Object entity) {
         EntityStore store = getTable(entity);
-        store.remove(entity);
+        ChangeSet changes = currentChanges(store);
+        if (null == changes) {
+            store.remove(entity);
+            return;
+        }
+
+        InMemoryEntityStore<?> table = (InMemoryEntityStore<?>) store;
+        if (!contains(changes, table, entity)) {
+            throw new IllegalArgumentException(
+                String.format("Store doesn't contain such entity of type [%s]", entity.getClass().getCanonicalName())
+            );
+        }
+
+        changes.remove(table, entity);
+    }
+
+    @Override
+    public void removeAll(Collection<?> entities) {
+        if (!entities.isEmpty()) {
+            EntityStore store = getTable(entities.iterator().next());
+            ChangeSet changes = currentChanges(store);
+            if (null == changes) {
+                store.removeAll(entities);
+                return;
+            }
+
+            InMemoryEntityStore<?> table = (InMemoryEntityStore<?>) store;
+            validateIsEntity(table, entities);
+            for (Object entity : entities) {
+                if (null != IdUtils.getId(entity)) {
+                    changes.remove(table, entity);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear(Class<?> entityClass) {
+        EntityStore store = getTable(entityClass);
+        ChangeSet changes = currentChanges(store);
+        if (null == changes) {
+            store.clear(entityClass);
+            return;
+        }
+
+        changes.clear((InMemoryEntityStore<?>) store);
     }
 
     @Override
     public boolean contains(Object entity) {
         EntityStore store = getTable(entity);
-        return store.contains(entity);
+        ChangeSet changes = currentChanges(store);
+        return null == changes
+            ? store.contains(entity)
+            : contains(changes, (InMemoryEntityStore<?>) store, entity);
+    }
+
+    private static boolean contains(ChangeSet changes, InMemoryEntityStore<?> table, Object entity) {
+        ChangeSet.TableChanges tableChanges = changes.get(table);
+        return null == tableChanges ? table.contains(entity) : tableChanges.contains(entity);
+    }
+
+    /**
+     * Returns the change set of the transaction bound to the current thread or {@literal null} if there's none or the
+     * given table isn't transactional.
+     */
+    @Nullable
+    private ChangeSet currentChanges(EntityStore store) {
+        if (!(store instanceof InMemoryEntityStore)) {
+            return null;
+        }
+
+        return (ChangeSet) TransactionSynchronizationManager.getResource(this);
+    }
+
+    /**
+     * Passes the given entity read from the given table to the change set of the current transaction, if any, which
+     * retains a copy of it if the table shares its entities with the application.
+     */
+    @Nullable
+    private <T> T read(EntityStore store, @Nullable T entity) {
+        ChangeSet changes = currentChanges(store);
+        return null == changes ? entity : changes.read((InMemoryEntityStore<?>) store, entity);
+    }
+
+    private <T> Stream<T> read(EntityStore store, Stream<T> entities) {
+        ChangeSet changes = currentChanges(store);
+        if (null == changes) {
+            return entities;
+        }
+
+        InMemoryEntityStore<?> table = (InMemoryEntityStore<?>) store;
+        return entities.map(entity -> changes.read(table, entity));
+    }
+
+    @Nullable
+    private ChangeSet.TableChanges changesOf(EntityStore store) {
+        ChangeSet changes = currentChanges(store);
+        return null == changes ? null : changes.get((InMemoryEntityStore<?>) store);
+    }
+
+    /**
+     * Applies the given change set. Commits are serialized with each other and hold the tables they change exclusively,
+     * so that no other write interleaves with them, and the changes of a commit are logged as a single batch, which is
+     * replayed either as a whole or not at all. Readers may still observe a commit in progress on tables other than
+     * {@link de.vinado.spring.data.inmemory.repository.config.StoreMode#MULTI_VERSION multi-version} ones, which
+     * publish all changes of a commit at once. Empty change sets, e.g. of read-only transactions, are ignored without
+     * taking any lock.
+     *
+     * @throws RuntimeException in case an operation fails or the changes couldn't be logged, after the operations
+     *                          applied have been undone
+     */
+    void commit(ChangeSet changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        WriteAheadLog log = this.log;
+        commitLock.lock();
+        try {
+            List<InMemoryEntityStore<?>> tables = new ArrayList<>(changes.getTables());
+            tables.sort(Comparator.comparing(table -> table.getDomainClass().getName()));
+            tables.forEach(InMemoryEntityStore::beginCommit);
+            try {
+                long stamp = null == log ? 0 : log.beginBatch();
+                try {
+                    changes.apply(null == log ? () -> {
+                    } : log::appendBatch);
+                } finally {
+                    if (null != log) {
+                        log.endBatch(stamp);
+                    }
+                }
+            } finally {
+                for (int index = tables.size() - 1; index >= 0; index--) {
+                    tables.get(index).endCommit();
+                }
+            }
+        } finally {
+            commitLock.unlock();
+        }
+
+        if (null != log) {
+            log.sync();
+        }
+    }
+
+    /**
+     * Writes all tables to the given file, compressing each table. See {@link #writeSnapshot(Path, SnapshotFormat)}.
+     *
+     * @param file must not be {@literal null}
+     * @throws IOException in case the file can't be written
+     */
+    public void writeSnapshot(@NonNull Path file) throws IOException {
+        writeSnapshot(file, SnapshotFormat.COMPRESSED);
+    }
+
+    /**
+     * Writes all tables to the given file, either compressed or plain. See
+     * {@link #writeSnapshot(Path, SnapshotFormat)}.
+     *
+     * @param file     must not be {@literal null}
+     * @param compress whether to compress the tables
+     * @throws IOException in case the file can't be written
+     */
+    public void writeSnapshot(@NonNull Path file, boolean compress) throws IOException {
+        writeSnapshot(file, compress ? SnapshotFormat.COMPRESSED : SnapshotFormat.PLAIN);
+    }
+
+    /**
+     * Writes all tables to the given file, streaming one table after the other. The file is replaced atomically once
+     * it is complete. Tables operated in {@link de.vinado.spring.data.inmemory.repository.config.StoreMode#SIMPLE
+     * simple mode} aren't thread-safe, hence their writers are blocked while the table is written. Other tables don't
+     * block their writers: tables operated in {@link
+     * de.vinado.spring.data.inmemory.repository.config.StoreMode#CONCURRENT concurrent mode} are traversed weakly
+     * consistent, hence each row is either included as of before or after a concurrent change, and
+     * {@link de.vinado.spring.data.inmemory.repository.config.StoreMode#MULTI_VERSION multi-version} tables are
+     * written as of the version published when the table is reached.
+     *
+     * @param file   must not be {@literal null}
+     * @param format must not be {@literal null}
+     * @throws IOException in case the file can't be written
+     */
+    public void writeSnapshot(@NonNull Path file, @NonNull SnapshotFormat format) throws IOException {
+        SnapshotFile.write(file, getTables().values(), format);
+        lastSnapshot = Instant.now();
+    }
+
+    /**
+     * Returns when the latest snapshot has been written completely, including snapshots taken as checkpoints of a
+     * {@link WriteAheadLog}, or nothing if none has been written since the store has been created.
+     */
+    public Optional<Instant> getLastSnapshot() {
+        return Optional.ofNullable(lastSnapshot);
+    }
+
+    /**
+     * Reads the tables from the given file, one thread per table and processor at most. See
+     * {@link #readSnapshot(Path, Executor)}.
+     *
+     * @param file must not be {@literal null}
+     * @throws IOException in case the file can't be read
+     */
+    public void readSnapshot(@NonNull Path file) throws IOException {
+        int threads = Math.max(1, Math.min(stores.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            readSnapshot(file, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Replaces the content of the tables by the one read from the given file, reading the tables in parallel on the
+     * given executor. Primary key sequences are advanced past the last key generated before the snapshot was taken.
+     * Tables in the file not managed by this store are skipped, tables not in the file are left untouched. Tables of a
+     * {@link SnapshotFormat#MAPPED mapped} snapshot are memory-mapped instead of read.
+     *
+     * @param file     must not be {@literal null}
+     * @param executor must not be {@literal null}
+     * @throws IOException in case the file can't be read
+     */
+    public void readSnapshot(@NonNull Path file, @NonNull Executor executor) throws IOException {
+        SnapshotFile.read(file, getTables(), executor);
+    }
+
+    /**
+     * Returns the tables kept in memory by their domain class's fully qualified name. Tables added later on aren't
+     * reflected by the returned map.
+     *
+     * @return a new map of the tables
+     */
+    public Map<String, InMemoryEntityStore<?>> getTables() {
+        Map<String, InMemoryEntityStore<?>> tables = new LinkedHashMap<>();
+        for (EntityStore store : stores.values()) {
+            if (store instanceof InMemoryEntityStore) {
+                InMemoryEntityStore<?> table = (InMemoryEntityStore<?>) store;
+                tables.put(table.getDomainClass().getName(), table);
+            }
+        }
+        return tables;
     }
 
     private EntityStore getTable(Object entity) {
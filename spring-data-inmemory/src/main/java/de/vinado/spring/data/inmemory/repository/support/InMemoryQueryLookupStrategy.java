@@ -0,0 +1,35 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.repository.core.NamedQueries;
+import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.data.repository.query.QueryLookupStrategy;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link QueryLookupStrategy} which derives queries from the names of query methods.
+ *
+ * @author Vincent Nadoll
+ * @see PartTreeInMemoryQuery
+ */
+@RequiredArgsConstructor
+class InMemoryQueryLookupStrategy implements QueryLookupStrategy {
+
+    private final EntityStore entityStore;
+
+    @Nullable
+    private final QueryStatistics statistics;
+
+    @Override
+    public RepositoryQuery resolveQuery(Method method, RepositoryMetadata metadata, ProjectionFactory factory,
+                                        NamedQueries namedQueries) {
+        QueryMethod queryMethod = new QueryMethod(method, metadata, factory);
+        return new PartTreeInMemoryQuery(queryMethod, entityStore, statistics);
+    }
+}
@@ -6,19 +6,26 @@ import de.vinado.spring.data.domain.PrimaryKeyGenerator;
 import de.vinado.spring.data.inmemory.repository.EntityStore;
 import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
 import de.vinado.spring.data.inmemory.repository.config.IdentifierMapping;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.inmemory.repository.config.TableMapping;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import org.springframework.beans.BeanUtils;
 import org.springframework.data.repository.core.EntityInformation;
 import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.data.repository.query.QueryLookupStrategy;
+import org.springframework.data.repository.query.QueryMethodEvaluationContextProvider;
 import org.springframework.data.util.ReflectionUtils;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
 import java.util.Optional;
 
 /**
- * In-memory generic repository factory which instantiates {@link InMemoryRepository}s via reflection.
+ * In-memory generic repository factory which instantiates {@link InMemoryRepository}s via reflection. Query methods
+ * are derived from their names.
  *
  * @author Vincent Nadoll
  */
@@ -27,6 +34,14 @@ public class InMemoryRepositoryFactory extends RepositoryFactorySupport {
 
     private final EntityStore entityStore;
     private final IdentifierMapping identifierMapping;
+    private final TableMapping tableMapping;
+
+    /**
+     * Statistics to record the executions of queries in, or {@literal null} to record none.
+     */
+    @Setter
+    @Nullable
+    private QueryStatistics queryStatistics;
 
     @Override
     @SuppressWarnings("unchecked")
@@ -36,9 +51,36 @@ public class InMemoryRepositoryFactory extends RepositoryFactorySupport {
 
     @Override
     protected InMemoryRepository<?, ?> getTargetRepository(RepositoryInformation metadata) {
-        Class<?> domainType = metadata.getDomainType();
-        InMemoryEntityInformation<?, ?> entityInformation = getEntityInformation(domainType);
+        InMemoryEntityInformation<?, ?> entityInformation = getEntityInformation(metadata.getDomainType());
+        addTable(entityStore, entityInformation, identifierMapping, tableMapping);
+
+        Object repository = getTargetRepositoryViaReflection(metadata, entityInformation, entityStore);
+        Assert.isInstanceOf(InMemoryRepository.class, repository);
+        if (repository instanceof SimpleInMemoryRepository) {
+            ((SimpleInMemoryRepository<?, ?>) repository).setQueryStatistics(queryStatistics);
+        }
+
+        return (InMemoryRepository<?, ?>) repository;
+    }
+
+    /**
+     * Adds the table of the given entity to the entity store, if it's an {@link InMemoryEntityTableStore} without a
+     * table of the entity yet. The table's primary keys are drawn from the generator mapped to the entity's ID type or,
+     * lacking one, from a new instance of the ID type.
+     */
+    static void addTable(EntityStore entityStore, InMemoryEntityInformation<?, ?> entityInformation,
+                         @Nullable IdentifierMapping identifierMapping, @Nullable TableMapping tableMapping) {
+        addTable(entityStore, entityInformation, identifierMapping,
+            getDefinition(entityInformation.getJavaType(), tableMapping));
+    }
 
+    /**
+     * Adds the table of the given entity set up according to the given definition to the entity store, if it's an
+     * {@link InMemoryEntityTableStore} without a table of the entity yet.
+     */
+    static void addTable(EntityStore entityStore, InMemoryEntityInformation<?, ?> entityInformation,
+                         @Nullable IdentifierMapping identifierMapping, TableDefinition definition) {
+        Class<?> domainType = entityInformation.getJavaType();
         PrimaryKeyGenerator<?> generator = null;
         if (null != identifierMapping) {
             generator = identifierMapping.get().get(entityInformation.getIdType());
@@ -49,13 +91,17 @@ public class InMemoryRepositoryFactory extends RepositoryFactorySupport {
         }
 
         if (entityStore instanceof InMemoryEntityTableStore) {
-            ((InMemoryEntityTableStore) entityStore).add(new InMemoryEntityStore<>(domainType, generator));
+            ((InMemoryEntityTableStore) entityStore).add(
+                new InMemoryEntityStore<>(domainType, generator, definition)
+            );
         }
+    }
 
-        Object repository = getTargetRepositoryViaReflection(metadata, entityInformation, entityStore);
-        Assert.isInstanceOf(InMemoryRepository.class, repository);
-
-        return (InMemoryRepository<?, ?>) repository;
+    /**
+     * Returns the definition of the given domain class's table, falling back to the default definition.
+     */
+    static TableDefinition getDefinition(Class<?> domainType, @Nullable TableMapping tableMapping) {
+        return null == tableMapping ? TableDefinition.DEFAULT : tableMapping.getDefinition(domainType);
     }
 
     @Override
@@ -63,14 +109,21 @@ public class InMemoryRepositoryFactory extends RepositoryFactorySupport {
         return SimpleInMemoryRepository.class;
     }
 
+    @Override
+    protected Optional<QueryLookupStrategy> getQueryLookupStrategy(QueryLookupStrategy.Key key,
+                                                                   QueryMethodEvaluationContextProvider provider) {
+        return Optional.of(new InMemoryQueryLookupStrategy(entityStore, queryStatistics));
+    }
+
     @RequiredArgsConstructor
-    private class DefaultConstructorIdentifierGenerator<ID extends Identifier> implements IdentifierGenerator<ID> {
+    private static class DefaultConstructorIdentifierGenerator<ID extends Identifier>
+        implements IdentifierGenerator<ID> {
 
         private final Class<?> domainEntity;
 
         @Override
         public ID createIdentifier() {
-            EntityInformation<?, ID> entityInformation = getEntityInformation(domainEntity);
+            EntityInformation<?, ?> entityInformation = InMemoryEntityInformation.getEntityInformation(domainEntity);
             return getEntityIdentifierViaReflection(entityInformation.getIdType())
                 .orElseThrow(() -> new IllegalStateException(
                     "No suitable constructor found to instantiate a new identifier generator"
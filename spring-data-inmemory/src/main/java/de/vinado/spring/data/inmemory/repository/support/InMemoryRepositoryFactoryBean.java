@@ -2,6 +2,7 @@ package de.vinado.spring.data.inmemory.repository.support;
 
 import de.vinado.spring.data.inmemory.repository.EntityStore;
 import de.vinado.spring.data.inmemory.repository.config.IdentifierMapping;
+import de.vinado.spring.data.inmemory.repository.config.TableMapping;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.repository.Repository;
@@ -27,6 +28,12 @@ public class InMemoryRepositoryFactoryBean<T extends Repository<S, ID>, S, ID>
     @Setter(onMethod_ = @Autowired(required = false))
     private IdentifierMapping identifierMapping;
 
+    @Setter(onMethod_ = @Autowired(required = false))
+    private TableMapping tableMapping;
+
+    @Setter(onMethod_ = @Autowired(required = false))
+    private QueryStatistics queryStatistics;
+
     /**
      * Creates a new {@link RepositoryFactoryBeanSupport} for the given repository interface.
      *
@@ -39,7 +46,9 @@ public class InMemoryRepositoryFactoryBean<T extends Repository<S, ID>, S, ID>
     @Override
     protected RepositoryFactorySupport createRepositoryFactory() {
         Assert.notNull(entityStore, "Entity manager must not be null");
-        return new InMemoryRepositoryFactory(entityStore, identifierMapping);
+        InMemoryRepositoryFactory factory = new InMemoryRepositoryFactory(entityStore, identifierMapping, tableMapping);
+        factory.setQueryStatistics(queryStatistics);
+        return factory;
     }
 
     @Override
@@ -0,0 +1,117 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link org.springframework.transaction.PlatformTransactionManager} for the tables of an
+ * {@link InMemoryEntityTableStore}. Each transaction binds a {@link ChangeSet} to the current thread, which buffers
+ * the transaction's changes across all tables until they are applied on commit or discarded on rollback.
+ *
+ * <p>Reads within a transaction see the tables' latest committed state with the transaction's own changes on top. A
+ * commit is atomic in that it either applies all changes or, if one of them fails, e.g. by violating a unique index,
+ * undoes the ones already applied. Commits are serialized with each other and exclude other writes to the tables they
+ * change, while read-only transactions and transactions without changes commit without any lock. Committed changes
+ * become visible to other threads at once on multi-version tables and one by one on others. Nested transactions
+ * aren't supported.
+ *
+ * <p>A table with {@link de.vinado.spring.data.inmemory.repository.config.CopyMode#NONE no copy mode} hands out the
+ * very instances it stores, so that changing one in place changes the table right away, bypassing the transaction. A
+ * transaction other than a read-only one hence retains a copy of every entity it reads from such a table and restores
+ * it on rollback, unless the entity has been replaced since. Changes made in place become visible to other threads
+ * before the transaction commits, and changes made to instances read before the transaction began can't be undone;
+ * tables written within transactions should therefore copy their entities or be stored off-heap.
+ *
+ * @author Vincent Nadoll
+ */
+public class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+    private final transient InMemoryEntityTableStore store;
+
+    /**
+     * Creates a new transaction manager for the given store.
+     *
+     * @param store must not be {@literal null}
+     */
+    public InMemoryTransactionManager(@NonNull InMemoryEntityTableStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new TransactionObject((ChangeSet) TransactionSynchronizationManager.getResource(store));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return null != ((TransactionObject) transaction).changes;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        ChangeSet changes = new ChangeSet(definition.isReadOnly());
+        ((TransactionObject) transaction).changes = changes;
+        TransactionSynchronizationManager.bindResource(store, changes);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((TransactionObject) transaction).changes = null;
+        return TransactionSynchronizationManager.unbindResource(store);
+    }
+
+    @Override
+    protected void doResume(@Nullable Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(store, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        store.commit(((TransactionObject) status.getTransaction()).changes);
+    }
+
+    /**
+     * Discards the transaction's changes, which haven't been applied to any table, and restores the entities changed in
+     * place.
+     */
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        ((TransactionObject) status.getTransaction()).changes.restore();
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        ((TransactionObject) status.getTransaction()).changes.setRollbackOnly();
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        TransactionSynchronizationManager.unbindResource(store);
+    }
+
+    /**
+     * Holds the change set of the current transaction, if any.
+     */
+    private static final class TransactionObject implements SmartTransactionObject {
+
+        private ChangeSet changes;
+
+        private TransactionObject(@Nullable ChangeSet changes) {
+            this.changes = changes;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return changes.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.support.EntityStoreObserver.Operation;
+import lombok.NonNull;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * An {@link InMemoryEntityTableStore} reporting the duration of every successful operation, the tables added and
+ * whether queries on properties are answered through secondary indexes to an {@link EntityStoreObserver}. Stores
+ * without an observer should be plain {@link InMemoryEntityTableStore InMemoryEntityTableStores}, so that they don't
+ * pay for the instrumentation.
+ *
+ * @author Vincent Nadoll
+ */
+public class InstrumentedEntityTableStore extends InMemoryEntityTableStore {
+
+    private final EntityStoreObserver observer;
+
+    public InstrumentedEntityTableStore(@NonNull EntityStoreObserver observer) {
+        this(new ConcurrentHashMap<>(), observer);
+    }
+
+    public InstrumentedEntityTableStore(Map<Class<?>, EntityStore> stores,
+                                        @NonNull EntityStoreObserver observer) {
+        super(stores);
+        this.observer = observer;
+    }
+
+    @Override
+    <ID> boolean add(@NonNull InMemoryEntityStore<ID> store) {
+        store.observe(observer);
+        boolean added = super.add(store);
+        if (added) {
+            observer.onTableAdded(store.getDomainClass(), store);
+        }
+        return added;
+    }
+
+    @Override
+    public void store(Object entity) {
+        long start = System.nanoTime();
+        super.store(entity);
+        record(entity.getClass(), Operation.STORE, start);
+    }
+
+    @Override
+    public void storeAll(Collection<?> entities) {
+        long start = System.nanoTime();
+        super.storeAll(entities);
+        record(entities, Operation.STORE_ALL, start);
+    }
+
+    @Override
+    public <T> T merge(T entity) {
+        long start = System.nanoTime();
+        T merged = super.merge(entity);
+        record(entity.getClass(), Operation.MERGE, start);
+        return merged;
+    }
+
+    @Override
+    public void mergeAll(Collection<?> entities) {
+        long start = System.nanoTime();
+        super.mergeAll(entities);
+        record(entities, Operation.MERGE_ALL, start);
+    }
+
+    @Override
+    public <T> T find(Class<T> entityClass, Object primaryKey) {
+        long start = System.nanoTime();
+        T entity = super.find(entityClass, primaryKey);
+        record(entityClass, Operation.FIND, start);
+        return entity;
+    }
+
+    @Override
+    public <T> Stream<T> findAll(Class<T> entityClass) {
+        long start = System.nanoTime();
+        Stream<T> entities = super.findAll(entityClass);
+        record(entityClass, Operation.FIND_ALL, start);
+        return entities;
+    }
+
+    @Override
+    public long count(Class<?> entityClass) {
+        long start = System.nanoTime();
+        long count = super.count(entityClass);
+        record(entityClass, Operation.COUNT, start);
+        return count;
+    }
+
+    @Override
+    public long countBy(Class<?> entityClass, String propertyName, @Nullable Object value) {
+        long start = System.nanoTime();
+        long count = super.countBy(entityClass, propertyName, value);
+        record(entityClass, Operation.QUERY, start);
+        return count;
+    }
+
+    @Override
+    public <T> Stream<T> findAllBy(Class<T> entityClass, String propertyName, @Nullable Object value) {
+        long start = System.nanoTime();
+        Stream<T> entities = super.findAllBy(entityClass, propertyName, value);
+        record(entityClass, Operation.QUERY, start);
+        return entities;
+    }
+
+    @Override
+    public <T> Stream<T> findAllInRange(Class<T> entityClass, String propertyName, Range<?> range,
+                                        Sort.Direction direction) {
+        long start = System.nanoTime();
+        Stream<T> entities = super.findAllInRange(entityClass, propertyName, range, direction);
+        record(entityClass, Operation.QUERY, start);
+        return entities;
+    }
+
+    @Override
+    public <T> Stream<T> findAllOrderedBy(Class<T> entityClass, String propertyName, Sort.Direction direction) {
+        long start = System.nanoTime();
+        Stream<T> entities = super.findAllOrderedBy(entityClass, propertyName, direction);
+        record(entityClass, Operation.QUERY, start);
+        return entities;
+    }
+
+    @Override
+    public void remove(Object entity) {
+        long start = System.nanoTime();
+        super.remove(entity);
+        record(entity.getClass(), Operation.REMOVE, start);
+    }
+
+    @Override
+    public void removeAll(Collection<?> entities) {
+        long start = System.nanoTime();
+        super.removeAll(entities);
+        record(entities, Operation.REMOVE_ALL, start);
+    }
+
+    @Override
+    public void clear(Class<?> entityClass) {
+        long start = System.nanoTime();
+        super.clear(entityClass);
+        record(entityClass, Operation.CLEAR, start);
+    }
+
+    @Override
+    public boolean contains(Object entity) {
+        long start = System.nanoTime();
+        boolean contained = super.contains(entity);
+        record(entity.getClass(), Operation.CONTAINS, start);
+        return contained;
+    }
+
+    private void record(Collection<?> entities, Operation operation, long start) {
+        if (!entities.isEmpty()) {
+            record(entities.iterator().next().getClass(), operation, start);
+        }
+    }
+
+    private void record(Class<?> entityClass, Operation operation, long start) {
+        observer.onOperation(ClassUtils.getUserClass(entityClass), operation, System.nanoTime() - start);
+    }
+}
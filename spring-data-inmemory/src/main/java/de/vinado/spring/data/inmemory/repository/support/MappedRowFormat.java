@@ -0,0 +1,55 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.EntityCodec;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Serves entities straight from a memory-mapped snapshot section, whose rows are the positions of the encoded entities
+ * within the section. Rows are decoded anew whenever they are read. The format is read-only: a table must be loaded
+ * into memory before it's written to.
+ *
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+final class MappedRowFormat implements RowFormat {
+
+    private final ByteBuffer section;
+
+    private final EntityCodec codec;
+
+    @Override
+    public Object encode(Object entity) {
+        throw new UnsupportedOperationException("Rows of a mapped snapshot are read-only");
+    }
+
+    @Override
+    public Object decode(Object row) {
+        int position = (Integer) row;
+        int length = section.getInt(position);
+        ByteBuffer view = section.duplicate();
+        ((Buffer) view).position(position + Integer.BYTES);
+        ((Buffer) view).limit(position + Integer.BYTES + length);
+        return codec.decode(view.slice());
+    }
+
+    @Override
+    public void release(Object row) {
+    }
+
+    @Override
+    public <ID> Object read(Map<ID, Object> rows, ID id) {
+        Object row = rows.get(id);
+        return null == row ? null : decode(row);
+    }
+
+    @Override
+    public <ID> Stream<Object> readAll(Map<ID, Object> rows) {
+        return rows.values().stream()
+            .map(this::decode);
+    }
+}
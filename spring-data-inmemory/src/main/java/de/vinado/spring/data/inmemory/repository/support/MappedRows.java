@@ -0,0 +1,179 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.springframework.lang.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * A read-only map of integral primary keys to the positions of their rows within a memory-mapped snapshot section. The
+ * keys are looked up in an open-addressing table with linear probing, which lies in the mapping itself, so that opening
+ * the map takes constant time regardless of the number of rows. Each slot holds a {@literal long} key and an
+ * {@literal int} position, zero marking an empty slot.
+ *
+ * @param <K> the type of the keys
+ * @author Vincent Nadoll
+ */
+final class MappedRows<K extends Number> extends AbstractMap<K, Object> {
+
+    static final int SLOT_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final ByteBuffer slots;
+
+    private final int capacity;
+
+    private final int shift;
+
+    private final int size;
+
+    private final Class<K> keyType;
+
+    private final LongFunction<K> boxer;
+
+    /**
+     * Creates a new map of the given slots.
+     *
+     * @param slots    the slots, starting at position zero
+     * @param capacity the number of slots, a power of two
+     * @param size     the number of occupied slots
+     * @param keyType  the type of the keys
+     * @param boxer    the function turning a primitive key back into a key object
+     */
+    MappedRows(ByteBuffer slots, int capacity, int size, Class<K> keyType, LongFunction<K> boxer) {
+        this.slots = slots;
+        this.capacity = capacity;
+        this.shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        this.size = size;
+        this.keyType = keyType;
+        this.boxer = boxer;
+    }
+
+    /**
+     * Returns the slot the key is stored at or probed from, the same way the table was laid out by
+     * {@link #layout(long[], int[], int, ByteBuffer)}.
+     */
+    private static int home(long key, int shift) {
+        return (int) (PrimitiveKeyMap.mix(key) >>> shift);
+    }
+
+    /**
+     * Lays out the given keys and positions as a table of slots. A key given twice takes the later position.
+     *
+     * @param keys      the primary keys
+     * @param positions the positions of the rows, each greater than zero
+     * @param size      the number of keys
+     * @param slots     the empty slots, {@link #capacityFor(int)} many
+     * @return the number of distinct keys
+     */
+    static int layout(long[] keys, int[] positions, int size, ByteBuffer slots) {
+        int capacity = slots.capacity() / SLOT_SIZE;
+        int shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        int occupied = 0;
+        for (int index = 0; index < size; index++) {
+            int slot = home(keys[index], shift);
+            while (0 != slots.getInt(slot * SLOT_SIZE + Long.BYTES)
+                && keys[index] != slots.getLong(slot * SLOT_SIZE)) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (0 == slots.getInt(slot * SLOT_SIZE + Long.BYTES)) {
+                occupied++;
+            }
+            slots.putLong(slot * SLOT_SIZE, keys[index]);
+            slots.putInt(slot * SLOT_SIZE + Long.BYTES, positions[index]);
+        }
+        return occupied;
+    }
+
+    /**
+     * Returns the number of slots of a table holding the given number of keys, which is at most half full.
+     */
+    static int capacityFor(int size) {
+        return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return null != get(key);
+    }
+
+    /**
+     * Returns the position of the key's row or {@literal null} if the key isn't contained.
+     */
+    @Override
+    @Nullable
+    public Object get(Object key) {
+        if (!keyType.isInstance(key)) {
+            return null;
+        }
+
+        long primitive = ((Number) key).longValue();
+        for (int slot = home(primitive, shift); ; slot = (slot + 1) & (capacity - 1)) {
+            int position = slots.getInt(slot * SLOT_SIZE + Long.BYTES);
+            if (0 == position) {
+                return null;
+            }
+            if (primitive == slots.getLong(slot * SLOT_SIZE)) {
+                return position;
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<K, Object>> entrySet() {
+        return new AbstractSet<Entry<K, Object>>() {
+
+            @Override
+            public Iterator<Entry<K, Object>> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates the occupied slots in the order of the table.
+     */
+    private final class SlotIterator implements Iterator<Entry<K, Object>> {
+
+        private int slot = advance(0);
+
+        private int advance(int from) {
+            int next = from;
+            while (next < capacity && 0 == slots.getInt(next * SLOT_SIZE + Long.BYTES)) {
+                next++;
+            }
+            return next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < capacity;
+        }
+
+        @Override
+        public Entry<K, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Entry<K, Object> entry = new SimpleImmutableEntry<>(boxer.apply(slots.getLong(slot * SLOT_SIZE)),
+                slots.getInt(slot * SLOT_SIZE + Long.BYTES));
+            slot = advance(slot + 1);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps records in direct memory, outside of the heap. Records are stored in slots of fixed size classes, two per power
+ * of two, so that a slot wastes at most a third of its size. Slots are carved from chunks of direct memory, are
+ * reused once they've been freed and are addressed by a {@literal long} handle. Chunks are never returned to the
+ * operating system before the arena itself becomes unreachable.
+ *
+ * <p>The arena is thread-safe. A handle read while it's being freed or reused yields garbage or fails, so such a read
+ * has to be validated by the caller.
+ *
+ * @author Vincent Nadoll
+ */
+final class OffHeapArena {
+
+    private static final int HEADER = Integer.BYTES;
+    private static final int MIN_SLOT = 16;
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int SIZE_CLASSES = 2 * (Integer.SIZE - 1 - Integer.numberOfTrailingZeros(MIN_SLOT)) - 1;
+
+    private final SizeClass[] sizeClasses = new SizeClass[SIZE_CLASSES];
+
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    OffHeapArena() {
+        for (int index = 0; index < SIZE_CLASSES; index++) {
+            int power = MIN_SLOT << (index >> 1);
+            sizeClasses[index] = new SizeClass(index, 0 == (index & 1) ? power : power + (power >> 1));
+        }
+    }
+
+    /**
+     * Copies the record into direct memory.
+     *
+     * @return the record's handle
+     * @throws IllegalArgumentException in case the record is too large
+     */
+    long allocate(byte[] record) {
+        long handle = sizeClassOf(HEADER + record.length).allocate();
+        ByteBuffer slot = slot(handle);
+        slot.putInt(record.length);
+        slot.put(record);
+        return handle;
+    }
+
+    /**
+     * Returns a read-only view of the record.
+     */
+    ByteBuffer read(long handle) {
+        ByteBuffer slot = slot(handle);
+        int length = slot.getInt();
+        ((Buffer) slot).limit(slot.position() + length);
+        return slot.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Frees the record's slot for reuse.
+     */
+    void free(long handle) {
+        sizeClasses[(int) (handle >>> 56)].free(handle);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory reserved by the arena.
+     */
+    long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    private SizeClass sizeClassOf(int size) {
+        for (SizeClass sizeClass : sizeClasses) {
+            if (size <= sizeClass.slotSize) {
+                return sizeClass;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Record of %d bytes exceeds the arena's limit", size));
+    }
+
+    private ByteBuffer slot(long handle) {
+        SizeClass sizeClass = sizeClasses[(int) (handle >>> 56)];
+        ByteBuffer chunk = sizeClass.chunks[(int) (handle >>> 32) & 0xFFFFFF];
+        ByteBuffer slot = chunk.duplicate();
+        ((Buffer) slot).position((int) handle * sizeClass.slotSize);
+        return slot;
+    }
+
+    private final class SizeClass {
+
+        private final long index;
+
+        private final int slotSize;
+
+        private final int slotsPerChunk;
+
+        private final int chunkSize;
+
+        private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+        private int nextSlot;
+
+        private long[] freed = new long[16];
+
+        private int freedCount;
+
+        private SizeClass(int index, int slotSize) {
+            this.index = index;
+            this.slotSize = slotSize;
+            this.slotsPerChunk = Math.max(1, CHUNK_SIZE / slotSize);
+            this.chunkSize = slotsPerChunk * slotSize;
+        }
+
+        private synchronized long allocate() {
+            if (freedCount > 0) {
+                return freed[--freedCount];
+            }
+
+            ByteBuffer[] chunks = this.chunks;
+            if (0 == chunks.length || nextSlot == slotsPerChunk) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = ByteBuffer.allocateDirect(chunkSize);
+                this.chunks = chunks;
+                reservedBytes.addAndGet(chunkSize);
+                nextSlot = 0;
+            }
+
+            return index << 56 | (long) (chunks.length - 1) << 32 | nextSlot++;
+        }
+
+        private synchronized void free(long handle) {
+            if (freedCount == freed.length) {
+                freed = Arrays.copyOf(freed, freedCount << 1);
+            }
+            freed[freedCount++] = handle;
+        }
+    }
+}
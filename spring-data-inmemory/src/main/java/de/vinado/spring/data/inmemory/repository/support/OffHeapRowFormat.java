@@ -0,0 +1,88 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.EntityCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps entities serialized in an {@link OffHeapArena}, so that rows are merely handles to direct memory. Rows are
+ * decoded anew whenever they are read.
+ *
+ * <p>Rows are read optimistically: the record is copied out of the arena without locking the row, and the copy is
+ * decoded only if no row has been released meanwhile. Otherwise the row is read again while it's locked. Releasing a
+ * row invalidates the reads in flight, since its slot may be reused by another record right away.
+ *
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+final class OffHeapRowFormat implements RowFormat {
+
+    private final OffHeapArena arena = new OffHeapArena();
+
+    private final EntityCodec codec;
+
+    private final StampedLock releases = new StampedLock();
+
+    @Override
+    public Object encode(Object entity) {
+        return arena.allocate(codec.encode(entity));
+    }
+
+    @Override
+    public Object decode(Object row) {
+        return codec.decode(arena.read((Long) row));
+    }
+
+    @Override
+    public void release(Object row) {
+        long stamp = releases.writeLock();
+        try {
+            arena.free((Long) row);
+        } finally {
+            releases.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public <ID> Object read(Map<ID, Object> rows, ID id) {
+        long stamp = releases.tryOptimisticRead();
+        Object row = rows.get(id);
+        if (null == row) {
+            return null;
+        }
+
+        byte[] record = copy((Long) row);
+        if (null != record && releases.validate(stamp)) {
+            return codec.decode(ByteBuffer.wrap(record));
+        }
+
+        return RowFormat.super.read(rows, id);
+    }
+
+    /**
+     * Copies the record out of the arena or returns {@literal null} if the slot has been reused by a record which is
+     * still being written.
+     */
+    @Nullable
+    private byte[] copy(long handle) {
+        try {
+            ByteBuffer view = arena.read(handle);
+            byte[] record = new byte[view.remaining()];
+            view.get(record);
+            return record;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of direct memory reserved by the table.
+     */
+    long getReservedBytes() {
+        return arena.getReservedBytes();
+    }
+}
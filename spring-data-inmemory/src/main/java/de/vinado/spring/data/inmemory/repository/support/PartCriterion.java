@@ -0,0 +1,423 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import lombok.Getter;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.lang.Nullable;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.ObjectUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A single part of a derived query, e.g. {@code LastnameStartingWithIgnoreCase}, compiled into a predicate over
+ * entities. The property getter is resolved once, so that testing an entity doesn't involve reflection. A criterion
+ * on an indexed property can additionally look up its candidates through the index instead of scanning the table.
+ *
+ * @author Vincent Nadoll
+ */
+final class PartCriterion {
+
+    private final Part part;
+
+    private final Part.Type type;
+
+    @Getter
+    private final String property;
+
+    private final Function<Object, Object> getter;
+
+    private final int offset;
+
+    private final boolean ignoreCase;
+
+    @Getter
+    private final boolean indexed;
+
+    /**
+     * Compiles the given part.
+     *
+     * @param part        must not be {@literal null}
+     * @param offset      the position of the part's first argument among all bindable arguments of the query method
+     * @param domainClass must not be {@literal null}
+     * @param entityStore must not be {@literal null}
+     * @throws IllegalArgumentException in case the part uses an unsupported keyword or can't ignore case
+     */
+    PartCriterion(Part part, int offset, Class<?> domainClass, EntityStore entityStore) {
+        PropertyPath path = part.getProperty();
+        this.part = part;
+        this.type = part.getType();
+        this.property = path.toDotPath();
+        this.getter = Accessors.pathGetter(path);
+        this.offset = offset;
+        this.ignoreCase = ignoreCase(part);
+
+        if (Part.Type.NEAR == type || Part.Type.WITHIN == type) {
+            throw new IllegalArgumentException(String.format("Unsupported keyword [%s] in part [%s]", type, part));
+        }
+
+        IndexType indexType = path.hasNext() ? null : entityStore.getIndexType(domainClass, property).orElse(null);
+        this.indexed = !ignoreCase && null != indexType && isServedBy(indexType, path);
+    }
+
+    private static boolean ignoreCase(Part part) {
+        Class<?> leafType = part.getProperty().getLeafProperty().getType();
+        switch (part.shouldIgnoreCase()) {
+            case ALWAYS:
+                if (String.class != leafType) {
+                    throw new IllegalArgumentException(
+                        String.format("Can't ignore case of non-string property in part [%s]", part)
+                    );
+                }
+                return true;
+            case WHEN_POSSIBLE:
+                return String.class == leafType;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isServedBy(IndexType indexType, PropertyPath path) {
+        switch (type) {
+            case SIMPLE_PROPERTY:
+            case IS_NULL:
+            case TRUE:
+            case FALSE:
+            case IN:
+                return true;
+            case GREATER_THAN:
+            case GREATER_THAN_EQUAL:
+            case LESS_THAN:
+            case LESS_THAN_EQUAL:
+            case BEFORE:
+            case AFTER:
+            case BETWEEN:
+                return IndexType.SORTED == indexType;
+            case STARTING_WITH:
+                return IndexType.SORTED == indexType && String.class == path.getType();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the number of bindable arguments this criterion consumes.
+     */
+    int getNumberOfArguments() {
+        return part.getNumberOfArguments();
+    }
+
+    /**
+     * Returns whether the criterion looks up a single value in its index. Such lookups are preferred over range scans.
+     */
+    boolean isEquality() {
+        return indexed && Part.Type.SIMPLE_PROPERTY == type;
+    }
+
+    /**
+     * Counts the entities satisfying this criterion through the property's index in constant time.
+     *
+     * @param entityStore must not be {@literal null}
+     * @param domainClass must not be {@literal null}
+     * @param arguments   all bindable arguments of the query method
+     * @throws IllegalStateException in case the criterion is no indexed {@link #isEquality() equality}
+     */
+    long count(EntityStore entityStore, Class<?> domainClass, Object[] arguments) {
+        if (!isEquality()) {
+            throw new IllegalStateException(String.format("Part [%s] can't be counted through an index", part));
+        }
+
+        return entityStore.countBy(domainClass, property, argument(arguments, 0));
+    }
+
+    /**
+     * Binds the given arguments.
+     *
+     * @param arguments all bindable arguments of the query method
+     * @return the predicate testing entities
+     */
+    Predicate<Object> bind(Object[] arguments) {
+        Predicate<Object> matcher = matcher(arguments);
+        Function<Object, Object> value = ignoreCase && Part.Type.REGEX != type
+            ? getter.andThen(SortComparators::toLowerCase)
+            : getter;
+        return entity -> matcher.test(value.apply(entity));
+    }
+
+    /**
+     * Looks up the entities satisfying this criterion through the property's index. Entities returned might not
+     * satisfy the criterion anymore if they have been modified in place, hence the result has to be filtered by
+     * {@link #bind(Object[])} nonetheless.
+     *
+     * @param entityStore must not be {@literal null}
+     * @param domainClass must not be {@literal null}
+     * @param arguments   all bindable arguments of the query method
+     * @throws IllegalStateException in case the criterion is not {@link #isIndexed() indexed}
+     */
+    <T> Stream<T> candidates(EntityStore entityStore, Class<T> domainClass, Object[] arguments) {
+        if (!indexed) {
+            throw new IllegalStateException(String.format("Part [%s] is not served by an index", part));
+        }
+
+        switch (type) {
+            case SIMPLE_PROPERTY:
+                return entityStore.findAllBy(domainClass, property, argument(arguments, 0));
+            case IS_NULL:
+                return entityStore.findAllBy(domainClass, property, null);
+            case TRUE:
+                return entityStore.findAllBy(domainClass, property, Boolean.TRUE);
+            case FALSE:
+                return entityStore.findAllBy(domainClass, property, Boolean.FALSE);
+            case IN:
+                return elements(argument(arguments, 0)).stream()
+                    .flatMap(element -> entityStore.findAllBy(domainClass, property, element));
+            case STARTING_WITH:
+                Object prefix = argument(arguments, 0);
+                return null == prefix
+                    ? Stream.empty()
+                    : entityStore.findAllInRange(domainClass, property,
+                    SortedPropertyIndex.prefixRange(prefix.toString()), Sort.Direction.ASC);
+            default:
+                Range<?> range = range(arguments);
+                return null == range
+                    ? Stream.empty()
+                    : entityStore.findAllInRange(domainClass, property, range, Sort.Direction.ASC);
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Range<?> range(Object[] arguments) {
+        Comparable first = comparable(argument(arguments, 0));
+        Comparable second = Part.Type.BETWEEN == type ? comparable(argument(arguments, 1)) : first;
+        if (null == first || null == second) {
+            return null;
+        }
+
+        Range.Bound unbounded = Range.Bound.unbounded();
+        switch (type) {
+            case GREATER_THAN:
+            case AFTER:
+                return Range.of(Range.Bound.exclusive(first), unbounded);
+            case GREATER_THAN_EQUAL:
+                return Range.of(Range.Bound.inclusive(first), unbounded);
+            case LESS_THAN:
+            case BEFORE:
+                return Range.of(unbounded, Range.Bound.exclusive(first));
+            case LESS_THAN_EQUAL:
+                return Range.of(unbounded, Range.Bound.inclusive(first));
+            default:
+                return Range.closed(first, second);
+        }
+    }
+
+    @Nullable
+    private Comparable<?> comparable(@Nullable Object argument) {
+        if (null == argument || argument instanceof Comparable) {
+            return (Comparable<?>) argument;
+        }
+
+        throw new IllegalArgumentException(
+            String.format("Argument [%s] of part [%s] is not comparable", argument, part)
+        );
+    }
+
+    private Predicate<Object> matcher(Object[] arguments) {
+        switch (type) {
+            case SIMPLE_PROPERTY:
+                return equalTo(argument(arguments, 0));
+            case NEGATING_SIMPLE_PROPERTY:
+                return equalTo(argument(arguments, 0)).negate();
+            case IS_NULL:
+                return Objects::isNull;
+            case IS_NOT_NULL:
+            case EXISTS:
+                return Objects::nonNull;
+            case TRUE:
+                return Boolean.TRUE::equals;
+            case FALSE:
+                return Boolean.FALSE::equals;
+            case GREATER_THAN:
+            case AFTER:
+                return comparedTo(argument(arguments, 0), comparison -> comparison > 0);
+            case GREATER_THAN_EQUAL:
+                return comparedTo(argument(arguments, 0), comparison -> comparison >= 0);
+            case LESS_THAN:
+            case BEFORE:
+                return comparedTo(argument(arguments, 0), comparison -> comparison < 0);
+            case LESS_THAN_EQUAL:
+                return comparedTo(argument(arguments, 0), comparison -> comparison <= 0);
+            case BETWEEN:
+                return comparedTo(argument(arguments, 0), comparison -> comparison >= 0)
+                    .and(comparedTo(argument(arguments, 1), comparison -> comparison <= 0));
+            case STARTING_WITH:
+                return string(argument(arguments, 0), (value, prefix) -> value.startsWith(prefix));
+            case ENDING_WITH:
+                return string(argument(arguments, 0), (value, suffix) -> value.endsWith(suffix));
+            case CONTAINING:
+                return containing(argument(arguments, 0));
+            case NOT_CONTAINING:
+                return containing(argument(arguments, 0)).negate();
+            case LIKE:
+                return matching(like(argument(arguments, 0)));
+            case NOT_LIKE:
+                return matching(like(argument(arguments, 0))).negate();
+            case REGEX:
+                return matching(regex(argument(arguments, 0)));
+            case IN:
+                return in(argument(arguments, 0));
+            case NOT_IN:
+                return in(argument(arguments, 0)).negate();
+            case IS_EMPTY:
+                return PartCriterion::isEmpty;
+            case IS_NOT_EMPTY:
+                return value -> !isEmpty(value);
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported keyword [%s] in part [%s]", type, part));
+        }
+    }
+
+    @Nullable
+    private Object argument(Object[] arguments, int index) {
+        Object argument = arguments[offset + index];
+        return ignoreCase && Part.Type.REGEX != type ? SortComparators.toLowerCase(argument) : argument;
+    }
+
+    private static Predicate<Object> equalTo(@Nullable Object expected) {
+        return value -> Objects.equals(value, expected);
+    }
+
+    private static Predicate<Object> comparedTo(@Nullable Object bound, IntPredicate comparison) {
+        if (null == bound) {
+            return value -> false;
+        }
+
+        return value -> null != value && comparison.test(SortedPropertyIndex.compare(value, bound));
+    }
+
+    private static Predicate<Object> string(@Nullable Object argument, BiPredicate<String, String> predicate) {
+        if (null == argument) {
+            return value -> false;
+        }
+
+        String expected = argument.toString();
+        return value -> value instanceof String && predicate.test((String) value, expected);
+    }
+
+    private static Predicate<Object> containing(@Nullable Object element) {
+        return value -> {
+            if (value instanceof String) {
+                return null != element && ((String) value).contains(element.toString());
+            }
+
+            if (value instanceof Collection) {
+                return ((Collection<?>) value).contains(element);
+            }
+
+            return ObjectUtils.isArray(value) && ObjectUtils.containsElement(ObjectUtils.toObjectArray(value), element);
+        };
+    }
+
+    private static Predicate<Object> matching(@Nullable Pattern pattern) {
+        if (null == pattern) {
+            return value -> false;
+        }
+
+        return value -> value instanceof String && pattern.matcher((String) value).matches();
+    }
+
+    /**
+     * Translates a {@literal LIKE} pattern, in which {@code %} matches any sequence of characters and {@code _} any
+     * single character, into a regular expression.
+     */
+    @Nullable
+    private static Pattern like(@Nullable Object argument) {
+        if (null == argument) {
+            return null;
+        }
+
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char character : argument.toString().toCharArray()) {
+            if ('%' == character || '_' == character) {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append('%' == character ? ".*" : ".");
+            } else {
+                literal.append(character);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    @Nullable
+    private Pattern regex(@Nullable Object argument) {
+        if (null == argument) {
+            return null;
+        }
+
+        return Pattern.compile(argument.toString(), ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+    }
+
+    private Predicate<Object> in(@Nullable Object argument) {
+        Set<Object> elements = elements(argument);
+        return elements::contains;
+    }
+
+    private Set<Object> elements(@Nullable Object argument) {
+        Collection<?> elements;
+        if (argument instanceof Collection) {
+            elements = (Collection<?>) argument;
+        } else if (ObjectUtils.isArray(argument)) {
+            elements = CollectionUtils.arrayToList(argument);
+        } else {
+            elements = Collections.singleton(argument);
+        }
+
+        if (!ignoreCase) {
+            return new HashSet<>(elements);
+        }
+
+        return elements.stream()
+            .map(SortComparators::toLowerCase)
+            .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static boolean isEmpty(@Nullable Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        }
+
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        }
+
+        if (value instanceof CharSequence) {
+            return 0 == ((CharSequence) value).length();
+        }
+
+        return null == value || ObjectUtils.isArray(value) && 0 == ObjectUtils.toObjectArray(value).length;
+    }
+}
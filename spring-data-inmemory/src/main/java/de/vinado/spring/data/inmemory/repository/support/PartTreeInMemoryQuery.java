@@ -0,0 +1,363 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.support.QueryStatistics.Execution;
+import de.vinado.spring.data.repository.NonUniqueResultException;
+import lombok.Getter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.ParametersParameterAccessor;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.data.repository.query.ResultProcessor;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link RepositoryQuery} derived from the name of a query method, e.g. {@code findByLastnameAndAgeGreaterThan}. The
+ * method is compiled once into a plan of {@link PartCriterion criteria}. If every {@literal Or} branch of the query
+ * has a criterion served by a secondary index, the candidates are looked up through these indexes, otherwise the
+ * table is scanned. Limited and paged results are selected without sorting all matches.
+ *
+ * <p>Given {@link QueryStatistics}, every execution is recorded along with the rows it scanned and returned. Executions
+ * of methods returning a stream are recorded once the stream is exhausted or closed.
+ *
+ * @author Vincent Nadoll
+ */
+final class PartTreeInMemoryQuery implements RepositoryQuery {
+
+    @Getter
+    private final QueryMethod queryMethod;
+
+    private final EntityStore entityStore;
+
+    private final Class<Object> domainClass;
+
+    private final PartTree tree;
+
+    private final List<List<PartCriterion>> branches = new ArrayList<>();
+
+    private final List<PartCriterion> drivers = new ArrayList<>();
+
+    private final int numberOfArguments;
+
+    @Nullable
+    private final QueryStatistics statistics;
+
+    private final String name;
+
+    /**
+     * Whether multiple results are returned as a lazy stream, regardless of the method's return type.
+     */
+    private final boolean streaming;
+
+    /**
+     * Compiles the given query method.
+     *
+     * @param queryMethod must not be {@literal null}
+     * @param entityStore must not be {@literal null}
+     * @param statistics  might be {@literal null}
+     * @throws IllegalArgumentException in case the method can't be derived
+     */
+    PartTreeInMemoryQuery(QueryMethod queryMethod, EntityStore entityStore, @Nullable QueryStatistics statistics) {
+        this(queryMethod, entityStore, statistics, queryMethod.isStreamQuery());
+    }
+
+    /**
+     * Compiles the given query method, returning multiple results as a lazy stream if requested, e.g. to be emitted by
+     * a reactive publisher.
+     *
+     * @param queryMethod must not be {@literal null}
+     * @param entityStore must not be {@literal null}
+     * @param statistics  might be {@literal null}
+     * @param streaming   whether to return multiple results as a stream
+     * @throws IllegalArgumentException in case the method can't be derived
+     */
+    @SuppressWarnings("unchecked")
+    PartTreeInMemoryQuery(QueryMethod queryMethod, EntityStore entityStore, @Nullable QueryStatistics statistics,
+                          boolean streaming) {
+        this.queryMethod = queryMethod;
+        this.entityStore = entityStore;
+        this.statistics = statistics;
+        this.streaming = streaming;
+        this.domainClass = (Class<Object>) queryMethod.getEntityInformation().getJavaType();
+        this.name = domainClass.getSimpleName() + "." + queryMethod.getName();
+        this.tree = new PartTree(queryMethod.getName(), domainClass);
+
+        int offset = 0;
+        for (PartTree.OrPart orPart : tree) {
+            List<PartCriterion> branch = new ArrayList<>();
+            for (Part part : orPart) {
+                PartCriterion criterion = new PartCriterion(part, offset, domainClass, entityStore);
+                branch.add(criterion);
+                offset += criterion.getNumberOfArguments();
+            }
+            branches.add(branch);
+            drivers.add(driver(branch));
+        }
+        this.numberOfArguments = offset;
+    }
+
+    /**
+     * Returns the criterion looking up the branch's candidates, preferring equality over range lookups.
+     */
+    @Nullable
+    private static PartCriterion driver(List<PartCriterion> branch) {
+        PartCriterion driver = null;
+        for (PartCriterion criterion : branch) {
+            if (criterion.isEquality()) {
+                return criterion;
+            }
+
+            if (null == driver && criterion.isIndexed()) {
+                driver = criterion;
+            }
+        }
+
+        return driver;
+    }
+
+    @Override
+    public Object execute(Object[] parameters) {
+        if (null == statistics) {
+            return execute(parameters, null);
+        }
+
+        Execution execution = statistics.start(name, isIndexed() ? indexName() : null);
+        Object result = execute(parameters, execution);
+        if (!(result instanceof Stream)) {
+            execution.finish();
+        }
+        return result;
+    }
+
+    private Object execute(Object[] parameters, @Nullable Execution execution) {
+        ParametersParameterAccessor accessor = new ParametersParameterAccessor(queryMethod.getParameters(), parameters);
+        Object[] arguments = new Object[numberOfArguments];
+        for (int i = 0; i < numberOfArguments; i++) {
+            arguments[i] = accessor.getBindableValue(i);
+        }
+
+        if (tree.isCountProjection()) {
+            long count = count(arguments, execution);
+            returned(execution, count);
+            return count;
+        }
+
+        if (tree.isExistsProjection()) {
+            boolean exists = matches(arguments, execution).findAny().isPresent();
+            returned(execution, exists ? 1 : 0);
+            return exists;
+        }
+
+        Sort sort = tree.getSort().and(accessor.getSort());
+        long limit = tree.isLimiting() ? tree.getMaxResults() : Long.MAX_VALUE;
+
+        if (tree.isDelete()) {
+            List<Object> deleted = select(arguments, sort, 0, limit, execution).collect(Collectors.toList());
+            deleted.forEach(entityStore::remove);
+            return queryMethod.isCollectionQuery() || streaming ? deleted : (long) deleted.size();
+        }
+
+        ResultProcessor processor = queryMethod.getResultProcessor().withDynamicProjection(accessor);
+        Pageable pageable = accessor.getPageable();
+        if (queryMethod.isPageQuery() || queryMethod.isSliceQuery()) {
+            return processor.processResult(page(arguments, sort, pageable, limit, execution));
+        }
+
+        if (pageable.isPaged()) {
+            return processor.processResult(select(arguments, sort, pageable.getOffset(),
+                Math.min(limit, pageable.getPageSize()), execution).collect(Collectors.toList()));
+        }
+
+        Stream<Object> results = select(arguments, sort, 0, limit, execution);
+        if (queryMethod.isStreamQuery()) {
+            return processor.processResult(results);
+        }
+
+        if (streaming) {
+            return results.map(result -> processor.processResult(result));
+        }
+
+        if (queryMethod.isCollectionQuery()) {
+            return processor.processResult(results.collect(Collectors.toList()));
+        }
+
+        List<Object> result = results.limit(2).collect(Collectors.toList());
+        if (result.size() > 1) {
+            throw new NonUniqueResultException(
+                String.format("Query method [%s] returned more than one result", queryMethod.getName())
+            );
+        }
+
+        return processor.processResult(result.isEmpty() ? null : result.get(0));
+    }
+
+    /**
+     * Returns whether the query deletes the entities it matches.
+     */
+    boolean isDelete() {
+        return tree.isDelete();
+    }
+
+    private String indexName() {
+        return drivers.stream()
+            .map(PartCriterion::getProperty)
+            .distinct()
+            .collect(Collectors.joining(", "));
+    }
+
+    private Slice<Object> page(Object[] arguments, Sort sort, Pageable pageable, long limit,
+                               @Nullable Execution execution) {
+        if (pageable.isUnpaged()) {
+            List<Object> content = select(arguments, sort, 0, limit, execution).collect(Collectors.toList());
+            return queryMethod.isPageQuery() ? new PageImpl<>(content) : new SliceImpl<>(content);
+        }
+
+        int size = (int) Math.min(limit, pageable.getPageSize());
+        if (queryMethod.isPageQuery()) {
+            List<Object> content = select(arguments, sort, pageable.getOffset(), size, execution)
+                .collect(Collectors.toList());
+            return PageableExecutionUtils.getPage(content, pageable, () -> count(arguments, execution));
+        }
+
+        List<Object> content = select(arguments, sort, pageable.getOffset(), size + 1L, execution)
+            .collect(Collectors.toList());
+        boolean hasNext = content.size() > size;
+        return new SliceImpl<>(hasNext ? content.subList(0, size) : content, pageable, hasNext);
+    }
+
+    /**
+     * Counts the matching entities, in constant time if the query has no criteria or a single indexed equality.
+     */
+    private long count(Object[] arguments, @Nullable Execution execution) {
+        if (branches.isEmpty()) {
+            return entityStore.count(domainClass);
+        }
+
+        if (1 == branches.size() && 1 == branches.get(0).size() && branches.get(0).get(0).isEquality()) {
+            return branches.get(0).get(0).count(entityStore, domainClass, arguments);
+        }
+
+        return matches(arguments, execution).count();
+    }
+
+    /**
+     * Returns the matching entities at positions {@code [offset, offset + limit)} in the requested order. The entities
+     * are iterated through a sorted index if the order allows to, otherwise the window is selected by a bounded heap
+     * rather than a full sort. The entities returned are counted by the given execution, if any.
+     */
+    private Stream<Object> select(Object[] arguments, Sort sort, long offset, long limit,
+                                  @Nullable Execution execution) {
+        return null == execution
+            ? window(arguments, sort, offset, limit, null)
+            : execution.track(window(arguments, sort, offset, limit, execution));
+    }
+
+    private Stream<Object> window(Object[] arguments, Sort sort, long offset, long limit,
+                                  @Nullable Execution execution) {
+        if (sort.isSorted() && !isIndexed()) {
+            Optional<Sort.Order> indexedOrder = SortComparators.indexedOrder(entityStore, domainClass, sort);
+            if (indexedOrder.isPresent()) {
+                Sort.Order order = indexedOrder.get();
+                if (null != execution) {
+                    execution.index(order.getProperty());
+                }
+                return scan(execution,
+                    entityStore.findAllOrderedBy(domainClass, order.getProperty(), order.getDirection()))
+                    .filter(predicate(arguments))
+                    .skip(offset)
+                    .limit(limit);
+            }
+        }
+
+        Stream<Object> matches = matches(arguments, execution);
+        if (sort.isUnsorted()) {
+            return matches.skip(offset).limit(limit);
+        }
+
+        return TopK.window(matches, SortComparators.of(domainClass, sort), offset, limit);
+    }
+
+    /**
+     * Returns the matching entities in no particular order.
+     */
+    private Stream<Object> matches(Object[] arguments, @Nullable Execution execution) {
+        if (isIndexed()) {
+            return 1 == branches.size()
+                ? lookup(0, arguments, execution)
+                : lookupDistinct(arguments, execution);
+        }
+
+        return scan(execution, entityStore.findAll(domainClass)).filter(predicate(arguments));
+    }
+
+    /**
+     * Returns whether the candidates of every branch are looked up through an index.
+     */
+    private boolean isIndexed() {
+        return !branches.isEmpty() && !drivers.contains(null);
+    }
+
+    private Stream<Object> lookup(int branch, Object[] arguments, @Nullable Execution execution) {
+        return scan(execution, drivers.get(branch).candidates(entityStore, domainClass, arguments))
+            .filter(conjunction(branches.get(branch), arguments));
+    }
+
+    /**
+     * Concatenates the branches' candidates, dropping repeated ones by their primary key rather than by identity, as
+     * tables stored off-heap decode a new copy per lookup.
+     */
+    private Stream<Object> lookupDistinct(Object[] arguments, @Nullable Execution execution) {
+        Set<Object> seen = new HashSet<>();
+        Stream<Object> matches = Stream.empty();
+        for (int branch = 0; branch < branches.size(); branch++) {
+            matches = Stream.concat(matches, lookup(branch, arguments, execution));
+        }
+
+        return matches.filter(entity -> seen.add(IdUtils.getId(entity)));
+    }
+
+    private static <T> Stream<T> scan(@Nullable Execution execution, Stream<T> candidates) {
+        return null == execution ? candidates : execution.scan(candidates);
+    }
+
+    private static void returned(@Nullable Execution execution, long rows) {
+        if (null != execution) {
+            execution.returned(rows);
+        }
+    }
+
+    private Predicate<Object> predicate(Object[] arguments) {
+        Predicate<Object> predicate = null;
+        for (List<PartCriterion> branch : branches) {
+            Predicate<Object> conjunction = conjunction(branch, arguments);
+            predicate = null == predicate ? conjunction : predicate.or(conjunction);
+        }
+
+        return null == predicate ? entity -> true : predicate;
+    }
+
+    private static Predicate<Object> conjunction(List<PartCriterion> branch, Object[] arguments) {
+        Predicate<Object> conjunction = entity -> true;
+        for (PartCriterion criterion : branch) {
+            conjunction = conjunction.and(criterion.bind(arguments));
+        }
+
+        return conjunction;
+    }
+}
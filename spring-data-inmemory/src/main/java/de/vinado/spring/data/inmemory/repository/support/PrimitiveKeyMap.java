@@ -0,0 +1,383 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.springframework.lang.Nullable;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * A map of integral keys which stores keys as primitive longs in an open-addressing table with linear probing. Per
+ * entry, it takes a {@literal long} and a reference in two parallel arrays instead of a {@literal HashMap.Node} and a
+ * boxed key. Removed entries are closed by shifting their successors back rather than by leaving tombstones.
+ *
+ * <p>Like {@literal HashMap}, this map is not thread-safe, its iterators fail fast and its {@literal compute} methods
+ * throw a {@link ConcurrentModificationException} if the function modifies the map. Unlike {@literal HashMap}, it
+ * doesn't permit {@literal null} keys or values.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author Vincent Nadoll
+ */
+final class PrimitiveKeyMap<K extends Number, V> extends AbstractMap<K, V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private final Class<K> keyType;
+
+    private final LongFunction<K> boxer;
+
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    private int threshold;
+
+    private int shift;
+
+    private int modCount;
+
+    /**
+     * Creates a new empty map.
+     *
+     * @param keyType the type of the keys
+     * @param boxer   the function turning a primitive key back into a key object
+     */
+    PrimitiveKeyMap(Class<K> keyType, LongFunction<K> boxer) {
+        this.keyType = keyType;
+        this.boxer = boxer;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Scrambles the key by Fibonacci hashing, so that sequential keys spread over both the high and low bits.
+     */
+    static long mix(long key) {
+        return key * PHI;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        threshold = capacity - (capacity >>> 2);
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Returns the slot the key would ideally be stored at. The key is salted per map, so that iterating one map while
+     * inserting into another doesn't insert the keys in the order of their slots, which would pile them up in long
+     * probe sequences while the other map is still smaller.
+     */
+    private int home(long key) {
+        return (int) (mix(key ^ seed) >>> shift);
+    }
+
+    /**
+     * Returns the slot holding the key or, if absent, {@code -(slot + 1)} of the free slot the key would be stored at.
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = home(key); ; slot = (slot + 1) & mask) {
+            if (null == values[slot]) {
+                return -(slot + 1);
+            }
+
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private int find(@Nullable Object key) {
+        return keyType.isInstance(key) ? find(((Number) key).longValue()) : -1;
+    }
+
+    private void insert(int slot, long key, Object value) {
+        keys[slot] = key;
+        values[slot] = value;
+        modCount++;
+        if (++size > threshold) {
+            resize(keys.length << 1);
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (null != oldValues[slot]) {
+                int free = -(find(oldKeys[slot]) + 1);
+                keys[free] = oldKeys[slot];
+                values[free] = oldValues[slot];
+            }
+        }
+    }
+
+    private void delete(int slot) {
+        values[slot] = null;
+        size--;
+        modCount++;
+        int mask = keys.length - 1;
+        for (int next = (slot + 1) & mask; null != values[next]; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+        }
+    }
+
+    /**
+     * Looks the key up without any synchronization, tolerating a concurrent modification of the map. The result might
+     * then be wrong, so the caller has to validate it, e.g. by the stamp of an optimistic read. The lookup itself never
+     * fails and never loops endlessly, whatever state the map is observed in.
+     *
+     * @return the value mapped to the key or {@literal null} if none has been found
+     */
+    @Nullable
+    Object lookup(long key) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        int length = keys.length;
+        if (length != values.length) {
+            return null;
+        }
+
+        int mask = length - 1;
+        int slot = (int) (mix(key ^ seed) >>> (Long.SIZE - Integer.numberOfTrailingZeros(length)));
+        for (int probes = 0; probes < length; probes++, slot = (slot + 1) & mask) {
+            Object value = values[slot];
+            if (null == value) {
+                return null;
+            }
+
+            if (keys[slot] == key) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        long primitive = key.longValue();
+        requireValue(value);
+        int slot = find(primitive);
+        if (slot < 0) {
+            insert(-(slot + 1), primitive, value);
+            return null;
+        }
+
+        V previous = (V) values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        V previous = (V) values[slot];
+        delete(slot);
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        long primitive = key.longValue();
+        int slot = find(primitive);
+        if (slot >= 0) {
+            return (V) values[slot];
+        }
+
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        checkForComodification(expectedModCount);
+        if (null != value) {
+            insert(-(slot + 1), primitive, value);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int slot = find(key.longValue());
+        if (slot < 0) {
+            return null;
+        }
+
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, (V) values[slot]);
+        checkForComodification(expectedModCount);
+        if (null == value) {
+            delete(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        long primitive = key.longValue();
+        int slot = find(primitive);
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, slot < 0 ? null : (V) values[slot]);
+        checkForComodification(expectedModCount);
+        if (slot < 0) {
+            if (null != value) {
+                insert(-(slot + 1), primitive, value);
+            }
+        } else if (null == value) {
+            delete(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<V> iterator() {
+                return new SlotIterator<V>() {
+
+                    @Override
+                    V get(int slot) {
+                        return (V) values[slot];
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new SlotIterator<Map.Entry<K, V>>() {
+
+                    @Override
+                    Map.Entry<K, V> get(int slot) {
+                        return new SimpleImmutableEntry<>(boxer.apply(keys[slot]), (V) values[slot]);
+                    }
+                };
+            }
+        };
+    }
+
+    private void checkForComodification(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private static void requireValue(@Nullable Object value) {
+        if (null == value) {
+            throw new IllegalArgumentException("Value must not be null");
+        }
+    }
+
+    /**
+     * Iterates the occupied slots of the table.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T> {
+
+        private final int expectedModCount = modCount;
+
+        private int slot = advance(0);
+
+        private int advance(int from) {
+            while (from < values.length && null == values[from]) {
+                from++;
+            }
+            return from;
+        }
+
+        abstract T get(int slot);
+
+        @Override
+        public boolean hasNext() {
+            return slot < values.length;
+        }
+
+        @Override
+        public T next() {
+            checkForComodification(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            T next = get(slot);
+            slot = advance(slot + 1);
+            return next;
+        }
+    }
+}
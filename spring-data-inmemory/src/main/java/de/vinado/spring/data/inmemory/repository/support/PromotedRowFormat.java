@@ -0,0 +1,75 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Keeps the rows of a table restored from a memory-mapped snapshot once it's written to. Initially, every row still
+ * refers to its entity within the mapping, and a row is only promoted to the table's own format once its entity is
+ * written (copy on write), so that the first write neither decodes nor copies the whole table. Rows referring to the
+ * mapping are decoded anew whenever they are read, just like the rows of a {@link MappedRowFormat mapped} table.
+ *
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+final class PromotedRowFormat implements RowFormat {
+
+    private final MappedRowFormat mapped;
+
+    private final RowFormat target;
+
+    /**
+     * Returns a row referring to the given row of a mapped table.
+     */
+    static Object mapped(Object row) {
+        return new MappedRow(row);
+    }
+
+    /**
+     * Returns whether the given row still refers to the mapping.
+     */
+    static boolean isMapped(Object row) {
+        return row instanceof MappedRow;
+    }
+
+    @Override
+    public Object encode(Object entity) {
+        return target.encode(entity);
+    }
+
+    @Override
+    public Object decode(Object row) {
+        return isMapped(row) ? mapped.decode(((MappedRow) row).position) : target.decode(row);
+    }
+
+    @Override
+    public void release(Object row) {
+        if (!isMapped(row)) {
+            target.release(row);
+        }
+    }
+
+    /**
+     * Decodes a row referring to the mapping straight away, as the mapping is never released, and reads any other row
+     * the way the table's own format does. A row once promoted never refers to the mapping again.
+     */
+    @Override
+    public <ID> Object read(Map<ID, Object> rows, ID id) {
+        Object row = rows.get(id);
+        if (null == row) {
+            return null;
+        }
+
+        return isMapped(row) ? decode(row) : target.read(rows, id);
+    }
+
+    /**
+     * A row which hasn't been promoted yet, holding the position of its entity within the mapping.
+     */
+    @RequiredArgsConstructor
+    private static final class MappedRow {
+
+        private final Object position;
+    }
+}
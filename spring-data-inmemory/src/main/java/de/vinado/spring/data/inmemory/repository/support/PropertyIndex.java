@@ -0,0 +1,116 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A secondary index mapping the values of a single entity property to the primary keys of the entities holding them.
+ * Besides the mapping itself, the index remembers the value each entity was indexed with, so that entities modified in
+ * place are unlinked from their previous value on update.
+ *
+ * @param <ID> the type of the primary key
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+abstract class PropertyIndex<ID> {
+
+    private static final Object NULL = new Object();
+
+    private final Map<ID, Object> values = new ConcurrentHashMap<>();
+
+    @Getter
+    private final String property;
+
+    /**
+     * Returns the data structure backing this index.
+     */
+    abstract IndexType getType();
+
+    /**
+     * Returns whether the index rejects entities sharing a value other than {@literal null}.
+     */
+    abstract boolean isUnique();
+
+    /**
+     * Returns the index key of the given entity.
+     */
+    Object keyOf(Object entity) {
+        return mask(Accessors.getProperty(entity, property));
+    }
+
+    /**
+     * Claims the given key for the entity with the given primary key, before the entity is actually linked.
+     *
+     * @return {@literal true} if the key has been claimed by this call; {@literal false} if no claim was necessary
+     * @throws de.vinado.spring.data.repository.EntityExistsException in case the key is claimed by another entity
+     */
+    abstract boolean reserve(ID id, Object key);
+
+    /**
+     * Releases a key claimed by {@link #reserve(Object, Object)}.
+     */
+    abstract void release(ID id, Object key);
+
+    /**
+     * Links the entity with the given primary key to the key and unlinks it from the key it was indexed with before.
+     */
+    void put(ID id, Object key) {
+        Object previous = values.put(id, key);
+        if (Objects.equals(previous, key)) {
+            return;
+        }
+
+        if (null != previous) {
+            unlink(id, previous);
+        }
+        link(id, key);
+    }
+
+    /**
+     * Unlinks the entity with the given primary key from the index.
+     */
+    void remove(ID id) {
+        Object previous = values.remove(id);
+        if (null != previous) {
+            unlink(id, previous);
+        }
+    }
+
+    /**
+     * Returns the primary keys of all entities having the given property value.
+     *
+     * @param value might be {@literal null}
+     */
+    Collection<ID> find(@Nullable Object value) {
+        return lookup(mask(value));
+    }
+
+    protected abstract void link(ID id, Object key);
+
+    protected abstract void unlink(ID id, Object key);
+
+    protected abstract Collection<ID> lookup(Object key);
+
+    /**
+     * Replaces {@literal null} by a sentinel, since concurrent maps don't accept {@literal null} keys.
+     */
+    static Object mask(@Nullable Object value) {
+        return null == value ? NULL : value;
+    }
+
+    /**
+     * Reverts {@link #mask(Object)}.
+     */
+    @Nullable
+    static Object unmask(Object key) {
+        return NULL == key ? null : key;
+    }
+}
@@ -0,0 +1,145 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.config.IndexDefinition;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * All secondary indexes of a single table. Updates are applied in two phases: unique keys are claimed first, so that a
+ * constraint violation leaves every index untouched, then the entity is linked to its new keys.
+ *
+ * @param <ID> the type of the primary key
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+final class PropertyIndexes<ID> {
+
+    private final Map<String, PropertyIndex<ID>> indexes;
+
+    /**
+     * Creates the indexes of the given domain class. Indexes are taken from properties annotated with {@link Indexed}
+     * and from the given definitions, the latter taking precedence.
+     *
+     * @param domainClass must not be {@literal null}
+     * @param definitions must not be {@literal null}
+     * @param <ID>        the type of the primary key
+     * @return the table's indexes
+     * @throws IllegalArgumentException in case an index refers to a property the domain class doesn't have
+     */
+    static <ID> PropertyIndexes<ID> of(Class<?> domainClass, Collection<IndexDefinition> definitions) {
+        Map<String, IndexDefinition> declared = new LinkedHashMap<>();
+        for (Class<?> type = domainClass; null != type; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Indexed indexed = field.getAnnotation(Indexed.class);
+                if (null != indexed) {
+                    declared.putIfAbsent(field.getName(), new IndexDefinition(field.getName(), indexed.type(),
+                        indexed.unique()));
+                }
+            }
+        }
+        definitions.forEach(definition -> declared.put(definition.getProperty(), definition));
+
+        Map<String, PropertyIndex<ID>> indexes = new LinkedHashMap<>();
+        declared.forEach((property, definition) -> {
+            Accessors.propertyGetter(domainClass, property);
+            indexes.put(property, create(definition));
+        });
+        return new PropertyIndexes<>(indexes);
+    }
+
+    /**
+     * Returns an empty set of indexes, e.g. for a table which can't be written to.
+     */
+    static <ID> PropertyIndexes<ID> none() {
+        return new PropertyIndexes<>(Collections.emptyMap());
+    }
+
+    private static <ID> PropertyIndex<ID> create(IndexDefinition definition) {
+        String property = definition.getProperty();
+        if (IndexType.SORTED == definition.getType()) {
+            return new SortedPropertyIndex<>(property, definition.isUnique());
+        }
+
+        return definition.isUnique()
+            ? new UniquePropertyIndex<>(property)
+            : new HashPropertyIndex<>(property);
+    }
+
+    boolean isEmpty() {
+        return indexes.isEmpty();
+    }
+
+    /**
+     * Returns whether any of the indexes is unique.
+     */
+    boolean isUnique() {
+        return indexes.values().stream().anyMatch(PropertyIndex::isUnique);
+    }
+
+    /**
+     * Returns the type of each index by the property it's defined on.
+     */
+    Map<String, IndexType> types() {
+        Map<String, IndexType> types = new LinkedHashMap<>();
+        indexes.forEach((property, index) -> types.put(property, index.getType()));
+        return types;
+    }
+
+    /**
+     * Returns the index of the given property or {@literal null} if the property isn't indexed.
+     */
+    @Nullable
+    PropertyIndex<ID> get(String property) {
+        return indexes.get(property);
+    }
+
+    /**
+     * Links the entity to the values of its indexed properties.
+     *
+     * @throws de.vinado.spring.data.repository.EntityExistsException in case a unique constraint is violated
+     */
+    @SuppressWarnings("unchecked")
+    void put(ID id, Object entity) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        PropertyIndex<ID>[] targets = indexes.values().toArray(new PropertyIndex[0]);
+        Object[] keys = new Object[targets.length];
+        boolean[] reserved = new boolean[targets.length];
+        int index = 0;
+        try {
+            for (; index < targets.length; index++) {
+                keys[index] = targets[index].keyOf(entity);
+                reserved[index] = targets[index].reserve(id, keys[index]);
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < index; i++) {
+                if (reserved[i]) {
+                    targets[i].release(id, keys[i]);
+                }
+            }
+            throw e;
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            targets[i].put(id, keys[i]);
+        }
+    }
+
+    /**
+     * Unlinks the entity from all indexes.
+     */
+    void remove(ID id) {
+        indexes.values().forEach(index -> index.remove(id));
+    }
+}
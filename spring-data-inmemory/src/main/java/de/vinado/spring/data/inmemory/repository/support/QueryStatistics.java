@@ -0,0 +1,257 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Execution statistics of the queries run by in-memory repositories, aggregated per query: how often it ran, how long
+ * it took, how many rows it scanned compared to how many it returned, and which index, if any, it looked its candidates
+ * up in. Queries scanning far more rows than they return are candidates for a secondary index.
+ *
+ * <p>Executions taking at least the {@link #setSlowQueryThreshold(Duration) slow query threshold} are logged as a
+ * warning.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class QueryStatistics {
+
+    private final Map<String, Statistics> queries = new ConcurrentHashMap<>();
+
+    @Nullable
+    private volatile Duration slowQueryThreshold;
+
+    /**
+     * Sets the duration from which on an execution is logged, or {@literal null} to log none.
+     */
+    public void setSlowQueryThreshold(@Nullable Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    /**
+     * Starts a new execution of the given query.
+     *
+     * @param query must not be {@literal null}
+     * @param index the property whose index the candidates are looked up in, or {@literal null} if the table is scanned
+     * @return the execution to count the rows of
+     */
+    Execution start(String query, @Nullable String index) {
+        return new Execution(query, index, System.nanoTime());
+    }
+
+    /**
+     * Returns the statistics of the queries scanning the most rows, the ones taking the most time in total first among
+     * equals.
+     *
+     * @param limit the maximum number of queries to return
+     * @return the queries' statistics
+     */
+    public List<QuerySummary> getTopQueries(int limit) {
+        return queries.entrySet().stream()
+            .map(entry -> entry.getValue().summarize(entry.getKey()))
+            .sorted(Comparator.comparingLong(QuerySummary::getRowsScanned)
+                .thenComparingLong(QuerySummary::getTotalTime)
+                .reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Discards the statistics gathered so far.
+     */
+    public void reset() {
+        queries.clear();
+    }
+
+    private void record(Execution execution, long duration) {
+        Statistics statistics = queries.get(execution.query);
+        if (null == statistics) {
+            statistics = queries.computeIfAbsent(execution.query, query -> new Statistics());
+        }
+        statistics.record(execution, duration);
+
+        Duration threshold = this.slowQueryThreshold;
+        if (null != threshold && duration >= threshold.toNanos()) {
+            log.warn("Slow query [{}] took {} ms, scanning {} rows for {} results {}",
+                execution.query, Duration.ofNanos(duration).toMillis(), execution.scanned, execution.returned,
+                null == execution.index ? "without an index" : "through the index on [" + execution.index + "]");
+        }
+    }
+
+    /**
+     * A single execution of a query, counting the rows scanned and returned. An execution isn't thread-safe, it must be
+     * confined to the thread running the query.
+     */
+    final class Execution {
+
+        private final String query;
+
+        @Nullable
+        private String index;
+
+        private final long start;
+
+        private long scanned;
+
+        private long returned;
+
+        private boolean finished;
+
+        private Execution(String query, @Nullable String index, long start) {
+            this.query = query;
+            this.index = index;
+            this.start = start;
+        }
+
+        /**
+         * Sets the property whose index the candidates are looked up in.
+         */
+        void index(String index) {
+            this.index = index;
+        }
+
+        /**
+         * Counts the rows scanned, i.e. the candidates the query filters, as they are consumed.
+         */
+        <T> Stream<T> scan(Stream<T> candidates) {
+            return candidates.peek(candidate -> scanned++);
+        }
+
+        void scanned(long rows) {
+            scanned += rows;
+        }
+
+        void returned(long rows) {
+            returned += rows;
+        }
+
+        /**
+         * Counts the rows returned as they are consumed and finishes the execution once the results are exhausted or
+         * closed.
+         */
+        <T> Stream<T> track(Stream<T> results) {
+            Spliterator<T> spliterator = results.spliterator();
+            return StreamSupport.stream(new TrackingSpliterator<>(spliterator), false)
+                .onClose(results::close)
+                .onClose(this::finish);
+        }
+
+        /**
+         * Records the execution, unless it's been recorded already.
+         */
+        void finish() {
+            if (!finished) {
+                finished = true;
+                record(this, System.nanoTime() - start);
+            }
+        }
+
+        @RequiredArgsConstructor
+        private final class TrackingSpliterator<T> implements Spliterator<T> {
+
+            private final Spliterator<T> results;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                boolean advanced = results.tryAdvance(result -> {
+                    returned++;
+                    action.accept(result);
+                });
+                if (!advanced) {
+                    finish();
+                }
+                return advanced;
+            }
+
+            @Override
+            @Nullable
+            public Spliterator<T> trySplit() {
+                return null;
+            }
+
+            @Override
+            public long estimateSize() {
+                return results.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return results.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+            }
+        }
+    }
+
+    private static final class Statistics {
+
+        private final LongAdder executions = new LongAdder();
+
+        private final LongAdder totalTime = new LongAdder();
+
+        private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+        private final LongAdder rowsScanned = new LongAdder();
+
+        private final LongAdder rowsReturned = new LongAdder();
+
+        @Nullable
+        private volatile String index;
+
+        private void record(Execution execution, long duration) {
+            executions.increment();
+            totalTime.add(duration);
+            maxTime.accumulate(duration);
+            rowsScanned.add(execution.scanned);
+            rowsReturned.add(execution.returned);
+            index = execution.index;
+        }
+
+        private QuerySummary summarize(String query) {
+            return new QuerySummary(query, index, executions.sum(), totalTime.sum(), maxTime.get(), rowsScanned.sum(),
+                rowsReturned.sum());
+        }
+    }
+
+    /**
+     * The statistics of a query. Times are given in nanoseconds.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class QuerySummary {
+
+        @NonNull
+        private final String query;
+
+        /**
+         * The property whose index the latest execution looked its candidates up in, or {@literal null} if it scanned
+         * the table.
+         */
+        @Nullable
+        private final String index;
+
+        private final long executions;
+
+        private final long totalTime;
+
+        private final long maxTime;
+
+        private final long rowsScanned;
+
+        private final long rowsReturned;
+    }
+}
@@ -0,0 +1,41 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.repository.core.NamedQueries;
+import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.data.repository.query.QueryLookupStrategy;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.data.repository.util.ReactiveWrappers;
+import org.springframework.lang.Nullable;
+import reactor.core.scheduler.Scheduler;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link QueryLookupStrategy} which derives reactive queries from the names of query methods.
+ *
+ * @author Vincent Nadoll
+ * @see ReactivePartTreeInMemoryQuery
+ */
+@RequiredArgsConstructor
+class ReactiveInMemoryQueryLookupStrategy implements QueryLookupStrategy {
+
+    private final EntityStore entityStore;
+
+    @Nullable
+    private final QueryStatistics statistics;
+
+    private final Scheduler writeScheduler;
+
+    @Override
+    public RepositoryQuery resolveQuery(Method method, RepositoryMetadata metadata, ProjectionFactory factory,
+                                        NamedQueries namedQueries) {
+        QueryMethod queryMethod = new QueryMethod(method, metadata, factory);
+        boolean multiValue = ReactiveWrappers.isMultiValueType(method.getReturnType());
+        PartTreeInMemoryQuery query = new PartTreeInMemoryQuery(queryMethod, entityStore, statistics, multiValue);
+        return new ReactivePartTreeInMemoryQuery(query, multiValue, writeScheduler);
+    }
+}
@@ -0,0 +1,114 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.ReactiveInMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.config.IdentifierMapping;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.inmemory.repository.config.TableMapping;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.data.repository.core.support.ReactiveRepositoryFactorySupport;
+import org.springframework.data.repository.query.QueryLookupStrategy;
+import org.springframework.data.repository.query.QueryMethodEvaluationContextProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Reactive in-memory repository factory which instantiates {@link ReactiveInMemoryRepository}s via reflection. The
+ * repositories share their tables with the ones created by an {@link InMemoryRepositoryFactory} for the same entity
+ * store. Query methods are derived from their names.
+ *
+ * <p>Reactive repositories write in parallel on their write scheduler, which tables operated in
+ * {@link StoreMode#SIMPLE simple mode} don't support. Tables created by this factory are hence operated in
+ * {@link StoreMode#CONCURRENT concurrent mode} unless defined otherwise, and a repository of a table which has already
+ * been created in simple mode, e.g. by an {@link InMemoryRepositoryFactory}, fails to be created.
+ *
+ * @author Vincent Nadoll
+ */
+@RequiredArgsConstructor
+public class ReactiveInMemoryRepositoryFactory extends ReactiveRepositoryFactorySupport {
+
+    private final EntityStore entityStore;
+    private final IdentifierMapping identifierMapping;
+    private final TableMapping tableMapping;
+
+    /**
+     * Statistics to record the executions of queries in, or {@literal null} to record none.
+     */
+    @Setter
+    @Nullable
+    private QueryStatistics queryStatistics;
+
+    /**
+     * The scheduler to perform writes on, the bounded elastic one by default.
+     *
+     * @see SimpleReactiveInMemoryRepository#setWriteScheduler(Scheduler)
+     */
+    @Setter
+    @NonNull
+    private Scheduler writeScheduler = Schedulers.boundedElastic();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T, ID> InMemoryEntityInformation<T, ID> getEntityInformation(Class<T> domainClass) {
+        return (InMemoryEntityInformation<T, ID>) InMemoryEntityInformation.getEntityInformation(domainClass);
+    }
+
+    @Override
+    protected ReactiveInMemoryRepository<?, ?> getTargetRepository(RepositoryInformation metadata) {
+        InMemoryEntityInformation<?, ?> entityInformation = getEntityInformation(metadata.getDomainType());
+        Class<?> domainType = entityInformation.getJavaType();
+        TableDefinition definition = InMemoryRepositoryFactory.getDefinition(domainType, tableMapping);
+        if (StoreMode.SIMPLE == definition.getStoreMode()) {
+            definition = new TableDefinition(StoreMode.CONCURRENT, definition.getIndexes(), definition.getStorage(),
+                definition.getCodec(), definition.getCopyMode(), definition.isUnboxedKeys());
+        }
+        InMemoryRepositoryFactory.addTable(entityStore, entityInformation, identifierMapping, definition);
+        validateStoreMode(domainType);
+
+        Object repository = getTargetRepositoryViaReflection(metadata, entityInformation, entityStore);
+        Assert.isInstanceOf(ReactiveInMemoryRepository.class, repository);
+        if (repository instanceof SimpleReactiveInMemoryRepository) {
+            SimpleReactiveInMemoryRepository<?, ?> simple = (SimpleReactiveInMemoryRepository<?, ?>) repository;
+            simple.setQueryStatistics(queryStatistics);
+            simple.setWriteScheduler(writeScheduler);
+        }
+
+        return (ReactiveInMemoryRepository<?, ?>) repository;
+    }
+
+    private void validateStoreMode(Class<?> domainType) {
+        if (entityStore instanceof InMemoryEntityTableStore) {
+            InMemoryEntityStore<?> table = ((InMemoryEntityTableStore) entityStore).getTables()
+                .get(domainType.getName());
+            if (null != table && StoreMode.SIMPLE == table.getDefinition().getStoreMode()) {
+                throw new IllegalStateException(
+                    String.format(
+                        "Table of [%s] is operated in simple mode, which doesn't support reactive repositories; "
+                            + "define it or the default store mode as CONCURRENT or MULTI_VERSION",
+                        domainType.getCanonicalName()
+                    )
+                );
+            }
+        }
+    }
+
+    @Override
+    protected Class<?> getRepositoryBaseClass(RepositoryMetadata metadata) {
+        return SimpleReactiveInMemoryRepository.class;
+    }
+
+    @Override
+    protected Optional<QueryLookupStrategy> getQueryLookupStrategy(QueryLookupStrategy.Key key,
+                                                                   QueryMethodEvaluationContextProvider provider) {
+        return Optional.of(new ReactiveInMemoryQueryLookupStrategy(entityStore, queryStatistics, writeScheduler));
+    }
+}
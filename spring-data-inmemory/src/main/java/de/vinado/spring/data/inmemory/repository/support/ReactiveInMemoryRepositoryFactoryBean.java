@@ -0,0 +1,70 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.IdentifierMapping;
+import de.vinado.spring.data.inmemory.repository.config.TableMapping;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.util.Assert;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Special adapter for Springs {@link org.springframework.beans.factory.FactoryBean} interface to allow easy setup of
+ * reactive repository factories via Spring configuration.
+ *
+ * @param <T>  the type of the repository
+ * @param <S>  the type of the entity
+ * @param <ID> the type of the entity's identifier
+ * @author Vincent Nadoll
+ */
+public class ReactiveInMemoryRepositoryFactoryBean<T extends Repository<S, ID>, S, ID>
+    extends RepositoryFactoryBeanSupport<T, S, ID> {
+
+    @Setter(onMethod_ = @Autowired)
+    private EntityStore entityStore;
+
+    @Setter(onMethod_ = @Autowired(required = false))
+    private IdentifierMapping identifierMapping;
+
+    @Setter(onMethod_ = @Autowired(required = false))
+    private TableMapping tableMapping;
+
+    @Setter(onMethod_ = @Autowired(required = false))
+    private QueryStatistics queryStatistics;
+
+    /**
+     * The scheduler to perform writes on, or {@literal null} to use the factory's default.
+     */
+    @Setter
+    private Scheduler writeScheduler;
+
+    /**
+     * Creates a new {@link RepositoryFactoryBeanSupport} for the given repository interface.
+     *
+     * @param repositoryInterface must not be {@literal null}.
+     */
+    protected ReactiveInMemoryRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
+        super(repositoryInterface);
+    }
+
+    @Override
+    protected RepositoryFactorySupport createRepositoryFactory() {
+        Assert.notNull(entityStore, "Entity manager must not be null");
+        ReactiveInMemoryRepositoryFactory factory = new ReactiveInMemoryRepositoryFactory(entityStore,
+            identifierMapping, tableMapping);
+        factory.setQueryStatistics(queryStatistics);
+        if (null != writeScheduler) {
+            factory.setWriteScheduler(writeScheduler);
+        }
+        return factory;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(entityStore, "Entity manager must not be null");
+        super.afterPropertiesSet();
+    }
+}
@@ -0,0 +1,64 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.RepositoryQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.stream.Stream;
+
+/**
+ * A {@link RepositoryQuery} deferring a {@link PartTreeInMemoryQuery} until it's subscribed to. Methods returning a
+ * {@link Flux} emit the matching entities as they're requested, methods returning a {@link Mono} emit the single
+ * result, if any. Derived delete queries are performed on the write scheduler, all other queries on the subscribing
+ * thread. Arguments are bound as they are, i.e. they mustn't be publishers themselves.
+ *
+ * @author Vincent Nadoll
+ */
+final class ReactivePartTreeInMemoryQuery implements RepositoryQuery {
+
+    private final PartTreeInMemoryQuery query;
+
+    private final boolean multiValue;
+
+    private final Scheduler writeScheduler;
+
+    /**
+     * Wraps the given query.
+     *
+     * @param query          must not be {@literal null}
+     * @param multiValue     whether the query method returns a {@link Flux} rather than a {@link Mono}
+     * @param writeScheduler must not be {@literal null}
+     */
+    ReactivePartTreeInMemoryQuery(PartTreeInMemoryQuery query, boolean multiValue, Scheduler writeScheduler) {
+        this.query = query;
+        this.multiValue = multiValue;
+        this.writeScheduler = writeScheduler;
+    }
+
+    @Override
+    public Object execute(Object[] parameters) {
+        if (multiValue) {
+            Flux<Object> results = Flux.defer(() -> toFlux(query.execute(parameters)));
+            return query.isDelete() ? results.subscribeOn(writeScheduler) : results;
+        }
+
+        Mono<Object> result = Mono.fromSupplier(() -> query.execute(parameters));
+        return query.isDelete() ? result.subscribeOn(writeScheduler) : result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Flux<Object> toFlux(Object results) {
+        if (results instanceof Stream) {
+            return Flux.fromStream((Stream<Object>) results);
+        }
+
+        return results instanceof Iterable ? Flux.fromIterable((Iterable<Object>) results) : Flux.just(results);
+    }
+
+    @Override
+    public QueryMethod getQueryMethod() {
+        return query.getQueryMethod();
+    }
+}
@@ -0,0 +1,73 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Defines how a table keeps its entities in its row map. An entity is encoded into a row before the row is locked, so
+ * that an entity which can't be encoded leaves the table untouched. A row is released once it's been replaced or
+ * removed and the row map no longer holds it.
+ *
+ * @author Vincent Nadoll
+ */
+interface RowFormat {
+
+    /**
+     * Keeps the entities themselves as rows.
+     */
+    RowFormat HEAP = new RowFormat() {
+
+        @Override
+        public Object encode(Object entity) {
+            return entity;
+        }
+
+        @Override
+        public Object decode(Object row) {
+            return row;
+        }
+
+        @Override
+        public void release(Object row) {
+        }
+
+        @Override
+        public <ID> Object read(Map<ID, Object> rows, ID id) {
+            return rows.get(id);
+        }
+
+        @Override
+        public <ID> Stream<Object> readAll(Map<ID, Object> rows) {
+            return rows.values().stream();
+        }
+    };
+
+    Object encode(Object entity);
+
+    Object decode(Object row);
+
+    void release(Object row);
+
+    /**
+     * Returns the entity with the given primary key or {@literal null} if none exists. The row is decoded while it's
+     * locked, so that it can't be released concurrently.
+     */
+    default <ID> Object read(Map<ID, Object> rows, ID id) {
+        Object[] entity = new Object[1];
+        rows.computeIfPresent(id, (key, row) -> {
+            entity[0] = decode(row);
+            return row;
+        });
+        return entity[0];
+    }
+
+    /**
+     * Returns all entities, decoding each of them once the stream reaches it.
+     */
+    default <ID> Stream<Object> readAll(Map<ID, Object> rows) {
+        return rows.keySet().stream()
+            .map(id -> read(rows, id))
+            .filter(Objects::nonNull);
+    }
+}
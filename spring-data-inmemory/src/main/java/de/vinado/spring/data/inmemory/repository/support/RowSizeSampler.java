@@ -0,0 +1,204 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Estimates the average heap retained by the entities of a table incrementally: every estimate measures a small sample
+ * of entities, starting where the previous sample ended, and folds it into a running average. Estimating hence
+ * measures a bounded number of entities per call and never locks the table.
+ *
+ * <p>An entity is measured by walking the objects it refers to, assuming compressed references and an object
+ * alignment of eight bytes. Objects of the JDK are measured by their public state, e.g. strings by their length and
+ * collections by their elements, as their fields aren't accessible.
+ *
+ * @author Vincent Nadoll
+ */
+final class RowSizeSampler {
+
+    private static final int SAMPLE_SIZE = 16;
+
+    /**
+     * Number of entities after which the running average weighs older samples less than newer ones.
+     */
+    private static final int WINDOW = 4096;
+
+    private static final int MAX_OBJECTS = 4096;
+
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            return new Layout(type);
+        }
+    };
+
+    private double average;
+
+    private long samples;
+
+    private long offset;
+
+    /**
+     * Measures the next sample of the given entities and returns the updated average size of an entity in bytes.
+     *
+     * @param entities supplies all entities of the table
+     * @param count    the number of entities of the table
+     */
+    synchronized long sample(Supplier<Stream<Object>> entities, long count) {
+        if (count <= 0) {
+            return Math.round(average);
+        }
+
+        if (offset >= count) {
+            offset = 0;
+        }
+
+        long measured = 0;
+        long total = 0;
+        try (Stream<Object> sample = entities.get().skip(offset).limit(SAMPLE_SIZE)) {
+            for (Object entity : (Iterable<Object>) sample::iterator) {
+                total += sizeOf(entity);
+                measured++;
+            }
+        } catch (RuntimeException e) {
+            // the table has been modified concurrently, which only tables operated in concurrent mode tolerate
+            return Math.round(average);
+        }
+
+        offset += SAMPLE_SIZE;
+        if (measured > 0) {
+            samples = Math.min(samples + measured, WINDOW);
+            average += (total - measured * average) / samples;
+        }
+        return Math.round(average);
+    }
+
+    /**
+     * Returns the number of bytes retained by the given object and the objects it refers to.
+     */
+    static long sizeOf(Object root) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long size = 0;
+        while (!pending.isEmpty() && visited.size() < MAX_OBJECTS) {
+            Object object = pending.pop();
+            if (!visited.add(object)) {
+                continue;
+            }
+
+            Class<?> type = object.getClass();
+            if (type.isArray()) {
+                size += sizeOfArray(object, pending);
+            } else if (object instanceof String) {
+                size += 24 + align(16 + ((String) object).length());
+            } else if (object instanceof Collection) {
+                size += 32 + 16L * ((Collection<?>) object).size();
+                ((Collection<?>) object).forEach(element -> push(pending, element));
+            } else if (object instanceof Map) {
+                size += 48 + 32L * ((Map<?, ?>) object).size();
+                ((Map<?, ?>) object).forEach((key, value) -> {
+                    push(pending, key);
+                    push(pending, value);
+                });
+            } else {
+                Layout layout = LAYOUTS.get(type);
+                size += layout.size;
+                layout.references(object, pending);
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOfArray(Object array, Deque<Object> pending) {
+        int length = Array.getLength(array);
+        Class<?> componentType = array.getClass().getComponentType();
+        if (!componentType.isPrimitive()) {
+            for (Object element : (Object[]) array) {
+                push(pending, element);
+            }
+        }
+
+        return align(16 + (long) length * slotSize(componentType));
+    }
+
+    private static void push(Deque<Object> pending, Object object) {
+        if (null != object) {
+            pending.push(object);
+        }
+    }
+
+    private static int slotSize(Class<?> type) {
+        if (long.class == type || double.class == type) {
+            return Long.BYTES;
+        }
+
+        if (short.class == type || char.class == type) {
+            return Short.BYTES;
+        }
+
+        return byte.class == type || boolean.class == type ? Byte.BYTES : Integer.BYTES;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * The shallow size of a class's instances and the fields referring to other objects, which are only followed for
+     * classes outside the JDK.
+     */
+    private static final class Layout {
+
+        private final long size;
+
+        private final Field[] references;
+
+        private Layout(Class<?> type) {
+            long size = 12;
+            List<Field> references = new ArrayList<>();
+            boolean accessible = !type.getName().startsWith("java.");
+            for (Class<?> declaring = type; null != declaring; declaring = declaring.getSuperclass()) {
+                for (Field field : declaring.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+
+                    size += slotSize(field.getType());
+                    if (accessible && !field.getType().isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            references.add(field);
+                        } catch (RuntimeException e) {
+                            // the field's declaring class isn't open to reflection
+                        }
+                    }
+                }
+            }
+            this.size = align(size);
+            this.references = references.toArray(new Field[0]);
+        }
+
+        private void references(Object object, Deque<Object> pending) {
+            for (Field field : references) {
+                try {
+                    push(pending, field.get(object));
+                } catch (IllegalAccessException e) {
+                    // unreachable, the field has been made accessible
+                }
+            }
+        }
+    }
+}
@@ -4,26 +4,40 @@ import de.vinado.spring.data.inmemory.repository.EntityStore;
 import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
 import de.vinado.spring.data.repository.NoResultException;
 import de.vinado.spring.data.repository.NonUniqueResultException;
+import lombok.AccessLevel;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.data.util.ProxyUtils;
 import org.springframework.data.util.Streamable;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
-import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
-
-import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getAccessorDeep;
+import java.util.stream.Stream;
 
 /**
- * An in-memory implementation of Spring's {@literal CrudRepository} which stores entities in a {@literal HashMap}.
+ * An in-memory implementation of Spring's {@literal PagingAndSortingRepository} which stores entities in a
+ * {@literal HashMap}. Sorted results are iterated through a sorted index where one exists, pages are selected without
+ * sorting the whole table.
+ *
+ * <p>Given {@link QueryStatistics}, executions of {@link #findAll()}, {@link #findAllBy(String, Object)} and
+ * {@link #countBy(String, Object)} are recorded along with the rows they scanned and returned, the former two once the
+ * results are exhausted. Filtering the results of {@link #findAll()} always scans the whole table.
  *
  * @param <T>  the type of the entity to handle
  * @param <ID> the type of the entity's identifier
@@ -43,6 +57,10 @@ public class SimpleInMemoryRepository<T, ID> implements InMemoryRepository<T, ID
     @NonNull
     private final EntityStore store;
 
+    @Nullable
+    @Setter(AccessLevel.PACKAGE)
+    private QueryStatistics queryStatistics;
+
     public SimpleInMemoryRepository(@NonNull Class<T> domainClass, @NonNull EntityStore store) {
         this(InMemoryEntityInformation.getEntityInformation(domainClass), store);
     }
@@ -68,13 +86,45 @@ public class SimpleInMemoryRepository<T, ID> implements InMemoryRepository<T, ID
 
     /**
      * {@inheritDoc}
+     *
+     * <p>Consecutive new and existing entities are stored and merged in batches, preserving the order in which the
+     * entities are saved. A new entity given more than once is stored once and merged thereafter, as if the entities
+     * were saved one by one.
      */
     @Override
     public <S extends T> List<S> saveAll(Iterable<S> entities) {
         Assert.notNull(entities, ENTITIES_MUST_NOT_BE_NULL);
-        return Streamable.of(entities)
-            .map(this::save)
-            .toList();
+
+        List<S> saved = new ArrayList<>();
+        List<S> batch = new ArrayList<>();
+        Set<S> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean creating = true;
+        for (S entity : entities) {
+            Assert.notNull(entity, ENTITY_MUST_NOT_BE_NULL);
+            boolean isNew = entityInformation.isNew(entity) && !created.contains(entity);
+            if (isNew != creating) {
+                saveAll(batch, creating);
+                batch.clear();
+                creating = isNew;
+            }
+
+            if (isNew) {
+                created.add(entity);
+            }
+            saved.add(entity);
+            batch.add(entity);
+        }
+
+        saveAll(batch, creating);
+        return saved;
+    }
+
+    private void saveAll(List<?> batch, boolean creating) {
+        if (creating) {
+            store.storeAll(batch);
+        } else {
+            store.mergeAll(batch);
+        }
     }
 
     /**
@@ -102,7 +152,59 @@ public class SimpleInMemoryRepository<T, ID> implements InMemoryRepository<T, ID
      */
     @Override
     public Streamable<T> findAll() {
-        return Streamable.of(() -> store.findAll(getDomainClass()));
+        return Streamable.of(() -> {
+            Stream<T> entities = store.findAll(getDomainClass());
+            QueryStatistics.Execution execution = startQuery("findAll", null);
+            return null == execution ? entities : execution.track(execution.scan(entities));
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Streamable<T> findAll(Sort sort) {
+        Assert.notNull(sort, "Sort must not be null");
+        return Streamable.of(() -> select(sort, 0, Long.MAX_VALUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        Assert.notNull(pageable, "Pageable must not be null");
+
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll(pageable.getSort()).toList());
+        }
+
+        List<T> content = select(pageable.getSort(), pageable.getOffset(), pageable.getPageSize())
+            .collect(Collectors.toList());
+        return PageableExecutionUtils.getPage(content, pageable, this::count);
+    }
+
+    /**
+     * Returns the entities at positions {@code [offset, offset + limit)} in the requested order. The entities are
+     * iterated through a sorted index if the order allows to, otherwise the window is selected by a bounded heap rather
+     * than a full sort.
+     */
+    private Stream<T> select(Sort sort, long offset, long limit) {
+        Class<T> domainClass = getDomainClass();
+        Optional<Sort.Order> indexedOrder = SortComparators.indexedOrder(store, domainClass, sort);
+        if (indexedOrder.isPresent()) {
+            Sort.Order order = indexedOrder.get();
+            return store.findAllOrderedBy(domainClass, order.getProperty(), order.getDirection())
+                .skip(offset)
+                .limit(limit);
+        }
+
+        Stream<T> entities = store.findAll(domainClass);
+        if (sort.isUnsorted()) {
+            return entities.skip(offset).limit(limit);
+        }
+
+        return TopK.window(entities, SortComparators.of(domainClass, sort), offset, limit);
     }
 
     /**
@@ -124,7 +226,7 @@ public class SimpleInMemoryRepository<T, ID> implements InMemoryRepository<T, ID
      */
     @Override
     public long count() {
-        return store.findAll(getDomainClass()).count();
+        return store.count(getDomainClass());
     }
 
     /**
@@ -164,22 +266,31 @@ public class SimpleInMemoryRepository<T, ID> implements InMemoryRepository<T, ID
     @Override
     public void deleteAll(Iterable<? extends T> entities) {
         Assert.notNull(entities, ENTITIES_MUST_NOT_BE_NULL);
-        Streamable.of(entities).forEach(this::delete);
+
+        List<T> deleted = new ArrayList<>();
+        for (T entity : entities) {
+            Assert.notNull(entity, ENTITY_MUST_NOT_BE_NULL);
+            if (!entityInformation.isNew(entity)) {
+                deleted.add(entity);
+            }
+        }
+
+        store.removeAll(deleted);
     }
 
     /**
      * {@inheritDoc}
+     *
+     * <p>Clears the table at once, regardless of its size.
      */
     @Override
     public void deleteAll() {
-        Set<T> entities = store.findAll(getDomainClass()).collect(Collectors.toSet());
-        for (T entity : entities) {
-            store.remove(entity);
-        }
+        store.clear(getDomainClass());
     }
 
     /**
-     * Returns all instances of the type {@code T} with the given property and its value.
+     * Returns all instances of the type {@code T} with the given property and its value. The lookup is served by a
+     * secondary index if the property is {@link de.vinado.spring.data.inmemory.Indexed indexed}.
      *
      * @param propertyName must not be {@literal null}
      * @param value        might be {@literal null}
@@ -188,39 +299,141 @@ public class SimpleInMemoryRepository<T, ID> implements InMemoryRepository<T, ID
      */
     protected <F> Streamable<T> findAllBy(String propertyName, F value) {
         Assert.notNull(propertyName, "Property name must not be null");
-        return Streamable.of(() -> store.findAll(getDomainClass()))
-            .filter(by(propertyName, value));
-    }
-
-    private <F> Predicate<T> by(String property, F value) {
-        return entity -> {
-            try {
-                return has(property, value, entity);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new RuntimeException(
-                    String.format(
-                        "Couldn't get property [%s] from [%s]",
-                        property,
-                        entity.getClass().getCanonicalName()
-                    ), e
-                );
+        return Streamable.of(() -> {
+            Stream<T> entities = store.findAllBy(getDomainClass(), propertyName, value);
+            QueryStatistics.Execution execution = startQuery("findAllBy", propertyName);
+            if (null == execution) {
+                return entities;
+            }
+
+            if (isIndexed(propertyName)) {
+                return execution.track(execution.scan(entities));
             }
-        };
+
+            execution.scanned(count());
+            return execution.track(entities);
+        });
     }
 
-    private <F> boolean has(String property, F value, T entity) throws NoSuchFieldException, IllegalAccessException {
-        Optional<Field> field = getAccessorDeep(entity.getClass(), Class::getDeclaredFields, contains(property));
-        if (!field.isPresent()) {
-            throw new NoSuchFieldException(
-                String.format("Entity [%s] has no property [%s]", entity.getClass().getCanonicalName(), property)
-            );
+    /**
+     * Returns all instances of the type {@code T} whose property value lies within the given range, in ascending order
+     * of that value. The lookup is served by a secondary index if the property has a
+     * {@link de.vinado.spring.data.inmemory.repository.config.IndexType#SORTED sorted} index.
+     *
+     * @param propertyName must not be {@literal null}
+     * @param range        must not be {@literal null}
+     * @param <F>          the type of the property's value
+     * @return an ordered subset of all entities whose property value lies within the range
+     */
+    protected <F extends Comparable<F>> Streamable<T> findAllInRange(String propertyName, Range<F> range) {
+        return findAllInRange(propertyName, range, Sort.Direction.ASC);
+    }
+
+    /**
+     * Returns all instances of the type {@code T} whose property value lies within the given range, ordered by that
+     * value.
+     *
+     * @param propertyName must not be {@literal null}
+     * @param range        must not be {@literal null}
+     * @param direction    must not be {@literal null}
+     * @param <F>          the type of the property's value
+     * @return an ordered subset of all entities whose property value lies within the range
+     * @see #findAllInRange(String, Range)
+     */
+    protected <F extends Comparable<F>> Streamable<T> findAllInRange(String propertyName, Range<F> range,
+                                                                     Sort.Direction direction) {
+        Assert.notNull(propertyName, "Property name must not be null");
+        Assert.notNull(range, "Range must not be null");
+        Assert.notNull(direction, "Direction must not be null");
+        return Streamable.of(() -> store.findAllInRange(getDomainClass(), propertyName, range, direction));
+    }
+
+    /**
+     * Returns all instances of the type {@code T} whose string property starts with the given prefix, in ascending
+     * order of that property.
+     *
+     * @param propertyName must not be {@literal null}
+     * @param prefix       must not be {@literal null}
+     * @return an ordered subset of all entities whose property value starts with the prefix
+     * @see #findAllInRange(String, Range)
+     */
+    protected Streamable<T> findAllStartingWith(String propertyName, String prefix) {
+        Assert.notNull(prefix, "Prefix must not be null");
+        return findAllInRange(propertyName, SortedPropertyIndex.prefixRange(prefix));
+    }
+
+    /**
+     * Returns all instances of the type {@code T} ordered by the given property.
+     *
+     * @param propertyName must not be {@literal null}
+     * @param direction    must not be {@literal null}
+     * @return all entities in the requested order
+     */
+    protected Streamable<T> findAllOrderedBy(String propertyName, Sort.Direction direction) {
+        Assert.notNull(propertyName, "Property name must not be null");
+        Assert.notNull(direction, "Direction must not be null");
+        return Streamable.of(() -> store.findAllOrderedBy(getDomainClass(), propertyName, direction));
+    }
+
+    /**
+     * Returns the first instances of the type {@code T} ordered by the given property. With a sorted index, only the
+     * requested entities are visited, otherwise they're selected by a bounded heap.
+     *
+     * @param propertyName must not be {@literal null}
+     * @param direction    must not be {@literal null}
+     * @param limit        the maximum number of entities to return
+     * @return at most {@code limit} entities in the requested order
+     */
+    protected Streamable<T> findTopBy(String propertyName, Sort.Direction direction, int limit) {
+        Assert.notNull(propertyName, "Property name must not be null");
+        Assert.notNull(direction, "Direction must not be null");
+        Assert.isTrue(limit >= 0, "Limit must not be negative");
+        return Streamable.of(() -> select(Sort.by(direction, propertyName), 0, limit));
+    }
+
+    /**
+     * Counts all instances of the type {@code T} with the given property and its value. Takes constant time if the
+     * property is {@link de.vinado.spring.data.inmemory.Indexed indexed}.
+     *
+     * @param propertyName must not be {@literal null}
+     * @param value        might be {@literal null}
+     * @param <F>          the type of the property's value
+     * @return the number of entities matching the provided property name and its value
+     * @see EntityStore#countBy(Class, String, Object)
+     */
+    protected <F> long countBy(String propertyName, F value) {
+        Assert.notNull(propertyName, "Property name must not be null");
+        QueryStatistics.Execution execution = startQuery("countBy", propertyName);
+        long count = store.countBy(getDomainClass(), propertyName, value);
+        if (null != execution) {
+            execution.scanned(isIndexed(propertyName) ? 0 : count());
+            execution.returned(count);
+            execution.finish();
+        }
+        return count;
+    }
+
+    /**
+     * Starts an execution of the given query on the given property, or returns {@literal null} if queries aren't
+     * recorded. The execution is assumed to look its candidates up in the property's index, if it has one.
+     */
+    @Nullable
+    private QueryStatistics.Execution startQuery(String query, @Nullable String propertyName) {
+        QueryStatistics statistics = this.queryStatistics;
+        if (null == statistics) {
+            return null;
+        }
+
+        String name = getDomainClass().getSimpleName() + "." + query;
+        if (null == propertyName) {
+            return statistics.start(name, null);
         }
 
-        return Objects.equals(value, field.get().get(entity));
+        return statistics.start(name + "(" + propertyName + ")", isIndexed(propertyName) ? propertyName : null);
     }
 
-    private static Predicate<Field> contains(String property) {
-        return field -> Objects.equals(field.getName(), property);
+    private boolean isIndexed(String propertyName) {
+        return store.getIndexType(getDomainClass(), propertyName).isPresent();
     }
 
     /**
@@ -0,0 +1,253 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.ReactiveInMemoryRepository;
+import lombok.NonNull;
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collections;
+
+import static de.vinado.spring.data.inmemory.repository.support.SimpleInMemoryRepository.ENTITIES_MUST_NOT_BE_NULL;
+import static de.vinado.spring.data.inmemory.repository.support.SimpleInMemoryRepository.ENTITY_MUST_NOT_BE_NULL;
+import static de.vinado.spring.data.inmemory.repository.support.SimpleInMemoryRepository.ID_MUST_NOT_BE_NULL;
+
+/**
+ * A reactive in-memory implementation of Spring's {@literal ReactiveSortingRepository}, operating on the same tables
+ * and with the same semantics as the {@link SimpleInMemoryRepository} it delegates to.
+ *
+ * <p>Reads run on the subscribing thread. On tables operated in
+ * {@link de.vinado.spring.data.inmemory.repository.config.StoreMode#CONCURRENT concurrent} or
+ * {@link de.vinado.spring.data.inmemory.repository.config.StoreMode#MULTI_VERSION multi-version} mode they never wait
+ * for a {@link WriteAheadLog} and look rows up without locking them as long as no writer interferes. Tables storing
+ * primary keys unboxed or entities off-heap read optimistically, though, and retry a read invalidated by a concurrent
+ * writer while holding a lock, which may briefly block the subscribing thread. Multiple entities are emitted as they're
+ * requested, iterating the table at most one entity ahead of the subscriber's demand, and the iteration is released on
+ * cancellation.
+ *
+ * <p>Writes may wait, e.g. for a row locked by a concurrent writer or for a {@link WriteAheadLog} to be forced, and are
+ * hence performed on the {@link #setWriteScheduler(Scheduler) write scheduler}, the bounded elastic one by default.
+ * Writes on the scheduler run in parallel, so the table must not be operated in
+ * {@link de.vinado.spring.data.inmemory.repository.config.StoreMode#SIMPLE simple} mode. Setting
+ * {@link Schedulers#immediate()} performs writes on the subscribing thread instead, which saves the thread hop for
+ * tables that aren't logged.
+ *
+ * @param <T>  the type of the entity to handle
+ * @param <ID> the type of the entity's identifier
+ * @author Vincent Nadoll
+ */
+@Repository
+public class SimpleReactiveInMemoryRepository<T, ID> implements ReactiveInMemoryRepository<T, ID> {
+
+    private final SimpleInMemoryRepository<T, ID> repository;
+
+    private Scheduler writeScheduler = Schedulers.boundedElastic();
+
+    public SimpleReactiveInMemoryRepository(@NonNull InMemoryEntityInformation<T, ?> entityInformation,
+                                            @NonNull EntityStore store) {
+        this.repository = new SimpleInMemoryRepository<>(entityInformation, store);
+    }
+
+    public SimpleReactiveInMemoryRepository(@NonNull Class<T> domainClass, @NonNull EntityStore store) {
+        this(InMemoryEntityInformation.getEntityInformation(domainClass), store);
+    }
+
+    /**
+     * Sets the scheduler to perform writes on.
+     *
+     * @param writeScheduler must not be {@literal null}
+     */
+    public void setWriteScheduler(@NonNull Scheduler writeScheduler) {
+        this.writeScheduler = writeScheduler;
+    }
+
+    void setQueryStatistics(@Nullable QueryStatistics queryStatistics) {
+        repository.setQueryStatistics(queryStatistics);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        Assert.notNull(entity, ENTITY_MUST_NOT_BE_NULL);
+        return write(Mono.fromSupplier(() -> repository.save(entity)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The entities are saved in batches, like {@link SimpleInMemoryRepository#saveAll(Iterable)} does.
+     */
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        Assert.notNull(entities, ENTITIES_MUST_NOT_BE_NULL);
+        return write(Mono.fromSupplier(() -> repository.saveAll(entities))).flatMapIterable(saved -> saved);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The entities are saved one after the other, as they're emitted.
+     */
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entities) {
+        Assert.notNull(entities, ENTITIES_MUST_NOT_BE_NULL);
+        return Flux.from(entities).concatMap(this::save);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<T> findById(ID id) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        return Mono.fromSupplier(() -> repository.findById(id).orElse(null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<T> findById(Publisher<ID> id) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Boolean> existsById(ID id) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        return Mono.fromSupplier(() -> repository.existsById(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Boolean> existsById(Publisher<ID> id) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<T> findAll() {
+        return Flux.fromStream(() -> repository.findAll().stream());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<T> findAll(Sort sort) {
+        Assert.notNull(sort, "Sort must not be null");
+        return Flux.fromStream(() -> repository.findAll(sort).stream());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Signals a {@link de.vinado.spring.data.repository.NoResultException} once an ID without an entity is reached.
+     */
+    @Override
+    public Flux<T> findAllById(Iterable<ID> ids) {
+        Assert.notNull(ids, "IDs must not be null");
+        return Flux.fromStream(() -> repository.findAllById(ids).stream());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see #findAllById(Iterable)
+     */
+    @Override
+    public Flux<T> findAllById(Publisher<ID> ids) {
+        Assert.notNull(ids, "IDs must not be null");
+        return Flux.from(ids).concatMap(id -> findAllById(Collections.singletonList(id)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(repository::count);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Signals a {@link de.vinado.spring.data.repository.NoResultException} if there's no entity with the given ID.
+     */
+    @Override
+    public Mono<Void> deleteById(ID id) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        return write(Mono.fromRunnable(() -> repository.deleteById(id)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see #deleteById(Object)
+     */
+    @Override
+    public Mono<Void> deleteById(Publisher<ID> id) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Void> delete(T entity) {
+        Assert.notNull(entity, ENTITY_MUST_NOT_BE_NULL);
+        return write(Mono.fromRunnable(() -> repository.delete(entity)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        Assert.notNull(entities, ENTITIES_MUST_NOT_BE_NULL);
+        return write(Mono.fromRunnable(() -> repository.deleteAll(entities)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The entities are deleted one after the other, as they're emitted.
+     */
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entities) {
+        Assert.notNull(entities, ENTITIES_MUST_NOT_BE_NULL);
+        return Flux.from(entities).concatMap(this::delete).then();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Clears the table at once, regardless of its size.
+     */
+    @Override
+    public Mono<Void> deleteAll() {
+        return write(Mono.fromRunnable(repository::deleteAll));
+    }
+
+    private <R> Mono<R> write(Mono<R> operation) {
+        return operation.subscribeOn(writeScheduler);
+    }
+}
@@ -0,0 +1,573 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.EntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.SnapshotFormat;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary snapshot of several tables. The file starts with a header, followed by one section per table and a footer
+ * listing the offset of each section, so that the sections can be read independently of each other:
+ *
+ * <pre>
+ * header:  magic (int), version (int), flags (int)
+ * section: table name (UTF), last primary key (int length, serialized key or -1), row encoding (byte),
+ *          chunks of rows (int count, count * row), terminated by an empty chunk
+ * footer:  number of sections (int), count * (table name (UTF), offset (long)), footer offset (long), magic (int)
+ * </pre>
+ *
+ * <p>Entities are encoded by the {@link EntityCodec} of their table, each row prefixed by its length. Tables using the
+ * {@link SerializingEntityCodec} are written to a single object stream per section instead, which is reset after
+ * every chunk. If the file is compressed, each section is a GZIP stream of its own.
+ *
+ * <p>A {@link SnapshotFormat#MAPPED mappable} file is never compressed and encodes every row by the table's codec.
+ * Each section is followed by an index of the rows' positions within the section, so that the section can be
+ * memory-mapped and its rows looked up without reading them:
+ *
+ * <pre>
+ * index:   integral keys (byte 0), number of slots (int), number of keys (int), slots * (key (long), position (int))
+ *          or other keys (byte 1), number of keys (int), count * (key (int length, key), position (int))
+ * trailer: position of the index within the section (int) or -1 if the section is too large to be mapped
+ * </pre>
+ *
+ * @author Vincent Nadoll
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x494D5353;
+    private static final int VERSION = 1;
+    private static final int COMPRESSED = 1;
+    private static final int MAPPABLE = 2;
+    private static final int ENCODED_ROWS = 0;
+    private static final int SERIALIZED_ROWS = 1;
+    private static final int INTEGRAL_KEYS = 0;
+    private static final int SERIALIZED_KEYS = 1;
+    private static final int MAX_INDEXED_ROWS = 1 << 27;
+    private static final int CHUNK_SIZE = 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the given tables to a temporary file which then atomically replaces the given one. Each table is
+     * traversed between its {@link InMemoryEntityStore#beginSnapshot()} and {@link InMemoryEntityStore#endSnapshot()}.
+     */
+    static void write(Path file, Collection<InMemoryEntityStore<?>> tables, SnapshotFormat format) throws IOException {
+        boolean compress = SnapshotFormat.COMPRESSED == format;
+        boolean mappable = SnapshotFormat.MAPPED == format;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt((compress ? COMPRESSED : 0) | (mappable ? MAPPABLE : 0));
+            header.flush();
+
+            Map<String, Long> offsets = new LinkedHashMap<>();
+            for (InMemoryEntityStore<?> table : tables) {
+                offsets.put(table.getDomainClass().getName(), channel.position());
+                GZIPOutputStream gzip = compress ? new FastGzipOutputStream(out) : null;
+                DataOutputStream section = new DataOutputStream(null == gzip ? out : gzip);
+                table.beginSnapshot();
+                try {
+                    writeSection(section, table, mappable);
+                } finally {
+                    table.endSnapshot();
+                }
+                if (null != gzip) {
+                    gzip.finish();
+                }
+                section.flush();
+            }
+
+            DataOutputStream footer = new DataOutputStream(out);
+            long footerOffset = channel.position();
+            footer.writeInt(offsets.size());
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                footer.writeUTF(entry.getKey());
+                footer.writeLong(entry.getValue());
+            }
+            footer.writeLong(footerOffset);
+            footer.writeInt(MAGIC);
+            footer.flush();
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static <ID> void writeSection(DataOutputStream out, InMemoryEntityStore<ID> table, boolean mappable)
+        throws IOException {
+        out.writeUTF(table.getDomainClass().getName());
+        writeBytes(out, encodeKey(table.getLastKey()));
+
+        EntityCodec codec = table.getCodec();
+        ObjectOutputStream objects = null;
+        KeyIndex keys = mappable ? new KeyIndex(null != integralKeyType(table)) : null;
+        if (!mappable && codec instanceof SerializingEntityCodec) {
+            out.writeByte(SERIALIZED_ROWS);
+            objects = new ObjectOutputStream(out);
+        } else {
+            out.writeByte(ENCODED_ROWS);
+        }
+
+        DataOutput rows = null == objects ? out : objects;
+        List<Object> chunk = new ArrayList<>(CHUNK_SIZE);
+        Iterator<?> entities = table.findAll(table.getDomainClass()).iterator();
+        while (entities.hasNext()) {
+            chunk.add(entities.next());
+            if (CHUNK_SIZE == chunk.size() || !entities.hasNext()) {
+                rows.writeInt(chunk.size());
+                for (Object entity : chunk) {
+                    if (null != keys) {
+                        keys.add(IdUtils.getId(entity), out.size());
+                    }
+                    if (null == objects) {
+                        writeBytes(out, codec.encode(entity));
+                    } else {
+                        objects.writeObject(entity);
+                    }
+                }
+                if (null != objects) {
+                    objects.reset();
+                }
+                chunk.clear();
+            }
+        }
+        rows.writeInt(0);
+        if (null != objects) {
+            objects.flush();
+        }
+        if (null != keys) {
+            keys.write(out);
+        }
+    }
+
+    /**
+     * Returns the type of the table's primary keys if they are {@literal int}s or {@literal long}s and {@literal null}
+     * otherwise.
+     */
+    @Nullable
+    private static Class<?> integralKeyType(InMemoryEntityStore<?> table) {
+        return IdUtils.getIdType(table.getDomainClass())
+            .map(ClassUtils::resolvePrimitiveIfNecessary)
+            .filter(type -> Long.class == type || Integer.class == type)
+            .orElse(null);
+    }
+
+    @Nullable
+    private static byte[] encodeKey(@Nullable Object key) {
+        return key instanceof Serializable ? SerializingEntityCodec.INSTANCE.encode(key) : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, @Nullable byte[] bytes) throws IOException {
+        if (null == bytes) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads the sections of the given tables in parallel on the given executor and replaces the tables' content by
+     * them. Sections of tables not given are skipped, tables without a section are left untouched.
+     */
+    static void read(Path file, Map<String, InMemoryEntityStore<?>> tables, Executor executor) throws IOException {
+        List<Section> layout;
+        int flags;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DataInputStream header = new DataInputStream(Channels.newInputStream(channel));
+            if (MAGIC != header.readInt() || VERSION != header.readInt()) {
+                throw new IOException(String.format("[%s] is not a snapshot of version %d", file, VERSION));
+            }
+            flags = header.readInt();
+            layout = readFooter(file, channel);
+        }
+
+        boolean compressed = COMPRESSED == (flags & COMPRESSED);
+        boolean mappable = MAPPABLE == (flags & MAPPABLE);
+        List<CompletableFuture<Void>> sections = new ArrayList<>();
+        for (Section section : layout) {
+            InMemoryEntityStore<?> table = tables.get(section.name);
+            if (null != table) {
+                sections.add(CompletableFuture.runAsync(() -> {
+                    if (!mappable || !mapSection(file, section, table)) {
+                        readSection(file, section.offset, compressed, table);
+                    }
+                }, executor));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(sections.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static List<Section> readFooter(Path file, FileChannel channel) throws IOException {
+        ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        channel.read(trailer, channel.size() - trailer.capacity());
+        ((Buffer) trailer).flip();
+        long footerOffset = trailer.getLong();
+        if (MAGIC != trailer.getInt()) {
+            throw new IOException(String.format("Snapshot [%s] is incomplete", file));
+        }
+
+        channel.position(footerOffset);
+        DataInputStream footer = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        int count = footer.readInt();
+        List<Section> sections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sections.add(new Section(footer.readUTF(), footer.readLong()));
+        }
+        for (int i = 0; i < count; i++) {
+            long end = i + 1 < count ? sections.get(i + 1).offset : footerOffset;
+            sections.get(i).length = end - sections.get(i).offset;
+        }
+        return sections;
+    }
+
+    /**
+     * Maps the section into memory and serves the table from the mapping.
+     *
+     * @return {@literal false} if the section can't be mapped and has to be read instead
+     */
+    @SuppressWarnings("unchecked")
+    private static <ID> boolean mapSection(Path file, Section section, InMemoryEntityStore<ID> table) {
+        if (section.length > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, section.offset, section.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int indexPosition = mapping.getInt((int) section.length - Integer.BYTES);
+        Class<?> keyType = integralKeyType(table);
+        ByteBuffer index = mapping.duplicate();
+        if (indexPosition < 0 || INTEGRAL_KEYS == index.get(indexPosition) && null == keyType) {
+            return false;
+        }
+
+        ByteBuffer header = mapping.duplicate();
+        ((Buffer) header).position(Short.BYTES + (header.getShort() & 0xFFFF));
+        byte[] key = readBytes(header);
+
+        ((Buffer) index).position(indexPosition);
+        Map<ID, Object> rows;
+        if (INTEGRAL_KEYS == index.get()) {
+            int capacity = index.getInt();
+            int count = index.getInt();
+            ByteBuffer slots = index.slice();
+            rows = Long.class == keyType
+                ? (Map<ID, Object>) new MappedRows<>(slots, capacity, count, Long.class, Long::valueOf)
+                : (Map<ID, Object>) new MappedRows<>(slots, capacity, count, Integer.class, value -> (int) value);
+        } else {
+            int count = index.getInt();
+            Map<ID, Object> positions = new HashMap<>((int) (count / 0.75f) + 1);
+            for (int i = 0; i < count; i++) {
+                ByteBuffer entityId = ByteBuffer.wrap(readBytes(index));
+                positions.put((ID) WriteAheadLog.decodeKey(entityId), index.getInt());
+            }
+            rows = Collections.unmodifiableMap(positions);
+        }
+
+        table.map(rows, new MappedRowFormat(mapping, table.getCodec()), null == key ? null : decodeKey(key));
+        return true;
+    }
+
+    private static <ID> void readSection(Path file, long offset, boolean compressed, InMemoryEntityStore<ID> table) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(offset);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+            DataInputStream section = new DataInputStream(compressed ? new GZIPInputStream(in, BUFFER_SIZE) : in);
+            section.readUTF();
+            byte[] key = readBytes(section);
+            RowIterator rows = SERIALIZED_ROWS == section.readUnsignedByte()
+                ? new SerializedRowIterator(new ObjectInputStream(section))
+                : new EncodedRowIterator(section, table.getCodec());
+            table.restore(rows, null == key ? null : decodeKey(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <ID> ID decodeKey(byte[] key) {
+        return (ID) SerializingEntityCodec.INSTANCE.decode(ByteBuffer.wrap(key));
+    }
+
+    @Nullable
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Nullable
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * A section's position within the file.
+     */
+    private static final class Section {
+
+        private final String name;
+
+        private final long offset;
+
+        private long length;
+
+        private Section(String name, long offset) {
+            this.name = name;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Collects the primary keys of a mappable section along with the positions of their rows, to be written after
+     * the rows.
+     */
+    private static final class KeyIndex {
+
+        private final boolean integral;
+
+        private long[] keys = new long[CHUNK_SIZE];
+
+        private int[] positions = new int[CHUNK_SIZE];
+
+        private final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+
+        private final DataOutputStream serializedOut = new DataOutputStream(serialized);
+
+        private int size;
+
+        private KeyIndex(boolean integral) {
+            this.integral = integral;
+        }
+
+        private void add(Object key, int position) throws IOException {
+            if (integral) {
+                if (keys.length == size) {
+                    keys = Arrays.copyOf(keys, size << 1);
+                    positions = Arrays.copyOf(positions, size << 1);
+                }
+                keys[size] = ((Number) key).longValue();
+                positions[size] = position;
+            } else {
+                writeBytes(serializedOut, WriteAheadLog.encodeKey(key));
+                serializedOut.writeInt(position);
+            }
+            size++;
+        }
+
+        /**
+         * Writes the index and the trailer pointing to it, unless the section would become too large to be mapped.
+         */
+        private void write(DataOutputStream out) throws IOException {
+            int position = out.size();
+            long length = integral
+                ? 1 + 2 * Integer.BYTES + (long) MappedRows.capacityFor(size) * MappedRows.SLOT_SIZE
+                : 1 + Integer.BYTES + (long) serialized.size();
+            if (size > MAX_INDEXED_ROWS || position + length + Integer.BYTES > Integer.MAX_VALUE) {
+                out.writeInt(-1);
+                return;
+            }
+
+            if (integral) {
+                ByteBuffer slots = ByteBuffer.allocate(MappedRows.capacityFor(size) * MappedRows.SLOT_SIZE);
+                int count = MappedRows.layout(keys, positions, size, slots);
+                out.writeByte(INTEGRAL_KEYS);
+                out.writeInt(slots.capacity() / MappedRows.SLOT_SIZE);
+                out.writeInt(count);
+                out.write(slots.array());
+            } else {
+                out.writeByte(SERIALIZED_KEYS);
+                out.writeInt(size);
+                serialized.writeTo(out);
+            }
+            out.writeInt(position);
+        }
+    }
+
+    /**
+     * Compresses at the fastest level, which for typical entities shrinks the file almost as much as the default level
+     * in a fraction of the time.
+     */
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+
+        private FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    /**
+     * Reads the rows of a section chunk by chunk.
+     */
+    private abstract static class RowIterator implements Iterator<Object> {
+
+        private final DataInput in;
+
+        private int remaining;
+
+        private RowIterator(DataInput in) {
+            this.in = in;
+            this.remaining = readCount();
+        }
+
+        private int readCount() {
+            try {
+                return in.readInt();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        abstract Object readRow() throws IOException, ClassNotFoundException;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Object row;
+            try {
+                row = readRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Entity can't be deserialized", e);
+            }
+
+            if (0 == --remaining) {
+                remaining = readCount();
+            }
+            return row;
+        }
+    }
+
+    /**
+     * Reads rows encoded by the table's {@link EntityCodec} one by one.
+     */
+    private static final class EncodedRowIterator extends RowIterator {
+
+        private final DataInputStream in;
+
+        private final EntityCodec codec;
+
+        private EncodedRowIterator(DataInputStream in, EntityCodec codec) {
+            super(in);
+            this.in = in;
+            this.codec = codec;
+        }
+
+        @Override
+        Object readRow() throws IOException {
+            byte[] row = readBytes(in);
+            if (null == row) {
+                throw new IOException("Snapshot section contains an empty row");
+            }
+
+            return codec.decode(ByteBuffer.wrap(row));
+        }
+    }
+
+    /**
+     * Reads rows written to a single object stream per section, which shares class descriptors between the rows of a
+     * chunk rather than repeating them per row.
+     */
+    private static final class SerializedRowIterator extends RowIterator {
+
+        private final ObjectInputStream in;
+
+        private SerializedRowIterator(ObjectInputStream in) {
+            super(in);
+            this.in = in;
+        }
+
+        @Override
+        Object readRow() throws IOException, ClassNotFoundException {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Collection of functions compiling a {@link Sort} into a comparator of entities. Property paths are resolved once, so
+ * that comparing doesn't involve reflection. Compiled comparators are cached per domain class and sort.
+ * {@literal null} values are ordered like in a {@link SortedPropertyIndex sorted index} unless the order requests a
+ * certain {@link Sort.NullHandling}.
+ *
+ * @author Vincent Nadoll
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class SortComparators {
+
+    /**
+     * Bounds the cache of each domain class, as sorts might be requested by clients.
+     */
+    private static final int MAX_CACHED_SORTS = 256;
+
+    private static final ClassValue<Map<Sort, Comparator<Object>>> COMPARATORS =
+        new ClassValue<Map<Sort, Comparator<Object>>>() {
+            @Override
+            protected Map<Sort, Comparator<Object>> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    /**
+     * Returns the compiled comparator of the given sort.
+     *
+     * @param domainClass must not be {@literal null}
+     * @param sort        must not be {@literal null}
+     * @return the comparator, which considers all entities equal if the sort is unsorted
+     * @throws org.springframework.data.mapping.PropertyReferenceException in case the domain class has no such property
+     */
+    static Comparator<Object> of(Class<?> domainClass, Sort sort) {
+        Map<Sort, Comparator<Object>> cache = COMPARATORS.get(domainClass);
+        Comparator<Object> comparator = cache.get(sort);
+        if (null != comparator) {
+            return comparator;
+        }
+
+        comparator = compile(domainClass, sort);
+        if (cache.size() < MAX_CACHED_SORTS) {
+            cache.putIfAbsent(sort, comparator);
+        }
+        return comparator;
+    }
+
+    /**
+     * Compiles a single order.
+     *
+     * @param domainClass must not be {@literal null}
+     * @param order       must not be {@literal null}
+     * @return the comparator
+     * @throws org.springframework.data.mapping.PropertyReferenceException in case the domain class has no such property
+     */
+    static Comparator<Object> of(Class<?> domainClass, Sort.Order order) {
+        Function<Object, Object> getter = Accessors.pathGetter(PropertyPath.from(order.getProperty(), domainClass));
+        Function<Object, Object> normalizer = order.isIgnoreCase() ? SortComparators::toLowerCase : Function.identity();
+
+        Comparator<Object> values = (left, right) -> SortedPropertyIndex.compare(left, right);
+        if (order.isDescending()) {
+            values = values.reversed();
+        }
+
+        switch (order.getNullHandling()) {
+            case NULLS_FIRST:
+                values = Comparator.nullsFirst(values);
+                break;
+            case NULLS_LAST:
+                values = Comparator.nullsLast(values);
+                break;
+            default:
+                values = order.isAscending() ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+        }
+
+        return Comparator.comparing(getter.andThen(normalizer), values);
+    }
+
+    private static Comparator<Object> compile(Class<?> domainClass, Sort sort) {
+        Comparator<Object> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Object> next = of(domainClass, order);
+            comparator = null == comparator ? next : comparator.thenComparing(next);
+        }
+
+        return null == comparator ? (left, right) -> 0 : comparator;
+    }
+
+    /**
+     * Returns the order if the entities can be iterated in that order through a
+     * {@link IndexType#SORTED sorted index}, which is the case if the sort consists of a single order on a
+     * sorted-indexed property that neither ignores case nor requests a certain {@link Sort.NullHandling}.
+     *
+     * @param entityStore must not be {@literal null}
+     * @param domainClass must not be {@literal null}
+     * @param sort        must not be {@literal null}
+     * @return the order served by an index or {@literal Optional.empty()}
+     */
+    static Optional<Sort.Order> indexedOrder(EntityStore entityStore, Class<?> domainClass, Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (1 != orders.size()) {
+            return Optional.empty();
+        }
+
+        Sort.Order order = orders.get(0);
+        if (order.isIgnoreCase() || Sort.NullHandling.NATIVE != order.getNullHandling()
+            || order.getProperty().contains(".")) {
+            return Optional.empty();
+        }
+
+        return entityStore.getIndexType(domainClass, order.getProperty())
+            .filter(IndexType.SORTED::equals)
+            .map(type -> order);
+    }
+
+    static Object toLowerCase(Object value) {
+        return value instanceof String ? ((String) value).toLowerCase(Locale.ROOT) : value;
+    }
+}
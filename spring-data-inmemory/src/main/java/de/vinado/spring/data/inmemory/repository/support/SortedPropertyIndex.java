@@ -0,0 +1,217 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.repository.EntityExistsException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * A property index which keeps its values in their natural order. Besides equality lookups, it serves range and
+ * ordered queries in {@literal O(log n + k)} by walking the relevant part of a skip list only. {@literal null} values
+ * are ordered first and are never part of a range. A unique index doesn't apply its constraint to {@literal null}.
+ *
+ * @param <ID> the type of the primary key
+ * @author Vincent Nadoll
+ */
+class SortedPropertyIndex<ID> extends PropertyIndex<ID> {
+
+    private static final Comparator<Object> KEY_ORDER = (left, right) -> compare(unmask(left), unmask(right));
+
+    private final ConcurrentSkipListMap<Object, Set<ID>> buckets = new ConcurrentSkipListMap<>(KEY_ORDER);
+
+    private final boolean unique;
+
+    SortedPropertyIndex(String property, boolean unique) {
+        super(property);
+        this.unique = unique;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException in case the property value isn't {@link Comparable comparable}
+     */
+    @Override
+    Object keyOf(Object entity) {
+        Object key = super.keyOf(entity);
+        Object value = unmask(key);
+        if (null != value && !(value instanceof Comparable)) {
+            throw new IllegalArgumentException(String.format("Value of sorted property [%s] of type [%s] is not "
+                + "comparable", getProperty(), value.getClass().getCanonicalName()));
+        }
+
+        return key;
+    }
+
+    @Override
+    IndexType getType() {
+        return IndexType.SORTED;
+    }
+
+    @Override
+    boolean isUnique() {
+        return unique;
+    }
+
+    @Override
+    boolean reserve(ID id, Object key) {
+        if (!unique || null == unmask(key)) {
+            return false;
+        }
+
+        Set<ID> claim = ConcurrentHashMap.newKeySet();
+        claim.add(id);
+        Set<ID> holders = buckets.putIfAbsent(key, claim);
+        if (null == holders) {
+            return true;
+        }
+
+        if (holders.contains(id)) {
+            return false;
+        }
+
+        throw new EntityExistsException(String.format("Entity [%s] already holds the unique value of property [%s]",
+            holders.iterator().next(), getProperty()));
+    }
+
+    @Override
+    void release(ID id, Object key) {
+        unlink(id, key);
+    }
+
+    @Override
+    protected void link(ID id, Object key) {
+        buckets.compute(key, (k, bucket) -> {
+            Set<ID> ids = null == bucket ? ConcurrentHashMap.newKeySet() : bucket;
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    @Override
+    protected void unlink(ID id, Object key) {
+        buckets.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(id);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    @Override
+    protected Collection<ID> lookup(Object key) {
+        return buckets.getOrDefault(key, Collections.emptySet());
+    }
+
+    /**
+     * Returns the primary keys of all entities whose property value lies within the given range, ordered by that
+     * value.
+     *
+     * @param range     must not be {@literal null}
+     * @param direction must not be {@literal null}
+     */
+    Stream<ID> range(Range<?> range, Sort.Direction direction) {
+        Optional<?> lower = range.getLowerBound().getValue();
+        Optional<?> upper = range.getUpperBound().getValue();
+        NavigableMap<Object, Set<ID>> view = lower.isPresent()
+            ? buckets.tailMap(lower.get(), range.getLowerBound().isInclusive())
+            : buckets.tailMap(mask(null), false);
+        if (upper.isPresent()) {
+            view = view.headMap(upper.get(), range.getUpperBound().isInclusive());
+        }
+
+        return flatten(view, direction);
+    }
+
+    /**
+     * Returns the primary keys of all indexed entities, ordered by their property value.
+     *
+     * @param direction must not be {@literal null}
+     */
+    Stream<ID> ordered(Sort.Direction direction) {
+        return flatten(buckets, direction);
+    }
+
+    private Stream<ID> flatten(NavigableMap<Object, Set<ID>> view, Sort.Direction direction) {
+        NavigableMap<Object, Set<ID>> ordered = direction.isDescending() ? view.descendingMap() : view;
+        return ordered.values().stream()
+            .flatMap(Set::stream);
+    }
+
+    /**
+     * Returns the range of all strings starting with the given prefix, which is bounded by the lowest string greater
+     * than all of them.
+     *
+     * @param prefix must not be {@literal null}
+     */
+    static Range<String> prefixRange(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && Character.MAX_VALUE == prefix.charAt(end - 1)) {
+            end--;
+        }
+
+        Range.Bound<String> upper = 0 == end
+            ? Range.Bound.unbounded()
+            : Range.Bound.exclusive(prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1));
+        return Range.of(Range.Bound.inclusive(prefix), upper);
+    }
+
+    /**
+     * Returns whether the given value lies within the range.
+     *
+     * @param range must not be {@literal null}
+     * @param value might be {@literal null}, which is never part of a range
+     */
+    static boolean inRange(Range<?> range, @Nullable Object value) {
+        if (null == value) {
+            return false;
+        }
+
+        Range.Bound<?> lower = range.getLowerBound();
+        Range.Bound<?> upper = range.getUpperBound();
+        return lower.getValue()
+            .map(bound -> compare(value, bound))
+            .map(comparison -> lower.isInclusive() ? comparison >= 0 : comparison > 0)
+            .orElse(true)
+            && upper.getValue()
+            .map(bound -> compare(value, bound))
+            .map(comparison -> upper.isInclusive() ? comparison <= 0 : comparison < 0)
+            .orElse(true);
+    }
+
+    /**
+     * Compares two property values by their natural order, {@literal null} being lower than any other value.
+     *
+     * @throws IllegalArgumentException in case the values aren't mutually comparable
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(@Nullable Object left, @Nullable Object right) {
+        if (left == right) {
+            return 0;
+        }
+
+        if (null == left) {
+            return -1;
+        }
+
+        if (null == right) {
+            return 1;
+        }
+
+        try {
+            return ((Comparable) left).compareTo(right);
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException(String.format("Values of type [%s] and [%s] are not comparable",
+                left.getClass().getCanonicalName(), right.getClass().getCanonicalName()), e);
+        }
+    }
+}
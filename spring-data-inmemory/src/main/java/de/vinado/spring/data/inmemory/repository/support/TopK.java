@@ -0,0 +1,96 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Collection of functions selecting the first elements of an unordered stream without sorting it entirely. Selecting
+ * the first {@literal k} out of {@literal n} elements takes {@literal O(n log k)} time and {@literal O(k)} space.
+ *
+ * @author Vincent Nadoll
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class TopK {
+
+    /**
+     * Windows larger than this are served by a full sort, since a heap of that size wouldn't save anything.
+     */
+    private static final long MAX_HEAP_SIZE = 1 << 20;
+
+    /**
+     * Returns the elements at positions {@code [offset, offset + limit)} of the ordered stream.
+     *
+     * @param elements   must not be {@literal null}
+     * @param comparator must not be {@literal null}
+     * @param offset     the number of elements to skip
+     * @param limit      the maximum number of elements to return
+     * @param <T>        the type of the elements
+     * @return the ordered window
+     */
+    static <T> Stream<T> window(Stream<T> elements, Comparator<? super T> comparator, long offset, long limit) {
+        long size = offset + limit;
+        if (size < 0 || size > MAX_HEAP_SIZE) {
+            return elements.sorted(comparator).skip(offset).limit(limit);
+        }
+
+        return select(elements, comparator, (int) size).stream().skip(offset);
+    }
+
+    /**
+     * Returns the first {@code k} elements of the ordered stream. Like a stable sort, elements the comparator considers
+     * equal keep their encounter order, so that the selection equals the first elements of the sorted stream.
+     *
+     * @param elements   must not be {@literal null}
+     * @param comparator must not be {@literal null}
+     * @param k          the maximum number of elements to return
+     * @param <T>        the type of the elements
+     * @return the first elements in order
+     */
+    static <T> List<T> select(Stream<T> elements, Comparator<? super T> comparator, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+
+        Comparator<Entry<T>> order = Comparator.<Entry<T>, T>comparing(entry -> entry.element, comparator)
+            .thenComparingLong(entry -> entry.sequence);
+        PriorityQueue<Entry<T>> heap = new PriorityQueue<>(Math.min(k, 64), order.reversed());
+        Iterator<T> iterator = elements.iterator();
+        for (long sequence = 0; iterator.hasNext(); sequence++) {
+            Entry<T> entry = new Entry<>(iterator.next(), sequence);
+            if (heap.size() < k) {
+                heap.add(entry);
+            } else if (order.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(order);
+        List<T> selection = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) {
+            selection.add(entry.element);
+        }
+        return selection;
+    }
+
+    /**
+     * An element along with its position in the stream, which orders elements the comparator considers equal.
+     */
+    @RequiredArgsConstructor
+    private static final class Entry<T> {
+
+        private final T element;
+
+        private final long sequence;
+    }
+}
@@ -0,0 +1,92 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.repository.EntityExistsException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A property index which maps each property value to at most one primary key and rejects entities which would violate
+ * this constraint. Like a unique constraint in SQL, the constraint doesn't apply to {@literal null}, which any number
+ * of entities may hold.
+ *
+ * @param <ID> the type of the primary key
+ * @author Vincent Nadoll
+ */
+class UniquePropertyIndex<ID> extends PropertyIndex<ID> {
+
+    private final Map<Object, ID> keys = new ConcurrentHashMap<>();
+
+    private final Set<ID> nulls = ConcurrentHashMap.newKeySet();
+
+    UniquePropertyIndex(String property) {
+        super(property);
+    }
+
+    @Override
+    IndexType getType() {
+        return IndexType.HASH;
+    }
+
+    @Override
+    boolean isUnique() {
+        return true;
+    }
+
+    @Override
+    boolean reserve(ID id, Object key) {
+        if (null == unmask(key)) {
+            return false;
+        }
+
+        ID holder = keys.putIfAbsent(key, id);
+        if (null == holder) {
+            return true;
+        }
+
+        if (holder.equals(id)) {
+            return false;
+        }
+
+        throw new EntityExistsException(
+            String.format("Entity [%s] already holds the unique value of property [%s]", holder, getProperty())
+        );
+    }
+
+    @Override
+    void release(ID id, Object key) {
+        keys.remove(key, id);
+    }
+
+    @Override
+    protected void link(ID id, Object key) {
+        if (null == unmask(key)) {
+            nulls.add(id);
+        } else {
+            keys.putIfAbsent(key, id);
+        }
+    }
+
+    @Override
+    protected void unlink(ID id, Object key) {
+        if (null == unmask(key)) {
+            nulls.remove(id);
+        } else {
+            keys.remove(key, id);
+        }
+    }
+
+    @Override
+    protected Collection<ID> lookup(Object key) {
+        if (null == unmask(key)) {
+            return Collections.unmodifiableSet(nulls);
+        }
+
+        ID id = keys.get(key);
+        return null == id ? Collections.emptySet() : Collections.singleton(id);
+    }
+}
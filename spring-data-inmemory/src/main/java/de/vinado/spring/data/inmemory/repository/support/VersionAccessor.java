@@ -0,0 +1,136 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.annotation.Version;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Accessor of an entity's version, i.e. the numeric field annotated with {@link Version}, which is resolved once per
+ * domain class and cached afterwards. Versions start at {@literal 0} if declared as a wrapper type and at {@literal 1}
+ * if declared as a primitive, and are incremented by one on every update.
+ *
+ * @author Vincent Nadoll
+ * @see IdAccessor
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+final class VersionAccessor {
+
+    private static final ClassValue<VersionAccessor> ACCESSORS = new ClassValue<VersionAccessor>() {
+        @Override
+        protected VersionAccessor computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private static final VersionAccessor NONE = new VersionAccessor(null, null, null);
+
+    @Nullable
+    private final Class<?> versionType;
+
+    @Nullable
+    private final Function<Object, Object> getter;
+
+    @Nullable
+    private final BiConsumer<Object, Object> setter;
+
+    /**
+     * Returns the cached accessor of the given domain class.
+     *
+     * @param domainClass must not be {@literal null}
+     * @return the version accessor
+     * @throws IllegalArgumentException in case the version field isn't of an integral type
+     */
+    static VersionAccessor of(Class<?> domainClass) {
+        return ACCESSORS.get(domainClass);
+    }
+
+    boolean isVersioned() {
+        return null != getter;
+    }
+
+    @Nullable
+    Object getVersion(Object entity) {
+        return null == getter ? null : getter.apply(entity);
+    }
+
+    void setVersion(Object entity, @Nullable Object version) {
+        if (null != setter) {
+            setter.accept(entity, version);
+        }
+    }
+
+    /**
+     * Sets the entity's version to the next one.
+     *
+     * @return the version the entity had before
+     */
+    @Nullable
+    Object advance(Object entity) {
+        if (null == getter) {
+            return null;
+        }
+
+        Object version = getter.apply(entity);
+        setVersion(entity, next((Number) version));
+        return version;
+    }
+
+    /**
+     * Returns whether the given stored entity, or {@literal null} if none is stored, has the given expected version.
+     * An absent entity matches an expected version denoting a new entity, i.e. {@literal null} or {@literal 0}.
+     */
+    boolean matches(@Nullable Object stored, @Nullable Object expected) {
+        if (null == getter) {
+            return true;
+        }
+
+        return null == stored
+            ? null == expected || 0 == ((Number) expected).longValue()
+            : Objects.equals(getter.apply(stored), expected);
+    }
+
+    private Number next(@Nullable Number version) {
+        long next = null == version ? 0 : version.longValue() + 1;
+        if (Long.class == versionType) {
+            return next;
+        }
+
+        if (Integer.class == versionType) {
+            return (int) next;
+        }
+
+        return (short) next;
+    }
+
+    private static VersionAccessor create(Class<?> domainClass) {
+        Optional<Field> field = IdUtils.getAccessorDeep(domainClass, Class::getDeclaredFields,
+            candidate -> null != candidate.getAnnotation(Version.class));
+        if (!field.isPresent()) {
+            return NONE;
+        }
+
+        Class<?> versionType = ClassUtils.resolvePrimitiveIfNecessary(field.get().getType());
+        if (Long.class != versionType && Integer.class != versionType && Short.class != versionType) {
+            throw new IllegalArgumentException(
+                String.format("Version of entity [%s] must be an integral number", domainClass.getCanonicalName())
+            );
+        }
+
+        try {
+            return new VersionAccessor(versionType, Accessors.fieldGetter(field.get()),
+                Accessors.fieldSetter(field.get()));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(
+                String.format("Couldn't create version accessor of entity [%s]", domainClass.getCanonicalName()), e
+            );
+        }
+    }
+}
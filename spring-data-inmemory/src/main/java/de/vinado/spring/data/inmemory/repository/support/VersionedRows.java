@@ -0,0 +1,476 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.springframework.lang.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Row map of a {@link de.vinado.spring.data.inmemory.repository.config.StoreMode#MULTI_VERSION multi-version} table.
+ * Every version of the rows is an immutable hash array mapped trie, which shares all but the changed paths with its
+ * predecessor, so that a change takes {@literal O(log n)} time and space.
+ *
+ * <p>Writers are serialized by a lock. A write started by {@link #beginWrite()} may span several changes, which are
+ * published as a single new version once the outermost write {@link #endWrite() ends}. Readers never lock: they read
+ * the latest published version or take a {@link #snapshot()} and read a consistent version for as long as they hold
+ * it. The writer itself reads the version it's about to publish instead, so that it sees its own changes. A version no
+ * reader holds anymore is reclaimed by the garbage collector.
+ *
+ * @author Vincent Nadoll
+ */
+final class VersionedRows<K> extends AbstractMap<K, Object> {
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile Version<K> current = new Version<>(BitmapNode.EMPTY, 0);
+
+    private Version<K> pending;
+
+    private int depth;
+
+    /**
+     * Returns the latest published version or, to the writer, the pending one, which doesn't change anymore.
+     */
+    Map<K, Object> snapshot() {
+        return visible();
+    }
+
+    private Version<K> visible() {
+        return writeLock.isHeldByCurrentThread() ? pending : current;
+    }
+
+    /**
+     * Begins a write, waiting for the one of another thread to end. Writes may be nested.
+     */
+    void beginWrite() {
+        writeLock.lock();
+        if (0 == depth++) {
+            pending = current;
+        }
+    }
+
+    /**
+     * Ends a write, publishing its changes if it's the outermost one.
+     */
+    void endWrite() {
+        try {
+            if (0 == --depth) {
+                current = pending;
+                pending = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        return visible().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return visible().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return visible().size;
+    }
+
+    @Override
+    public Set<Entry<K, Object>> entrySet() {
+        return visible().entrySet();
+    }
+
+    @Override
+    public Object put(K key, Object value) {
+        beginWrite();
+        try {
+            Object existing = pending.get(key);
+            pending = pending.with(key, value);
+            return existing;
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        beginWrite();
+        try {
+            Object existing = pending.get(key);
+            pending = pending.without(key);
+            return existing;
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    public Object computeIfAbsent(K key, Function<? super K, ?> mappingFunction) {
+        beginWrite();
+        try {
+            Object existing = pending.get(key);
+            if (null != existing) {
+                return existing;
+            }
+
+            Object value = mappingFunction.apply(key);
+            if (null != value) {
+                pending = pending.with(key, value);
+            }
+            return value;
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    public Object computeIfPresent(K key, BiFunction<? super K, ? super Object, ?> remappingFunction) {
+        beginWrite();
+        try {
+            return null == pending.get(key) ? null : compute(key, remappingFunction);
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    public Object compute(K key, BiFunction<? super K, ? super Object, ?> remappingFunction) {
+        beginWrite();
+        try {
+            Object value = remappingFunction.apply(key, pending.get(key));
+            pending = null == value ? pending.without(key) : pending.with(key, value);
+            return value;
+        } finally {
+            endWrite();
+        }
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * An immutable version of the rows.
+     */
+    private static final class Version<K> extends AbstractMap<K, Object> {
+
+        private final Node root;
+
+        private final int size;
+
+        private Version(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return null == key ? null : root.get(key, hash(key), 0);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return null != get(key);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private Version<K> with(K key, Object value) {
+            boolean added = null == get(key);
+            return new Version<>(root.put(key, hash(key), value, 0), added ? size + 1 : size);
+        }
+
+        private Version<K> without(Object key) {
+            if (null == get(key)) {
+                return this;
+            }
+
+            Node removed = root.remove(key, hash(key), 0);
+            return new Version<>(null == removed ? BitmapNode.EMPTY : removed, size - 1);
+        }
+
+        @Override
+        public Set<Entry<K, Object>> entrySet() {
+            return new AbstractSet<Entry<K, Object>>() {
+
+                @Override
+                public Iterator<Entry<K, Object>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * A node of the trie. Its entries are pairs of either a key and its value or {@literal null} and a child node.
+     */
+    private abstract static class Node {
+
+        final Object[] entries;
+
+        Node(Object[] entries) {
+            this.entries = entries;
+        }
+
+        @Nullable
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node put(Object key, int hash, Object value, int shift);
+
+        /**
+         * Returns the node without the given key, which must be present, or {@literal null} if it has become empty.
+         */
+        @Nullable
+        abstract Node remove(Object key, int hash, int shift);
+
+        static Node pair(int shift, Object key1, int hash1, Object value1, Object key2, int hash2, Object value2) {
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+
+            return BitmapNode.EMPTY
+                .put(key1, hash1, value1, shift)
+                .put(key2, hash2, value2, shift);
+        }
+    }
+
+    /**
+     * A node branching on five bits of the hash, holding a pair for each bit set in its bitmap.
+     */
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private BitmapNode(int bitmap, Object[] entries) {
+            super(entries);
+            this.bitmap = bitmap;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if (0 == (bitmap & bit)) {
+                return null;
+            }
+
+            int index = index(bit);
+            Object candidate = entries[index];
+            if (null == candidate) {
+                return ((Node) entries[index + 1]).get(key, hash, shift + BITS);
+            }
+
+            return key.equals(candidate) ? entries[index + 1] : null;
+        }
+
+        @Override
+        Node put(Object key, int hash, Object value, int shift) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if (0 == (bitmap & bit)) {
+                Object[] entries = new Object[this.entries.length + 2];
+                System.arraycopy(this.entries, 0, entries, 0, index);
+                entries[index] = key;
+                entries[index + 1] = value;
+                System.arraycopy(this.entries, index, entries, index + 2, this.entries.length - index);
+                return new BitmapNode(bitmap | bit, entries);
+            }
+
+            Object candidate = entries[index];
+            Object replacement;
+            if (null == candidate) {
+                replacement = ((Node) entries[index + 1]).put(key, hash, value, shift + BITS);
+            } else if (key.equals(candidate)) {
+                return with(index, key, value);
+            } else {
+                replacement = pair(shift + BITS, candidate, VersionedRows.hash(candidate), entries[index + 1], key,
+                    hash, value);
+            }
+            return with(index, null, replacement);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if (null != entries[index]) {
+                return without(bit, index);
+            }
+
+            Node child = ((Node) entries[index + 1]).remove(key, hash, shift + BITS);
+            return null == child ? without(bit, index) : with(index, null, child);
+        }
+
+        private BitmapNode with(int index, @Nullable Object key, Object value) {
+            Object[] entries = this.entries.clone();
+            entries[index] = key;
+            entries[index + 1] = value;
+            return new BitmapNode(bitmap, entries);
+        }
+
+        @Nullable
+        private BitmapNode without(int bit, int index) {
+            if (bitmap == bit) {
+                return null;
+            }
+
+            Object[] entries = new Object[this.entries.length - 2];
+            System.arraycopy(this.entries, 0, entries, 0, index);
+            System.arraycopy(this.entries, index + 2, entries, index, entries.length - index);
+            return new BitmapNode(bitmap ^ bit, entries);
+        }
+    }
+
+    /**
+     * A node holding the pairs of keys whose hashes are equal.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] entries) {
+            super(entries);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int index = 0; index < entries.length; index += 2) {
+                if (key.equals(entries[index])) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return index < 0 ? null : entries[index + 1];
+        }
+
+        @Override
+        Node put(Object key, int hash, Object value, int shift) {
+            if (hash != this.hash) {
+                return new BitmapNode(BitmapNode.bit(this.hash, shift), new Object[]{null, this})
+                    .put(key, hash, value, shift);
+            }
+
+            int index = indexOf(key);
+            Object[] entries;
+            if (index < 0) {
+                entries = new Object[this.entries.length + 2];
+                System.arraycopy(this.entries, 0, entries, 0, this.entries.length);
+                index = this.entries.length;
+                entries[index] = key;
+            } else {
+                entries = this.entries.clone();
+            }
+            entries[index + 1] = value;
+            return new CollisionNode(hash, entries);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            if (2 == entries.length) {
+                return null;
+            }
+
+            int index = indexOf(key);
+            Object[] entries = new Object[this.entries.length - 2];
+            System.arraycopy(this.entries, 0, entries, 0, index);
+            System.arraycopy(this.entries, index + 2, entries, index, entries.length - index);
+            return new CollisionNode(hash, entries);
+        }
+    }
+
+    /**
+     * Walks the trie depth-first, keeping the entries of the nodes on the current path on a stack.
+     */
+    private static final class EntryIterator<K> implements Iterator<Entry<K, Object>> {
+
+        private final Object[][] path = new Object[Integer.SIZE / BITS + 2][];
+
+        private final int[] positions = new int[path.length];
+
+        private int depth;
+
+        @Nullable
+        private Entry<K, Object> next;
+
+        private EntryIterator(Node root) {
+            path[0] = root.entries;
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            while (depth >= 0) {
+                Object[] entries = path[depth];
+                int position = positions[depth];
+                if (position >= entries.length) {
+                    depth--;
+                    continue;
+                }
+
+                positions[depth] = position + 2;
+                if (null != entries[position]) {
+                    next = new SimpleImmutableEntry<>((K) entries[position], entries[position + 1]);
+                    return;
+                }
+
+                depth++;
+                path[depth] = ((Node) entries[position + 1]).entries;
+                positions[depth] = 0;
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != next;
+        }
+
+        @Override
+        public Entry<K, Object> next() {
+            if (null == next) {
+                throw new NoSuchElementException();
+            }
+
+            Entry<K, Object> entry = next;
+            advance();
+            return entry;
+        }
+    }
+}
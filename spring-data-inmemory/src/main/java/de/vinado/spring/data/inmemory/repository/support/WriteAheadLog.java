@@ -0,0 +1,839 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.inmemory.repository.config.FsyncPolicy;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.SnapshotFormat;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the changes made to the tables of an {@link InMemoryEntityTableStore}, making them durable
+ * between two snapshots. Once {@link #recover(InMemoryEntityTableStore) attached}, every stored, merged and removed
+ * entity as well as every cleared table is appended to the log while the affected row is locked, so that the log
+ * orders the changes of a row just like the table does. A stored or merged entity is logged as a whole, encoded by
+ * the table's codec, which makes replaying a record idempotent.
+ *
+ * <p>Records are appended to an in-memory queue, which a background thread writes to the current segment file. The
+ * {@link FsyncPolicy} decides when the segment is forced to the storage device and whether operations wait for it.
+ * Records appended while the thread is busy are written and forced together, amortizing a single fsync over
+ * concurrent operations (group commit). The queue is bounded, so that operations wait for the thread once it's full.
+ * Once the thread has failed to write the log, every subsequent change fails, whatever the policy, rather than being
+ * made without being logged.
+ *
+ * <p>The log is compacted by a checkpoint: a new segment is started, a snapshot of all tables is taken and the
+ * previous segments are deleted. Checkpoints are taken automatically once the segments since the last one exceed the
+ * compaction threshold. Recovering reads the snapshot and replays the remaining segments on top of it, discarding a
+ * torn record at the end of the last segment.
+ *
+ * <p>The changes of a transaction's commit are collected while it's applied and appended as a single batch record
+ * once it's complete, so that replaying the log applies either all or none of them.
+ *
+ * <p>Each record is framed as {@code length (int), CRC-32 (int), operation (byte), table (int), payload}, where the
+ * table refers to a preceding table record of the same segment. The payload of a batch record is a sequence of
+ * {@code operation (byte), table (int), length (int), payload}, with a length of {@literal -1} for a missing payload.
+ *
+ * @author Vincent Nadoll
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+    static final byte TABLE = 0;
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte CLEAR = 3;
+    static final byte BATCH = 4;
+    private static final byte ROTATE = -1;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path snapshot;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final long fsyncIntervalNanos;
+
+    private final long compactionThreshold;
+
+    private final SnapshotFormat snapshotFormat;
+
+    private final StampedLock barrier = new StampedLock();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition appended = lock.newCondition();
+
+    private final Condition flushed = lock.newCondition();
+
+    private final Condition drained = lock.newCondition();
+
+    private final Object checkpointMonitor = new Object();
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private final Map<String, Integer> tableIds = new HashMap<>();
+
+    private final ThreadLocal<List<Change>> batches = new ThreadLocal<>();
+
+    private List<Record> pending = new ArrayList<>();
+
+    private volatile long lastLsn;
+
+    private long flushedLsn;
+
+    private long segment;
+
+    private volatile boolean closed;
+
+    private volatile IOException failure;
+
+    private volatile long segmentBytes;
+
+    private InMemoryEntityTableStore store;
+
+    private Thread writer;
+
+    private ExecutorService compactor;
+
+    /**
+     * Creates a new log forcing its records every second and compacting itself every 64 MiB.
+     *
+     * @param snapshot    the snapshot file, next to which the segments are kept, must not be {@literal null}
+     * @param fsyncPolicy must not be {@literal null}
+     */
+    public WriteAheadLog(Path snapshot, FsyncPolicy fsyncPolicy) {
+        this(snapshot, fsyncPolicy, Duration.ofSeconds(1), 64L << 20);
+    }
+
+    /**
+     * Creates a new log.
+     *
+     * @param snapshot            the snapshot file, next to which the segments are kept, must not be {@literal null}
+     * @param fsyncPolicy         must not be {@literal null}
+     * @param fsyncInterval       the time between two fsyncs if the policy is {@link FsyncPolicy#INTERVAL}, must not be
+     *                            {@literal null}
+     * @param compactionThreshold the number of bytes logged after which a checkpoint is taken, or zero to only take
+     *                            them on demand
+     */
+    public WriteAheadLog(Path snapshot, FsyncPolicy fsyncPolicy, Duration fsyncInterval, long compactionThreshold) {
+        this(snapshot, fsyncPolicy, fsyncInterval, compactionThreshold, SnapshotFormat.COMPRESSED);
+    }
+
+    /**
+     * Creates a new log whose checkpoints write snapshots of the given format.
+     *
+     * @param snapshot            the snapshot file, next to which the segments are kept, must not be {@literal null}
+     * @param fsyncPolicy         must not be {@literal null}
+     * @param fsyncInterval       the time between two fsyncs if the policy is {@link FsyncPolicy#INTERVAL}, must not be
+     *                            {@literal null}
+     * @param compactionThreshold the number of bytes logged after which a checkpoint is taken, or zero to only take
+     *                            them on demand
+     * @param snapshotFormat      must not be {@literal null}
+     */
+    public WriteAheadLog(@NonNull Path snapshot, @NonNull FsyncPolicy fsyncPolicy, @NonNull Duration fsyncInterval,
+                         long compactionThreshold, @NonNull SnapshotFormat snapshotFormat) {
+        this.snapshot = snapshot.toAbsolutePath();
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.compactionThreshold = compactionThreshold;
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    /**
+     * Restores the tables of the given store from the snapshot, if any, replays the log on top of it and attaches
+     * this log to the store, so that every subsequent change is logged.
+     *
+     * @param store must not be {@literal null}
+     * @throws IOException           in case the snapshot or the log can't be read
+     * @throws IllegalStateException in case the log has already been attached
+     */
+    public void recover(@NonNull InMemoryEntityTableStore store) throws IOException {
+        lock.lock();
+        try {
+            if (null != this.store || closed) {
+                throw new IllegalStateException("Write-ahead log has already been attached");
+            }
+
+            if (Files.exists(snapshot)) {
+                store.readSnapshot(snapshot);
+            }
+
+            Map<String, InMemoryEntityStore<?>> tables = store.getTables();
+            TreeMap<Long, Path> segments = segments();
+            for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+                replay(entry.getValue(), tables, entry.getKey().equals(segments.lastKey()));
+            }
+
+            this.segment = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            this.store = store;
+            long first = segment;
+            FileChannel channel = open(first);
+            this.compactor = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "inmemory-wal-compactor"));
+            this.writer = daemon(() -> write(channel, first), "inmemory-wal-writer");
+            this.writer.start();
+            store.attach(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment, writes a snapshot of all tables and deletes the segments preceding the new one. Changes
+     * made while the snapshot is taken are both logged to the new segment and possibly contained in the snapshot,
+     * which is harmless, as replaying them yields the same rows.
+     *
+     * @throws IOException           in case the snapshot can't be written
+     * @throws IllegalStateException in case the log hasn't been attached
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointMonitor) {
+            if (null == store || closed) {
+                throw new IllegalStateException("Write-ahead log hasn't been attached or has been closed");
+            }
+
+            long stamp = barrier.writeLock();
+            long obsolete;
+            long marker;
+            try {
+                lock.lock();
+                try {
+                    obsolete = segment++;
+                    tableIds.clear();
+                    marker = enqueue(new Record(ROTATE, 0, null));
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                barrier.unlockWrite(stamp);
+            }
+
+            awaitFlushed(marker);
+            store.writeSnapshot(snapshot, snapshotFormat);
+            for (Map.Entry<Long, Path> entry : segments().headMap(obsolete, true).entrySet()) {
+                Files.deleteIfExists(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes logged since the last checkpoint.
+     *
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return segmentBytes;
+    }
+
+    /**
+     * Writes and forces the records appended so far and stops the background threads. Operations performed
+     * afterwards are no longer logged.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (null != compactor) {
+            compactor.shutdown();
+            awaitTermination(compactor);
+        }
+        if (null != writer) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Enters a change of a table. A checkpoint doesn't start a new segment while changes are in progress, so that the
+     * snapshot contains every change logged to the previous segments.
+     *
+     * @return the stamp to {@link #endWrite(long) end} the change with
+     * @throws IllegalStateException in case the log has been closed
+     * @throws UncheckedIOException  in case the log couldn't be written, whatever the fsync policy
+     */
+    long beginWrite() {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log has been closed");
+        }
+
+        if (null != batches.get()) {
+            return 0;
+        }
+
+        validateWritable();
+        return barrier.readLock();
+    }
+
+    void endWrite(long stamp) {
+        if (0 != stamp) {
+            barrier.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Enters a batch of changes, e.g. of a transaction's commit. Until the batch {@link #endBatch(long) ends}, the
+     * changes the current thread appends are collected instead of being logged, and a checkpoint doesn't start a new
+     * segment.
+     *
+     * @return the stamp to end the batch with
+     * @throws IllegalStateException in case the log has been closed
+     * @throws UncheckedIOException  in case the log couldn't be written
+     */
+    long beginBatch() {
+        long stamp = beginWrite();
+        batches.set(new ArrayList<>());
+        return stamp;
+    }
+
+    /**
+     * Appends the changes collected by the current thread's batch as a single record. Changes collected afterwards,
+     * e.g. undoing the batch's changes as appending them failed, are discarded once the batch ends.
+     *
+     * @throws UncheckedIOException in case the log couldn't be written
+     */
+    void appendBatch() {
+        List<Change> batch = batches.get();
+        if (!batch.isEmpty()) {
+            enqueueBatch(batch);
+        }
+        batches.set(new ArrayList<>());
+    }
+
+    /**
+     * Ends the current thread's batch, discarding the changes which haven't been {@link #appendBatch() appended}.
+     *
+     * @param stamp the stamp the batch has been begun with
+     */
+    void endBatch(long stamp) {
+        batches.remove();
+        endWrite(stamp);
+    }
+
+    /**
+     * Appends a record to the log. Meant to be called while the affected row is locked, after the change has been
+     * validated, so that the log only fails if it couldn't be written. Waits while the queue of records is full. Within
+     * a batch, the change is collected without ever failing.
+     *
+     * @param operation one of {@link #PUT}, {@link #DELETE} or {@link #CLEAR}
+     * @param table     the name of the table
+     * @param payload   the encoded entity or primary key
+     * @throws UncheckedIOException in case the log couldn't be written, whatever the fsync policy
+     */
+    void append(byte operation, String table, @Nullable byte[] payload) {
+        List<Change> batch = batches.get();
+        if (null != batch) {
+            batch.add(new Change(operation, table, payload));
+            return;
+        }
+
+        lock.lock();
+        try {
+            validateWritable();
+            if (closed) {
+                return;
+            }
+
+            enqueue(new Record(operation, tableId(table), payload));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueueBatch(List<Change> batch) {
+        lock.lock();
+        try {
+            validateWritable();
+            if (closed) {
+                return;
+            }
+
+            int length = 0;
+            int[] tables = new int[batch.size()];
+            for (int index = 0; index < tables.length; index++) {
+                Change change = batch.get(index);
+                tables[index] = tableId(change.table);
+                length += 1 + 2 * Integer.BYTES + (null == change.payload ? 0 : change.payload.length);
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            for (int index = 0; index < tables.length; index++) {
+                Change change = batch.get(index);
+                payload.put(change.operation).putInt(tables[index]);
+                if (null == change.payload) {
+                    payload.putInt(-1);
+                } else {
+                    payload.putInt(change.payload.length).put(change.payload);
+                }
+            }
+            enqueue(new Record(BATCH, 0, payload.array()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the ID of the given table within the current segment, preceding the next record by a table record if the
+     * segment doesn't refer to the table yet.
+     */
+    private int tableId(String table) {
+        Integer tableId = tableIds.get(table);
+        if (null == tableId) {
+            tableId = tableIds.size();
+            tableIds.put(table, tableId);
+            enqueue(new Record(TABLE, tableId, table.getBytes(StandardCharsets.UTF_8)));
+        }
+        return tableId;
+    }
+
+    /**
+     * Adds a record to the queue, waiting while the queue is full until the background thread has taken the queued
+     * records, so that writers can't outpace the log indefinitely.
+     *
+     * @throws UncheckedIOException in case the log couldn't be written
+     */
+    private long enqueue(Record record) {
+        while (pending.size() >= QUEUE_CAPACITY && null == failure && null != writer && writer.isAlive()) {
+            drained.awaitUninterruptibly();
+        }
+        validateWritable();
+        if (pending.isEmpty()) {
+            appended.signal();
+        }
+        pending.add(record);
+        return ++lastLsn;
+    }
+
+    /**
+     * Rethrows the failure of the background thread, if any, so that no change is made which couldn't be logged.
+     */
+    private void validateWritable() {
+        IOException failure = this.failure;
+        if (null != failure) {
+            throw new UncheckedIOException("Write-ahead log couldn't be written", failure);
+        }
+    }
+
+    /**
+     * Waits until every record appended so far has been forced, if the policy is {@link FsyncPolicy#ALWAYS}. Within a
+     * batch, the changes haven't been appended yet, hence there's nothing to wait for.
+     *
+     * @throws UncheckedIOException in case the log couldn't be written
+     */
+    void sync() {
+        if (FsyncPolicy.ALWAYS == fsyncPolicy && null == batches.get()) {
+            awaitFlushed(lastLsn);
+        }
+    }
+
+    private void awaitFlushed(long lsn) {
+        lock.lock();
+        try {
+            while (flushedLsn < lsn && null == failure && null != writer && writer.isAlive()) {
+                flushed.awaitUninterruptibly();
+            }
+            validateWritable();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(FileChannel initial, long first) {
+        FileChannel channel = initial;
+        long number = first;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        CRC32 crc = new CRC32();
+        List<Record> batch = new ArrayList<>();
+        boolean unforced = false;
+        long lastForce = System.nanoTime();
+        try {
+            while (true) {
+                long lsn;
+                boolean closing;
+                lock.lock();
+                try {
+                    while (pending.isEmpty() && !closed) {
+                        if (!unforced || FsyncPolicy.INTERVAL != fsyncPolicy) {
+                            appended.awaitUninterruptibly();
+                        } else if (awaitNanos(fsyncIntervalNanos - (System.nanoTime() - lastForce)) <= 0) {
+                            break;
+                        }
+                    }
+
+                    List<Record> swap = pending;
+                    pending = batch;
+                    batch = swap;
+                    lsn = lastLsn;
+                    drained.signalAll();
+                    closing = closed && pending.isEmpty();
+                } finally {
+                    lock.unlock();
+                }
+
+                for (Record record : batch) {
+                    if (ROTATE == record.operation) {
+                        flush(channel, buffer);
+                        channel.force(false);
+                        channel.close();
+                        channel = open(++number);
+                        segmentBytes = 0;
+                        unforced = false;
+                    } else {
+                        frame(channel, buffer, crc, record);
+                        unforced = true;
+                    }
+                }
+                flush(channel, buffer);
+                batch.clear();
+
+                long now = System.nanoTime();
+                if (unforced && (closing || FsyncPolicy.ALWAYS == fsyncPolicy
+                    || FsyncPolicy.INTERVAL == fsyncPolicy && now - lastForce >= fsyncIntervalNanos)) {
+                    channel.force(false);
+                    unforced = false;
+                    lastForce = now;
+                }
+
+                lock.lock();
+                try {
+                    flushedLsn = lsn;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (closing) {
+                    channel.close();
+                    return;
+                }
+                compactIfNecessary();
+            }
+        } catch (IOException e) {
+            log.error("Failed to write the write-ahead log", e);
+            lock.lock();
+            try {
+                failure = e;
+                flushed.signalAll();
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private long awaitNanos(long nanos) {
+        if (nanos <= 0) {
+            return 0;
+        }
+
+        try {
+            return appended.awaitNanos(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private void frame(FileChannel channel, ByteBuffer buffer, CRC32 crc, Record record) throws IOException {
+        int payloadLength = null == record.payload ? 0 : record.payload.length;
+        int length = 1 + Integer.BYTES + payloadLength;
+        ByteBuffer body = ByteBuffer.allocate(length)
+            .put(record.operation)
+            .putInt(record.table);
+        if (null != record.payload) {
+            body.put(record.payload);
+        }
+        crc.reset();
+        crc.update(body.array(), 0, length);
+
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            flush(channel, buffer);
+        }
+        buffer.putInt(length).putInt((int) crc.getValue());
+        ((Buffer) body).flip();
+        if (buffer.remaining() < length) {
+            flush(channel, buffer);
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        } else {
+            buffer.put(body);
+        }
+        segmentBytes += HEADER_SIZE + length;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    private void compactIfNecessary() {
+        if (compactionThreshold > 0 && segmentBytes >= compactionThreshold && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Failed to compact the write-ahead log", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return snapshot.resolveSibling(String.format("%s.%019d%s", snapshot.getFileName(), number, SEGMENT_SUFFIX));
+    }
+
+    private TreeMap<Long, Path> segments() throws IOException {
+        String prefix = snapshot.getFileName() + ".";
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshot.getParent(),
+            prefix + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    segments.put(Long.parseLong(number), file);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file [{}] next to the write-ahead log", file);
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Applies the records of the given segment. A record which is incomplete or doesn't match its checksum ends the
+     * last segment, which is truncated before it, whereas it's considered corruption in any other segment.
+     */
+    private static void replay(Path segment, Map<String, InMemoryEntityStore<?>> tables, boolean last)
+        throws IOException {
+        Map<Integer, String> names = new HashMap<>();
+        CRC32 crc = new CRC32();
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment),
+            BUFFER_SIZE))) {
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    final int checksum = in.readInt();
+                    if (length < 1 + Integer.BYTES) {
+                        throw new EOFException();
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body, 0, length);
+                    if (checksum != (int) crc.getValue()) {
+                        throw new EOFException();
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                apply(ByteBuffer.wrap(body), names, tables);
+                position += HEADER_SIZE + body.length;
+            }
+        }
+
+        if (position < Files.size(segment)) {
+            if (!last) {
+                throw new IOException(String.format("Write-ahead log segment [%s] is corrupt at %d", segment,
+                    position));
+            }
+
+            log.warn("Discarding torn record at the end of write-ahead log segment [{}]", segment);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(position);
+            }
+        }
+    }
+
+    private static void apply(ByteBuffer body, Map<Integer, String> names, Map<String, InMemoryEntityStore<?>> tables) {
+        byte operation = body.get();
+        int tableId = body.getInt();
+        if (TABLE == operation) {
+            names.put(tableId, StandardCharsets.UTF_8.decode(body).toString());
+        } else if (BATCH == operation) {
+            applyBatch(body, names, tables);
+        } else {
+            applyChange(operation, tableId, body, names, tables);
+        }
+    }
+
+    /**
+     * Applies the changes of a batch record, which has been read completely and matched its checksum.
+     */
+    private static void applyBatch(ByteBuffer body, Map<Integer, String> names,
+                                   Map<String, InMemoryEntityStore<?>> tables) {
+        while (body.hasRemaining()) {
+            byte operation = body.get();
+            int tableId = body.getInt();
+            int length = body.getInt();
+            ByteBuffer payload = body.slice();
+            if (length >= 0) {
+                ((Buffer) payload).limit(length);
+                ((Buffer) body).position(body.position() + length);
+            } else {
+                ((Buffer) payload).limit(0);
+            }
+            applyChange(operation, tableId, payload, names, tables);
+        }
+    }
+
+    private static void applyChange(byte operation, int tableId, ByteBuffer payload, Map<Integer, String> names,
+                                    Map<String, InMemoryEntityStore<?>> tables) {
+        InMemoryEntityStore<?> table = tables.get(names.get(tableId));
+        if (null == table) {
+            return;
+        }
+
+        switch (operation) {
+            case PUT:
+                table.replayPut(table.getCodec().decode(payload));
+                break;
+            case DELETE:
+                table.replayDelete(decodeKey(payload));
+                break;
+            case CLEAR:
+                table.replayClear();
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unknown write-ahead log operation [%d]", operation));
+        }
+    }
+
+    /**
+     * Encodes a primary key, integers and longs compactly, any other key by Java serialization.
+     */
+    static byte[] encodeKey(Object key) {
+        if (key instanceof Long) {
+            return ByteBuffer.allocate(1 + Long.BYTES).put((byte) 'J').putLong((Long) key).array();
+        }
+
+        if (key instanceof Integer) {
+            return ByteBuffer.allocate(1 + Integer.BYTES).put((byte) 'I').putInt((Integer) key).array();
+        }
+
+        byte[] serialized = SerializingEntityCodec.INSTANCE.encode(key);
+        return ByteBuffer.allocate(1 + serialized.length).put((byte) 'L').put(serialized).array();
+    }
+
+    static Object decodeKey(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case 'J':
+                return buffer.getLong();
+            case 'I':
+                return buffer.getInt();
+            default:
+                return SerializingEntityCodec.INSTANCE.decode(buffer);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A change collected by a batch, referring to its table by name until the batch is appended.
+     */
+    private static final class Change {
+
+        private final byte operation;
+
+        private final String table;
+
+        private final byte[] payload;
+
+        private Change(byte operation, String table, @Nullable byte[] payload) {
+            this.operation = operation;
+            this.table = table;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * A record appended to the log but not written yet.
+     */
+    private static final class Record {
+
+        private final byte operation;
+
+        private final int table;
+
+        private final byte[] payload;
+
+        private Record(byte operation, int table, @Nullable byte[] payload) {
+            this.operation = operation;
+            this.table = table;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package de.vinado.spring.data.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Vincent Nadoll
+ */
+class IntegerSequenceTest {
+
+    @Test
+    void next_shouldStartAtOneAndIncrement() {
+        IntegerSequence sequence = new IntegerSequence();
+
+        assertEquals(1, sequence.nextInt());
+        assertEquals(Arrays.asList(2, 3), sequence.next(2));
+    }
+
+    @Test
+    void exceedingMaxValue_shouldThrowException() {
+        IntegerSequence sequence = new IntegerSequence();
+        sequence.advancePast(Integer.MAX_VALUE - 1);
+
+        assertEquals(Integer.MAX_VALUE, sequence.nextInt());
+        assertThrows(IllegalStateException.class, sequence::nextInt);
+    }
+
+    @Test
+    void blockExceedingMaxValue_shouldThrowException() {
+        IntegerSequence sequence = new IntegerSequence();
+        sequence.advancePast(Integer.MAX_VALUE - 1);
+
+        assertThrows(IllegalStateException.class, () -> sequence.next(2));
+    }
+}
@@ -0,0 +1,107 @@
+package de.vinado.spring.data.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class LongSequenceTest {
+
+    @Test
+    void next_shouldStartAtOneAndIncrement() {
+        LongSequence sequence = new LongSequence();
+
+        assertEquals(1L, sequence.nextLong());
+        assertEquals(2L, sequence.next());
+        assertEquals(Arrays.asList(3L, 4L, 5L), sequence.next(3));
+        assertEquals(6L, sequence.nextLong());
+    }
+
+    @Test
+    void advancePast_shouldOnlyMoveForward() {
+        LongSequence sequence = new LongSequence();
+        sequence.nextLong();
+
+        sequence.advancePast(41L);
+        sequence.advancePast(3L);
+
+        assertEquals(42L, sequence.nextLong());
+    }
+
+    @Test
+    void last_shouldReturnGreatestKey() {
+        LongSequence sequence = new LongSequence();
+        assertNull(sequence.last());
+
+        sequence.next(3);
+        assertEquals(3L, sequence.last());
+
+        sequence.advancePast(41L);
+        assertEquals(41L, sequence.last());
+    }
+
+    @Test
+    void nonPositiveBlockSize_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new LongSequence(0));
+        assertThrows(IllegalArgumentException.class, () -> new LongSequenceGenerator(-1));
+    }
+
+    @Test
+    void blocks_shouldIncrementPerThread() {
+        LongSequence sequence = new LongSequence(10);
+
+        assertEquals(1L, sequence.nextLong());
+        assertEquals(Arrays.asList(11L, 12L), sequence.next(2));
+        assertEquals(2L, sequence.nextLong());
+    }
+
+    @Test
+    void concurrentBlocks_shouldNeverRepeatKeys() throws Exception {
+        LongSequence sequence = new LongSequence(16);
+        Set<Long> keys = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future[4];
+            for (int thread = 0; thread < futures.length; thread++) {
+                futures[thread] = executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        assertTrue(keys.add(sequence.nextLong()));
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(40_000, keys.size());
+    }
+
+    @Test
+    void generator_shouldCreateIndependentSequences() {
+        LongSequenceGenerator generator = new LongSequenceGenerator();
+        PrimaryKeySequence<Long> first = generator.newSequence();
+        PrimaryKeySequence<Long> second = generator.newSequence();
+
+        first.next();
+
+        assertEquals(2L, first.next());
+        assertEquals(1L, second.next());
+        assertEquals(43L, generator.next(42L));
+    }
+}
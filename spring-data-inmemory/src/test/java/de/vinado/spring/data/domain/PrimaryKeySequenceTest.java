@@ -0,0 +1,42 @@
+package de.vinado.spring.data.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class PrimaryKeySequenceTest {
+
+    @Test
+    void sequenceGenerator_shouldCreateOwnSequence() {
+        assertTrue(PrimaryKeySequence.of(new LongSequenceGenerator()) instanceof LongSequence);
+    }
+
+    @Test
+    void advancePastGreaterKey_shouldContinueAfterKey() {
+        PrimaryKeySequence<Integer> sequence = PrimaryKeySequence.of(new IntegerPrimaryKeyGenerator());
+        assertNull(sequence.last());
+
+        sequence.advancePast(5);
+
+        assertEquals(5, sequence.last());
+        assertEquals(6, sequence.next());
+    }
+
+    @Test
+    void advancePastSmallerKey_shouldNotMoveBackwards() {
+        PrimaryKeySequence<Integer> sequence = PrimaryKeySequence.of(new IntegerPrimaryKeyGenerator());
+        sequence.advancePast(5);
+
+        sequence.advancePast(3);
+        sequence.advancePast(5);
+
+        assertEquals(5, sequence.last());
+        assertEquals(6, sequence.next());
+        assertEquals(7, sequence.next());
+    }
+}
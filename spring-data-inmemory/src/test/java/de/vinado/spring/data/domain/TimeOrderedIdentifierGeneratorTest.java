@@ -0,0 +1,45 @@
+package de.vinado.spring.data.domain;
+
+import de.vinado.spring.data.domain.IdentifierTest.IdentifierImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class TimeOrderedIdentifierGeneratorTest {
+
+    private final TimeOrderedIdentifierGenerator<IdentifierImpl> generator =
+        new TimeOrderedIdentifierGenerator<>(IdentifierImpl::of);
+
+    @Test
+    void nullFactory_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdentifierGenerator<>(null));
+    }
+
+    @Test
+    void nextUuid_shouldBeVersion7() {
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedIdentifierGenerator.nextUuid();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(uuid.getMostSignificantBits() >>> 16 >= before);
+    }
+
+    @Test
+    void createIdentifier_shouldIncreaseWithinThread() {
+        Identifier previous = generator.createIdentifier();
+        for (int i = 0; i < 100_000; i++) {
+            Identifier next = generator.createIdentifier();
+
+            assertTrue(previous.compareTo(next) < 0);
+            previous = next;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de.vinado.spring.data.inmemory.repository.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class TableRegistryTest {
+
+    private TableRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TableRegistry();
+    }
+
+    @Test
+    void addNullArguments_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> registry.addTable(null));
+        assertThrows(IllegalArgumentException.class, () -> registry.setDefaultStoreMode(null));
+        assertThrows(IllegalArgumentException.class, () -> registry.addTable(Object.class).storeMode(null));
+    }
+
+    @Test
+    void emptyRegistry_shouldReturnSimpleDefault() {
+        TableMapping mapping = registry.get();
+
+        assertNotNull(mapping);
+        assertTrue(mapping.get().isEmpty());
+        assertEquals(StoreMode.SIMPLE, mapping.getDefinition(Object.class).getStoreMode());
+    }
+
+    @Test
+    void changeDefault_shouldApplyToUnregisteredTables() {
+        registry.setDefaultStoreMode(StoreMode.CONCURRENT);
+
+        TableMapping mapping = registry.get();
+
+        assertEquals(StoreMode.CONCURRENT, mapping.getDefinition(Object.class).getStoreMode());
+    }
+
+    @Test
+    void addTable_shouldOverrideDefault() {
+        registry.setDefaultStoreMode(StoreMode.CONCURRENT);
+        registry.addTable(String.class).storeMode(StoreMode.SIMPLE);
+        registry.addTable(Integer.class);
+
+        TableMapping mapping = registry.get();
+
+        assertEquals(StoreMode.SIMPLE, mapping.getDefinition(String.class).getStoreMode());
+        assertEquals(StoreMode.CONCURRENT, mapping.getDefinition(Integer.class).getStoreMode());
+    }
+
+    @Test
+    void addIndexes_shouldBeDefined() {
+        registry.addTable(String.class)
+            .addIndex("value")
+            .addUniqueIndex("hash")
+            .addSortedIndex("length");
+
+        TableDefinition definition = registry.get().getDefinition(String.class);
+
+        assertEquals(3, definition.getIndexes().size());
+        assertTrue(definition.getIndexes().contains(new IndexDefinition("value", false)));
+        assertTrue(definition.getIndexes().contains(new IndexDefinition("hash", true)));
+        assertTrue(definition.getIndexes().contains(new IndexDefinition("length", IndexType.SORTED, false)));
+        assertTrue(registry.get().getDefinition(Integer.class).getIndexes().isEmpty());
+    }
+
+    @Test
+    void offHeap_shouldBeDefinedWithCodec() {
+        EntityCodec codec = new SerializingEntityCodec();
+        registry.addTable(String.class).offHeap(codec);
+
+        TableMapping mapping = registry.get();
+
+        assertEquals(StorageType.OFF_HEAP, mapping.getDefinition(String.class).getStorage());
+        assertSame(codec, mapping.getDefinition(String.class).getCodec());
+        assertEquals(StorageType.HEAP, mapping.getDefinition(Integer.class).getStorage());
+    }
+
+    @Test
+    void addTableTwice_shouldReturnSameRegistration() {
+        assertSame(registry.addTable(String.class), registry.addTable(String.class));
+    }
+}
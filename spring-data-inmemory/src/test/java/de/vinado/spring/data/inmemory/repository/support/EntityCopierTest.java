@@ -0,0 +1,213 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class EntityCopierTest {
+
+    @Test
+    void shallowCopy_shouldShareReferencedObjects() {
+        Order order = order();
+
+        Order copy = (Order) EntityCopier.of(Order.class, false).copy(order);
+
+        assertNotSame(order, copy);
+        assertEquals(order, copy);
+        assertSame(order.getLines(), copy.getLines());
+        assertSame(order.getCustomer(), copy.getCustomer());
+    }
+
+    @Test
+    void deepCopy_shouldCopyReferencedObjects() {
+        Order order = order();
+
+        Order copy = (Order) EntityCopier.of(Order.class, true).copy(order);
+
+        assertEquals(order, copy);
+        assertNotSame(order.getLines(), copy.getLines());
+        assertNotSame(order.getLines().get(0), copy.getLines().get(0));
+        assertNotSame(order.getCustomer(), copy.getCustomer());
+        assertNotSame(order.getCodes(), copy.getCodes());
+        assertArrayEquals(order.getCodes(), copy.getCodes());
+        assertTrue(copy.getAttributes() instanceof TreeMap);
+        assertSame(order.getDate(), copy.getDate());
+    }
+
+    @Test
+    void deepCopyOfCycle_shouldPreserveCycle() {
+        Node first = new Node("first", null);
+        Node second = new Node("second", first);
+        first.setNext(second);
+
+        Node copy = (Node) EntityCopier.of(Node.class, true).copy(first);
+
+        assertEquals("second", copy.getNext().getName());
+        assertSame(copy, copy.getNext().getNext());
+    }
+
+    @Test
+    void copyWithoutDefaultConstructor_shouldCopyFields() {
+        Line line = new Line("foo", 3);
+
+        Line copy = (Line) EntityCopier.of(Line.class, true).copy(line);
+
+        assertEquals(line, copy);
+    }
+
+    @Test
+    void deepCopy_shouldCopyContainersIntoTheirVeryClass() {
+        Containers containers = new Containers();
+        containers.getConcurrentMap().put("key", new Customer("Jane"));
+        containers.getDeque().add(new Customer("John"));
+        containers.getEnumMap().put(TimeUnit.SECONDS, new Customer("Max"));
+        containers.getVector().add("foo");
+        containers.getCopyOnWriteList().add("bar");
+        containers.getPriorityQueue().addAll(Arrays.asList("a", "c", "b"));
+        containers.setView(Collections.unmodifiableList(Collections.singletonList(new Customer("Erika"))));
+
+        Containers copy = (Containers) EntityCopier.of(Containers.class, true).copy(containers);
+
+        assertNotSame(containers.getConcurrentMap(), copy.getConcurrentMap());
+        assertNotSame(containers.getConcurrentMap().get("key"), copy.getConcurrentMap().get("key"));
+        assertEquals(containers.getConcurrentMap(), copy.getConcurrentMap());
+        assertEquals("John", copy.getDeque().getFirst().getName());
+        assertEquals(containers.getEnumMap(), copy.getEnumMap());
+        assertEquals(containers.getVector(), copy.getVector());
+        assertEquals(containers.getCopyOnWriteList(), copy.getCopyOnWriteList());
+        assertEquals("c", copy.getPriorityQueue().peek());
+        assertEquals(containers.getView(), copy.getView());
+        assertNotSame(containers.getView().get(0), copy.getView().get(0));
+    }
+
+    @Test
+    void deepCopy_shouldCopyMutableJdkValues() {
+        Counters counters = new Counters();
+        counters.getCount().set(42);
+        counters.getFlags().set(3);
+        counters.getCalendar().setTimeInMillis(0);
+
+        Counters copy = (Counters) EntityCopier.of(Counters.class, true).copy(counters);
+        counters.getCount().incrementAndGet();
+        counters.getFlags().clear();
+        counters.getCalendar().setTimeInMillis(1);
+
+        assertEquals(42, copy.getCount().get());
+        assertTrue(copy.getFlags().get(3));
+        assertEquals(0, copy.getCalendar().getTimeInMillis());
+    }
+
+    @Test
+    void deepCopyOfUncopyableField_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> EntityCopier.of(Uncopyable.class, true));
+        assertEquals("foo", ((Uncopyable) EntityCopier.of(Uncopyable.class, false)
+            .copy(new Uncopyable(new StringBuilder("foo")))).getBuilder().toString());
+    }
+
+    private static Order order() {
+        Map<String, String> attributes = new TreeMap<>(Collections.singletonMap("key", "value"));
+        return new Order(1L, 42, LocalDate.of(2021, 5, 1), new Customer("Jane"),
+            new ArrayList<>(Arrays.asList(new Line("foo", 1), new Line("bar", 2))), new int[]{1, 2, 3}, attributes);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Order {
+
+        private Long id;
+        private int priority;
+        private LocalDate date;
+        private Customer customer;
+        private List<Line> lines;
+        private int[] codes;
+        private Map<String, String> attributes;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Customer {
+
+        private String name;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Line {
+
+        private final String product;
+        private final int quantity;
+    }
+
+    @Data
+    static class Containers {
+
+        private ConcurrentHashMap<String, Customer> concurrentMap = new ConcurrentHashMap<>();
+        private ArrayDeque<Customer> deque = new ArrayDeque<>();
+        private EnumMap<TimeUnit, Customer> enumMap = new EnumMap<>(TimeUnit.class);
+        private Vector<String> vector = new Vector<>();
+        private CopyOnWriteArrayList<String> copyOnWriteList = new CopyOnWriteArrayList<>();
+        private PriorityQueue<String> priorityQueue = new PriorityQueue<>(Comparator.reverseOrder());
+        private List<Customer> view = Collections.emptyList();
+    }
+
+    @Data
+    static class Counters {
+
+        private AtomicLong count = new AtomicLong();
+        private BitSet flags = new BitSet();
+        private Calendar calendar = Calendar.getInstance();
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Uncopyable {
+
+        private StringBuilder builder;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Node {
+
+        private String name;
+        private Node next;
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
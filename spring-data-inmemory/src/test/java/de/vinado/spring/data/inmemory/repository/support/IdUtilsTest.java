@@ -6,14 +6,18 @@ import lombok.Getter;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.annotation.Id;
 
+import java.util.Optional;
 import java.util.UUID;
 
 import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getId;
+import static de.vinado.spring.data.inmemory.repository.support.IdUtils.getIdType;
 import static de.vinado.spring.data.inmemory.repository.support.IdUtils.setId;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -116,6 +120,34 @@ class IdUtilsTest {
         assertEquals(42, id);
     }
 
+    @Test
+    void setIdPublicMethod_shouldSetId() {
+        PublicMethodEntity entity = new PublicMethodEntity();
+
+        setId(entity, 42);
+
+        assertEquals(42, entity.getId());
+        assertEquals(42, getId(entity));
+    }
+
+    @Test
+    void setIncompatibleTypeViaPublicMethod_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> setId(new PublicMethodEntity(), "42"));
+    }
+
+    @Test
+    void getIdType_shouldReturnAccessorType() {
+        assertEquals(Optional.of(Integer.class), getIdType(FieldEntity.class));
+        assertEquals(Optional.of(Integer.class), getIdType(MethodEntity.class));
+        assertEquals(Optional.of(int.class), getIdType(PublicMethodEntity.class));
+        assertFalse(getIdType(NotAnEntity.class).isPresent());
+    }
+
+    @Test
+    void accessor_shouldBeCachedPerClass() {
+        assertSame(IdAccessor.of(FieldEntity.class), IdAccessor.of(FieldEntity.class));
+    }
+
     @Data
     static class FieldEntity {
         @Id
@@ -129,6 +161,12 @@ class IdUtilsTest {
         private Integer id;
     }
 
+    @Data
+    public static class PublicMethodEntity {
+        @Getter(onMethod_ = @Id)
+        private int id;
+    }
+
     @Data
     static class NotAnEntity {
     }
@@ -0,0 +1,966 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerPrimaryKeyGenerator;
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.config.CopyMode;
+import de.vinado.spring.data.inmemory.repository.config.IndexDefinition;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.repository.EntityExistsException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class InMemoryEntityStoreTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5_000;
+
+    private InMemoryEntityStore<Integer> store;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryEntityStore<>(Entity.class, new IntegerPrimaryKeyGenerator(), StoreMode.CONCURRENT);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void storeAfterMergingLowerId_shouldNotOverwriteExisting() {
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(Entity.class, new IntegerPrimaryKeyGenerator());
+
+        store.merge(new Entity(5, "foo"));
+        store.store(new Entity(null, "bar"));
+        store.merge(new Entity(3, "baz"));
+        store.store(new Entity(null, "qux"));
+        store.store(new Entity(null, "quux"));
+
+        assertEquals(5, store.findAll(Entity.class).count());
+        assertEquals("foo", store.find(Entity.class, 5).getName());
+        assertEquals("bar", store.find(Entity.class, 6).getName());
+        assertEquals("baz", store.find(Entity.class, 3).getName());
+        assertEquals("qux", store.find(Entity.class, 7).getName());
+        assertEquals("quux", store.find(Entity.class, 8).getName());
+    }
+
+    @Test
+    void storeAfterMergingLowerIdWithSequence_shouldContinueSequence() {
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(Entity.class, new IntegerSequenceGenerator());
+
+        store.merge(new Entity(5, "foo"));
+        store.store(new Entity(null, "bar"));
+        store.merge(new Entity(3, "baz"));
+        Entity qux = new Entity(null, "qux");
+        store.store(qux);
+        store.remove(qux);
+        store.store(new Entity(null, "quux"));
+
+        assertEquals(4, store.count(Entity.class));
+        assertEquals("bar", store.find(Entity.class, 6).getName());
+        assertEquals(7, qux.getId());
+        assertEquals("quux", store.find(Entity.class, 8).getName());
+    }
+
+    @Test
+    void generatorRepeatingExistingId_shouldThrowException() {
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(VersionedEntity.class, previous -> 1);
+        store.store(new VersionedEntity());
+
+        VersionedEntity repeated = new VersionedEntity();
+
+        assertThrows(EntityExistsException.class, () -> store.store(repeated));
+        assertNull(repeated.getId());
+        assertNull(repeated.getVersion());
+        assertEquals(1, store.count(VersionedEntity.class));
+        assertEquals(0L, store.find(VersionedEntity.class, 1).getVersion());
+    }
+
+    @Test
+    void newEntity_shouldNotBeContained() {
+        assertFalse(store.contains(new Entity()));
+    }
+
+    @Test
+    void storeOnce_shouldBeContained() {
+        Entity entity = new Entity(null, "foo");
+
+        store.store(entity);
+
+        assertTrue(store.contains(entity));
+        assertTrue(store.contains(new Entity(entity.getId(), "foo")));
+        assertTrue(store.contains(new Entity(entity.getId(), "bar")));
+        assertFalse(store.contains(new Entity(entity.getId() + 1, "foo")));
+    }
+
+    @Test
+    void findNullPrimaryKey_shouldReturnNull() {
+        assertNull(store.find(Entity.class, null));
+    }
+
+    @Test
+    void count_shouldFollowStoreAndRemove() {
+        Entity foo = new Entity(null, "foo");
+        store.store(foo);
+        store.store(new Entity(null, "bar"));
+        store.merge(new Entity(foo.getId(), "baz"));
+
+        assertEquals(2, store.count(Entity.class));
+
+        store.remove(store.find(Entity.class, foo.getId()));
+
+        assertEquals(1, store.count(Entity.class));
+    }
+
+    @Test
+    void countByIndexedProperty_shouldFollowUpdates() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        store.store(new IndexedEntity(null, "foo@example.com", "a"));
+        store.store(new IndexedEntity(null, "bar@example.com", "a"));
+        store.store(new IndexedEntity(null, "baz@example.com", null));
+
+        assertEquals(2, store.countBy(IndexedEntity.class, "tenant", "a"));
+        assertEquals(1, store.countBy(IndexedEntity.class, "tenant", null));
+        assertEquals(1, store.countBy(IndexedEntity.class, "email", "foo@example.com"));
+
+        store.merge(new IndexedEntity(1, "foo@example.com", "b"));
+
+        assertEquals(1, store.countBy(IndexedEntity.class, "tenant", "a"));
+        assertEquals(1, store.countBy(IndexedEntity.class, "tenant", "b"));
+    }
+
+    @Test
+    void rebuildIndexes_shouldRelinkEntitiesChangedInPlace() {
+        InMemoryEntityStore<Integer> store = indexedStore(StoreMode.CONCURRENT);
+        IndexedEntity foo = new IndexedEntity(null, "foo@example.com", "a");
+        store.store(foo);
+        store.store(new IndexedEntity(null, "bar@example.com", "a"));
+        foo.setTenant("b");
+
+        assertEquals(2, store.countBy(IndexedEntity.class, "tenant", "a"));
+
+        store.rebuildIndexes();
+
+        assertEquals(1, store.countBy(IndexedEntity.class, "tenant", "a"));
+        assertEquals(1, store.countBy(IndexedEntity.class, "tenant", "b"));
+        assertEquals(1, store.countBy(IndexedEntity.class, "email", "foo@example.com"));
+    }
+
+    @Test
+    void getIndexTypes_shouldIncludeAnnotatedAndDeclaredIndexes() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+
+        assertEquals(Arrays.asList("email", "tenant"), new ArrayList<>(store.getIndexTypes().keySet()));
+        assertEquals(IndexType.HASH, store.getIndexTypes().get("tenant"));
+    }
+
+    @Test
+    void estimateMemory_shouldAccountForReferencedObjects() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        InMemoryEntityStore<Integer> longer = indexedStore();
+        for (int i = 0; i < 100; i++) {
+            store.store(new IndexedEntity(null, i + "@example.com", "a"));
+            longer.store(new IndexedEntity(null, i + "@example.com", String.join("", Collections.nCopies(100, "a"))));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            store.estimateMemory();
+            longer.estimateMemory();
+        }
+
+        assertTrue(store.estimateMemory() > 0);
+        assertTrue(longer.estimateMemory() > store.estimateMemory() + 100 * 80);
+    }
+
+    @Test
+    void countByUnindexedProperty_shouldScanTable() {
+        store.store(new Entity(null, "foo"));
+        store.store(new Entity(null, "foo"));
+        store.store(new Entity(null, "bar"));
+
+        assertEquals(2, store.countBy(Entity.class, "name", "foo"));
+        assertThrows(IllegalArgumentException.class, () -> store.countBy(Entity.class, "unknown", "foo"));
+    }
+
+    @Test
+    void findAllByIndexedProperty_shouldFollowUpdates() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        IndexedEntity foo = new IndexedEntity(null, "foo@example.com", "a");
+        IndexedEntity bar = new IndexedEntity(null, "bar@example.com", "a");
+        store.store(foo);
+        store.store(bar);
+
+        assertEquals(2, store.findAllBy(IndexedEntity.class, "tenant", "a").count());
+
+        bar.setTenant("b");
+        store.merge(bar);
+
+        assertEquals(1, store.findAllBy(IndexedEntity.class, "tenant", "a").count());
+        assertEquals(bar, store.findAllBy(IndexedEntity.class, "tenant", "b").findFirst().orElse(null));
+
+        store.remove(foo);
+
+        assertEquals(0, store.findAllBy(IndexedEntity.class, "tenant", "a").count());
+        assertEquals(0, store.findAllBy(IndexedEntity.class, "email", "foo@example.com").count());
+    }
+
+    @Test
+    void findAllByNullValue_shouldUseIndex() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        store.store(new IndexedEntity(null, "foo@example.com", null));
+
+        assertEquals(1, store.findAllBy(IndexedEntity.class, "tenant", null).count());
+    }
+
+    @Test
+    void storeDuplicateUniqueValue_shouldThrowException() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        store.store(new IndexedEntity(null, "foo@example.com", "a"));
+
+        IndexedEntity duplicate = new IndexedEntity(null, "foo@example.com", "b");
+
+        assertThrows(EntityExistsException.class, () -> store.store(duplicate));
+        assertEquals(1, store.findAll(IndexedEntity.class).count());
+        assertEquals(0, store.findAllBy(IndexedEntity.class, "tenant", "b").count());
+    }
+
+    @Test
+    void storeNullUniqueValues_shouldStoreAll() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        store.store(new IndexedEntity(null, null, "a"));
+        store.store(new IndexedEntity(null, null, "b"));
+
+        assertEquals(2, store.findAllBy(IndexedEntity.class, "email", null).count());
+    }
+
+    @Test
+    void storeDuplicateUniqueValue_shouldRestoreIdAndVersion() {
+        TableDefinition definition = new TableDefinition(StoreMode.SIMPLE,
+            Collections.singletonList(new IndexDefinition("counter", true)));
+        InMemoryEntityStore<Integer> store =
+            new InMemoryEntityStore<>(VersionedEntity.class, new IntegerPrimaryKeyGenerator(), definition);
+        store.store(new VersionedEntity(null, 1, null));
+
+        VersionedEntity duplicate = new VersionedEntity(null, 1, null);
+
+        assertThrows(EntityExistsException.class, () -> store.store(duplicate));
+        assertNull(duplicate.getId());
+        assertNull(duplicate.getVersion());
+    }
+
+    @Test
+    void mergeDuplicateUniqueValue_shouldKeepPreviousVersion() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        store.store(new IndexedEntity(null, "foo@example.com", "a"));
+        store.store(new IndexedEntity(null, "bar@example.com", "a"));
+
+        IndexedEntity update = new IndexedEntity(2, "foo@example.com", "b");
+
+        assertThrows(EntityExistsException.class, () -> store.merge(update));
+        assertEquals("bar@example.com", store.find(IndexedEntity.class, 2).getEmail());
+        assertEquals(0, store.findAllBy(IndexedEntity.class, "tenant", "b").count());
+    }
+
+    @Test
+    void mergeModifiedInPlace_shouldReleaseUniqueValue() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        IndexedEntity entity = new IndexedEntity(null, "foo@example.com", "a");
+        store.store(entity);
+
+        entity.setEmail("bar@example.com");
+        store.merge(entity);
+        store.store(new IndexedEntity(null, "foo@example.com", "a"));
+
+        assertEquals(2, store.findAll(IndexedEntity.class).count());
+        assertEquals(entity, store.findAllBy(IndexedEntity.class, "email", "bar@example.com").findFirst().orElse(null));
+    }
+
+    @Test
+    void indexUnknownProperty_shouldThrowException() {
+        TableDefinition definition = new TableDefinition(StoreMode.SIMPLE,
+            Collections.singletonList(new IndexDefinition("foo", false)));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new InMemoryEntityStore<>(Entity.class, new IntegerPrimaryKeyGenerator(), definition));
+    }
+
+    @Test
+    void concurrentStoreOfUniqueValues_shouldAcceptOneEntityPerValue() throws Exception {
+        InMemoryEntityStore<Integer> store = indexedStore(StoreMode.CONCURRENT);
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                try {
+                    store.store(new IndexedEntity(null, "user-" + i + "@example.com", "thread-" + thread));
+                } catch (EntityExistsException e) {
+                    // expected for all but one thread
+                }
+            }
+        });
+
+        assertEquals(OPERATIONS, store.findAll(IndexedEntity.class).count());
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertEquals(1, store.findAllBy(IndexedEntity.class, "email", "user-" + i + "@example.com").count());
+        }
+    }
+
+    @Test
+    void findAllInRangeBySortedIndex_shouldReturnOrderedSubset() {
+        InMemoryEntityStore<Integer> store = scoredStore();
+
+        assertEquals(Arrays.asList(20, 30, 30),
+            scores(store.findAllInRange(ScoredEntity.class, "score", Range.closed(20, 30), Sort.Direction.ASC)));
+        assertEquals(Arrays.asList(30, 30, 20),
+            scores(store.findAllInRange(ScoredEntity.class, "score", Range.rightOpen(20, 40), Sort.Direction.DESC)));
+        assertEquals(Arrays.asList(10, 20, 30, 30, 40),
+            scores(store.findAllInRange(ScoredEntity.class, "score", Range.unbounded(), Sort.Direction.ASC)));
+    }
+
+    @Test
+    void findAllInRangeByUnindexedProperty_shouldReturnOrderedSubset() {
+        InMemoryEntityStore<Integer> store = scoredStore();
+
+        List<String> names = store.findAllInRange(ScoredEntity.class, "name", Range.leftOpen("a", "c"),
+                Sort.Direction.DESC)
+            .map(ScoredEntity::getName)
+            .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("c", "b"), names);
+    }
+
+    @Test
+    void findAllOrderedBy_shouldOrderNullsFirst() {
+        InMemoryEntityStore<Integer> store = scoredStore();
+
+        assertEquals(Arrays.asList(null, 10, 20, 30, 30, 40),
+            scores(store.findAllOrderedBy(ScoredEntity.class, "score", Sort.Direction.ASC)));
+        assertEquals(Arrays.asList(40, 30, 30, 20, 10, null),
+            scores(store.findAllOrderedBy(ScoredEntity.class, "score", Sort.Direction.DESC)));
+        assertEquals(Arrays.asList(null, 10, 20, 30, 40, 30),
+            store.findAllOrderedBy(ScoredEntity.class, "name", Sort.Direction.ASC)
+                .map(ScoredEntity::getScore)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void findAllInRangeAfterUpdate_shouldFollowSortedIndex() {
+        InMemoryEntityStore<Integer> store = scoredStore();
+        ScoredEntity entity = store.find(ScoredEntity.class, 1);
+
+        entity.setScore(50);
+        store.merge(entity);
+        store.remove(store.find(ScoredEntity.class, 3));
+
+        Range<Integer> range = Range.of(Range.Bound.inclusive(15), Range.Bound.unbounded());
+
+        assertEquals(Arrays.asList(20, 30, 50),
+            scores(store.findAllInRange(ScoredEntity.class, "score", range, Sort.Direction.ASC)));
+        assertEquals(1, store.findAllBy(ScoredEntity.class, "score", 30).count());
+    }
+
+    @Test
+    void storeDuplicateUniqueSortedValue_shouldThrowException() {
+        TableDefinition definition = new TableDefinition(StoreMode.SIMPLE,
+            Collections.singletonList(new IndexDefinition("name", IndexType.SORTED, true)));
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(ScoredEntity.class,
+            new IntegerPrimaryKeyGenerator(), definition);
+        store.store(new ScoredEntity(null, "a", 10));
+
+        assertThrows(EntityExistsException.class, () -> store.store(new ScoredEntity(null, "a", 20)));
+        assertEquals(1, store.findAll(ScoredEntity.class).count());
+        assertEquals(0, store.findAllBy(ScoredEntity.class, "score", 20).count());
+    }
+
+    @Test
+    void storeIncomparableSortedValue_shouldThrowException() {
+        TableDefinition definition = new TableDefinition(StoreMode.SIMPLE,
+            Collections.singletonList(new IndexDefinition("value", IndexType.SORTED, false)));
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(IncomparableEntity.class,
+            new IntegerPrimaryKeyGenerator(), definition);
+
+        assertThrows(IllegalArgumentException.class, () -> store.store(new IncomparableEntity(null, new Object())));
+        assertEquals(0, store.findAll(IncomparableEntity.class).count());
+    }
+
+    @Test
+    void storeAll_shouldAllocateConsecutiveIds() {
+        store.store(new Entity(null, "foo"));
+        List<Entity> entities = Arrays.asList(new Entity(null, "bar"), new Entity(null, "baz"));
+
+        store.storeAll(entities);
+
+        assertEquals(Arrays.asList(2, 3), entities.stream().map(Entity::getId).collect(Collectors.toList()));
+        assertEquals(3, store.count(Entity.class));
+        assertEquals("baz", store.find(Entity.class, 3).getName());
+    }
+
+    @Test
+    void storeAllWithForeignObject_shouldStoreNothing() {
+        List<Object> entities = Arrays.asList(new Entity(null, "foo"), new ScoredEntity());
+
+        assertThrows(IllegalArgumentException.class, () -> store.storeAll(entities));
+        assertEquals(0, store.count(Entity.class));
+    }
+
+    @Test
+    void storeAllWithRepeatedEntity_shouldStoreNothing() {
+        Entity entity = new Entity(null, "foo");
+
+        assertThrows(EntityExistsException.class, () -> store.storeAll(Arrays.asList(entity, entity)));
+        assertNull(entity.getId());
+        assertEquals(0, store.count(Entity.class));
+    }
+
+    @Test
+    void storeAllDuplicateUniqueValue_shouldKeepPrecedingEntities() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        List<IndexedEntity> entities = Arrays.asList(new IndexedEntity(null, "foo@example.com", "a"),
+            new IndexedEntity(null, "foo@example.com", "b"));
+
+        assertThrows(EntityExistsException.class, () -> store.storeAll(entities));
+        assertEquals(1, store.count(IndexedEntity.class));
+        assertEquals(0, store.countBy(IndexedEntity.class, "tenant", "b"));
+    }
+
+    @Test
+    void mergeAll_shouldReplaceEntitiesAndIndexEntries() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        store.storeAll(Arrays.asList(new IndexedEntity(null, "foo@example.com", "a"),
+            new IndexedEntity(null, "bar@example.com", "a")));
+
+        store.mergeAll(Arrays.asList(new IndexedEntity(1, "foo@example.com", "b"),
+            new IndexedEntity(2, "baz@example.com", "b")));
+
+        assertEquals(2, store.countBy(IndexedEntity.class, "tenant", "b"));
+        assertEquals(0, store.countBy(IndexedEntity.class, "email", "bar@example.com"));
+        assertEquals("baz@example.com", store.find(IndexedEntity.class, 2).getEmail());
+    }
+
+    @Test
+    void mergeAllWithoutId_shouldMergeNothing() {
+        store.store(new Entity(null, "foo"));
+        List<Entity> entities = Arrays.asList(new Entity(1, "bar"), new Entity(null, "baz"));
+
+        assertThrows(IllegalArgumentException.class, () -> store.mergeAll(entities));
+        assertEquals("foo", store.find(Entity.class, 1).getName());
+    }
+
+    @Test
+    void removeAll_shouldIgnoreEntitiesNotContained() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        IndexedEntity foo = new IndexedEntity(null, "foo@example.com", "a");
+        store.storeAll(Arrays.asList(foo, new IndexedEntity(null, "bar@example.com", "a")));
+
+        store.removeAll(Arrays.asList(foo, new IndexedEntity(null, "baz@example.com", "a"),
+            new IndexedEntity(42, "qux@example.com", "a")));
+
+        assertEquals(1, store.count(IndexedEntity.class));
+        assertEquals(1, store.countBy(IndexedEntity.class, "tenant", "a"));
+        assertEquals(0, store.countBy(IndexedEntity.class, "email", "foo@example.com"));
+    }
+
+    @Test
+    void clear_shouldRemoveRowsAndIndexEntries() {
+        InMemoryEntityStore<Integer> store = indexedStore();
+        store.storeAll(Arrays.asList(new IndexedEntity(null, "foo@example.com", "a"),
+            new IndexedEntity(null, "bar@example.com", "a")));
+
+        store.clear(IndexedEntity.class);
+        IndexedEntity foo = new IndexedEntity(null, "foo@example.com", "a");
+        store.store(foo);
+
+        assertEquals(1, store.count(IndexedEntity.class));
+        assertEquals(1, store.countBy(IndexedEntity.class, "tenant", "a"));
+        assertEquals(3, foo.getId());
+    }
+
+    @Test
+    void offHeapStore_shouldReturnCopies() {
+        InMemoryEntityStore<Integer> store = offHeapStore(StoreMode.SIMPLE);
+        SerializableEntity foo = new SerializableEntity(null, "foo", "a");
+        store.store(foo);
+
+        SerializableEntity found = store.find(SerializableEntity.class, foo.getId());
+        found.setName("bar");
+
+        assertEquals(foo, store.find(SerializableEntity.class, foo.getId()));
+        assertTrue(store.contains(foo));
+        assertTrue(store.contains(found));
+    }
+
+    @Test
+    void offHeapStore_shouldFollowUpdates() {
+        InMemoryEntityStore<Integer> store = offHeapStore(StoreMode.SIMPLE);
+        store.storeAll(Arrays.asList(new SerializableEntity(null, "foo", "a"),
+            new SerializableEntity(null, "bar", "a"), new SerializableEntity(null, "baz", "b")));
+
+        store.merge(new SerializableEntity(1, "qux", "b"));
+        store.remove(store.find(SerializableEntity.class, 2));
+
+        assertEquals(Arrays.asList("baz", "qux"), store.findAllBy(SerializableEntity.class, "tenant", "b")
+            .map(SerializableEntity::getName)
+            .sorted()
+            .collect(Collectors.toList()));
+        assertEquals(2, store.findAll(SerializableEntity.class).count());
+        assertNull(store.find(SerializableEntity.class, 2));
+    }
+
+    @Test
+    void offHeapStoreUnserializableEntity_shouldLeaveTableUntouched() {
+        TableDefinition definition = new TableDefinition(StoreMode.SIMPLE, Collections.emptyList(),
+            StorageType.OFF_HEAP, SerializingEntityCodec.INSTANCE);
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(Entity.class, new IntegerPrimaryKeyGenerator(),
+            definition);
+
+        assertThrows(IllegalArgumentException.class, () -> store.store(new Entity(null, "foo")));
+        assertEquals(0, store.count(Entity.class));
+    }
+
+    @Test
+    void concurrentOffHeapStoreAndRemove_shouldReuseMemory() throws Exception {
+        InMemoryEntityStore<Integer> store = offHeapStore(StoreMode.CONCURRENT);
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                SerializableEntity entity = new SerializableEntity(null, "thread-" + thread, "a");
+                store.store(entity);
+                assertEquals(entity, store.find(SerializableEntity.class, entity.getId()));
+                store.remove(entity);
+            }
+        });
+
+        assertEquals(0, store.count(SerializableEntity.class));
+        assertEquals(0, store.findAll(SerializableEntity.class).count());
+    }
+
+    @Test
+    void concurrentOffHeapReadAndMerge_shouldReadWholeEntities() throws Exception {
+        InMemoryEntityStore<Integer> store = offHeapStore(StoreMode.CONCURRENT);
+        SerializableEntity entity = new SerializableEntity(null, "", "a");
+        store.store(entity);
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (0 == thread % 2) {
+                    String name = String.join("", Collections.nCopies(i % 100, "x"));
+                    store.merge(new SerializableEntity(entity.getId(), name, "a"));
+                } else {
+                    SerializableEntity found = store.find(SerializableEntity.class, entity.getId());
+                    assertEquals("a", found.getTenant());
+                    assertTrue(found.getName().matches("x*"));
+                }
+            }
+        });
+
+        assertEquals(1, store.count(SerializableEntity.class));
+    }
+
+    private static InMemoryEntityStore<Integer> offHeapStore(StoreMode storeMode) {
+        TableDefinition definition = new TableDefinition(storeMode, Collections.emptyList(), StorageType.OFF_HEAP,
+            SerializingEntityCodec.INSTANCE);
+        return new InMemoryEntityStore<>(SerializableEntity.class, new IntegerSequenceGenerator(), definition);
+    }
+
+    private static InMemoryEntityStore<Integer> scoredStore() {
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(ScoredEntity.class,
+            new IntegerPrimaryKeyGenerator(), StoreMode.CONCURRENT);
+        store.store(new ScoredEntity(null, "d", 30));
+        store.store(new ScoredEntity(null, "b", 10));
+        store.store(new ScoredEntity(null, "e", 40));
+        store.store(new ScoredEntity(null, null, null));
+        store.store(new ScoredEntity(null, "f", 30));
+        store.store(new ScoredEntity(null, "c", 20));
+        return store;
+    }
+
+    private static List<Integer> scores(Stream<ScoredEntity> entities) {
+        return entities.map(ScoredEntity::getScore).collect(Collectors.toList());
+    }
+
+    private static InMemoryEntityStore<Integer> indexedStore() {
+        return indexedStore(StoreMode.SIMPLE);
+    }
+
+    private static InMemoryEntityStore<Integer> indexedStore(StoreMode storeMode) {
+        TableDefinition definition = new TableDefinition(storeMode,
+            Collections.singletonList(new IndexDefinition("tenant", false)));
+        return new InMemoryEntityStore<>(IndexedEntity.class, new IntegerPrimaryKeyGenerator(), definition);
+    }
+
+    @Test
+    void multiVersionOffHeapStore_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> offHeapStore(StoreMode.MULTI_VERSION));
+    }
+
+    @Test
+    void multiVersionFindAll_shouldNotSeeLaterWrites() {
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(Entity.class, new IntegerPrimaryKeyGenerator(),
+            StoreMode.MULTI_VERSION);
+        store.storeAll(Arrays.asList(new Entity(null, "a"), new Entity(null, "b")));
+
+        Stream<Entity> entities = store.findAll(Entity.class);
+        store.storeAll(Arrays.asList(new Entity(null, "c"), new Entity(null, "d")));
+        store.merge(new Entity(1, "e"));
+
+        assertEquals(Arrays.asList("a", "b"), entities.map(Entity::getName).sorted().collect(Collectors.toList()));
+        assertEquals(4, store.count(Entity.class));
+    }
+
+    @Test
+    void multiVersionFindAllBy_shouldScanVersion() {
+        InMemoryEntityStore<Integer> store = indexedStore(StoreMode.MULTI_VERSION);
+        store.storeAll(Arrays.asList(new IndexedEntity(null, "foo@example.com", "a"),
+            new IndexedEntity(null, "bar@example.com", "a")));
+
+        Stream<IndexedEntity> entities = store.findAllBy(IndexedEntity.class, "tenant", "a");
+        store.store(new IndexedEntity(null, "baz@example.com", "a"));
+
+        assertEquals(2, entities.count());
+        assertEquals(3, store.countBy(IndexedEntity.class, "tenant", "a"));
+        assertThrows(EntityExistsException.class,
+            () -> store.store(new IndexedEntity(null, "foo@example.com", "b")));
+    }
+
+    @Test
+    void concurrentMultiVersionStoreAll_shouldExposeWholeBatches() throws Exception {
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(Entity.class, new IntegerPrimaryKeyGenerator(),
+            StoreMode.MULTI_VERSION);
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS / 10; i++) {
+                if (0 == thread % 2) {
+                    store.storeAll(Arrays.asList(new Entity(), new Entity(), new Entity(), new Entity()));
+                } else {
+                    assertEquals(0, store.findAll(Entity.class).count() % 4);
+                }
+            }
+        });
+
+        assertEquals(THREADS / 2 * OPERATIONS / 10 * 4, store.count(Entity.class));
+    }
+
+    @Test
+    void storeVersionedEntity_shouldInitializeVersion() {
+        InMemoryEntityStore<Integer> store = versionedStore();
+        VersionedEntity entity = new VersionedEntity(null, 0, null);
+
+        store.store(entity);
+        store.merge(new VersionedEntity(entity.getId(), 1, 0L));
+
+        assertEquals(0L, entity.getVersion());
+        assertEquals(1L, store.find(VersionedEntity.class, entity.getId()).getVersion());
+    }
+
+    @Test
+    void mergeStaleVersion_shouldThrowException() {
+        InMemoryEntityStore<Integer> store = versionedStore();
+        store.store(new VersionedEntity(null, 0, null));
+        store.merge(new VersionedEntity(1, 1, 0L));
+        VersionedEntity stale = new VersionedEntity(1, 2, 0L);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> store.merge(stale));
+        assertThrows(OptimisticLockingFailureException.class, () -> store.merge(new VersionedEntity(2, 0, 3L)));
+        assertEquals(0L, stale.getVersion());
+        assertEquals(1, store.find(VersionedEntity.class, 1).getCounter());
+    }
+
+    @Test
+    void removeStaleVersion_shouldThrowException() {
+        InMemoryEntityStore<Integer> store = versionedStore();
+        store.store(new VersionedEntity(null, 0, null));
+        store.merge(new VersionedEntity(1, 1, 0L));
+
+        assertThrows(OptimisticLockingFailureException.class,
+            () -> store.remove(new VersionedEntity(1, 1, 0L)));
+        store.remove(new VersionedEntity(1, 1, 1L));
+
+        assertEquals(0, store.count(VersionedEntity.class));
+    }
+
+    @Test
+    void removeAllStaleVersion_shouldKeepEntityAndRemoveOthers() {
+        InMemoryEntityStore<Integer> store = versionedStore();
+        store.storeAll(Arrays.asList(new VersionedEntity(null, 0, null), new VersionedEntity(null, 0, null)));
+        store.merge(new VersionedEntity(1, 1, 0L));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> store.removeAll(Arrays.asList(
+            new VersionedEntity(1, 0, 0L), new VersionedEntity(2, 0, 0L))));
+        assertEquals(1, store.find(VersionedEntity.class, 1).getCounter());
+        assertNull(store.find(VersionedEntity.class, 2));
+
+        store.removeAll(Collections.singletonList(new VersionedEntity(1, 1, 1L)));
+        assertEquals(0, store.count(VersionedEntity.class));
+    }
+
+    @Test
+    void concurrentMergeOfVersionedEntity_shouldNotLoseUpdates() throws Exception {
+        InMemoryEntityStore<Integer> store = versionedStore();
+        store.store(new VersionedEntity(null, 0, null));
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS / 10; i++) {
+                while (true) {
+                    VersionedEntity entity = store.find(VersionedEntity.class, 1);
+                    try {
+                        store.merge(new VersionedEntity(1, entity.getCounter() + 1, entity.getVersion()));
+                        break;
+                    } catch (OptimisticLockingFailureException e) {
+                        // retry with the latest version
+                    }
+                }
+            }
+        });
+
+        VersionedEntity entity = store.find(VersionedEntity.class, 1);
+        assertEquals(THREADS * OPERATIONS / 10, entity.getCounter());
+        assertEquals(THREADS * OPERATIONS / 10, entity.getVersion());
+    }
+
+    private static InMemoryEntityStore<Integer> versionedStore() {
+        return new InMemoryEntityStore<>(VersionedEntity.class, new IntegerPrimaryKeyGenerator(),
+            StoreMode.CONCURRENT);
+    }
+
+    @Test
+    void copyingStore_shouldIsolateStoredEntities() {
+        TableDefinition definition = new TableDefinition(StoreMode.SIMPLE, Collections.emptyList(), StorageType.HEAP,
+            SerializingEntityCodec.INSTANCE, CopyMode.SHALLOW);
+        InMemoryEntityStore<Integer> store = new InMemoryEntityStore<>(SerializableEntity.class,
+            new IntegerSequenceGenerator(), definition);
+        SerializableEntity entity = new SerializableEntity(null, "foo", "a");
+        store.store(entity);
+
+        entity.setName("bar");
+        SerializableEntity found = store.find(SerializableEntity.class, entity.getId());
+        found.setTenant("b");
+
+        assertEquals("foo", found.getName());
+        assertEquals("a", store.find(SerializableEntity.class, entity.getId()).getTenant());
+        assertEquals(1, store.countBy(SerializableEntity.class, "tenant", "a"));
+        assertFalse(store.findAll(SerializableEntity.class).anyMatch(candidate -> candidate == found));
+    }
+
+    @Test
+    void concurrentStore_shouldNeitherLoseEntitiesNorDuplicateIds() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                store.store(new Entity(null, "thread-" + thread));
+            }
+        });
+
+        Set<Integer> ids = store.findAll(Entity.class)
+            .map(Entity::getId)
+            .collect(Collectors.toSet());
+
+        assertEquals(THREADS * OPERATIONS, store.count(Entity.class));
+        assertEquals(THREADS * OPERATIONS, ids.size());
+        for (int id = 1; id <= THREADS * OPERATIONS; id++) {
+            assertNotNull(store.find(Entity.class, id));
+        }
+    }
+
+    @Test
+    void concurrentStoreWithUnboxedKeys_shouldNeitherLoseEntitiesNorDuplicateIds() throws Exception {
+        store = new InMemoryEntityStore<>(Entity.class, new IntegerPrimaryKeyGenerator(), new TableDefinition(
+            StoreMode.CONCURRENT, Collections.emptyList(), StorageType.HEAP, SerializingEntityCodec.INSTANCE,
+            CopyMode.NONE, true));
+
+        concurrentStore_shouldNeitherLoseEntitiesNorDuplicateIds();
+    }
+
+    @Test
+    void concurrentStoreAll_shouldNeitherLoseEntitiesNorDuplicateIds() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS / 100; i++) {
+                List<Entity> batch = new ArrayList<>();
+                for (int j = 0; j < 100; j++) {
+                    batch.add(new Entity(null, "thread-" + thread));
+                }
+                store.storeAll(batch);
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS, store.count(Entity.class));
+        for (int id = 1; id <= THREADS * OPERATIONS; id++) {
+            assertEquals(id, store.find(Entity.class, id).getId());
+        }
+    }
+
+    @Test
+    void concurrentStoreAndRemove_shouldLeaveEmptyStore() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                Entity entity = new Entity(null, "thread-" + thread);
+                store.store(entity);
+                assertNotNull(store.find(Entity.class, entity.getId()));
+                store.remove(entity);
+            }
+        });
+
+        assertEquals(0, store.findAll(Entity.class).count());
+        assertEquals(0, store.count(Entity.class));
+    }
+
+    @Test
+    void concurrentMerge_shouldKeepLatestVersionOfEachEntity() throws Exception {
+        int rows = THREADS * 16;
+        for (int i = 0; i < rows; i++) {
+            store.store(new Entity());
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                int id = 1 + thread + (i % 16) * THREADS;
+                store.merge(new Entity(id, "version-" + i));
+            }
+        });
+
+        assertEquals(rows, store.findAll(Entity.class).count());
+        for (int id = 1; id <= rows; id++) {
+            int slot = (id - 1) / THREADS;
+            int lastVersion = (OPERATIONS - 1 - slot) / 16 * 16 + slot;
+            assertEquals("version-" + lastVersion, store.find(Entity.class, id).getName());
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int index = thread;
+            Callable<Void> callable = () -> {
+                start.await();
+                task.run(index);
+                return null;
+            };
+            futures.add(executor.submit(callable));
+        }
+
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+
+        void run(int thread);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Entity {
+
+        @Id
+        private Integer id;
+        private String name;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class IndexedEntity {
+
+        @Id
+        private Integer id;
+
+        @Indexed(unique = true)
+        private String email;
+
+        private String tenant;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class ScoredEntity {
+
+        @Id
+        private Integer id;
+
+        private String name;
+
+        @Indexed(type = IndexType.SORTED)
+        private Integer score;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class IncomparableEntity {
+
+        @Id
+        private Integer id;
+        private Object value;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class VersionedEntity {
+
+        @Id
+        private Integer id;
+
+        private int counter;
+
+        @Version
+        private Long version;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class SerializableEntity implements Serializable {
+
+        @Id
+        private Integer id;
+
+        private String name;
+
+        @Indexed
+        private String tenant;
+    }
+}
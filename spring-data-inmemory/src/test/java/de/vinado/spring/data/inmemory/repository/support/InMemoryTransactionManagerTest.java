@@ -0,0 +1,284 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.config.CopyMode;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.repository.EntityExistsException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class InMemoryTransactionManagerTest {
+
+    private InMemoryEntityTableStore store;
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryEntityTableStore();
+        store.add(new InMemoryEntityStore<>(Person.class, new IntegerSequenceGenerator()));
+        store.add(new InMemoryEntityStore<>(Tag.class, new LongSequenceGenerator()));
+        transaction = new TransactionTemplate(new InMemoryTransactionManager(store));
+    }
+
+    @Test
+    void commit_shouldApplyChangesAcrossTables() {
+        Person jane = new Person(null, "Jane", 31);
+        store.store(jane);
+
+        transaction.executeWithoutResult(status -> {
+            store.store(new Person(null, "John", 42));
+            store.store(new Tag(null, "foo"));
+            store.remove(jane);
+
+            assertEquals(1, store.count(Person.class));
+            assertEquals(1, store.findAll(Person.class).count());
+        });
+
+        assertNull(store.find(Person.class, 1));
+        assertEquals("John", store.find(Person.class, 2).getName());
+        assertEquals("foo", store.find(Tag.class, 1L).getName());
+    }
+
+    @Test
+    void rollback_shouldDiscardChanges() {
+        store.store(new Person(null, "Jane", 31));
+
+        transaction.executeWithoutResult(status -> {
+            store.store(new Person(null, "John", 42));
+            store.clear(Person.class);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, store.count(Person.class));
+        assertFalse(store.findAll(Person.class).anyMatch(person -> "John".equals(person.getName())));
+    }
+
+    @Test
+    void readInTransaction_shouldSeeOwnChanges() {
+        store.storeAll(Arrays.asList(new Person(null, "Jane", 31), new Person(null, "John", 42)));
+
+        transaction.executeWithoutResult(status -> {
+            Person jane = new Person(1, "Jane", 43);
+            store.merge(jane);
+            store.store(new Person(null, "Max", 25));
+
+            assertEquals(jane, store.find(Person.class, 1));
+            assertEquals(3, store.count(Person.class));
+            assertEquals(0, store.countBy(Person.class, "age", 31));
+            assertEquals(Arrays.asList("Max", "John", "Jane"), store
+                .findAllOrderedBy(Person.class, "age", Sort.Direction.ASC)
+                .map(Person::getName)
+                .collect(Collectors.toList()));
+            assertTrue(store.contains(jane));
+        });
+
+        assertEquals(1, store.countBy(Person.class, "age", 43));
+    }
+
+    @Test
+    void commitToMultiVersionTable_shouldApplyChangesInOrder() {
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        store.add(new InMemoryEntityStore<>(Person.class, new IntegerSequenceGenerator(), StoreMode.MULTI_VERSION));
+        TransactionTemplate transaction = new TransactionTemplate(new InMemoryTransactionManager(store));
+        store.store(new Person(null, "Jane", 31));
+
+        transaction.executeWithoutResult(status -> {
+            Person john = new Person(null, "John", 42);
+            store.store(john);
+            store.remove(john);
+            store.merge(new Person(1, "Janet", 31));
+            store.remove(new Person(1, "Janet", 31));
+            store.store(new Person(null, "Max", 25));
+        });
+
+        assertEquals(Collections.singletonList("Max"), store.findAll(Person.class)
+            .map(Person::getName)
+            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void failedCommit_shouldUndoAppliedChanges() {
+        store.storeAll(Arrays.asList(new Person(null, "Jane", 31), new Person(null, "John", 42)));
+
+        assertThrows(EntityExistsException.class, () -> transaction.executeWithoutResult(status -> {
+            store.merge(new Person(1, "Janet", 31));
+            store.store(new Tag(null, "foo"));
+            store.merge(new Person(2, "Janet", 42));
+        }));
+
+        assertEquals("Jane", store.find(Person.class, 1).getName());
+        assertEquals("John", store.find(Person.class, 2).getName());
+        assertEquals(0, store.count(Tag.class));
+    }
+
+    @Test
+    void requiresNew_shouldCommitIndependently() {
+        TransactionTemplate inner = new TransactionTemplate(transaction.getTransactionManager());
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        transaction.executeWithoutResult(status -> {
+            store.store(new Tag(null, "foo"));
+            inner.executeWithoutResult(innerStatus -> {
+                assertEquals(0, store.count(Tag.class));
+                store.store(new Person(null, "Jane", 31));
+            });
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, store.count(Person.class));
+        assertEquals(0, store.count(Tag.class));
+    }
+
+    @Test
+    void removeOfConcurrentlyUpdatedEntity_shouldFailCommit() {
+        store.add(new InMemoryEntityStore<>(Document.class, new IntegerSequenceGenerator()));
+        store.store(new Document(null, "draft", null));
+        TransactionTemplate inner = new TransactionTemplate(transaction.getTransactionManager());
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> transaction.executeWithoutResult(status -> {
+            store.remove(new Document(1, "draft", 0L));
+            inner.executeWithoutResult(innerStatus -> store.merge(new Document(1, "final", 0L)));
+        }));
+
+        assertEquals("final", store.find(Document.class, 1).getTitle());
+    }
+
+    @Test
+    void saveStoredInstanceInTransaction_shouldCommitChanges() {
+        store.store(new Tag(null, "foo"));
+
+        transaction.executeWithoutResult(status -> {
+            Tag tag = store.find(Tag.class, 1L);
+            tag.setName("bar");
+            store.merge(tag);
+        });
+
+        assertEquals("bar", store.find(Tag.class, 1L).getName());
+        assertEquals(1, store.count(Tag.class));
+    }
+
+    @Test
+    void rollbackOfChangeInPlace_shouldRestoreSharingTable() {
+        store.add(new InMemoryEntityStore<>(Document.class, new IntegerSequenceGenerator()));
+        store.store(new Document(null, "draft", null));
+        store.store(new Document(null, "outline", null));
+
+        transaction.executeWithoutResult(status -> {
+            Document document = store.find(Document.class, 1);
+            document.setTitle("final");
+            store.merge(document);
+            store.findAll(Document.class)
+                .filter(other -> "outline".equals(other.getTitle()))
+                .forEach(other -> other.setTitle("summary"));
+            status.setRollbackOnly();
+        });
+
+        assertEquals("draft", store.find(Document.class, 1).getTitle());
+        assertEquals(0L, store.find(Document.class, 1).getVersion());
+        assertEquals("outline", store.find(Document.class, 2).getTitle());
+    }
+
+    @Test
+    void failedCommitOfChangeInPlace_shouldRestoreSharingTable() {
+        store.add(new InMemoryEntityStore<>(Document.class, new IntegerSequenceGenerator()));
+        store.store(new Document(null, "draft", null));
+        store.storeAll(Arrays.asList(new Person(null, "Jane", 31), new Person(null, "John", 42)));
+
+        assertThrows(EntityExistsException.class, () -> transaction.executeWithoutResult(status -> {
+            Document document = store.find(Document.class, 1);
+            document.setTitle("final");
+            store.merge(document);
+            store.merge(new Person(1, "Janet", 31));
+            store.merge(new Person(2, "Janet", 42));
+        }));
+
+        assertEquals("draft", store.find(Document.class, 1).getTitle());
+        assertEquals(0L, store.find(Document.class, 1).getVersion());
+    }
+
+    @Test
+    void rollbackOfChangeInPlace_shouldRestoreCopyingTable() {
+        store.add(new InMemoryEntityStore<>(Document.class, new IntegerSequenceGenerator(), new TableDefinition(
+            StoreMode.SIMPLE, Collections.emptyList(), StorageType.HEAP, SerializingEntityCodec.INSTANCE,
+            CopyMode.SHALLOW)));
+        store.store(new Document(null, "draft", null));
+
+        transaction.executeWithoutResult(status -> {
+            Document document = store.find(Document.class, 1);
+            document.setTitle("final");
+            store.merge(document);
+            status.setRollbackOnly();
+        });
+
+        assertEquals("draft", store.find(Document.class, 1).getTitle());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Person {
+
+        @Id
+        private Integer id;
+
+        @Indexed(unique = true)
+        private String name;
+
+        @Indexed(type = IndexType.SORTED)
+        private Integer age;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Tag {
+
+        @Id
+        private Long id;
+
+        private String name;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Document {
+
+        @Id
+        private Integer id;
+
+        private String title;
+
+        @Version
+        private Long version;
+    }
+}
@@ -0,0 +1,113 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.support.EntityStoreObserver.Operation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Vincent Nadoll
+ */
+class InstrumentedEntityTableStoreTest {
+
+    private EntityStoreObserver observer;
+    private InMemoryEntityStore<Integer> table;
+    private InstrumentedEntityTableStore store;
+
+    @BeforeEach
+    void setUp() {
+        observer = mock(EntityStoreObserver.class);
+        table = new InMemoryEntityStore<>(Person.class, new IntegerSequenceGenerator());
+        store = new InstrumentedEntityTableStore(observer);
+        store.add(table);
+    }
+
+    @Test
+    void addTable_shouldNotifyObserver() {
+        verify(observer).onTableAdded(Person.class, table);
+    }
+
+    @Test
+    void operations_shouldBeReported() {
+        Person jane = new Person(null, "Jane", 31);
+        store.store(jane);
+        store.storeAll(Arrays.asList(new Person(null, "John", 42), new Person(null, "Jack", 27)));
+        store.find(Person.class, jane.getId());
+        store.remove(jane);
+
+        verify(observer).onOperation(eq(Person.class), eq(Operation.STORE), anyLong());
+        verify(observer).onOperation(eq(Person.class), eq(Operation.STORE_ALL), anyLong());
+        verify(observer).onOperation(eq(Person.class), eq(Operation.FIND), anyLong());
+        verify(observer).onOperation(eq(Person.class), eq(Operation.REMOVE), anyLong());
+        assertEquals(2, store.count(Person.class));
+    }
+
+    @Test
+    void failedOperation_shouldNotBeReported() {
+        assertThrows(IllegalArgumentException.class, () -> store.merge(new Person(null, "Jane", 31)));
+
+        verify(observer, never()).onOperation(any(), eq(Operation.MERGE), anyLong());
+    }
+
+    @Test
+    void queries_shouldReportIndexUsage() {
+        store.storeAll(Arrays.asList(new Person(null, "Jane", 31), new Person(null, "John", 42)));
+
+        assertEquals(1, store.findAllBy(Person.class, "name", "Jane").count());
+        assertEquals(2, store.countBy(Person.class, "city", null));
+        assertTrue(store.findAllInRange(Person.class, "age", Range.closed(30, 40), Sort.Direction.ASC)
+            .findFirst().isPresent());
+
+        verify(observer).onQuery(Person.class, "name", true);
+        verify(observer).onQuery(Person.class, "city", false);
+        verify(observer).onQuery(Person.class, "age", false);
+    }
+
+    @Test
+    void estimateMemory_shouldGrowWithRows() {
+        long empty = table.estimateMemory();
+        store.storeAll(Arrays.asList(new Person(null, "Jane", 31), new Person(null, "John", 42)));
+
+        assertEquals(0, empty);
+        assertTrue(table.estimateMemory() > 0);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Person {
+
+        @Id
+        private Integer id;
+
+        @Indexed
+        private String name;
+
+        private Integer age;
+
+        private String city;
+
+        Person(Integer id, String name, Integer age) {
+            this(id, name, age, null);
+        }
+    }
+}
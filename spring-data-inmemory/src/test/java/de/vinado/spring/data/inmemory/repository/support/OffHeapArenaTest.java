@@ -0,0 +1,63 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class OffHeapArenaTest {
+
+    private final OffHeapArena arena = new OffHeapArena();
+
+    @Test
+    void read_shouldReturnRecord() {
+        long foo = arena.allocate(bytes("foo"));
+        long bar = arena.allocate(bytes("bar"));
+
+        assertEquals("foo", string(arena.read(foo)));
+        assertEquals("bar", string(arena.read(bar)));
+        assertTrue(arena.read(foo).isReadOnly());
+    }
+
+    @Test
+    void allocateAfterFree_shouldReuseSlot() {
+        long foo = arena.allocate(bytes("foo"));
+        arena.free(foo);
+
+        long bar = arena.allocate(bytes("bar"));
+
+        assertEquals(foo, bar);
+        assertEquals("bar", string(arena.read(bar)));
+    }
+
+    @Test
+    void allocateLargeRecord_shouldSpanOwnChunk() {
+        byte[] record = new byte[3 << 20];
+        record[record.length - 1] = 42;
+
+        long handle = arena.allocate(record);
+        ByteBuffer buffer = arena.read(handle);
+        byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+
+        assertArrayEquals(record, read);
+        assertTrue(arena.getReservedBytes() >= record.length);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
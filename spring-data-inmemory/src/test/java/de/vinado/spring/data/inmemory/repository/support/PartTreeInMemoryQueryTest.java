@@ -0,0 +1,256 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerPrimaryKeyGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.repository.NonUniqueResultException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class PartTreeInMemoryQueryTest {
+
+    private PersonRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryRepositoryFactory factory = new InMemoryRepositoryFactory(new InMemoryEntityTableStore(),
+            () -> Collections.singletonMap(Integer.class, new IntegerPrimaryKeyGenerator()), null);
+        repository = factory.getRepository(PersonRepository.class);
+
+        repository.saveAll(Arrays.asList(
+            new Person(null, "Jane", "Doe", 31, "jane@example.com", null),
+            new Person(null, "John", "Doe", 42, "john@example.com", "JD"),
+            new Person(null, "Max", "Mustermann", 25, "max@example.com", null),
+            new Person(null, "Erika", "Mustermann", 58, "erika@example.com", "Eri"),
+            new Person(null, "jim", "Beam", 42, "jim@example.com", null)
+        ));
+    }
+
+    @Test
+    void findByIndexedProperty_shouldReturnMatches() {
+        assertEquals(Arrays.asList("Jane", "John"), firstnames(repository.findByLastnameOrderByFirstname("Doe")));
+    }
+
+    @Test
+    void findByConjunction_shouldApplyAllCriteria() {
+        List<Person> people = repository.findByLastnameAndAgeGreaterThan("Doe", 35);
+
+        assertEquals(Collections.singletonList("John"), firstnames(people));
+    }
+
+    @Test
+    void findByDisjunction_shouldReturnEachMatchOnce() {
+        List<Person> people = repository.findByLastnameOrAgeGreaterThanEqual("Doe", 42);
+
+        assertEquals(4, people.size());
+        assertEquals(4, people.stream().distinct().count());
+    }
+
+    @Test
+    void findByRangeWithStaticOrder_shouldReturnOrderedMatches() {
+        assertEquals(Arrays.asList(42, 42, 31),
+            repository.findByAgeBetweenOrderByAgeDesc(30, 42).stream()
+                .map(Person::getAge)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void findByStartingWithIgnoreCase_shouldMatchCaseInsensitive() {
+        assertEquals(Arrays.asList("Jane", "jim", "John"),
+            firstnames(repository.findByFirstnameStartingWithIgnoreCase("J", Sort.by(Sort.Order.by("firstname")
+                .ignoreCase()))));
+    }
+
+    @Test
+    void findByLikeAndIn_shouldMatchPatternAndElements() {
+        assertEquals(Arrays.asList("Erika", "Jane", "Max"),
+            firstnames(repository.findByFirstnameLikeOrderByFirstname("%a%")));
+        assertEquals(3, repository.findByAgeIn(Arrays.asList(25, 42, 99)).size());
+    }
+
+    @Test
+    void findByIsNull_shouldReturnEntitiesWithoutValue() {
+        assertEquals(3, repository.findByNicknameIsNull().size());
+    }
+
+    @Test
+    void findUnique_shouldReturnOptional() {
+        assertEquals("Max", repository.findByEmail("max@example.com").map(Person::getFirstname).orElse(null));
+        assertFalse(repository.findByEmail("nobody@example.com").isPresent());
+    }
+
+    @Test
+    void findSingleWithMultipleMatches_shouldThrowException() {
+        assertThrows(NonUniqueResultException.class, () -> repository.findByLastname("Doe"));
+    }
+
+    @Test
+    void findFirstOrderedBySortedIndex_shouldReturnOldest() {
+        assertEquals("Erika", repository.findFirstByOrderByAgeDesc().getFirstname());
+    }
+
+    @Test
+    void findTopWithDynamicSort_shouldLimitOrderedResult() {
+        assertEquals(Arrays.asList("Max", "Jane"),
+            firstnames(repository.findTop2ByAgeLessThan(50, Sort.by("age"))));
+    }
+
+    @Test
+    void streamBy_shouldReturnStream() {
+        try (Stream<Person> people = repository.streamByAgeLessThan(40)) {
+            assertEquals(2, people.count());
+        }
+    }
+
+    @Test
+    void countAndExists_shouldReturnProjection() {
+        assertEquals(2, repository.countByLastname("Mustermann"));
+        assertEquals(1, repository.countByLastnameAndAgeGreaterThan("Mustermann", 30));
+        assertEquals(5, repository.countBy());
+        assertTrue(repository.existsByEmail("jim@example.com"));
+        assertFalse(repository.existsByEmail("nobody@example.com"));
+    }
+
+    @Test
+    void deleteBy_shouldRemoveMatches() {
+        assertEquals(2, repository.deleteByLastname("Doe"));
+        assertEquals(3, repository.count());
+        assertEquals(0, repository.countByLastname("Doe"));
+    }
+
+    @Test
+    void findByModifiedInPlace_shouldNotReturnStaleIndexEntry() {
+        Person jane = repository.findByEmail("jane@example.com").orElseThrow(IllegalStateException::new);
+
+        jane.setLastname("Roe");
+        List<Person> people = repository.findByLastnameOrderByFirstname("Doe");
+
+        assertEquals(Collections.singletonList("John"), firstnames(people));
+    }
+
+    @Test
+    void findPage_shouldReturnWindowAndTotal() {
+        Page<Person> page = repository.findByAgeGreaterThan(30, PageRequest.of(1, 2, Sort.by("age")));
+
+        assertEquals(4, page.getTotalElements());
+        assertEquals(Arrays.asList(42, 58), page.map(Person::getAge).getContent());
+    }
+
+    @Test
+    void findSlice_shouldTellWhetherNextSliceExists() {
+        Slice<Person> first = repository.findByLastnameNot("Beam", PageRequest.of(0, 3, Sort.by("firstname")));
+        Slice<Person> second = repository.findByLastnameNot("Beam", first.nextPageable());
+
+        assertEquals(Arrays.asList("Erika", "Jane", "John"), firstnames(first.getContent()));
+        assertTrue(first.hasNext());
+        assertEquals(Collections.singletonList("Max"), firstnames(second.getContent()));
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void findAllSortedBySortedIndex_shouldReturnOrderedEntities() {
+        List<Integer> ages = repository.findAll(Sort.by(Sort.Direction.DESC, "age")).stream()
+            .map(Person::getAge)
+            .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(58, 42, 42, 31, 25), ages);
+    }
+
+    private static List<String> firstnames(List<Person> people) {
+        return people.stream()
+            .map(Person::getFirstname)
+            .collect(Collectors.toList());
+    }
+
+    interface PersonRepository extends InMemoryRepository<Person, Integer> {
+
+        List<Person> findByLastnameOrderByFirstname(String lastname);
+
+        Person findByLastname(String lastname);
+
+        List<Person> findByLastnameAndAgeGreaterThan(String lastname, int age);
+
+        List<Person> findByLastnameOrAgeGreaterThanEqual(String lastname, int age);
+
+        List<Person> findByAgeBetweenOrderByAgeDesc(int from, int to);
+
+        List<Person> findByFirstnameStartingWithIgnoreCase(String prefix, Sort sort);
+
+        List<Person> findByFirstnameLikeOrderByFirstname(String pattern);
+
+        List<Person> findByAgeIn(Collection<Integer> ages);
+
+        List<Person> findByNicknameIsNull();
+
+        Optional<Person> findByEmail(String email);
+
+        Person findFirstByOrderByAgeDesc();
+
+        List<Person> findTop2ByAgeLessThan(int age, Sort sort);
+
+        Stream<Person> streamByAgeLessThan(int age);
+
+        long countByLastname(String lastname);
+
+        long countByLastnameAndAgeGreaterThan(String lastname, int age);
+
+        long countBy();
+
+        boolean existsByEmail(String email);
+
+        long deleteByLastname(String lastname);
+
+        Page<Person> findByAgeGreaterThan(int age, Pageable pageable);
+
+        Slice<Person> findByLastnameNot(String lastname, Pageable pageable);
+    }
+
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Person {
+
+        @Id
+        private Integer id;
+
+        private String firstname;
+
+        @Indexed
+        private String lastname;
+
+        @Indexed(type = IndexType.SORTED)
+        private Integer age;
+
+        @Indexed(unique = true)
+        private String email;
+
+        private String nickname;
+    }
+}
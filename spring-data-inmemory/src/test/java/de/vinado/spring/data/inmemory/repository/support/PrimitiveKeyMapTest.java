@@ -0,0 +1,130 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Vincent Nadoll
+ */
+class PrimitiveKeyMapTest {
+
+    @Test
+    void randomOperations_shouldBehaveLikeHashMap() {
+        assertBehavesLikeHashMap(new PrimitiveKeyMap<>(Long.class, Long::valueOf));
+    }
+
+    @Test
+    void randomOperationsOnSegments_shouldBehaveLikeHashMap() {
+        assertBehavesLikeHashMap(new ConcurrentPrimitiveKeyMap<>(Long.class, Long::valueOf));
+    }
+
+    private static void assertBehavesLikeHashMap(Map<Long, String> map) {
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            Long key = (long) random.nextInt(5_000) - 100;
+            String value = "value-" + i;
+            switch (random.nextInt(5)) {
+                case 0:
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 2:
+                    assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+                    break;
+                case 3:
+                    assertEquals(expected.computeIfPresent(key, (k, v) -> null),
+                        map.computeIfPresent(key, (k, v) -> null));
+                    break;
+                default:
+                    assertEquals(expected.compute(key, (k, v) -> null == v ? value : null),
+                        map.compute(key, (k, v) -> null == v ? value : null));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, new HashMap<>(map));
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+        assertEquals(expected.size(), map.values().stream().count());
+    }
+
+    @Test
+    void readWhileWriting_shouldFindEveryStableKey() throws Exception {
+        ConcurrentPrimitiveKeyMap<Long, String> map = new ConcurrentPrimitiveKeyMap<>(Long.class, Long::valueOf);
+        for (long key = 0; key < 1_000; key++) {
+            map.put(key, "stable-" + key);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long key = 1_000; running.get(); key++) {
+                map.put(key, "transient-" + key);
+                if (0 == key % 64) {
+                    for (long removed = Math.max(1_000, key - 64); removed < key; removed++) {
+                        map.remove(removed);
+                    }
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int round = 0; round < 200; round++) {
+                for (long key = 0; key < 1_000; key++) {
+                    assertEquals("stable-" + key, map.get(key));
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    void getByOtherKeyType_shouldReturnNull() {
+        PrimitiveKeyMap<Integer, String> map = new PrimitiveKeyMap<>(Integer.class, key -> (int) key);
+        map.put(1, "foo");
+
+        assertEquals("foo", map.get(1));
+        assertNull(map.get(1L));
+        assertNull(map.get(null));
+        assertFalse(map.containsKey("1"));
+        assertEquals(1, map.keySet().iterator().next());
+    }
+
+    @Test
+    void computeModifyingMap_shouldThrowException() {
+        PrimitiveKeyMap<Long, String> map = new PrimitiveKeyMap<>(Long.class, Long::valueOf);
+
+        assertThrows(ConcurrentModificationException.class, () -> map.computeIfAbsent(1L, key -> {
+            map.put(2L, "bar");
+            return "foo";
+        }));
+    }
+
+    @Test
+    void modifyWhileIterating_shouldThrowException() {
+        PrimitiveKeyMap<Long, String> map = new PrimitiveKeyMap<>(Long.class, Long::valueOf);
+        map.put(1L, "foo");
+        map.put(2L, "bar");
+        Iterator<String> values = map.values().iterator();
+        values.next();
+
+        map.remove(1L);
+
+        assertThrows(ConcurrentModificationException.class, values::next);
+    }
+}
@@ -0,0 +1,135 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerPrimaryKeyGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.support.QueryStatistics.QuerySummary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.annotation.Id;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class QueryStatisticsTest {
+
+    private QueryStatistics statistics;
+    private PersonRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        statistics = new QueryStatistics();
+        InMemoryRepositoryFactory factory = new InMemoryRepositoryFactory(new InMemoryEntityTableStore(),
+            () -> Collections.singletonMap(Integer.class, new IntegerPrimaryKeyGenerator()), null);
+        factory.setQueryStatistics(statistics);
+        repository = factory.getRepository(PersonRepository.class);
+
+        repository.saveAll(Arrays.asList(
+            new Person(null, "Doe", 31),
+            new Person(null, "Doe", 42),
+            new Person(null, "Mustermann", 25),
+            new Person(null, "Mustermann", 58),
+            new Person(null, "Beam", 42)
+        ));
+    }
+
+    @Test
+    void indexedQuery_shouldRecordIndex() {
+        repository.findByLastname("Doe");
+        repository.findByLastname("Beam");
+
+        QuerySummary summary = summary("Person.findByLastname");
+        assertEquals("lastname", summary.getIndex());
+        assertEquals(2, summary.getExecutions());
+        assertEquals(3, summary.getRowsScanned());
+        assertEquals(3, summary.getRowsReturned());
+    }
+
+    @Test
+    void scanningQuery_shouldRecordRowsScanned() {
+        assertEquals(2, repository.findByAge(42).size());
+        assertEquals(2, repository.countByAge(42));
+
+        QuerySummary find = summary("Person.findByAge");
+        assertNull(find.getIndex());
+        assertEquals(5, find.getRowsScanned());
+        assertEquals(2, find.getRowsReturned());
+        QuerySummary count = summary("Person.countByAge");
+        assertEquals(5, count.getRowsScanned());
+        assertEquals(2, count.getRowsReturned());
+    }
+
+    @Test
+    void streamQuery_shouldBeRecordedOnceExhausted() {
+        Stream<Person> people = repository.streamByAgeLessThan(40);
+        assertTrue(statistics.getTopQueries(10).isEmpty());
+
+        assertEquals(2, people.count());
+        assertEquals(2, summary("Person.streamByAgeLessThan").getRowsReturned());
+    }
+
+    @Test
+    void findAll_shouldBeRecordedAsScan() {
+        repository.findAll().toList();
+
+        QuerySummary summary = summary("Person.findAll");
+        assertNull(summary.getIndex());
+        assertEquals(5, summary.getRowsScanned());
+        assertEquals(5, summary.getRowsReturned());
+    }
+
+    @Test
+    void topQueries_shouldListMostRowsScannedFirst() {
+        repository.findByLastname("Doe");
+        repository.findByAge(42);
+
+        List<QuerySummary> queries = statistics.getTopQueries(1);
+
+        assertEquals(1, queries.size());
+        assertEquals("Person.findByAge", queries.get(0).getQuery());
+    }
+
+    private QuerySummary summary(String query) {
+        return statistics.getTopQueries(Integer.MAX_VALUE).stream()
+            .filter(summary -> query.equals(summary.getQuery()))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+    }
+
+    interface PersonRepository extends InMemoryRepository<Person, Integer> {
+
+        List<Person> findByLastname(String lastname);
+
+        List<Person> findByAge(int age);
+
+        long countByAge(int age);
+
+        Stream<Person> streamByAgeLessThan(int age);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Person {
+
+        @Id
+        private Integer id;
+
+        @Indexed
+        private String lastname;
+
+        private Integer age;
+    }
+}
@@ -2,6 +2,12 @@ package de.vinado.spring.data.inmemory.repository.support;
 
 import de.vinado.spring.data.domain.PrimaryKeyGenerator;
 import de.vinado.spring.data.inmemory.repository.EntityStore;
+import de.vinado.spring.data.inmemory.repository.config.CopyMode;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.SnapshotFormat;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
 import de.vinado.spring.data.repository.NoResultException;
 import de.vinado.spring.data.repository.NonUniqueResultException;
 import lombok.AllArgsConstructor;
@@ -10,12 +16,24 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
 import org.springframework.lang.Nullable;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -44,6 +62,9 @@ class SimpleInMemoryRepositoryTest {
         return ++previous;
     };
 
+    @TempDir
+    Path directory;
+
     private EntityStore entityStore;
     private SimpleInMemoryRepository<Entity, Integer> repository;
 
@@ -131,6 +152,17 @@ class SimpleInMemoryRepositoryTest {
         assertEquals(ID + 1, saved.get(1).getId());
     }
 
+    @Test
+    void saveAllWithRepeatedNewEntity_shouldStoreOnce() {
+        Entity entity = new Entity(null, "foo");
+
+        List<Entity> saved = repository.saveAll(Arrays.asList(entity, entity));
+
+        assertEquals(Arrays.asList(entity, entity), saved);
+        assertEquals(1, repository.count());
+        assertEquals(entity, repository.findById(entity.getId()).orElse(null));
+    }
+
     @Test
     void findByNullId_shouldThrowException() {
         assertThrows(IllegalArgumentException.class, () -> repository.findById(null));
@@ -311,6 +343,74 @@ class SimpleInMemoryRepositoryTest {
         assertEquals(0, repository.count());
     }
 
+    @Test
+    void deleteFromShallowCopyingTable_shouldIdentifyRowsByKey() {
+        assertDeletesRecords(newRecordStore(new TableDefinition(StoreMode.SIMPLE, Collections.emptyList(),
+            StorageType.HEAP, SerializingEntityCodec.INSTANCE, CopyMode.SHALLOW)));
+    }
+
+    @Test
+    void deleteFromDeepCopyingTable_shouldIdentifyRowsByKey() {
+        assertDeletesRecords(newRecordStore(new TableDefinition(StoreMode.SIMPLE, Collections.emptyList(),
+            StorageType.HEAP, SerializingEntityCodec.INSTANCE, CopyMode.DEEP)));
+    }
+
+    @Test
+    void deleteFromOffHeapTable_shouldIdentifyRowsByKey() {
+        assertDeletesRecords(newRecordStore(new TableDefinition(StoreMode.SIMPLE, Collections.emptyList(),
+            StorageType.OFF_HEAP, SerializingEntityCodec.INSTANCE)));
+    }
+
+    @Test
+    void deleteFromMappedTable_shouldIdentifyRowsByKey() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newRecordStore(TableDefinition.DEFAULT);
+        store.storeAll(Arrays.asList(new Record(null, null, "foo"), new Record(null, null, "bar")));
+        store.writeSnapshot(file, SnapshotFormat.MAPPED);
+
+        InMemoryEntityTableStore restored = newRecordStore(TableDefinition.DEFAULT);
+        restored.readSnapshot(file);
+
+        assertDeletesStoredRecords(restored);
+    }
+
+    @Test
+    void deleteStaleVersion_shouldThrowException() {
+        InMemoryEntityTableStore store = newRecordStore(new TableDefinition(StoreMode.SIMPLE,
+            Collections.emptyList(), StorageType.OFF_HEAP, SerializingEntityCodec.INSTANCE));
+        SimpleInMemoryRepository<Record, Integer> repository = new SimpleInMemoryRepository<>(Record.class, store);
+        Record record = repository.save(new Record(null, null, "foo"));
+        Record stale = repository.findById(record.getId()).orElseThrow(IllegalStateException::new);
+        record.setName("bar");
+        repository.save(record);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.delete(stale));
+        assertEquals(1, repository.count());
+    }
+
+    private static InMemoryEntityTableStore newRecordStore(TableDefinition definition) {
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        store.add(new InMemoryEntityStore<>(Record.class, incrementer, definition));
+        return store;
+    }
+
+    private static void assertDeletesRecords(InMemoryEntityTableStore store) {
+        store.storeAll(Arrays.asList(new Record(null, null, "foo"), new Record(null, null, "bar")));
+
+        assertDeletesStoredRecords(store);
+    }
+
+    private static void assertDeletesStoredRecords(InMemoryEntityTableStore store) {
+        SimpleInMemoryRepository<Record, Integer> repository = new SimpleInMemoryRepository<>(Record.class, store);
+        Record bar = repository.findById(2).orElseThrow(IllegalStateException::new);
+        bar.setName("changed");
+
+        repository.deleteById(1);
+        repository.delete(bar);
+
+        assertEquals(0, repository.count());
+    }
+
     @Test
     void deleteNullIds_shouldThrowException() {
         assertThrows(IllegalArgumentException.class, () -> repository.deleteAll(null));
@@ -345,6 +445,27 @@ class SimpleInMemoryRepositoryTest {
         assertEquals(0, repository.count());
     }
 
+    @Test
+    void deleteAllDetachedCopies_shouldDeleteByIdentifier() {
+        repository.saveAll(Arrays.asList(new Entity(null, "foo"), new Entity(null, "bar"), new Entity(null, "baz")));
+
+        repository.deleteAll(Arrays.asList(new Entity(1, "changed"), new Entity(2, "bar"), new Entity(99, "qux")));
+
+        assertEquals(1, repository.count());
+        assertTrue(repository.existsById(3));
+    }
+
+    @Test
+    void saveAllAfterDeleteAll_shouldNotReuseIds() {
+        repository.saveAll(Arrays.asList(new Entity(), new Entity()));
+        repository.deleteAll();
+
+        List<Entity> saved = repository.saveAll(Collections.singletonList(new Entity()));
+
+        assertEquals(3, saved.get(0).getId());
+        assertEquals(1, repository.findAll().stream().count());
+    }
+
     @Test
     void findAllByNull_shouldThrowException() {
         assertThrows(IllegalArgumentException.class, () -> repository.findAllBy(null, null));
@@ -430,6 +551,90 @@ class SimpleInMemoryRepositoryTest {
         assertFalse(retrieved.isPresent());
     }
 
+    @Test
+    void saveMultipleThenFindInRange_shouldRetrieveOrderedSubset() {
+        repository.saveAll(Arrays.asList(new Entity(null, "c"), new Entity(null, "a"), new Entity(null, "b")));
+
+        List<String> names = repository.findAllInRange("name", Range.closed("b", "c")).stream()
+            .map(Entity::getName)
+            .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("b", "c"), names);
+    }
+
+    @Test
+    void saveMultipleThenFindStartingWith_shouldRetrievePrefixedSubset() {
+        repository.saveAll(Arrays.asList(
+            new Entity(null, "foo"),
+            new Entity(null, "fop"),
+            new Entity(null, "fo\uffff"),
+            new Entity(null, "fo"),
+            new Entity(null, "f"),
+            new Entity(null, null)
+        ));
+
+        List<String> names = repository.findAllStartingWith("name", "fo").stream()
+            .map(Entity::getName)
+            .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("fo", "foo", "fop", "fo\uffff"), names);
+        assertEquals(1, repository.findAllStartingWith("name", "fo\uffff").stream().count());
+    }
+
+    @Test
+    void saveMultipleThenFindTop_shouldRetrieveFirstInOrder() {
+        repository.saveAll(Arrays.asList(new Entity(null, "c"), new Entity(null, "a"), new Entity(null, "b")));
+
+        List<String> names = repository.findTopBy("name", Sort.Direction.DESC, 2).stream()
+            .map(Entity::getName)
+            .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("c", "b"), names);
+    }
+
+    @Test
+    void findAllSorted_shouldOrderByProperties() {
+        repository.saveAll(Arrays.asList(new Entity(null, "b"), new Entity(null, null), new Entity(null, "a"),
+            new Entity(null, "b")));
+
+        List<Integer> ids = repository.findAll(Sort.by(Sort.Order.asc("name").nullsLast(), Sort.Order.desc("id")))
+            .stream()
+            .map(Entity::getId)
+            .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(3, 4, 1, 2), ids);
+    }
+
+    @Test
+    void findAllPaged_shouldReturnWindowAndTotal() {
+        for (int i = 0; i < 25; i++) {
+            repository.save(new Entity(null, String.format("name-%02d", i)));
+        }
+
+        Page<Entity> page = repository.findAll(PageRequest.of(1, 10, Sort.by(Sort.Direction.DESC, "name")));
+
+        assertEquals(25, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        assertEquals("name-14", page.getContent().get(0).getName());
+        assertEquals("name-05", page.getContent().get(9).getName());
+    }
+
+    @Test
+    void findAllUnpaged_shouldReturnAll() {
+        repository.saveAll(Arrays.asList(new Entity(), new Entity()));
+
+        Page<Entity> page = repository.findAll(Pageable.unpaged());
+
+        assertEquals(2, page.getTotalElements());
+        assertEquals(2, page.getContent().size());
+    }
+
+    @Test
+    void findAllByNullSort_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.findAll((Sort) null));
+        assertThrows(IllegalArgumentException.class, () -> repository.findAll((Pageable) null));
+    }
+
     @Test
     void saveMultipleNullIds_shouldAutoIncrementId() {
         List<Entity> entities = Arrays.asList(new Entity(), new Entity(), new Entity());
@@ -497,6 +702,24 @@ class SimpleInMemoryRepositoryTest {
         }
     }
 
+    /**
+     * An entity relying on identity equality, so that copies of it are never equal.
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Record implements Serializable {
+
+        @Id
+        private Integer id;
+
+        @Version
+        private Long version;
+
+        private String name;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -0,0 +1,201 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerPrimaryKeyGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.InMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.ReactiveInMemoryRepository;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.repository.NoResultException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class SimpleReactiveInMemoryRepositoryTest {
+
+    private Scheduler writeScheduler;
+    private QueryStatistics statistics;
+    private InMemoryEntityTableStore store;
+    private PersonRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        writeScheduler = Schedulers.newSingle("inmemory-write");
+        statistics = new QueryStatistics();
+        store = new InMemoryEntityTableStore();
+        ReactiveInMemoryRepositoryFactory factory = new ReactiveInMemoryRepositoryFactory(store,
+            () -> Collections.singletonMap(Integer.class, new IntegerPrimaryKeyGenerator()), null);
+        factory.setWriteScheduler(writeScheduler);
+        factory.setQueryStatistics(statistics);
+        repository = factory.getRepository(PersonRepository.class);
+
+        repository.saveAll(Arrays.asList(
+            new Person(null, "Jane", "Doe", "jane@example.com"),
+            new Person(null, "John", "Doe", "john@example.com"),
+            new Person(null, "Max", "Mustermann", "max@example.com")
+        )).blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeScheduler.dispose();
+    }
+
+    @Test
+    void save_shouldWriteOnWriteScheduler() {
+        String thread = repository.save(new Person(null, "Erika", "Mustermann", "erika@example.com"))
+            .map(person -> Thread.currentThread().getName())
+            .block();
+
+        assertTrue(thread.startsWith("inmemory-write"));
+        assertEquals(4L, repository.count().block());
+    }
+
+    @Test
+    void findById_shouldReadOnSubscribingThread() {
+        String thread = repository.findById(1)
+            .map(person -> Thread.currentThread().getName())
+            .block();
+
+        assertEquals(Thread.currentThread().getName(), thread);
+        assertNull(repository.findById(42).block());
+        assertFalse(repository.existsById(42).block());
+    }
+
+    @Test
+    void findAll_shouldEmitOnDemandAndReleaseOnCancel() {
+        List<Person> received = new ArrayList<>();
+        BaseSubscriber<Person> subscriber = new BaseSubscriber<Person>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(Person person) {
+                received.add(person);
+            }
+        };
+        repository.findAll().subscribe(subscriber);
+
+        assertEquals(1, received.size());
+        assertTrue(statistics.getTopQueries(10).isEmpty());
+
+        subscriber.cancel();
+
+        assertEquals(1, statistics.getTopQueries(10).get(0).getExecutions());
+        assertTrue(statistics.getTopQueries(10).get(0).getRowsReturned() < 3);
+    }
+
+    @Test
+    void findAllSorted_shouldEmitInOrder() {
+        assertEquals(Arrays.asList("Max", "John", "Jane"), repository.findAll(Sort.by(Sort.Direction.DESC,
+            "firstname")).map(Person::getFirstname).collectList().block());
+    }
+
+    @Test
+    void deleteByIdWithoutEntity_shouldSignalError() {
+        assertThrows(NoResultException.class, () -> repository.deleteById(42).block());
+        assertThrows(IllegalArgumentException.class, () -> repository.deleteById((Integer) null));
+    }
+
+    @Test
+    void derivedQueries_shouldEmitResults() {
+        assertEquals(Arrays.asList("Jane", "John"),
+            repository.findByLastnameOrderByFirstname("Doe").map(Person::getFirstname).collectList().block());
+        assertEquals("Max", repository.findByEmail("max@example.com").map(Person::getFirstname).block());
+        assertNull(repository.findByEmail("nobody@example.com").block());
+        assertEquals(2L, repository.countByLastname("Doe").block());
+    }
+
+    @Test
+    void derivedDelete_shouldRemoveMatches() {
+        assertEquals(2, repository.deleteByLastname("Doe").count().block());
+        assertEquals(1L, repository.count().block());
+    }
+
+    @Test
+    void blockingRepositoryOfSameEntity_shouldShareTable() {
+        BlockingPersonRepository blocking = new InMemoryRepositoryFactory(store,
+            () -> Collections.singletonMap(Integer.class, new IntegerPrimaryKeyGenerator()), null)
+            .getRepository(BlockingPersonRepository.class);
+
+        assertEquals(3L, blocking.count());
+        Person erika = blocking.save(new Person(null, "Erika", "Mustermann", "erika@example.com"));
+        assertEquals("Erika", repository.findById(erika.getId()).map(Person::getFirstname).block());
+        assertEquals(4L, repository.count().block());
+    }
+
+    @Test
+    void reactiveRepository_shouldOperateTableConcurrently() {
+        assertEquals(StoreMode.CONCURRENT, store.getTables().get(Person.class.getName()).getDefinition()
+            .getStoreMode());
+    }
+
+    @Test
+    void reactiveRepositoryOfSimpleTable_shouldThrowException() {
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        new InMemoryRepositoryFactory(store,
+            () -> Collections.singletonMap(Integer.class, new IntegerPrimaryKeyGenerator()), null)
+            .getRepository(BlockingPersonRepository.class);
+        ReactiveInMemoryRepositoryFactory factory = new ReactiveInMemoryRepositoryFactory(store,
+            () -> Collections.singletonMap(Integer.class, new IntegerPrimaryKeyGenerator()), null);
+
+        assertThrows(IllegalStateException.class, () -> factory.getRepository(PersonRepository.class));
+    }
+
+    interface BlockingPersonRepository extends InMemoryRepository<Person, Integer> {
+    }
+
+    interface PersonRepository extends ReactiveInMemoryRepository<Person, Integer> {
+
+        Flux<Person> findByLastnameOrderByFirstname(String lastname);
+
+        Mono<Person> findByEmail(String email);
+
+        Mono<Long> countByLastname(String lastname);
+
+        Flux<Person> deleteByLastname(String lastname);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Person {
+
+        @Id
+        private Integer id;
+
+        private String firstname;
+
+        @Indexed
+        private String lastname;
+
+        @Indexed(unique = true)
+        private String email;
+    }
+}
@@ -0,0 +1,381 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.domain.LongSequenceGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.config.IndexDefinition;
+import de.vinado.spring.data.inmemory.repository.config.IndexType;
+import de.vinado.spring.data.inmemory.repository.config.SerializingEntityCodec;
+import de.vinado.spring.data.inmemory.repository.config.SnapshotFormat;
+import de.vinado.spring.data.inmemory.repository.config.StorageType;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import de.vinado.spring.data.inmemory.repository.config.TableDefinition;
+import de.vinado.spring.data.repository.EntityExistsException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class SnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readCompressedSnapshot_shouldRestoreTables() throws IOException {
+        assertRestoresTables(SnapshotFormat.COMPRESSED);
+    }
+
+    @Test
+    void readUncompressedSnapshot_shouldRestoreTables() throws IOException {
+        assertRestoresTables(SnapshotFormat.PLAIN);
+    }
+
+    @Test
+    void readMappedSnapshot_shouldRestoreTables() throws IOException {
+        assertRestoresTables(SnapshotFormat.MAPPED);
+    }
+
+    private void assertRestoresTables(SnapshotFormat format) throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.storeAll(IntStream.range(0, 3000)
+            .mapToObj(i -> new Person(null, "person-" + i, i % 100))
+            .collect(Collectors.toList()));
+        store.storeAll(Arrays.asList(new Tag(null, "foo"), new Tag(null, "bar")));
+        store.writeSnapshot(file, format);
+
+        InMemoryEntityTableStore restored = newStore();
+        restored.readSnapshot(file);
+
+        assertEquals(3000, restored.count(Person.class));
+        assertEquals(new Person(42, "person-41", 41), restored.find(Person.class, 42));
+        assertEquals(30, restored.countBy(Person.class, "age", 7));
+        assertEquals(99, restored.findAllOrderedBy(Person.class, "age", Sort.Direction.DESC)
+            .findFirst()
+            .map(Person::getAge)
+            .orElse(null));
+        assertEquals(Arrays.asList("bar", "foo"), restored.findAll(Tag.class)
+            .map(Tag::getName)
+            .sorted()
+            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void readSnapshot_shouldAdvanceSequencePastLastKey() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        List<Tag> tags = Arrays.asList(new Tag(null, "foo"), new Tag(null, "bar"), new Tag(null, "baz"));
+        store.storeAll(tags);
+        store.remove(tags.get(2));
+        store.writeSnapshot(file);
+
+        InMemoryEntityTableStore restored = newStore();
+        restored.readSnapshot(file);
+        Tag tag = new Tag(null, "qux");
+        restored.store(tag);
+
+        assertEquals(4L, tag.getId());
+    }
+
+    @Test
+    void readSnapshot_shouldReplaceContentAndSkipUnknownTables() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.store(new Person(null, "Jane", 31));
+        store.store(new Tag(null, "foo"));
+        store.writeSnapshot(file);
+
+        InMemoryEntityTableStore restored = new InMemoryEntityTableStore();
+        restored.add(new InMemoryEntityStore<>(Person.class, new IntegerSequenceGenerator()));
+        restored.store(new Person(null, "John", 42));
+        restored.store(new Person(null, "Max", 25));
+        restored.readSnapshot(file);
+
+        assertEquals(Collections.singletonList("Jane"), restored.findAll(Person.class)
+            .map(Person::getName)
+            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void readMappedSnapshot_shouldServeTablesReadOnly() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.storeAll(Arrays.asList(new Person(null, "Jane", 31), new Person(null, "John", 42)));
+        store.writeSnapshot(file, SnapshotFormat.MAPPED);
+
+        InMemoryEntityTableStore restored = newStore();
+        restored.readSnapshot(file);
+        Person jane = restored.find(Person.class, 1);
+
+        assertEquals(new Person(1, "Jane", 31), jane);
+        assertNotSame(jane, restored.find(Person.class, 1));
+        assertNull(restored.find(Person.class, 3));
+        assertFalse(restored.getIndexType(Person.class, "age").isPresent());
+    }
+
+    @Test
+    void writeToMappedTable_shouldLoadTable() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.storeAll(IntStream.range(0, 100)
+            .mapToObj(i -> new Person(null, "person-" + i, i))
+            .collect(Collectors.toList()));
+        store.writeSnapshot(file, SnapshotFormat.MAPPED);
+
+        InMemoryEntityTableStore restored = newStore();
+        restored.readSnapshot(file);
+        Person person = new Person(null, "Max", 25);
+        restored.store(person);
+
+        assertEquals(101, person.getId());
+        assertEquals(101, restored.count(Person.class));
+        assertEquals(Optional.of(IndexType.SORTED), restored.getIndexType(Person.class, "age"));
+        assertEquals(2, restored.countBy(Person.class, "age", 25));
+        assertSame(person, restored.find(Person.class, 101));
+    }
+
+    @Test
+    void writeToMappedTable_shouldPromoteWrittenRowsOnly() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.storeAll(IntStream.range(0, 100)
+            .mapToObj(i -> new Person(null, "person-" + i, i))
+            .collect(Collectors.toList()));
+        store.writeSnapshot(file, SnapshotFormat.MAPPED);
+
+        InMemoryEntityTableStore restored = newStore();
+        restored.readSnapshot(file);
+        Person person = restored.find(Person.class, 5);
+        person.setName("Max");
+        restored.merge(person);
+        restored.remove(restored.find(Person.class, 7));
+
+        assertSame(person, restored.find(Person.class, 5));
+        assertNotSame(restored.find(Person.class, 6), restored.find(Person.class, 6));
+        assertEquals(new Person(6, "person-5", 5), restored.find(Person.class, 6));
+        assertNull(restored.find(Person.class, 7));
+        assertEquals(99, restored.count(Person.class));
+        assertEquals(99, restored.findAll(Person.class).count());
+    }
+
+    @Test
+    void writeToMappedTable_shouldBuildIndexesInBackground() throws Exception {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.storeAll(IntStream.range(0, 3000)
+            .mapToObj(i -> new Person(null, "person-" + i, i % 100))
+            .collect(Collectors.toList()));
+        store.writeSnapshot(file, SnapshotFormat.MAPPED);
+
+        InMemoryEntityStore<Integer> table = new InMemoryEntityStore<>(Person.class, new IntegerSequenceGenerator(),
+            StoreMode.CONCURRENT);
+        AtomicBoolean indexed = new AtomicBoolean();
+        table.observe(new EntityStoreObserver() {
+
+            @Override
+            public void onOperation(Class<?> domainClass, Operation operation, long duration) {
+            }
+
+            @Override
+            public void onQuery(Class<?> domainClass, String propertyName, boolean answeredByIndex) {
+                indexed.set(answeredByIndex);
+            }
+        });
+        InMemoryEntityTableStore restored = new InMemoryEntityTableStore();
+        restored.add(table);
+        restored.readSnapshot(file);
+        restored.merge(new Person(1, "Max", 7));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        do {
+            assertEquals(31, restored.countBy(Person.class, "age", 7));
+            assertEquals(29, restored.countBy(Person.class, "age", 0));
+        } while (!indexed.get() && System.nanoTime() < deadline);
+        assertTrue(indexed.get());
+    }
+
+    @Test
+    void writeToMappedTableWithUniqueIndex_shouldCheckAllRows() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newLabelStore();
+        store.storeAll(Arrays.asList(new Label(null, "foo"), new Label(null, "bar")));
+        store.writeSnapshot(file, SnapshotFormat.MAPPED);
+
+        InMemoryEntityTableStore restored = newLabelStore();
+        restored.readSnapshot(file);
+
+        assertThrows(EntityExistsException.class, () -> restored.store(new Label(null, "bar")));
+        restored.store(new Label(null, "baz"));
+        assertEquals(3, restored.count(Label.class));
+        assertEquals(1, restored.countBy(Label.class, "name", "foo"));
+    }
+
+    private static InMemoryEntityTableStore newLabelStore() {
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        store.add(new InMemoryEntityStore<>(Label.class, previous -> UUID.randomUUID().toString(),
+            new TableDefinition(StoreMode.SIMPLE, Collections.singletonList(new IndexDefinition("name", true)))));
+        return store;
+    }
+
+    @Test
+    void readMappedSnapshot_shouldLookUpNonIntegralKeys() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        store.add(new InMemoryEntityStore<>(Label.class, previous -> UUID.randomUUID().toString()));
+        List<Label> labels = Arrays.asList(new Label(null, "foo"), new Label(null, "bar"));
+        store.storeAll(labels);
+        store.writeSnapshot(file, SnapshotFormat.MAPPED);
+
+        InMemoryEntityTableStore restored = new InMemoryEntityTableStore();
+        restored.add(new InMemoryEntityStore<>(Label.class, previous -> UUID.randomUUID().toString()));
+        restored.readSnapshot(file);
+
+        assertEquals(2, restored.count(Label.class));
+        assertEquals(labels.get(1), restored.find(Label.class, labels.get(1).getId()));
+        assertNull(restored.find(Label.class, "baz"));
+    }
+
+    @Test
+    void readTruncatedSnapshot_shouldThrowException() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.store(new Tag(null, "foo"));
+        store.writeSnapshot(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThrows(IOException.class, () -> newStore().readSnapshot(file));
+    }
+
+    @Test
+    void writeSnapshot_shouldReplaceFile() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        InMemoryEntityTableStore store = newStore();
+        store.store(new Tag(null, "foo"));
+        store.writeSnapshot(file);
+        store.clear(Tag.class);
+        store.writeSnapshot(file);
+
+        InMemoryEntityTableStore restored = newStore();
+        restored.readSnapshot(file);
+
+        assertEquals(0, restored.count(Tag.class));
+        assertNull(restored.find(Tag.class, 1L));
+        assertFalse(Files.exists(directory.resolve("snapshot.bin.tmp")));
+    }
+
+    @Test
+    void snapshotOfSimpleTable_shouldBlockWriters() throws Exception {
+        InMemoryEntityStore<Long> table = new InMemoryEntityStore<>(Tag.class, new LongSequenceGenerator());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            table.beginSnapshot();
+            Future<?> write = executor.submit(() -> table.store(new Tag(null, "foo")));
+            try {
+                assertThrows(TimeoutException.class, () -> write.get(100, TimeUnit.MILLISECONDS));
+                assertEquals(0, table.count(Tag.class));
+            } finally {
+                table.endSnapshot();
+            }
+
+            write.get();
+            assertEquals(1, table.count(Tag.class));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void snapshotOfConcurrentTable_shouldNotBlockWriters() {
+        InMemoryEntityStore<Long> table = new InMemoryEntityStore<>(Tag.class, new LongSequenceGenerator(),
+            StoreMode.CONCURRENT);
+        table.beginSnapshot();
+        try {
+            table.store(new Tag(null, "foo"));
+        } finally {
+            table.endSnapshot();
+        }
+
+        assertEquals(1, table.count(Tag.class));
+    }
+
+    private static InMemoryEntityTableStore newStore() {
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        store.add(new InMemoryEntityStore<>(Person.class, new IntegerSequenceGenerator(), StoreMode.CONCURRENT));
+        store.add(new InMemoryEntityStore<>(Tag.class, new LongSequenceGenerator(), new TableDefinition(
+            StoreMode.SIMPLE, Collections.emptyList(), StorageType.OFF_HEAP, SerializingEntityCodec.INSTANCE)));
+        return store;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Person implements Serializable {
+
+        @Id
+        private Integer id;
+
+        private String name;
+
+        @Indexed(type = IndexType.SORTED)
+        private Integer age;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Label implements Serializable {
+
+        @Id
+        private String id;
+
+        private String name;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Tag implements Serializable {
+
+        @Id
+        private Long id;
+
+        private String name;
+    }
+}
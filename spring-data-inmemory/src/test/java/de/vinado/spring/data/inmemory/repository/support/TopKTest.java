@@ -0,0 +1,87 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class TopKTest {
+
+    @Test
+    void selectFromShuffledStream_shouldReturnSmallestInOrder() {
+        List<Integer> values = IntStream.range(0, 1_000).boxed().collect(Collectors.toList());
+        Collections.shuffle(values, new Random(42));
+
+        List<Integer> selection = TopK.select(values.stream(), Comparator.naturalOrder(), 5);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), selection);
+    }
+
+    @Test
+    void selectFromDuplicateKeys_shouldKeepEncounterOrder() {
+        List<String> values = Arrays.asList("b1", "a1", "c1", "a2", "b2", "a3", "c2", "b3");
+        Comparator<String> byKey = Comparator.comparing(value -> value.charAt(0));
+
+        assertEquals(Arrays.asList("a1", "a2"), TopK.select(values.stream(), byKey, 2));
+        assertEquals(Arrays.asList("a1", "a2", "a3", "b1", "b2"), TopK.select(values.stream(), byKey, 5));
+        assertEquals(Arrays.asList("a3", "b1", "b2"), TopK.window(values.stream(), byKey, 2, 3)
+            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void selectFromManyDuplicateKeys_shouldEqualStableSort() {
+        Random random = new Random(42);
+        List<int[]> values = IntStream.range(0, 1_000)
+            .mapToObj(i -> new int[]{random.nextInt(10), i})
+            .collect(Collectors.toList());
+        Comparator<int[]> byKey = Comparator.comparingInt(value -> value[0]);
+
+        List<int[]> selection = TopK.select(values.stream(), byKey, 150);
+
+        assertEquals(values.stream().sorted(byKey).limit(150).map(value -> value[1]).collect(Collectors.toList()),
+            selection.stream().map(value -> value[1]).collect(Collectors.toList()));
+    }
+
+    @Test
+    void selectMoreThanAvailable_shouldReturnAllInOrder() {
+        List<Integer> selection = TopK.select(Arrays.asList(3, 1, 2).stream(), Comparator.reverseOrder(), 10);
+
+        assertEquals(Arrays.asList(3, 2, 1), selection);
+    }
+
+    @Test
+    void selectNothing_shouldReturnEmptyList() {
+        assertTrue(TopK.select(Arrays.asList(3, 1, 2).stream(), Comparator.naturalOrder(), 0).isEmpty());
+    }
+
+    @Test
+    void window_shouldSkipOffset() {
+        List<Integer> values = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        Collections.shuffle(values, new Random(42));
+
+        List<Integer> window = TopK.window(values.stream(), Comparator.naturalOrder(), 20, 10)
+            .collect(Collectors.toList());
+
+        assertEquals(IntStream.range(20, 30).boxed().collect(Collectors.toList()), window);
+    }
+
+    @Test
+    void unboundedWindow_shouldSortAll() {
+        List<Integer> window = TopK.window(Stream.of(3, 1, 2), Comparator.naturalOrder(), 1, Long.MAX_VALUE)
+            .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(2, 3), window);
+    }
+}
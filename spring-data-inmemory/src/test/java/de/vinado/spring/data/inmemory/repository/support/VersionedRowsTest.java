@@ -0,0 +1,111 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Vincent Nadoll
+ */
+class VersionedRowsTest {
+
+    @Test
+    void randomOperations_shouldBehaveLikeHashMap() {
+        VersionedRows<Long> rows = new VersionedRows<>();
+        Map<Long, Object> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            Long key = (long) random.nextInt(5_000) - 100;
+            String value = "value-" + i;
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.put(key, value), rows.put(key, value));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), rows.remove(key));
+                    break;
+                case 2:
+                    assertEquals(expected.computeIfAbsent(key, k -> value), rows.computeIfAbsent(key, k -> value));
+                    break;
+                default:
+                    assertEquals(expected.compute(key, (k, v) -> null == v ? value : null),
+                        rows.compute(key, (k, v) -> null == v ? value : null));
+            }
+        }
+
+        assertEquals(expected.size(), rows.size());
+        assertEquals(expected, new HashMap<>(rows));
+    }
+
+    @Test
+    void collidingKeys_shouldBeKeptApart() {
+        VersionedRows<Key> rows = new VersionedRows<>();
+        for (int i = 0; i < 1_000; i++) {
+            rows.put(new Key(i % 7, i), i);
+        }
+        for (int i = 0; i < 1_000; i += 2) {
+            rows.remove(new Key(i % 7, i));
+        }
+
+        assertEquals(500, rows.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(0 == i % 2 ? null : i, rows.get(new Key(i % 7, i)));
+        }
+        assertEquals(500, rows.entrySet().stream().count());
+    }
+
+    @Test
+    void snapshot_shouldNotSeeLaterWrites() {
+        VersionedRows<Long> rows = new VersionedRows<>();
+        rows.put(1L, "a");
+        rows.put(2L, "b");
+
+        Map<Long, Object> snapshot = rows.snapshot();
+        rows.put(1L, "c");
+        rows.remove(2L);
+        rows.put(3L, "d");
+
+        assertEquals(2, snapshot.size());
+        assertEquals("a", snapshot.get(1L));
+        assertEquals("b", snapshot.get(2L));
+        assertEquals(2, snapshot.values().stream().count());
+    }
+
+    @Test
+    void nestedWrites_shouldPublishOnce() throws Exception {
+        VersionedRows<Long> rows = new VersionedRows<>();
+
+        rows.beginWrite();
+        rows.put(1L, "a");
+        rows.put(2L, "b");
+        assertEquals(0, CompletableFuture.supplyAsync(rows::size).get());
+        assertEquals(2, rows.size());
+        assertEquals("b", rows.get(2L));
+        rows.endWrite();
+
+        assertEquals(2, rows.size());
+    }
+
+    @RequiredArgsConstructor
+    static class Key {
+
+        private final int hash;
+        private final int value;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && value == ((Key) o).value;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
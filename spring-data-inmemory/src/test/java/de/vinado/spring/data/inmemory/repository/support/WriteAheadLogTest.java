@@ -0,0 +1,350 @@
+package de.vinado.spring.data.inmemory.repository.support;
+
+import de.vinado.spring.data.domain.IntegerSequenceGenerator;
+import de.vinado.spring.data.inmemory.Indexed;
+import de.vinado.spring.data.inmemory.repository.config.FsyncPolicy;
+import de.vinado.spring.data.inmemory.repository.config.StoreMode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.annotation.Id;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Vincent Nadoll
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recover_shouldReplayLoggedChanges() throws IOException {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.OS)) {
+            log.recover(store);
+            store.storeAll(Arrays.asList(new Person(null, "Jane", "a"), new Person(null, "John", "a"),
+                new Person(null, "Max", "b")));
+            store.merge(new Person(2, "Johnny", "b"));
+            store.remove(store.find(Person.class, 1));
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.OS)) {
+            log.recover(recovered);
+            Person person = new Person(null, "Erika", "a");
+            recovered.store(person);
+
+            assertEquals(4, person.getId());
+            assertEquals(Arrays.asList("Erika", "Johnny", "Max"), names(recovered));
+            assertEquals(2, recovered.countBy(Person.class, "tenant", "b"));
+        }
+    }
+
+    @Test
+    void recoverAfterClear_shouldOnlyContainLaterChanges() throws IOException {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(store);
+            store.store(new Person(null, "Jane", "a"));
+            store.clear(Person.class);
+            store.store(new Person(null, "John", "a"));
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(recovered);
+
+            assertEquals(Arrays.asList("John"), names(recovered));
+        }
+    }
+
+    @Test
+    void checkpoint_shouldTruncateLog() throws IOException {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.INTERVAL)) {
+            log.recover(store);
+            store.store(new Person(null, "Jane", "a"));
+            log.checkpoint();
+            store.store(new Person(null, "John", "a"));
+
+            assertEquals(1, segments().size());
+            assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.INTERVAL)) {
+            log.recover(recovered);
+
+            assertEquals(Arrays.asList("Jane", "John"), names(recovered));
+        }
+    }
+
+    @Test
+    void exceedCompactionThreshold_shouldTakeCheckpoint() throws Exception {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = new WriteAheadLog(directory.resolve("snapshot.bin"), FsyncPolicy.OS,
+            Duration.ofSeconds(1), 1024)) {
+            log.recover(store);
+            for (int i = 0; i < 100; i++) {
+                store.store(new Person(null, "person-" + i, "a"));
+            }
+
+            for (int i = 0; i < 100 && !Files.exists(directory.resolve("snapshot.bin")); i++) {
+                Thread.sleep(50);
+            }
+            assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.OS)) {
+            log.recover(recovered);
+
+            assertEquals(100, recovered.count(Person.class));
+        }
+    }
+
+    @Test
+    void recoverTornRecord_shouldDiscardIt() throws IOException {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(store);
+            store.store(new Person(null, "Jane", "a"));
+        }
+        Files.write(segments().get(0), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(recovered);
+            recovered.store(new Person(null, "John", "a"));
+        }
+
+        InMemoryEntityTableStore again = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(again);
+
+            assertEquals(Arrays.asList("Jane", "John"), names(again));
+        }
+    }
+
+    @Test
+    void recoverTornCommit_shouldDiscardAllItsChanges() throws IOException {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(store);
+            store.store(new Person(null, "Jane", "a"));
+            new TransactionTemplate(new InMemoryTransactionManager(store)).executeWithoutResult(status -> {
+                store.store(new Person(null, "John", "a"));
+                store.merge(new Person(1, "Janet", "b"));
+            });
+        }
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(recovered);
+
+            assertEquals(Arrays.asList("Jane"), names(recovered));
+            assertEquals(1, recovered.countBy(Person.class, "tenant", "a"));
+        }
+    }
+
+    @Test
+    void recoverCommit_shouldReplayAllItsChanges() throws IOException {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(store);
+            store.store(new Person(null, "Jane", "a"));
+            new TransactionTemplate(new InMemoryTransactionManager(store)).executeWithoutResult(status -> {
+                store.store(new Person(null, "John", "a"));
+                store.merge(new Person(1, "Janet", "b"));
+                store.remove(store.find(Person.class, 2));
+                store.store(new Person(null, "Max", "a"));
+            });
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(recovered);
+
+            assertEquals(Arrays.asList("Janet", "Max"), names(recovered));
+            assertEquals(1, recovered.countBy(Person.class, "tenant", "b"));
+        }
+    }
+
+    @Test
+    void concurrentWritesWithGroupCommit_shouldAllBeRecovered() throws Exception {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(store);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < 4; thread++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 100; i++) {
+                            Person person = new Person(null, "person", "a");
+                            store.store(person);
+                            person.setTenant("b");
+                            store.merge(person);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.ALWAYS)) {
+            log.recover(recovered);
+
+            assertEquals(400, recovered.countBy(Person.class, "tenant", "b"));
+            assertEquals(0, recovered.countBy(Person.class, "tenant", "a"));
+        }
+    }
+
+    @Test
+    void concurrentWritesAndClear_shouldRecoverSameRows() throws Exception {
+        InMemoryEntityTableStore store = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.OS)) {
+            log.recover(store);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < 4; thread++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 100; i++) {
+                            store.store(new Person(null, "person" + i, "a"));
+                        }
+                    }));
+                }
+                for (int i = 0; i < 10; i++) {
+                    store.clear(Person.class);
+                    Thread.yield();
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        InMemoryEntityTableStore recovered = newStore();
+        try (WriteAheadLog log = newLog(FsyncPolicy.OS)) {
+            log.recover(recovered);
+
+            assertEquals(names(store), names(recovered));
+            assertEquals(store.countBy(Person.class, "tenant", "a"), recovered.countBy(Person.class, "tenant", "a"));
+        }
+    }
+
+    @Test
+    void writeAfterFailure_shouldThrowException() throws IOException {
+        Path failing = Files.createDirectory(directory.resolve("failing"));
+        InMemoryEntityTableStore store = newStore();
+        WriteAheadLog log = new WriteAheadLog(failing.resolve("snapshot.bin"), FsyncPolicy.OS);
+        log.recover(store);
+        store.store(new Person(null, "Jane", "a"));
+        try (Stream<Path> files = Files.list(failing)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(failing);
+
+        assertThrows(UncheckedIOException.class, log::checkpoint);
+        assertThrows(UncheckedIOException.class, () -> store.store(new Person(null, "John", "a")));
+        assertEquals(Arrays.asList("Jane"), names(store));
+        assertEquals(1, store.countBy(Person.class, "tenant", "a"));
+        assertThrows(IOException.class, log::close);
+    }
+
+    @Test
+    void recoverTwice_shouldThrowException() throws IOException {
+        try (WriteAheadLog log = newLog(FsyncPolicy.OS)) {
+            log.recover(newStore());
+
+            assertThrows(IllegalStateException.class, () -> log.recover(newStore()));
+        }
+    }
+
+    @Test
+    void writeAfterClose_shouldThrowException() throws IOException {
+        InMemoryEntityTableStore store = newStore();
+        WriteAheadLog log = newLog(FsyncPolicy.OS);
+        log.recover(store);
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> store.store(new Person(null, "Jane", "a")));
+        assertFalse(store.findAll(Person.class).findAny().isPresent());
+    }
+
+    private WriteAheadLog newLog(FsyncPolicy fsyncPolicy) {
+        return new WriteAheadLog(directory.resolve("snapshot.bin"), fsyncPolicy);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).collect(Collectors.toList());
+        }
+    }
+
+    private static InMemoryEntityTableStore newStore() {
+        InMemoryEntityTableStore store = new InMemoryEntityTableStore();
+        store.add(new InMemoryEntityStore<>(Person.class, new IntegerSequenceGenerator(), StoreMode.CONCURRENT));
+        return store;
+    }
+
+    private static List<String> names(InMemoryEntityTableStore store) {
+        return store.findAll(Person.class)
+            .map(Person::getName)
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Person implements Serializable {
+
+        @Id
+        private Integer id;
+
+        private String name;
+
+        @Indexed
+        private String tenant;
+    }
+}